@@ -0,0 +1,155 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Random;
+
+/**
+ * The class <b>BenchmarkWorkloads</b> builds the workloads measured by the JMH benchmarks.
+ * JMH cannot generate code for benchmarks in the default package, where the game's classes
+ * live, so the benchmarks of the <b>benchmarks</b> package obtain each workload from here
+ * as a Runnable.
+ *
+ * @author Igor Grebenkov
+ */
+public class BenchmarkWorkloads {
+
+    private static final long SEED = 30;            // Seed of the random boards
+    private static final int GUN_SPACING = 64;      // Distance between the guns of the "guns" pattern
+
+    /**
+     * Creates a workload.
+     *
+     * @param workload "step", "stamp", "tiles" or "canvas"
+     * @param model    "array", "packed" or "vector", the packed model stepped with the Vector API
+     * @param size     the size of the grid
+     * @param pattern  "random" (1/30 of the tiles), "half" or "guns"
+     * @return a Runnable executing one operation of the workload
+     */
+    public static Runnable create( String workload, String model, int size, String pattern ) {
+        final GameModel gameModel = model.equals( "array" ) ? new ArrayGameModel( size ) : new PackedGameModel( size );
+        fill( gameModel, pattern );
+
+        switch ( workload ) {
+            case "step":
+                final StepEngine engine = model.equals( "vector" ) ?
+                        createVectorEngine( ( PackedGameModel ) gameModel ) : gameModel.createStepEngine();
+                return new Runnable() {
+                    public void run() {
+                        engine.step();
+                    }
+                };
+            case "stamp":
+                return new Runnable() {
+                    public void run() {
+                        gameModel.reset();
+                        fill( gameModel, "guns" );
+                    }
+                };
+            case "tiles":
+            case "canvas":
+                return viewUpdate( workload, gameModel );
+            default:
+                throw new IllegalArgumentException( "Unknown workload " + workload );
+        }
+    }
+
+    /**
+     * Creates a workload stepping a random board several generations at a time with the temporal engine.
+     *
+     * @param size        the size of the grid
+     * @param generations the number of generations per pass, 0 for the packed engine
+     * @param rows        the number of rows per block, 0 to size the blocks to stay in the cache
+     * @param steps       the number of generations computed by one operation
+     * @return a Runnable computing the given number of generations
+     */
+    public static Runnable createTemporal( int size, int generations, int rows, final int steps ) {
+        PackedGameModel gameModel = new PackedGameModel( size );
+        fill( gameModel, "random" );
+
+        final StepEngine engine = generations == 0 ?
+                gameModel.createStepEngine() : new TemporalBlockingStepEngine( gameModel, generations, rows, 0 );
+        return new Runnable() {
+            public void run() {
+                engine.step( steps );
+            }
+        };
+    }
+
+    /**
+     * Creates a workload updating a view, alternating between two consecutive generations
+     * so that every update changes some tiles.
+     *
+     * @param view      "tiles" or "canvas"
+     * @param gameModel the model holding the first generation
+     * @return a Runnable updating the view once
+     */
+    private static Runnable viewUpdate( String view, GameModel gameModel ) {
+        final BoardView boardView = view.equals( "canvas" ) ?
+                new CanvasGridView( gameModel, null ) : new GridView( gameModel, null );
+        final ViewportFrame[] frames = new ViewportFrame[ 2 ];
+
+        frames[ 0 ] = boardView.createFrame( gameModel, 0 );
+        gameModel.createStepEngine().step();
+        frames[ 1 ] = boardView.createFrame( gameModel, 1 );
+
+        return new Runnable() {
+            private int frame;
+
+            public void run() {
+                boardView.update( frames[ frame ] );
+                frame ^= 1;
+            }
+        };
+    }
+
+    /**
+     * Creates the Vector API engine, refusing to measure the scalar engine in its place.
+     *
+     * @param gameModel the packed model to step
+     * @return the vector engine
+     */
+    private static StepEngine createVectorEngine( PackedGameModel gameModel ) {
+        StepEngine engine = StepEngines.createVectorEngine( gameModel );
+        if ( engine == null ) {
+            throw new IllegalStateException( "The Vector API is not available, run the benchmarks on Java 17 or later "
+                    + "with -jvmArgsAppend \"--add-modules jdk.incubator.vector\"" );
+        }
+        return engine;
+    }
+
+    /**
+     * Fills a model with a pattern.
+     *
+     * @param gameModel the model to fill
+     * @param pattern   "random" (1/30 of the tiles), "half" or "guns"
+     */
+    private static void fill( GameModel gameModel, String pattern ) {
+        int width = gameModel.getWidth();
+        int height = gameModel.getHeight();
+
+        if ( pattern.equals( "guns" ) ) {
+            // Gosper glider guns spread over the grid, or a single one on small grids
+            Pattern gun = PatternLibrary.createDefault().get( "Gosper Glider Gun" );
+            int spacing = Math.min( GUN_SPACING, Math.min( width, height ) );
+            for ( int x = spacing / 2; x < width; x += spacing ) {
+                for ( int y = spacing / 2; y < height; y += spacing ) {
+                    try {
+                        gun.stamp( gameModel, x, y );
+                    } catch ( IOException e ) {
+                        throw new UncheckedIOException( e );
+                    }
+                }
+            }
+            return;
+        }
+
+        int oneIn = pattern.equals( "half" ) ? 2 : 30;
+        Random random = new Random( SEED );
+        for ( int i = 0; i < width; i++ ) {
+            for ( int j = 0; j < height; j++ ) {
+                if ( random.nextInt( oneIn ) == 0 ) {
+                    gameModel.selectTile( i, j );
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * The class <b>BenchmarkMain</b> runs the benchmarks with the usual JMH command line options,
+ * writing the results as JSON to jmh-result.json unless another format or file is given,
+ * so that runs of different releases can be compared.
+ *
+ * @author Igor Grebenkov
+ */
+public class BenchmarkMain {
+
+    /**
+     * The <b>main</b> method of the benchmarks.
+     *
+     * @param args JMH command line options
+     * @throws Exception if the options are invalid or a benchmark fails
+     */
+    public static void main( String[] args ) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions( args );
+        ChainedOptionsBuilder options = new OptionsBuilder().parent( commandLine );
+
+        if ( !commandLine.getResultFormat().hasValue() ) {
+            options.resultFormat( ResultFormatType.JSON );
+        }
+        if ( !commandLine.getResult().hasValue() ) {
+            options.result( "jmh-result.json" );
+        }
+        new Runner( options.build() ).run();
+    }
+}
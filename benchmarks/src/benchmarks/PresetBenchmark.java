@@ -0,0 +1,37 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The class <b>PresetBenchmark</b> measures clearing a grid and stamping Gosper glider guns
+ * over it, 64 tiles apart.
+ *
+ * @author Igor Grebenkov
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class PresetBenchmark {
+
+    @Param( { "array", "packed" } )
+    public String model;
+
+    @Param( { "49", "1024" } )
+    public int size;
+
+    private Runnable stamp;
+
+    @Setup( Level.Trial )
+    public void setUp() {
+        stamp = Workloads.create( "stamp", model, size, "guns" );
+    }
+
+    @Benchmark
+    public void stamp() {
+        stamp.run();
+    }
+}
@@ -0,0 +1,38 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The class <b>RenderBenchmark</b> measures updating the grid's view with a new snapshot,
+ * for the view made of one button per tile and for the canvas view.
+ * Runs headless, so the time measured excludes the painting done by the window system.
+ *
+ * @author Igor Grebenkov
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( value = 1, jvmArgsAppend = "-Djava.awt.headless=true" )
+public class RenderBenchmark {
+
+    @Param( { "tiles", "canvas" } )
+    public String view;
+
+    @Param( { "49", "100" } )
+    public int size;
+
+    private Runnable update;
+
+    @Setup( Level.Trial )
+    public void setUp() {
+        update = Workloads.create( view, "array", size, "random" );
+    }
+
+    @Benchmark
+    public void update() {
+        update.run();
+    }
+}
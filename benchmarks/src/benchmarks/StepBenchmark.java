@@ -0,0 +1,42 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The class <b>StepBenchmark</b> measures the number of generations computed per second,
+ * the work formerly done by GameController.cacheNextGenStatuses(), for each model,
+ * grid size and starting pattern. The vector model needs the Vector API module, so it only
+ * runs when selected with -p model=vector.
+ *
+ * @author Igor Grebenkov
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class StepBenchmark {
+
+    @Param( { "array", "packed" } )
+    public String model;
+
+    @Param( { "49", "256", "1024", "4096" } )
+    public int size;
+
+    @Param( { "random", "half", "guns" } )
+    public String pattern;
+
+    private Runnable step;
+
+    @Setup( Level.Trial )
+    public void setUp() {
+        step = Workloads.create( "step", model, size, pattern );
+    }
+
+    @Benchmark
+    public void step() {
+        step.run();
+    }
+}
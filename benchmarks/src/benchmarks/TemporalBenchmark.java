@@ -0,0 +1,44 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The class <b>TemporalBenchmark</b> measures the number of generations computed per second on
+ * boards larger than the caches, stepped by <b>TemporalBlockingStepEngine</b> with a number of
+ * generations per pass over the grid. A pass reads and writes the packed board once, 16 MB for
+ * an 8192x8192 board, so k generations per pass move about 16 / k MB per generation; 0 steps
+ * the board with <b>PackedStepEngine</b>, one generation per pass, for comparison.
+ *
+ * @author Igor Grebenkov
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 3, time = 4 )
+@Measurement( iterations = 5, time = 4 )
+@Fork( 1 )
+@OperationsPerInvocation( Workloads.TEMPORAL_GENERATIONS )
+public class TemporalBenchmark {
+
+    @Param( { "8192" } )
+    public int size;
+
+    @Param( { "0", "1", "2", "4", "8", "16" } )
+    public int generations;
+
+    @Param( { "0" } )
+    public int rows;
+
+    private Runnable step;
+
+    @Setup( Level.Trial )
+    public void setUp() {
+        step = Workloads.createTemporal( size, generations, rows );
+    }
+
+    @Benchmark
+    public void step() {
+        step.run();
+    }
+}
@@ -0,0 +1,52 @@
+package benchmarks;
+
+/**
+ * The class <b>Workloads</b> looks up the workloads built by the default package class
+ * <b>BenchmarkWorkloads</b>, which cannot be referenced by name from a named package.
+ *
+ * @author Igor Grebenkov
+ */
+final class Workloads {
+
+    static final int TEMPORAL_GENERATIONS = 16;    // Generations computed by one operation of createTemporal
+
+    private Workloads() {
+    }
+
+    /**
+     * Creates a workload.
+     *
+     * @param workload "step", "stamp", "tiles" or "canvas"
+     * @param model    "array", "packed" or "vector"
+     * @param size     the size of the grid
+     * @param pattern  "random", "half" or "guns"
+     * @return a Runnable executing one operation of the workload
+     */
+    static Runnable create( String workload, String model, int size, String pattern ) {
+        try {
+            return ( Runnable ) Class.forName( "BenchmarkWorkloads" )
+                    .getMethod( "create", String.class, String.class, int.class, String.class )
+                    .invoke( null, workload, model, size, pattern );
+        } catch ( ReflectiveOperationException e ) {
+            throw new IllegalStateException( "Cannot create workload " + workload, e );
+        }
+    }
+
+    /**
+     * Creates a workload stepping a random board TEMPORAL_GENERATIONS generations with the temporal engine.
+     *
+     * @param size        the size of the grid
+     * @param generations the number of generations per pass, 0 for the packed engine
+     * @param rows        the number of rows per block, 0 to size the blocks to stay in the cache
+     * @return a Runnable computing TEMPORAL_GENERATIONS generations
+     */
+    static Runnable createTemporal( int size, int generations, int rows ) {
+        try {
+            return ( Runnable ) Class.forName( "BenchmarkWorkloads" )
+                    .getMethod( "createTemporal", int.class, int.class, int.class, int.class )
+                    .invoke( null, size, generations, rows, TEMPORAL_GENERATIONS );
+        } catch ( ReflectiveOperationException e ) {
+            throw new IllegalStateException( "Cannot create the temporal workload", e );
+        }
+    }
+}
@@ -0,0 +1,190 @@
+import java.util.Arrays;
+
+/**
+ * The class <b>ArrayGameModel</b> is a <b>GameModel</b> that stores one int per tile, in an
+ * array of columns padded with a border of ghost tiles: the tile at (i,j) is held at
+ * [i + 1][j + 1]. <b>ArrayStepEngine</b> and <b>DirtyTileStepEngine</b> step the array in place,
+ * so they only accept this model.
+ *
+ * @author Igor Grebenkov
+ */
+public class ArrayGameModel extends GameModel {
+
+    private int[][] tileStates;    // The state of each tile, padded with a border of ghost tiles
+
+    /**
+     * Constructor to initialize the model to a given size of square grid.
+     *
+     * @param size the number of columns and rows of the grid
+     */
+    public ArrayGameModel( int size ) {
+        super( size );
+    }
+
+    /**
+     * Constructor to initialize the model to a given width and height of grid.
+     *
+     * @param width  the number of columns of the grid
+     * @param height the number of rows of the grid
+     */
+    public ArrayGameModel( int width, int height ) {
+        super( width, height );
+    }
+
+    /**
+     * Makes every tile inactive, reusing the current array when the grid keeps its dimensions.
+     */
+    @Override
+    protected void clearTiles() {
+        int width = getWidth();
+        int height = getHeight();
+
+        markAllTilesModified();
+        if ( tileStates == null || tileStates.length != width + 2 || tileStates[ 0 ].length != height + 2 ) {
+            tileStates = new int[ width + 2 ][ height + 2 ];
+            return;
+        }
+        for ( int[] column : tileStates ) {
+            Arrays.fill( column, INACTIVE );
+        }
+    }
+
+    /**
+     * Creates an engine able to compute successive generations of this model.
+     *
+     * @return a step engine for this model
+     */
+    @Override
+    public StepEngine createStepEngine() {
+        return new ArrayStepEngine( this );
+    }
+
+    /**
+     * Fills the border of the padded tile array with the ghost tiles given by the boundary.
+     * Called by the engines reading the padded array before each generation.
+     */
+    public void fillGhostTiles() {
+        int width = getWidth();
+        int height = getHeight();
+        for ( int i = -1; i <= width; i++ ) {
+            tileStates[ i + 1 ][ 0 ] = getGhostStatus( i, -1 );
+            tileStates[ i + 1 ][ height + 1 ] = getGhostStatus( i, height );
+        }
+        for ( int j = -1; j <= height; j++ ) {
+            tileStates[ 0 ][ j + 1 ] = getGhostStatus( -1, j );
+            tileStates[ width + 1 ][ j + 1 ] = getGhostStatus( width, j );
+        }
+    }
+
+    /**
+     * Getter method to return the game's model.
+     * The array is padded with one border tile on each side, so the tile at (i,j)
+     * is stored at [i + 1][j + 1]. The border holds the ghost tiles last filled by fillGhostTiles().
+     *
+     * @return the game model
+     */
+    public int[][] getTileStates() {
+        return tileStates;
+    }
+
+    /**
+     * Replaces the state of every tile with a buffer holding the next generation.
+     * The buffer must be padded the same way as the one returned by getTileStates().
+     *
+     * @param nextStates the padded state of each tile in the next generation
+     * @return the previous buffer, which the caller may reuse
+     */
+    public int[][] swapTileStates( int[][] nextStates ) {
+        markModified();
+        int[][] previousStates = tileStates;
+        tileStates = nextStates;
+        return previousStates;
+    }
+
+    /**
+     * Getter method to return the status of a title
+     *
+     * @param i the tile's x co-ordinate
+     * @param j the tile's y co-ordinate
+     * @return the status (active or inactive) of the tile at (i,j)
+     */
+    @Override
+    public int getCurrentStatus( int i, int j ) {
+        return tileStates[ i + 1 ][ j + 1 ];
+    }
+
+    /**
+     * Copies a row of tiles, packed one bit per tile as in <b>PackedGameModel</b>.
+     *
+     * @param j      the row to copy
+     * @param row    the array the packed row is written into
+     * @param offset the index of the first word written
+     */
+    @Override
+    public void readRow( int j, long[] row, int offset ) {
+        int width = getWidth();
+        int wordsPerRow = PackedGameModel.wordsFor( width );
+        for ( int w = 0; w < wordsPerRow; w++ ) {
+            row[ offset + w ] = 0;
+        }
+        for ( int i = 0; i < width; i++ ) {
+            row[ offset + ( i >>> 6 ) ] |= ( long ) tileStates[ i + 1 ][ j + 1 ] << i;
+        }
+    }
+
+    /**
+     * Replaces a row of tiles with a row packed one bit per tile as in <b>PackedGameModel</b>.
+     * Bits beyond the width of the grid are ignored.
+     *
+     * @param j      the row to replace
+     * @param row    the array holding the packed row
+     * @param offset the index of the first word read
+     */
+    @Override
+    public void writeRow( int j, long[] row, int offset ) {
+        int width = getWidth();
+        markRunModified( 0, j, width );
+        for ( int i = 0; i < width; i++ ) {
+            tileStates[ i + 1 ][ j + 1 ] = ( int ) ( row[ offset + ( i >>> 6 ) ] >>> i ) & 1;
+        }
+    }
+
+    /**
+     * Method that selects a tile and makes it active.
+     *
+     * @param i the tile's x co-ordinate
+     * @param j the tile's y co-ordinate
+     */
+    @Override
+    public void selectTile( int i, int j ) {
+        markTileModified( i, j );
+        tileStates[ i + 1 ][ j + 1 ] = ACTIVE;
+    }
+
+    /**
+     * Method that selects a run of tiles along a row and makes them active.
+     *
+     * @param i      the x co-ordinate of the first tile
+     * @param j      the tiles' y co-ordinate
+     * @param length the number of tiles in the run
+     */
+    @Override
+    public void selectRun( int i, int j, int length ) {
+        markRunModified( i, j, length );
+        for ( int x = i; x < i + length; x++ ) {
+            tileStates[ x + 1 ][ j + 1 ] = ACTIVE;
+        }
+    }
+
+    /**
+     * Method that unSelects a tile and makes it inactive.
+     *
+     * @param i the tile's x co-ordinate
+     * @param j the tile's y co-ordinate
+     */
+    @Override
+    public void unselectTile( int i, int j ) {
+        markTileModified( i, j );
+        tileStates[ i + 1 ][ j + 1 ] = INACTIVE;
+    }
+}
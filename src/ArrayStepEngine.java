@@ -0,0 +1,105 @@
+/**
+ * The class <b>ArrayStepEngine</b> computes each generation directly from the
+ * padded tile array held by <b>ArrayGameModel</b>. The next status of each tile is looked up in
+ * the table of the model's <b>Rule</b>, indexed by the state of the tile's 3x3 neighbourhood.
+ * The border of ghost tiles around the array, filled according to the model's boundary
+ * before each generation, means no tile needs bounds checks,
+ * and the next generation is written into a second buffer that is swapped with the model's,
+ * so stepping does not allocate.
+ *
+ * @author Igor Grebenkov
+ */
+public class ArrayStepEngine extends BandedStepEngine {
+
+    private ArrayGameModel gameModel;   // Reference to the game's model
+    private int[][] states;         // Padded state of the current generation
+    private int[][] nextStates;     // Buffer the next generation is written into
+    private BoardHash boardHash;    // Hash of the board updated while stepping, null if not hashed
+
+    /**
+     * Constructor to initialize the engine for a given model.
+     *
+     * @param gameModel the game's model
+     */
+    public ArrayStepEngine( ArrayGameModel gameModel ) {
+        this.gameModel = gameModel;
+    }
+
+    /**
+     * Prepares the buffers used to compute the next generation.
+     *
+     * @return the number of columns that make up the grid, the array being stored column by column
+     */
+    protected int prepare() {
+        states = gameModel.getTileStates();
+        gameModel.fillGhostTiles();
+
+        // The model allocates a new array on reset and resize, so only reuse a buffer of the same dimensions
+        if ( nextStates == null || nextStates.length != states.length || nextStates[ 0 ].length != states[ 0 ].length ) {
+            nextStates = new int[ gameModel.getWidth() + 2 ][ gameModel.getHeight() + 2 ];
+        }
+        BoardHash hash = gameModel.getBoardHash();
+        boardHash = hash != null && hash.isCurrent( gameModel ) ? hash : null;
+        return gameModel.getWidth();
+    }
+
+    /**
+     * Computes the next generation of a band of columns, the padded array being stored
+     * column by column.
+     *
+     * @param from the first column of the band
+     * @param to   the column after the last column of the band
+     */
+    protected void computeBand( int from, int to ) {
+        int height = gameModel.getHeight();
+        byte[] table = gameModel.getRule().getTable();
+        long change = 0;
+
+        for ( int i = from + 1; i <= to; i++ ) {
+            int[] left = states[ i - 1 ];
+            int[] middle = states[ i ];
+            int[] right = states[ i + 1 ];
+            int[] next = nextStates[ i ];
+
+            // The 3x3 neighbourhood of the tile, three bits for each row j-1..j+1 from
+            // the columns i-1..i+1, rolled along the column one row at a time
+            int neighbourhood = ( left[ 0 ] << 2 | middle[ 0 ] << 1 | right[ 0 ] ) << 3
+                    | left[ 1 ] << 2 | middle[ 1 ] << 1 | right[ 1 ];
+
+            if ( boardHash == null ) {
+                for ( int j = 1; j <= height; j++ ) {
+                    neighbourhood = ( neighbourhood << 3 & 0x1FF )
+                            | left[ j + 1 ] << 2 | middle[ j + 1 ] << 1 | right[ j + 1 ];
+                    next[ j ] = table[ neighbourhood ];
+                }
+            } else {
+                // The same, also hashing the tiles that change, the tile itself being the centre of its neighbourhood
+                for ( int j = 1; j <= height; j++ ) {
+                    neighbourhood = ( neighbourhood << 3 & 0x1FF )
+                            | left[ j + 1 ] << 2 | middle[ j + 1 ] << 1 | right[ j + 1 ];
+                    int state = table[ neighbourhood ];
+                    next[ j ] = state;
+                    if ( state != ( neighbourhood >>> Rule.CENTRE_BIT & 1 ) ) {
+                        change ^= BoardHash.tileKey( i - 1, j - 1, height );
+                    }
+                }
+            }
+        }
+        if ( boardHash != null ) {
+            boardHash.add( change );
+        }
+    }
+
+    /**
+     * Makes the computed generation the current state of the game's model.
+     */
+    protected void commit() {
+        long modifications = gameModel.getModificationCount();
+        nextStates = gameModel.swapTileStates( nextStates );
+        states = null;
+        if ( boardHash != null ) {
+            boardHash.commit( gameModel, modifications );
+            boardHash = null;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ * The class <b>BandedStepEngine</b> is the base of the engines whose generation can be
+ * computed as independent bands of rows. Every band only reads the current generation
+ * and only writes its own rows of the next one, so bands may be computed in any order
+ * or in parallel, as long as all of them finish before the next generation is committed.
+ *
+ * @author Igor Grebenkov
+ */
+public abstract class BandedStepEngine implements StepEngine {
+
+    /**
+     * Advances the game's model by one generation, computing all rows as a single band.
+     */
+    public void step() {
+        step( 1 );
+    }
+
+    /**
+     * Advances the game's model by a number of generations, computing all rows as a single band
+     * in each pass over the grid.
+     *
+     * @param generations the number of generations
+     */
+    public void step( int generations ) {
+        while ( generations > 0 ) {
+            generations -= beginPass( generations );
+            int rows = prepare();
+            computeBand( 0, rows );
+            commit();
+        }
+    }
+
+    /**
+     * Chooses how many generations the next pass over the grid computes, before it is prepared.
+     * Engines computing one generation per pass keep this default.
+     *
+     * @param generations the number of generations still to compute, at least 1
+     * @return the number of generations the pass computes, from 1 to generations
+     */
+    protected int beginPass( int generations ) {
+        return 1;
+    }
+
+    /**
+     * Prepares the buffers used to compute the next generation.
+     *
+     * @return the number of rows that make up the grid
+     */
+    protected abstract int prepare();
+
+    /**
+     * Computes the generation reached by the pass for a band of rows.
+     *
+     * @param from the first row of the band
+     * @param to   the row after the last row of the band
+     */
+    protected abstract void computeBand( int from, int to );
+
+    /**
+     * Makes the computed generation the current state of the game's model.
+     */
+    protected abstract void commit();
+}
@@ -0,0 +1,510 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The class <b>BoardFile</b> saves boards to files and loads them back, in a compact
+ * versioned binary format. Files are read and written through memory-mapped regions of
+ * a FileChannel, one packed row at a time, so a board is never copied whole through the heap.
+ * <p>
+ * The file starts with a 48 byte header, all values little-endian:
+ * <pre>
+ *  0  int   magic, "GOLB"
+ *  4  short version
+ *  6  short flags, 1 if the payload is compressed
+ *  8  int   width of the grid
+ * 12  int   height of the grid
+ * 16  long  generation
+ * 24  long  population
+ * 32  long  64-bit FNV-1a checksum of the packed rows
+ * 40  long  number of words in the payload
+ * </pre>
+ * The payload holds the rows packed one bit per tile as in <b>PackedGameModel</b>. Compressed
+ * payloads are a sequence of tokens, each a word holding a number of zero words in its high half
+ * and a number of literal words in its low half, followed by the literal words.
+ * <p>
+ * Files of version 1 hold square grids and leave the height reserved as 0; they are read
+ * with a height equal to their width.
+ *
+ * @author Igor Grebenkov
+ */
+public class BoardFile {
+
+    public static final String EXTENSION = "gol";       // Extension of board files
+    public static final int VERSION = 2;                // Version of the format written
+    private static final int SQUARE_VERSION = 1;        // Version of the format holding square grids only
+    private static final int MAGIC = 0x424C4F47;        // "GOLB" read as a little-endian int
+    private static final int FLAG_COMPRESSED = 1;       // Flag of compressed payloads
+    private static final int HEADER_BYTES = 48;         // Size of the header
+    private static final long REGION_BYTES = 1L << 30;  // Largest region of a file mapped at once
+    private static final int MAX_LITERALS = 4096;       // Largest number of literal words in a token
+    private static final long FNV_OFFSET = 0xCBF29CE484222325L;   // FNV-1a initial value
+    private static final long FNV_PRIME = 0x100000001B3L;         // FNV-1a multiplier
+
+    private int width;              // The number of columns of the grid
+    private int height;             // The number of rows of the grid
+    private long generation;        // The generation the board was saved at
+    private long population;        // Number of active tiles
+    private long checksum;          // Checksum of the packed rows
+    private boolean compressed;     // Whether the payload is compressed
+    private long payloadWords;      // Number of words in the payload
+
+    /**
+     * Constructor to initialize the header of a board file.
+     */
+    private BoardFile( int width, int height, long generation, long population, long checksum,
+                       boolean compressed, long payloadWords ) {
+        this.width = width;
+        this.height = height;
+        this.generation = generation;
+        this.population = population;
+        this.checksum = checksum;
+        this.compressed = compressed;
+        this.payloadWords = payloadWords;
+    }
+
+    /**
+     * Saves a board. The file is written under a temporary name and renamed once complete,
+     * so an interrupted save never leaves a truncated board behind.
+     *
+     * @param board      the board to save, which must not be modified meanwhile
+     * @param generation the generation of the board
+     * @param file       the file to write
+     * @param compress   whether to compress runs of empty words
+     * @throws IOException if the file cannot be written or the board has more than two states
+     */
+    public static void save( PackedBoard board, long generation, File file, boolean compress ) throws IOException {
+        int width = board.getWidth();
+        int height = board.getHeight();
+
+        // The format holds one bit per tile, which would lose the states of a multi-state board
+        if ( board instanceof MultiStateGameModel ) {
+            throw new IOException( "Multi-state boards cannot be saved in the board format" );
+        }
+
+        // Compressed payloads are measured first so the whole file can be mapped
+        long payloadWords = ( long ) height * PackedGameModel.wordsFor( width );
+        if ( compress ) {
+            payloadWords = writeRows( board, new WordWriter( null, 0, 0 ), true ).payloadWords;
+        }
+        long length = HEADER_BYTES + payloadWords * 8;
+
+        File temporary = new File( file.getPath() + ".tmp" );
+        try ( FileChannel channel = FileChannel.open( temporary.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE ) ) {
+            WordWriter out = new WordWriter( channel, HEADER_BYTES, length );
+            BoardFile written = writeRows( board, out, compress );
+            out.finish();
+
+            MappedByteBuffer header = map( channel, FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES );
+            header.putInt( 0, MAGIC );
+            header.putShort( 4, ( short ) VERSION );
+            header.putShort( 6, ( short ) ( compress ? FLAG_COMPRESSED : 0 ) );
+            header.putInt( 8, width );
+            header.putInt( 12, height );
+            header.putLong( 16, generation );
+            header.putLong( 24, written.population );
+            header.putLong( 32, written.checksum );
+            header.putLong( 40, written.payloadWords );
+            header.force();
+        }
+        Files.move( temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE );
+    }
+
+    /**
+     * Reads the header of a board file.
+     *
+     * @param file the file to read
+     * @return the header
+     * @throws IOException if the file cannot be read or is not a board file
+     */
+    public static BoardFile readHeader( File file ) throws IOException {
+        try ( FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ ) ) {
+            return readHeader( channel, file );
+        }
+    }
+
+    /**
+     * Reads the header of a board file and verifies the checksum and population of its rows,
+     * without loading the board. Used to check a file before making room for its board.
+     *
+     * @param file the file to read
+     * @return the header
+     * @throws IOException if the file cannot be read, is not a board file or is corrupt
+     */
+    public static BoardFile verify( File file ) throws IOException {
+        try ( FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ ) ) {
+            BoardFile header = readHeader( channel, file );
+            checkRows( header, readRows( channel, header, null ), file );
+            return header;
+        }
+    }
+
+    /**
+     * Loads a board into a model. The file is verified before the model is modified,
+     * so the model is left untouched if the file is corrupt.
+     *
+     * @param file      the file to read
+     * @param gameModel the model to load the board into, of the same width and height as the board
+     * @return the header of the file, giving the generation of the board
+     * @throws IOException if the file cannot be read, is corrupt or holds a board of other dimensions
+     */
+    public static BoardFile load( File file, GameModel gameModel ) throws IOException {
+        return load( file, gameModel, verify( file ) );
+    }
+
+    /**
+     * Loads a board already checked by <b>verify</b> into a model, reading the file only once.
+     * The rows are still checked on the way, but only once they are in the model, so the model
+     * holds a partial board if the file was modified since it was verified.
+     *
+     * @param file      the file to read
+     * @param gameModel the model to load the board into, of the same width and height as the board
+     * @param verified  the header returned by <b>verify</b> for the file
+     * @return the header of the file, giving the generation of the board
+     * @throws IOException if the file cannot be read, was modified since it was verified or holds
+     *                     a board of other dimensions
+     */
+    public static BoardFile load( File file, GameModel gameModel, BoardFile verified ) throws IOException {
+        try ( FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ ) ) {
+            BoardFile header = readHeader( channel, file );
+            if ( header.width != gameModel.getWidth() || header.height != gameModel.getHeight() ) {
+                throw new IOException( file + " holds a " + header.width + "x" + header.height + " board" );
+            }
+            if ( header.checksum != verified.checksum || header.payloadWords != verified.payloadWords ) {
+                throw new IOException( file + " was modified since it was verified" );
+            }
+            checkRows( header, readRows( channel, header, gameModel ), file );
+            return header;
+        }
+    }
+
+    /**
+     * Computes the 64-bit FNV-1a checksum of the packed rows of a board, the checksum saved with
+     * it. Every model and engine holding the same board produces the same checksum.
+     *
+     * @param board the board
+     * @return the checksum
+     */
+    public static long checksum( PackedBoard board ) {
+        long[] row = new long[ PackedGameModel.wordsFor( board.getWidth() ) ];
+        long checksum = FNV_OFFSET;
+
+        for ( int j = 0; j < board.getHeight(); j++ ) {
+            board.readRow( j, row, 0 );
+            for ( long word : row ) {
+                checksum = fnv( checksum, word );
+            }
+        }
+        return checksum;
+    }
+
+    /**
+     * Getter method for the width of the grid.
+     *
+     * @return the number of columns of the grid
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Getter method for the height of the grid.
+     *
+     * @return the number of rows of the grid
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Getter method for the generation the board was saved at.
+     *
+     * @return the generation
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Getter method for the number of active tiles.
+     *
+     * @return the population
+     */
+    public long getPopulation() {
+        return population;
+    }
+
+    /**
+     * Getter method for the checksum of the packed rows.
+     *
+     * @return the 64-bit FNV-1a checksum
+     */
+    public long getChecksum() {
+        return checksum;
+    }
+
+    /**
+     * Getter method for whether the payload is compressed.
+     *
+     * @return true if the payload is compressed
+     */
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    /**
+     * Writes the rows of a board, computing the population and checksum on the way.
+     *
+     * @param board    the board to write
+     * @param out      the writer of the payload
+     * @param compress whether to compress runs of empty words
+     * @return the population, checksum and number of words written
+     * @throws IOException if the payload cannot be written
+     */
+    private static BoardFile writeRows( PackedBoard board, WordWriter out, boolean compress ) throws IOException {
+        int height = board.getHeight();
+        long[] row = new long[ PackedGameModel.wordsFor( board.getWidth() ) ];
+        long[] literals = new long[ MAX_LITERALS ];
+        int numberOfLiterals = 0;
+        long zeros = 0;
+        long population = 0;
+        long checksum = FNV_OFFSET;
+
+        for ( int j = 0; j < height; j++ ) {
+            board.readRow( j, row, 0 );
+            for ( long word : row ) {
+                population += Long.bitCount( word );
+                checksum = fnv( checksum, word );
+
+                if ( !compress ) {
+                    out.putLong( word );
+                } else if ( word != 0 ) {
+                    literals[ numberOfLiterals++ ] = word;
+                    if ( numberOfLiterals == MAX_LITERALS ) {
+                        putToken( out, zeros, literals, numberOfLiterals );
+                        zeros = 0;
+                        numberOfLiterals = 0;
+                    }
+                } else {
+                    if ( numberOfLiterals > 0 || zeros == Integer.MAX_VALUE ) {
+                        putToken( out, zeros, literals, numberOfLiterals );
+                        zeros = 0;
+                        numberOfLiterals = 0;
+                    }
+                    zeros++;
+                }
+            }
+        }
+        if ( zeros > 0 || numberOfLiterals > 0 ) {
+            putToken( out, zeros, literals, numberOfLiterals );
+        }
+        return new BoardFile( board.getWidth(), height, 0, population, checksum, compress, out.getCount() );
+    }
+
+    /**
+     * Writes a token of a compressed payload and its literal words.
+     */
+    private static void putToken( WordWriter out, long zeros, long[] literals, int numberOfLiterals )
+            throws IOException {
+        out.putLong( zeros << 32 | numberOfLiterals );
+        for ( int w = 0; w < numberOfLiterals; w++ ) {
+            out.putLong( literals[ w ] );
+        }
+    }
+
+    /**
+     * Reads the rows of a board file.
+     *
+     * @param channel   the channel of the file
+     * @param header    the header of the file
+     * @param gameModel the model the rows are written into, or null to only compute the checksum
+     * @return the population and checksum of the rows
+     * @throws IOException if the payload is corrupt
+     */
+    private static BoardFile readRows( FileChannel channel, BoardFile header, GameModel gameModel ) throws IOException {
+        WordReader in = new WordReader( channel, HEADER_BYTES, HEADER_BYTES + header.payloadWords * 8 );
+        long[] row = new long[ PackedGameModel.wordsFor( header.width ) ];
+        long zeros = 0, literals = 0;
+        long population = 0;
+        long checksum = FNV_OFFSET;
+
+        for ( int j = 0; j < header.height; j++ ) {
+            for ( int w = 0; w < row.length; w++ ) {
+                long word;
+                if ( !header.compressed ) {
+                    word = in.getLong();
+                } else {
+                    while ( zeros == 0 && literals == 0 ) {
+                        long token = in.getLong();
+                        zeros = token >>> 32;
+                        literals = token & 0xFFFFFFFFL;
+                        if ( token == 0 ) {
+                            throw new IOException( "Corrupt board file" );
+                        }
+                    }
+                    if ( zeros > 0 ) {
+                        zeros--;
+                        word = 0;
+                    } else {
+                        literals--;
+                        word = in.getLong();
+                    }
+                }
+                row[ w ] = word;
+                population += Long.bitCount( word );
+                checksum = fnv( checksum, word );
+            }
+            if ( gameModel != null ) {
+                gameModel.writeRow( j, row, 0 );
+            }
+        }
+        if ( zeros > 0 || literals > 0 || in.hasRemaining() ) {
+            throw new IOException( "Corrupt board file" );
+        }
+        return new BoardFile( header.width, header.height, 0, population, checksum, header.compressed,
+                header.payloadWords );
+    }
+
+    /**
+     * Adds a word to a 64-bit FNV-1a checksum.
+     */
+    private static long fnv( long checksum, long word ) {
+        return ( checksum ^ word ) * FNV_PRIME;
+    }
+
+    /**
+     * Checks the rows read from a board file against its header.
+     *
+     * @param header the header of the file
+     * @param rows   the population and checksum of the rows read
+     * @param file   the file, named in the message of the exception
+     * @throws IOException if the checksum or the population of the rows differs from the header
+     */
+    private static void checkRows( BoardFile header, BoardFile rows, File file ) throws IOException {
+        if ( rows.checksum != header.checksum ) {
+            throw new IOException( "Checksum mismatch in " + file );
+        }
+        if ( rows.population != header.population ) {
+            throw new IOException( "Population mismatch in " + file );
+        }
+    }
+
+    /**
+     * Reads and validates the header of a board file.
+     */
+    private static BoardFile readHeader( FileChannel channel, File file ) throws IOException {
+        if ( channel.size() < HEADER_BYTES ) {
+            throw new IOException( "Not a board file: " + file );
+        }
+        MappedByteBuffer header = map( channel, FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES );
+        if ( header.getInt( 0 ) != MAGIC ) {
+            throw new IOException( "Not a board file: " + file );
+        }
+        short version = header.getShort( 4 );
+        if ( version != VERSION && version != SQUARE_VERSION ) {
+            throw new IOException( "Unsupported board file version " + version + ": " + file );
+        }
+        int width = header.getInt( 8 );
+        int height = version == SQUARE_VERSION ? width : header.getInt( 12 );
+        BoardFile boardFile = new BoardFile( width, height, header.getLong( 16 ), header.getLong( 24 ),
+                header.getLong( 32 ), ( header.getShort( 6 ) & FLAG_COMPRESSED ) != 0, header.getLong( 40 ) );
+
+        if ( boardFile.width <= 0 || boardFile.height <= 0 || boardFile.payloadWords < 0
+                || channel.size() != HEADER_BYTES + boardFile.payloadWords * 8 ) {
+            throw new IOException( "Corrupt board file: " + file );
+        }
+        return boardFile;
+    }
+
+    /**
+     * Maps a region of a file in little-endian order.
+     */
+    private static MappedByteBuffer map( FileChannel channel, FileChannel.MapMode mode, long position, long length )
+            throws IOException {
+        MappedByteBuffer buffer = channel.map( mode, position, length );
+        buffer.order( ByteOrder.LITTLE_ENDIAN );
+        return buffer;
+    }
+
+    /**
+     * The nested class <b>WordWriter</b> writes words to a file through successive mapped regions,
+     * or only counts them when it has no file.
+     */
+    private static class WordWriter {
+        private FileChannel channel;        // The channel of the file, null to only count
+        private long end;                   // Position of the end of the file
+        private long position;              // Position of the start of the current region
+        private MappedByteBuffer buffer;    // The current region
+        private long count;                 // Number of words written
+
+        WordWriter( FileChannel channel, long start, long end ) {
+            this.channel = channel;
+            this.end = end;
+            position = start;
+        }
+
+        void putLong( long word ) throws IOException {
+            count++;
+            if ( channel == null ) {
+                return;
+            }
+            if ( buffer == null || !buffer.hasRemaining() ) {
+                if ( buffer != null ) {
+                    buffer.force();
+                    position += buffer.capacity();
+                }
+                buffer = map( channel, FileChannel.MapMode.READ_WRITE, position,
+                        Math.min( REGION_BYTES, end - position ) );
+            }
+            buffer.putLong( word );
+        }
+
+        void finish() {
+            if ( buffer != null ) {
+                buffer.force();
+            }
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+
+    /**
+     * The nested class <b>WordReader</b> reads words from a file through successive mapped regions.
+     */
+    private static class WordReader {
+        private FileChannel channel;        // The channel of the file
+        private long end;                   // Position of the end of the payload
+        private long position;              // Position of the start of the next region
+        private MappedByteBuffer buffer;    // The current region
+
+        WordReader( FileChannel channel, long start, long end ) {
+            this.channel = channel;
+            this.end = end;
+            position = start;
+        }
+
+        long getLong() throws IOException {
+            if ( buffer == null || !buffer.hasRemaining() ) {
+                if ( position >= end ) {
+                    throw new IOException( "Corrupt board file" );
+                }
+                buffer = map( channel, FileChannel.MapMode.READ_ONLY, position, Math.min( REGION_BYTES, end - position ) );
+                position += buffer.capacity();
+            }
+            return buffer.getLong();
+        }
+
+        boolean hasRemaining() {
+            return position < end || ( buffer != null && buffer.hasRemaining() );
+        }
+    }
+}
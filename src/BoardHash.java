@@ -0,0 +1,181 @@
+/**
+ * The class <b>BoardHash</b> holds a Zobrist-style hash of the board of a <b>GameModel</b>: every
+ * word of the packed rows contributes a keyed hash of its position and content, and the hash of the
+ * board is the exclusive or of all the contributions, so it follows a change of a word by the
+ * contributions of its old and new content alone. The tiles of an <b>ArrayGameModel</b> are
+ * not packed, each active tile contributing the key of its position, so a tile that changes
+ * toggles its key.
+ * <p>
+ * The step engines that can keep the hash up to date themselves, while they write each row of the
+ * next generation and still hold both the old and the new words: <b>ArrayStepEngine</b>,
+ * <b>PackedStepEngine</b>, <b>TemporalBlockingStepEngine</b> and <b>OffHeapStepEngine</b>. The hash is
+ * tied to the modification count of the model, so after an edit or a generation computed by any
+ * other engine it is computed again from the whole board when next read.
+ * <p>
+ * Tiles of a <b>MultiStateGameModel</b> are hashed with their state, 8 tiles per word.
+ *
+ * @author Igor Grebenkov
+ */
+public class BoardHash {
+
+    private long value;                 // Hash of the board when last brought up to date
+    private long modifications = -1;    // Modification count of the model at that moment, -1 if never
+    private long delta;                 // Changes hashed by the bands of the generation being computed
+
+    /**
+     * Getter method for the hash of the board, computing it from the whole board if the
+     * step engine did not keep it up to date.
+     *
+     * @param gameModel the game's model
+     * @return the hash
+     */
+    public long get( GameModel gameModel ) {
+        if ( !isCurrent( gameModel ) ) {
+            value = compute( gameModel );
+            modifications = gameModel.getModificationCount();
+        }
+        return value;
+    }
+
+    /**
+     * Checks whether the hash is that of the board. A step engine only hashes the changes it
+     * makes to a board whose hash is current.
+     *
+     * @param gameModel the game's model
+     * @return true if the hash was brought up to date since the board last changed
+     */
+    public boolean isCurrent( GameModel gameModel ) {
+        return modifications == gameModel.getModificationCount();
+    }
+
+    /**
+     * Adds the changes hashed by a band of rows of the generation being computed.
+     * Called once per band, by as many threads as compute the bands.
+     *
+     * @param bandDelta the exclusive or of the changes returned by change()
+     */
+    public synchronized void add( long bandDelta ) {
+        delta ^= bandDelta;
+    }
+
+    /**
+     * Called by a step engine once it committed a generation whose changes it hashed, all bands
+     * having been added. The hash is only brought up to date if it was current when the engine
+     * started the generation, nothing else having modified the board since.
+     *
+     * @param gameModel            the game's model
+     * @param modificationsBefore  the modification count of the model before the generation was committed
+     */
+    public synchronized void commit( GameModel gameModel, long modificationsBefore ) {
+        if ( modifications == modificationsBefore ) {
+            value ^= delta;
+            modifications = gameModel.getModificationCount();
+        }
+        delta = 0;
+    }
+
+    /**
+     * Hashes the change of a run of packed words.
+     *
+     * @param previous       the array holding the words of the current generation
+     * @param previousOffset the index of the first word of the run in previous
+     * @param next           the array holding the words of the next generation
+     * @param nextOffset     the index of the first word of the run in next
+     * @param length         the number of words in the run
+     * @param index          the position of the first word of the run on the board, row after row
+     * @return the exclusive or of the changes of the contributions of the words
+     */
+    public static long change( long[] previous, int previousOffset, long[] next, int nextOffset, int length, int index ) {
+        long change = 0;
+        for ( int w = 0; w < length; w++ ) {
+            long word = previous[ previousOffset + w ];
+            long nextWord = next[ nextOffset + w ];
+            if ( word != nextWord ) {
+                long key = mix( ( index + w ) * 0x9E3779B97F4A7C15L );
+                change ^= ( word == 0 ? 0 : mix( word ^ key ) ) ^ ( nextWord == 0 ? 0 : mix( nextWord ^ key ) );
+            }
+        }
+        return change;
+    }
+
+    /**
+     * Returns the key an active tile of an <b>ArrayGameModel</b> contributes to the hash,
+     * and the change of the hash when the tile changes.
+     *
+     * @param i      the tile's x co-ordinate
+     * @param j      the tile's y co-ordinate
+     * @param height the number of rows of the grid
+     * @return the key of the tile
+     */
+    public static long tileKey( int i, int j, int height ) {
+        return mix( ( ( long ) i * height + j ) * 0x9E3779B97F4A7C15L );
+    }
+
+    /**
+     * Computes the hash of the whole board.
+     *
+     * @param gameModel the game's model
+     * @return the exclusive or of the contributions of every word of the board
+     */
+    static long compute( GameModel gameModel ) {
+        boolean multiState = gameModel instanceof MultiStateGameModel;
+        int width = gameModel.getWidth();
+        int height = gameModel.getHeight();
+        long hash = 0;
+
+        if ( gameModel instanceof ArrayGameModel ) {
+            // The int model is read column by column, the way it is laid out in memory
+            int[][] tileStates = ( ( ArrayGameModel ) gameModel ).getTileStates();
+            for ( int i = 0; i < width; i++ ) {
+                int[] column = tileStates[ i + 1 ];
+                for ( int j = 0; j < height; j++ ) {
+                    if ( column[ j + 1 ] == GameModel.ACTIVE ) {
+                        hash ^= tileKey( i, j, height );
+                    }
+                }
+            }
+            return hash;
+        }
+
+        int wordsPerRow = multiState ? ( width + 7 ) / 8 : PackedGameModel.wordsFor( width );
+        long[] row = new long[ wordsPerRow ];
+        byte[] states = multiState ? new byte[ wordsPerRow * 8 ] : null;
+
+        for ( int j = 0; j < height; j++ ) {
+            if ( multiState ) {
+                ( ( MultiStateGameModel ) gameModel ).readStates( j, states, 0 );
+                for ( int w = 0; w < wordsPerRow; w++ ) {
+                    long word = 0;
+                    for ( int b = 0; b < 8; b++ ) {
+                        word |= ( long ) ( states[ w * 8 + b ] & 0xFF ) << ( b * 8 );
+                    }
+                    row[ w ] = word;
+                }
+            } else {
+                gameModel.readRow( j, row, 0 );
+            }
+
+            int first = j * wordsPerRow;
+            for ( int w = 0; w < wordsPerRow; w++ ) {
+                hash ^= contribution( first + w, row[ w ] );
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the contribution of a word to the hash of the board, zero for an empty word.
+     */
+    private static long contribution( int index, long word ) {
+        return word == 0 ? 0 : mix( word ^ mix( index * 0x9E3779B97F4A7C15L ) );
+    }
+
+    /**
+     * Mixes the bits of a value (the finalizer of SplitMix64).
+     */
+    private static long mix( long value ) {
+        value = ( value ^ value >>> 30 ) * 0xBF58476D1CE4E5B9L;
+        value = ( value ^ value >>> 27 ) * 0x94D049BB133111EBL;
+        return value ^ value >>> 31;
+    }
+}
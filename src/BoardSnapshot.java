@@ -0,0 +1,159 @@
+import java.util.Arrays;
+
+/**
+ * The class <b>BoardSnapshot</b> is an immutable view of the state of every tile at a
+ * given generation. Rows are packed one bit per tile, 64 tiles per word, the same way
+ * as in <b>PackedGameModel</b>, a bit being set for active tiles. Snapshots of packed and
+ * off-heap models hold the model's own frozen rows, so taking them costs no copy of the board;
+ * snapshots of other models copy the rows to the heap. The int array model is not frozen, as the
+ * dirty engine relies on the buffer it steps into holding the generation before. Snapshots can be handed to other threads
+ * freely, and must be released once read.
+ *
+ * @author Igor Grebenkov
+ */
+public final class BoardSnapshot implements PackedBoard {
+
+    private final int width;            // The number of columns of the grid
+    private final int height;           // The number of rows of the grid
+    private final long generation;      // The generation the snapshot was taken at
+    private final int wordsPerRow;      // Number of words used to store one row
+    private final long[] words;         // The state of each tile row after row, or null if frozen
+    private final FrozenBoard frozen;   // The frozen rows of the model, or null if copied
+
+    /**
+     * Constructor to initialize a snapshot from packed rows.
+     *
+     * @param width      the number of columns of the grid
+     * @param height     the number of rows of the grid
+     * @param generation the generation the snapshot was taken at
+     * @param words      the packed rows, which must not be modified afterwards
+     */
+    public BoardSnapshot( int width, int height, long generation, long[] words ) {
+        this.width = width;
+        this.height = height;
+        this.generation = generation;
+        this.words = words;
+        wordsPerRow = PackedGameModel.wordsFor( width );
+        frozen = null;
+    }
+
+    /**
+     * Constructor to initialize a snapshot from the frozen rows of a model.
+     *
+     * @param generation the generation the snapshot was taken at
+     * @param frozen     the frozen rows, released with the snapshot
+     */
+    public BoardSnapshot( long generation, FrozenBoard frozen ) {
+        width = frozen.getWidth();
+        height = frozen.getHeight();
+        this.generation = generation;
+        this.frozen = frozen;
+        wordsPerRow = PackedGameModel.wordsFor( width );
+        words = null;
+    }
+
+    /**
+     * Takes a snapshot of a two-state model. The caller must make sure the model is not modified
+     * meanwhile. Packed and off-heap models freeze their rows, other models are copied.
+     *
+     * @param gameModel  the game's model
+     * @param generation the current generation
+     * @return the snapshot
+     */
+    public static BoardSnapshot of( GameModel gameModel, long generation ) {
+        if ( gameModel instanceof PackedGameModel ) {
+            return new BoardSnapshot( generation, ( ( PackedGameModel ) gameModel ).freeze() );
+        }
+        if ( gameModel instanceof OffHeapGameModel ) {
+            return new BoardSnapshot( generation, ( ( OffHeapGameModel ) gameModel ).freeze() );
+        }
+
+        int width = gameModel.getWidth();
+        int height = gameModel.getHeight();
+        int wordsPerRow = PackedGameModel.wordsFor( width );
+        long[] words = new long[ Math.multiplyExact( wordsPerRow, height ) ];
+        if ( gameModel instanceof ArrayGameModel ) {
+            // The int array is stored column after column, so it is read a column at a time,
+            // the 64 columns of a word being gathered into a column of words before it is stored
+            int[][] states = ( ( ArrayGameModel ) gameModel ).getTileStates();
+            long[] column = new long[ height ];
+            for ( int w = 0; w < wordsPerRow; w++ ) {
+                Arrays.fill( column, 0L );
+                for ( int i = w << 6; i < Math.min( width, ( w + 1 ) << 6 ); i++ ) {
+                    int[] tiles = states[ i + 1 ];
+                    for ( int j = 0; j < height; j++ ) {
+                        column[ j ] |= ( long ) tiles[ j + 1 ] << i;
+                    }
+                }
+                for ( int j = 0; j < height; j++ ) {
+                    words[ j * wordsPerRow + w ] = column[ j ];
+                }
+            }
+        } else {
+            for ( int j = 0; j < height; j++ ) {
+                gameModel.readRow( j, words, j * wordsPerRow );
+            }
+        }
+        return new BoardSnapshot( width, height, generation, words );
+    }
+
+    /**
+     * Getter method for the width of the grid.
+     *
+     * @return the number of columns of the grid
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Getter method for the height of the grid.
+     *
+     * @return the number of rows of the grid
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Getter method for the generation the snapshot was taken at.
+     *
+     * @return the generation
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Getter method for the number of active tiles, counted when called.
+     *
+     * @return the population
+     */
+    public long getPopulation() {
+        return Boards.population( this );
+    }
+
+    /**
+     * Copies a packed row of the snapshot.
+     *
+     * @param j      the row to copy
+     * @param row    the array the row is copied into
+     * @param offset the index of the first word written
+     */
+    public void readRow( int j, long[] row, int offset ) {
+        if ( frozen != null ) {
+            frozen.readRow( j, row, offset );
+        } else {
+            System.arraycopy( words, j * wordsPerRow, row, offset, wordsPerRow );
+        }
+    }
+
+    /**
+     * Hands the frozen rows back to the model. The snapshot must not be read afterwards.
+     */
+    public void release() {
+        if ( frozen != null ) {
+            frozen.release();
+        }
+    }
+}
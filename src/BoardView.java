@@ -0,0 +1,27 @@
+import javax.swing.JPanel;
+
+/**
+ * The class <b>BoardView</b> is the base of the components that display the game's grid.
+ * Each view decides which part of the board it shows by building its own frames.
+ *
+ * @author Igor Grebenkov
+ */
+public abstract class BoardView extends JPanel {
+
+    /**
+     * Takes a frame of the part of the board shown by the view. Called by the thread stepping
+     * the model while it holds the model's lock.
+     *
+     * @param gameModel  the game's model
+     * @param generation the current generation
+     * @return the frame to show
+     */
+    public abstract ViewportFrame createFrame( GameModel gameModel, long generation );
+
+    /**
+     * Updates the view to show a frame of the board. Called on the event dispatch thread.
+     *
+     * @param frame the frame to show
+     */
+    public abstract void update( ViewportFrame frame );
+}
@@ -0,0 +1,80 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * The class <b>Boards</b> holds the helpers the runners share to fill a board and to count its
+ * population, whatever model holds it. The checksum of a board is computed by <b>BoardFile</b>,
+ * as it is the one saved with the board.
+ *
+ * @author Igor Grebenkov
+ */
+public final class Boards {
+
+    /**
+     * The class only holds static methods.
+     */
+    private Boards() {
+    }
+
+    /**
+     * Draws a pattern at the centre of the grid.
+     *
+     * @param gameModel the model to draw in
+     * @param name      the name of a pattern of the library, or the path of a .rle or .cells file
+     * @return false if the pattern is unknown or does not fit in the grid
+     */
+    public static boolean drawPattern( GameModel gameModel, String name ) {
+        int centreX = gameModel.getWidth() / 2;
+        int centreY = gameModel.getHeight() / 2;
+        try {
+            Pattern pattern = PatternLibrary.createDefault().get( name );
+            if ( pattern == null ) {
+                if ( !new File( name ).isFile() ) {
+                    return false;
+                }
+                pattern = Pattern.load( new File( name ) );
+            }
+            return pattern.stamp( gameModel, centreX, centreY );
+        } catch ( IOException e ) {
+            System.err.println( "IOException: " + e.getMessage() );
+            return false;
+        }
+    }
+
+    /**
+     * Activates tiles at random.
+     *
+     * @param gameModel the model to fill
+     * @param random    the source of randomness
+     * @param density   the probability of a tile being active
+     */
+    public static void randomize( GameModel gameModel, Random random, double density ) {
+        for ( int i = 0; i < gameModel.getWidth(); i++ ) {
+            for ( int j = 0; j < gameModel.getHeight(); j++ ) {
+                if ( random.nextDouble() < density ) {
+                    gameModel.selectTile( i, j );
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts the active tiles of a board.
+     *
+     * @param board the board
+     * @return the population
+     */
+    public static long population( PackedBoard board ) {
+        long[] row = new long[ PackedGameModel.wordsFor( board.getWidth() ) ];
+        long population = 0;
+
+        for ( int j = 0; j < board.getHeight(); j++ ) {
+            board.readRow( j, row, 0 );
+            for ( long word : row ) {
+                population += Long.bitCount( word );
+            }
+        }
+        return population;
+    }
+}
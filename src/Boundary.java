@@ -0,0 +1,79 @@
+/**
+ * The enum <b>Boundary</b> lists the topologies of the edges of the grid. Engines
+ * apply them by filling a border of ghost tiles around the grid before each generation,
+ * so computing a tile never needs to check whether its neighbours lie inside the grid.
+ * - DEAD: tiles beyond the edges are always inactive
+ * - TORUS: the left edge wraps to the right edge and the top edge to the bottom edge
+ * - KLEIN_BOTTLE: like a torus, but crossing the top or bottom edge mirrors the tiles left to right
+ * - MIRROR: the tiles along each edge are reflected beyond it
+ *
+ * @author Igor Grebenkov
+ */
+public enum Boundary {
+    DEAD, TORUS, KLEIN_BOTTLE, MIRROR;
+
+    /**
+     * Finds the column of the tile seen at a position at most one tile outside the grid.
+     *
+     * @param i      the x co-ordinate of the position
+     * @param j      the y co-ordinate of the position
+     * @param width  the number of columns of the grid
+     * @param height the number of rows of the grid
+     * @return the x co-ordinate of the tile seen there, or -1 if the tile is always inactive
+     */
+    public int ghostColumn( int i, int j, int width, int height ) {
+        switch ( this ) {
+            case TORUS:
+                return wrap( i, width );
+            case KLEIN_BOTTLE:
+                return wrap( j < 0 || j >= height ? width - 1 - i : i, width );
+            case MIRROR:
+                return Math.min( Math.max( i, 0 ), width - 1 );
+            default:
+                return i < 0 || i >= width || j < 0 || j >= height ? -1 : i;
+        }
+    }
+
+    /**
+     * Finds the row of the tile seen at a position at most one tile outside the grid.
+     *
+     * @param i      the x co-ordinate of the position
+     * @param j      the y co-ordinate of the position
+     * @param width  the number of columns of the grid
+     * @param height the number of rows of the grid
+     * @return the y co-ordinate of the tile seen there, or -1 if the tile is always inactive
+     */
+    public int ghostRow( int i, int j, int width, int height ) {
+        switch ( this ) {
+            case TORUS:
+            case KLEIN_BOTTLE:
+                return wrap( j, height );
+            case MIRROR:
+                return Math.min( Math.max( j, 0 ), height - 1 );
+            default:
+                return i < 0 || i >= width || j < 0 || j >= height ? -1 : j;
+        }
+    }
+
+    /**
+     * Parses the name of a boundary: "dead", "torus", "klein" (or "klein-bottle") or "mirror".
+     *
+     * @param name the name, ignoring case
+     * @return the boundary
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    public static Boundary parse( String name ) {
+        String key = name.toUpperCase().replace( '-', '_' );
+        if ( key.equals( "KLEIN" ) ) {
+            return KLEIN_BOTTLE;
+        }
+        return valueOf( key );
+    }
+
+    /**
+     * Wraps a co-ordinate at most one tile outside the grid to the opposite edge.
+     */
+    private static int wrap( int k, int size ) {
+        return k < 0 ? k + size : k >= size ? k - size : k;
+    }
+}
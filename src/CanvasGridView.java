@@ -0,0 +1,278 @@
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * The class <b>CanvasGridView</b> provides a viewport onto the grid, painted as a single image.
+ * Every tile in view is painted straight into the pixels of a <b>BufferedImage</b>, and mouse
+ * clicks are mapped back to the tile under the pointer, so the number of Swing components
+ * does not grow with the size of the grid.
+ * <p>
+ * The viewport starts out showing the whole grid. Dragging the mouse pans it and the mouse
+ * wheel zooms in and out around the pointer. Zoomed in, each tile is a square of pixels; zoomed
+ * out past one tile per pixel, each pixel shows a square of tiles pooled by
+ * <b>ViewportFrame</b>, brighter the more of them are active, so that even a single active tile
+ * stays visible. Frames are built for the viewport only, so very large grids are shown without
+ * copying the whole board every generation.
+ *
+ * @author Igor Grebenkov
+ */
+public class CanvasGridView extends BoardView {
+
+    private static final int MAX_TILE_SIZE = 15;        // Width of a tile on small grids (pixels)
+    private static final int MAX_ZOOM_TILE_SIZE = 32;   // Width of a tile when zoomed in the most (pixels)
+    private static final int MAX_GRID_SIZE = 735;       // Largest width and height of the viewport (pixels)
+    private static final int DRAG_THRESHOLD = 3;        // Distance the mouse moves before a click becomes a drag (pixels)
+    private static final double MIN_BRIGHTNESS = 0.3;   // Brightness of a square holding a single active tile
+    private static final int INACTIVE_COLOUR = 0x000000;    // Colour of an inactive tile
+    private static final int ACTIVE_COLOUR = 0x84FF00;      // Colour of an active tile
+    private static final int GAP_COLOUR = 0x404040;         // Colour between tiles
+
+    private final GameModel gameModel;      // Reference to the game model
+    private final GameController gameController;    // Reference to the game controller
+    private final int[] palette;            // Colour of each state of a tile
+    private final int[] densityPalette;     // Colour of each density of a pooled square
+    private final BufferedImage image;      // Image the viewport is painted into
+    private final int[] pixels;             // Pixels of the image
+    private final int fitScale;             // Scale at which the whole grid fits in the viewport
+    private int tileSize;                   // Width of a tile (pixels), 1 when zoomed out
+    private int scale;                      // Number of tiles along each side of a pixel, 1 when zoomed in
+    private int left;                       // The x co-ordinate of the tile at the left of the viewport
+    private int top;                        // The y co-ordinate of the tile at the top of the viewport
+    private volatile int[] viewport;        // { left, top, columns, rows, scale } read by the stepping thread
+
+    /**
+     * Constructor to initialize CanvasGridView
+     *
+     * @param gameModel      // Reference to the game model
+     * @param gameController // Reference to the game controller
+     */
+    public CanvasGridView( GameModel gameModel, GameController gameController ) {
+        this.gameModel = gameModel;
+        this.gameController = gameController;
+        palette = gameModel instanceof MultiStateGameModel ?
+                ( ( MultiStateGameModel ) gameModel ).getMultiStateRule().getPalette() :
+                new int[]{ INACTIVE_COLOUR, ACTIVE_COLOUR };
+        densityPalette = new int[ ViewportFrame.FULL_DENSITY + 1 ];
+        densityPalette[ 0 ] = palette[ GameModel.INACTIVE ];
+        for ( int d = 1; d < densityPalette.length; d++ ) {
+            double brightness = MIN_BRIGHTNESS + ( 1 - MIN_BRIGHTNESS ) * d / ViewportFrame.FULL_DENSITY;
+            densityPalette[ d ] = blend( palette[ GameModel.INACTIVE ], palette[ GameModel.ACTIVE ], brightness );
+        }
+
+        // Start with the whole grid in view, zooming out by powers of 2 if it does not fit
+        int longestSide = Math.max( gameModel.getWidth(), gameModel.getHeight() );
+        int fit = 1;
+        while ( ( longestSide + fit - 1 ) / fit > MAX_GRID_SIZE ) {
+            fit *= 2;
+        }
+        fitScale = fit;
+        scale = fitScale;
+        tileSize = scale > 1 ? 1 : Math.max( 1, Math.min( MAX_TILE_SIZE, MAX_GRID_SIZE / longestSide ) );
+
+        int width = ( int ) Math.min( MAX_GRID_SIZE, tileSize * ( ( gameModel.getWidth() + ( long ) scale - 1 ) / scale ) );
+        int height = ( int ) Math.min( MAX_GRID_SIZE, tileSize * ( ( gameModel.getHeight() + ( long ) scale - 1 ) / scale ) );
+        image = new BufferedImage( width, height, BufferedImage.TYPE_INT_RGB );
+        pixels = ( ( DataBufferInt ) image.getRaster().getDataBuffer() ).getData();
+        updateViewport();
+
+        setBackground( Color.darkGray );
+        setPreferredSize( new Dimension( width, height ) );
+
+        // Clicks select the tile under the pointer, drags pan and the wheel zooms
+        MouseAdapter mouse = new MouseAdapter() {
+            private boolean pressed;    // Whether a button is held down
+            private int anchorX;        // The x co-ordinate the drag is measured from, following the pans
+            private int anchorY;        // The y co-ordinate the drag is measured from, following the pans
+            private boolean dragging;   // Whether the mouse moved far enough to pan
+
+            @Override
+            public void mousePressed( MouseEvent e ) {
+                pressed = true;
+                anchorX = e.getX();
+                anchorY = e.getY();
+                dragging = false;
+            }
+
+            @Override
+            public void mouseDragged( MouseEvent e ) {
+                if ( !pressed ) {
+                    return;
+                }
+                int dx = e.getX() - anchorX;
+                int dy = e.getY() - anchorY;
+                if ( !dragging && Math.abs( dx ) + Math.abs( dy ) < DRAG_THRESHOLD ) {
+                    return;
+                }
+                dragging = true;
+
+                // Move by whole tiles, keeping the rest of the distance for the next event
+                int tilesX = dx / tileSize * scale;
+                int tilesY = dy / tileSize * scale;
+                if ( tilesX != 0 || tilesY != 0 ) {
+                    anchorX += tilesX / scale * tileSize;
+                    anchorY += tilesY / scale * tileSize;
+                    moveTo( left - tilesX, top - tilesY );
+                }
+            }
+
+            @Override
+            public void mouseReleased( MouseEvent e ) {
+                if ( pressed && !dragging ) {
+                    selectTileAt( e.getX(), e.getY() );
+                }
+                pressed = false;
+            }
+
+            @Override
+            public void mouseWheelMoved( MouseWheelEvent e ) {
+                zoom( e.getWheelRotation() < 0, e.getX(), e.getY() );
+            }
+        };
+        addMouseListener( mouse );
+        addMouseMotionListener( mouse );
+        addMouseWheelListener( mouse );
+    }
+
+    /**
+     * Takes a frame of the tiles in the viewport.
+     *
+     * @param gameModel  the game's model
+     * @param generation the current generation
+     * @return the frame of the viewport
+     */
+    public ViewportFrame createFrame( GameModel gameModel, long generation ) {
+        int[] view = viewport;
+        return ViewportFrame.of( gameModel, generation, view[ 0 ], view[ 1 ], view[ 2 ], view[ 3 ], view[ 4 ] );
+    }
+
+    /**
+     * Updates the grid view.
+     *
+     * @param frame the frame of the viewport to show
+     */
+    public void update( ViewportFrame frame ) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        // A frame taken before the last zoom is shown at its own scale
+        int size = frame.getScale() == scale ? tileSize : 1;
+        int[] colours = frame.isPooled() ? densityPalette : palette;
+        // Leave a one pixel gap between tiles when they are large enough to show it
+        int fill = size >= 4 ? size - 1 : size;
+
+        Arrays.fill( pixels, GAP_COLOUR );
+        int columns = Math.min( frame.getColumns(), ( width + size - 1 ) / size );
+        int rows = Math.min( frame.getRows(), ( height + size - 1 ) / size );
+        for ( int row = 0; row < rows; row++ ) {
+            for ( int column = 0; column < columns; column++ ) {
+                int colour = colours[ frame.getSample( column, row ) ];
+                int x0 = column * size;
+                int y0 = row * size;
+                int toX = Math.min( x0 + fill, width );
+                int toY = Math.min( y0 + fill, height );
+
+                for ( int y = y0; y < toY; y++ ) {
+                    int offset = y * width;
+                    for ( int x = x0; x < toX; x++ ) {
+                        pixels[ offset + x ] = colour;
+                    }
+                }
+            }
+        }
+        repaint();
+    }
+
+    /**
+     * Paints the image of the grid.
+     *
+     * @param g the graphics context
+     */
+    @Override
+    protected void paintComponent( Graphics g ) {
+        super.paintComponent( g );
+        g.drawImage( image, 0, 0, null );
+    }
+
+    /**
+     * Selects the tile under a point of the viewport, the top left tile of its square when zoomed out.
+     */
+    private void selectTileAt( int x, int y ) {
+        long column = left + ( long ) x / tileSize * scale;
+        long row = top + ( long ) y / tileSize * scale;
+
+        if ( x >= 0 && y >= 0 && column < gameModel.getWidth() && row < gameModel.getHeight() ) {
+            gameController.tileSelected( ( int ) column, ( int ) row );
+        }
+    }
+
+    /**
+     * Zooms in or out by a factor of 2, keeping the tile under a point of the viewport in place.
+     * The viewport never zooms out further than the whole grid.
+     */
+    private void zoom( boolean in, int x, int y ) {
+        long column = left + ( long ) x / tileSize * scale;
+        long row = top + ( long ) y / tileSize * scale;
+
+        if ( in ) {
+            if ( scale > 1 ) {
+                scale /= 2;
+            } else if ( tileSize < MAX_ZOOM_TILE_SIZE ) {
+                tileSize = Math.min( tileSize * 2, MAX_ZOOM_TILE_SIZE );
+            } else {
+                return;
+            }
+        } else {
+            if ( tileSize > 1 ) {
+                tileSize /= 2;
+            } else if ( scale < fitScale ) {
+                scale *= 2;
+            } else {
+                return;
+            }
+        }
+        moveTo( ( int ) ( column - ( long ) x / tileSize * scale ), ( int ) ( row - ( long ) y / tileSize * scale ) );
+    }
+
+    /**
+     * Moves the top left corner of the viewport, keeping the viewport over the grid, and asks for a new frame.
+     */
+    private void moveTo( int newLeft, int newTop ) {
+        long visibleColumns = ( long ) image.getWidth() / tileSize * scale;
+        long visibleRows = ( long ) image.getHeight() / tileSize * scale;
+        left = ( int ) Math.max( 0, Math.min( newLeft, gameModel.getWidth() - visibleColumns ) );
+        top = ( int ) Math.max( 0, Math.min( newTop, gameModel.getHeight() - visibleRows ) );
+        updateViewport();
+        gameController.viewportChanged();
+    }
+
+    /**
+     * Publishes the viewport to the stepping thread.
+     */
+    private void updateViewport() {
+        int columns = ( image.getWidth() + tileSize - 1 ) / tileSize;
+        int rows = ( image.getHeight() + tileSize - 1 ) / tileSize;
+        viewport = new int[]{ left, top, columns, rows, scale };
+    }
+
+    /**
+     * Blends two colours.
+     *
+     * @param from   the colour at 0
+     * @param to     the colour at 1
+     * @param amount how far to go from the first colour towards the second
+     * @return the blended colour
+     */
+    private static int blend( int from, int to, double amount ) {
+        int colour = 0;
+        for ( int shift = 0; shift < 24; shift += 8 ) {
+            int a = from >> shift & 0xFF;
+            int b = to >> shift & 0xFF;
+            colour |= ( int ) Math.round( a + ( b - a ) * amount ) << shift;
+        }
+        return colour;
+    }
+}
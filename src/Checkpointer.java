@@ -0,0 +1,270 @@
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The class <b>Checkpointer</b> saves the board periodically, every given number of generations
+ * or seconds, while the simulation keeps running. The stepping thread only takes a snapshot of
+ * the board, which packed and off-heap models take without copying the board; the snapshot is
+ * written by <b>BoardFile</b> on a background thread. If the previous
+ * checkpoint is still being written when the next one is due, the next one is skipped rather
+ * than queued. Only the latest checkpoints are kept. Boards of multi-state rules cannot be saved
+ * in the board format, so they are not checkpointed.
+ * <p>
+ * Checkpoints are named checkpoint-&lt;generation&gt;.gol. The time spent by the stepping thread
+ * taking snapshots is measured as the checkpoint stall.
+ * <p>
+ * The following system properties configure the checkpointer:
+ * - gol.checkpoint.dir=directory enables checkpoints and sets where they are written
+ * - gol.checkpoint.generations=n saves a checkpoint every n generations
+ * - gol.checkpoint.seconds=n saves a checkpoint every n seconds
+ * - gol.checkpoint.keep=n sets the number of checkpoints kept (3 by default)
+ *
+ * @author Igor Grebenkov
+ */
+public class Checkpointer {
+
+    public static final String DIRECTORY_PROPERTY = "gol.checkpoint.dir";           // Directory of checkpoints
+    public static final String GENERATIONS_PROPERTY = "gol.checkpoint.generations"; // Generations between checkpoints
+    public static final String SECONDS_PROPERTY = "gol.checkpoint.seconds";         // Seconds between checkpoints
+    public static final String KEEP_PROPERTY = "gol.checkpoint.keep";               // Number of checkpoints kept
+    private static final int DEFAULT_KEEP = 3;                  // Default number of checkpoints kept
+    private static final String PREFIX = "checkpoint-";         // Prefix of the names of checkpoints
+    private static final String SUFFIX = "." + BoardFile.EXTENSION;    // Suffix of the names of checkpoints
+
+    private File directory;             // Directory the checkpoints are written to
+    private long everyGenerations;      // Generations between checkpoints, 0 if not periodic in generations
+    private long everyNanos;            // Nanoseconds between checkpoints, 0 if not periodic in time
+    private int keep;                   // Number of checkpoints kept
+    private long lastGeneration;        // Generation of the last checkpoint taken
+    private long lastTime;              // Time of the last checkpoint taken
+    private ExecutorService writer;     // Thread writing the checkpoints
+    private AtomicBoolean writing;      // Whether a checkpoint is being written
+    private AtomicLong written;         // Number of checkpoints written
+    private AtomicLong failed;          // Number of checkpoints that could not be written
+    private long skipped;               // Number of checkpoints skipped while another was written
+    private long totalStallNanos;       // Time the stepping thread spent taking snapshots
+    private long maxStallNanos;         // Longest time the stepping thread spent taking a snapshot
+
+    /**
+     * Constructor to initialize the checkpointer.
+     *
+     * @param directory        the directory the checkpoints are written to, created if needed
+     * @param everyGenerations the number of generations between checkpoints, 0 for none
+     * @param everySeconds     the number of seconds between checkpoints, 0 for none
+     * @param keep             the number of checkpoints kept
+     */
+    public Checkpointer( File directory, long everyGenerations, long everySeconds, int keep ) {
+        if ( everyGenerations < 0 || everySeconds < 0 || everyGenerations == 0 && everySeconds == 0 ) {
+            throw new IllegalArgumentException( "Checkpoints need a positive period in generations or seconds" );
+        }
+        if ( keep < 1 ) {
+            throw new IllegalArgumentException( "At least one checkpoint must be kept: " + keep );
+        }
+        this.directory = directory;
+        this.everyGenerations = everyGenerations;
+        this.keep = keep;
+        everyNanos = TimeUnit.SECONDS.toNanos( everySeconds );
+        lastTime = System.nanoTime();
+        writing = new AtomicBoolean();
+        written = new AtomicLong();
+        failed = new AtomicLong();
+        writer = Executors.newSingleThreadExecutor( new ThreadFactory() {
+            public Thread newThread( Runnable task ) {
+                Thread thread = new Thread( task, "checkpoint-writer" );
+                thread.setDaemon( true );
+                return thread;
+            }
+        } );
+    }
+
+    /**
+     * Creates the checkpointer configured by the system properties.
+     *
+     * @param gameModel the model to checkpoint
+     * @return the checkpointer, or null if checkpoints are not enabled or the model cannot be saved
+     */
+    public static Checkpointer fromProperties( GameModel gameModel ) {
+        String directory = System.getProperty( DIRECTORY_PROPERTY );
+        if ( directory == null ) {
+            return null;
+        }
+        if ( gameModel instanceof MultiStateGameModel ) {
+            System.err.println( "Checkpoints disabled: multi-state boards cannot be saved" );
+            return null;
+        }
+        return new Checkpointer( new File( directory ), Long.getLong( GENERATIONS_PROPERTY, 0 ),
+                Long.getLong( SECONDS_PROPERTY, 0 ), Integer.getInteger( KEEP_PROPERTY, DEFAULT_KEEP ) );
+    }
+
+    /**
+     * Called by the stepping thread after each generation, while no one else modifies the model.
+     * Takes a snapshot of the board and hands it to the writer if a checkpoint is due.
+     *
+     * @param gameModel  the game's model
+     * @param generation the generation just computed
+     */
+    public void generationComputed( GameModel gameModel, long generation ) {
+        long now = System.nanoTime();
+        if ( generation < lastGeneration ) {
+            // The game was reset
+            lastGeneration = generation;
+        }
+        boolean due = everyGenerations > 0 && generation - lastGeneration >= everyGenerations
+                || everyNanos > 0 && now - lastTime >= everyNanos;
+        if ( !due ) {
+            return;
+        }
+        lastGeneration = generation;
+        lastTime = now;
+
+        if ( !writing.compareAndSet( false, true ) ) {
+            skipped++;
+            return;
+        }
+        final BoardSnapshot snapshot = BoardSnapshot.of( gameModel, generation );
+        long stall = System.nanoTime() - now;
+        totalStallNanos += stall;
+        maxStallNanos = Math.max( maxStallNanos, stall );
+
+        writer.execute( new Runnable() {
+            public void run() {
+                try {
+                    write( snapshot );
+                    written.incrementAndGet();
+                } catch ( IOException e ) {
+                    failed.incrementAndGet();
+                    System.err.println( "IOException: " + e.getMessage() );
+                } finally {
+                    snapshot.release();
+                    writing.set( false );
+                }
+            }
+        } );
+    }
+
+    /**
+     * Waits for the checkpoint being written, if any, and stops the writer.
+     */
+    public void shutdown() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination( 1, TimeUnit.MINUTES );
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Finds the latest checkpoint of a directory.
+     *
+     * @param directory the directory of the checkpoints
+     * @return the checkpoint written last, or null if there is none
+     */
+    public static File findLatest( File directory ) {
+        File[] checkpoints = list( directory );
+        return checkpoints.length == 0 ? null : checkpoints[ checkpoints.length - 1 ];
+    }
+
+    /**
+     * Getter method for the number of checkpoints written.
+     *
+     * @return the number of checkpoints written
+     */
+    public long getCheckpointsWritten() {
+        return written.get();
+    }
+
+    /**
+     * Getter method for the number of checkpoints that could not be written.
+     *
+     * @return the number of failed checkpoints
+     */
+    public long getCheckpointsFailed() {
+        return failed.get();
+    }
+
+    /**
+     * Getter method for the number of checkpoints skipped because the previous one
+     * was still being written. Must be called by the stepping thread.
+     *
+     * @return the number of skipped checkpoints
+     */
+    public long getCheckpointsSkipped() {
+        return skipped;
+    }
+
+    /**
+     * Getter method for the total time the stepping thread spent taking snapshots.
+     * Must be called by the stepping thread.
+     *
+     * @return the total stall in nanoseconds
+     */
+    public long getTotalStallNanos() {
+        return totalStallNanos;
+    }
+
+    /**
+     * Getter method for the longest time the stepping thread spent taking a snapshot.
+     * Must be called by the stepping thread.
+     *
+     * @return the longest stall in nanoseconds
+     */
+    public long getMaxStallNanos() {
+        return maxStallNanos;
+    }
+
+    /**
+     * Writes a checkpoint and deletes the oldest ones beyond the number kept.
+     *
+     * @param snapshot the snapshot to write
+     * @throws IOException if the checkpoint cannot be written
+     */
+    private void write( BoardSnapshot snapshot ) throws IOException {
+        if ( !directory.isDirectory() && !directory.mkdirs() ) {
+            throw new IOException( "Cannot create directory " + directory );
+        }
+        BoardFile.save( snapshot, snapshot.getGeneration(),
+                new File( directory, String.format( "%s%019d%s", PREFIX, snapshot.getGeneration(), SUFFIX ) ), true );
+
+        File[] checkpoints = list( directory );
+        for ( int c = 0; c < checkpoints.length - keep; c++ ) {
+            if ( !checkpoints[ c ].delete() ) {
+                System.err.println( "Cannot delete " + checkpoints[ c ] );
+            }
+        }
+    }
+
+    /**
+     * Lists the checkpoints of a directory, oldest first. The game may have been reset since
+     * older checkpoints were written, so they are ordered by time rather than generation.
+     *
+     * @param directory the directory of the checkpoints
+     * @return the checkpoints
+     */
+    private static File[] list( File directory ) {
+        File[] checkpoints = directory.listFiles( new FilenameFilter() {
+            public boolean accept( File dir, String name ) {
+                return name.startsWith( PREFIX ) && name.endsWith( SUFFIX );
+            }
+        } );
+        if ( checkpoints == null ) {
+            return new File[ 0 ];
+        }
+        Arrays.sort( checkpoints, new Comparator< File >() {
+            public int compare( File a, File b ) {
+                int order = Long.compare( a.lastModified(), b.lastModified() );
+                return order != 0 ? order : a.getName().compareTo( b.getName() );
+            }
+        } );
+        return checkpoints;
+    }
+}
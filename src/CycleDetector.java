@@ -0,0 +1,148 @@
+/**
+ * The class <b>CycleDetector</b> detects when the board stops changing or starts repeating
+ * itself, so the simulation can be stopped or fast-forwarded rather than stepped forever.
+ * <p>
+ * The board is hashed by a <b>BoardHash</b>, which the detector attaches to the model: the step
+ * engines that can keep it up to date while they write each generation, so the board is neither
+ * read again nor copied; with other engines, or after an edit, it is computed from the whole board.
+ * The hashes of the last generations are kept in a ring: a board whose hash was seen p generations
+ * ago repeats with period p, a still life having period 1.
+ * <p>
+ * The following system property configures the detector:
+ * - gol.cycle.period=n sets the longest period detected, 0 to disable detection
+ *
+ * @author Igor Grebenkov
+ */
+public class CycleDetector {
+
+    public static final String PERIOD_PROPERTY = "gol.cycle.period";   // Longest period detected
+    public static final int DEFAULT_PERIOD = 30;    // Longest period detected by the game by default
+    public static final long DEFAULT_MAX_TILES = 1L << 24;  // Largest board the game detects cycles on by default
+
+    private int maxPeriod;          // Longest period detected
+    private long[] hashes;          // Hashes of the last generations, indexed by generation modulo the length
+    private long firstGeneration;   // First generation of the current history
+    private long lastGeneration;    // Last generation seen, -1 if none
+    private long hash;              // Hash of the board last seen
+    private int period;             // Period of the cycle detected, 0 if none
+    private long cycleStart;        // First generation of the cycle detected
+
+    /**
+     * Constructor to initialize the detector.
+     *
+     * @param maxPeriod the longest period detected
+     */
+    public CycleDetector( int maxPeriod ) {
+        if ( maxPeriod < 1 ) {
+            throw new IllegalArgumentException( "The longest period detected must be positive: " + maxPeriod );
+        }
+        this.maxPeriod = maxPeriod;
+        hashes = new long[ maxPeriod + 1 ];
+        reset();
+    }
+
+    /**
+     * Creates the detector configured by the system properties.
+     *
+     * @param defaultPeriod the longest period detected if the property is not set, 0 to disable detection
+     * @return the detector, or null if detection is disabled
+     */
+    public static CycleDetector fromProperties( int defaultPeriod ) {
+        int maxPeriod = Integer.getInteger( PERIOD_PROPERTY, defaultPeriod );
+        return maxPeriod > 0 ? new CycleDetector( maxPeriod ) : null;
+    }
+
+    /**
+     * Forgets the history of the board. Must be called when the board is edited between
+     * generations, since the generations seen before no longer lead to the current board.
+     */
+    public void reset() {
+        lastGeneration = -1;
+        period = 0;
+    }
+
+    /**
+     * Called by the stepping thread after each generation, while no one else modifies the model.
+     * Reads the hash of the board and looks for the same hash in the last generations. Generations must be
+     * seen one after the other; any other generation, after a reset or a load, starts a new history.
+     *
+     * @param gameModel  the game's model
+     * @param generation the generation just computed
+     * @return true if a cycle was detected at this generation, false otherwise or if it was
+     * already reported
+     */
+    public boolean generationComputed( GameModel gameModel, long generation ) {
+        BoardHash boardHash = gameModel.getBoardHash();
+        if ( boardHash == null ) {
+            boardHash = new BoardHash();
+            gameModel.setBoardHash( boardHash );
+        }
+        hash = boardHash.get( gameModel );
+
+        if ( generation != lastGeneration + 1 || lastGeneration < 0 ) {
+            firstGeneration = generation;
+            period = 0;
+        }
+        lastGeneration = generation;
+
+        boolean detected = false;
+        if ( period == 0 ) {
+            int seen = ( int ) Math.min( generation - firstGeneration, maxPeriod );
+            for ( int p = 1; p <= seen; p++ ) {
+                if ( hashes[ ( int ) ( ( generation - p ) % hashes.length ) ] == hash ) {
+                    period = p;
+                    cycleStart = generation - p;
+                    detected = true;
+                    break;
+                }
+            }
+        }
+        hashes[ ( int ) ( generation % hashes.length ) ] = hash;
+        return detected;
+    }
+
+    /**
+     * Getter method for the period of the cycle detected.
+     *
+     * @return the period, 1 for a still life, or 0 if no cycle was detected since the last reset
+     */
+    public int getPeriod() {
+        return period;
+    }
+
+    /**
+     * Getter method for the first generation of the cycle detected.
+     *
+     * @return the first generation the board was the same as p generations later
+     */
+    public long getCycleStart() {
+        return cycleStart;
+    }
+
+    /**
+     * Getter method for the longest period detected.
+     *
+     * @return the longest period
+     */
+    public int getMaxPeriod() {
+        return maxPeriod;
+    }
+
+    /**
+     * Getter method for the hash of the board last seen.
+     *
+     * @return the hash
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Describes the cycle detected.
+     *
+     * @return "still life" or "period p", followed by the generation the cycle started at
+     */
+    public String describeCycle() {
+        return ( period == 1 ? "still life" : "period " + period ) + " from generation " + cycleStart;
+    }
+}
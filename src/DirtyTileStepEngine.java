@@ -0,0 +1,152 @@
+/**
+ * The class <b>DirtyTileStepEngine</b> computes each generation of an <b>ArrayGameModel</b>
+ * block by block, skipping the blocks whose neighbourhood did not change during the
+ * last generation. Such a block already holds the right state in the buffer the next
+ * generation is written into: that buffer holds the previous generation, which is
+ * identical to the current one for every unchanged block.
+ * <p>
+ * Unless the boundary is dead, the blocks along the edges see tiles of other edges
+ * through the ghost tiles, so they are computed every generation.
+ * <p>
+ * The number of blocks skipped can be read from any thread while the engine steps, and is
+ * reported by <b>GameMetrics</b> and <b>HeadlessRunner</b>.
+ *
+ * @author Igor Grebenkov
+ */
+public class DirtyTileStepEngine implements StepEngine {
+
+    private ArrayGameModel gameModel;       // Reference to the game's model
+    private int blockShift;                 // Base 2 logarithm of the width of a block
+    private TileChangeTracker tracker;      // Blocks changed during the last generation
+    private int[][] nextStates;             // Buffer the next generation is written into
+    private volatile int skippedBlocks;     // Blocks skipped during the last generation
+    private volatile long totalSkippedBlocks;   // Blocks skipped since the engine was created
+    private volatile long generations;      // Generations computed since the engine was created
+
+    /**
+     * Constructor to initialize the engine for a given model, tracking blocks of 16x16 tiles.
+     *
+     * @param gameModel the game's model
+     */
+    public DirtyTileStepEngine( ArrayGameModel gameModel ) {
+        this( gameModel, TileChangeTracker.DEFAULT_BLOCK_SHIFT );
+    }
+
+    /**
+     * Constructor to initialize the engine for a given model and block size.
+     *
+     * @param gameModel  the game's model
+     * @param blockShift the base 2 logarithm of the width of a block
+     */
+    public DirtyTileStepEngine( ArrayGameModel gameModel, int blockShift ) {
+        this.gameModel = gameModel;
+        this.blockShift = blockShift;
+        tracker = new TileChangeTracker( gameModel.getWidth(), gameModel.getHeight(), blockShift );
+        gameModel.setChangeTracker( tracker );
+    }
+
+    /**
+     * Getter method for the number of blocks skipped during the last generation.
+     *
+     * @return the number of skipped blocks
+     */
+    public int getSkippedBlocks() {
+        return skippedBlocks;
+    }
+
+    /**
+     * Getter method for the mean number of blocks skipped per generation since the engine was created.
+     *
+     * @return the mean number of skipped blocks, 0 if no generation was computed
+     */
+    public double getMeanSkippedBlocks() {
+        long computed = generations;
+        return computed == 0 ? 0 : totalSkippedBlocks / ( double ) computed;
+    }
+
+    /**
+     * Getter method for the number of blocks the grid is divided into.
+     *
+     * @return the number of blocks
+     */
+    public int getNumberOfBlocks() {
+        return tracker.getBlocksAcross() * tracker.getBlocksDown();
+    }
+
+    /**
+     * Advances the game's model by one generation.
+     */
+    public void step() {
+        int width = gameModel.getWidth();
+        int height = gameModel.getHeight();
+        int[][] states = gameModel.getTileStates();
+        boolean wrapping = gameModel.getBoundary() != Boundary.DEAD;
+        gameModel.fillGhostTiles();
+
+        // A new buffer does not hold the previous generation, so nothing can be skipped. The
+        // buffer is only reallocated for a new or resized grid, whose blocks are tracked anew
+        if ( nextStates == null || nextStates.length != states.length || nextStates[ 0 ].length != states[ 0 ].length
+                || gameModel.getChangeTracker() != tracker ) {
+            nextStates = new int[ width + 2 ][ height + 2 ];
+            tracker = new TileChangeTracker( width, height, blockShift );
+            gameModel.setChangeTracker( tracker );
+        }
+        int lastBlockX = tracker.getBlocksAcross() - 1;
+        int lastBlockY = tracker.getBlocksDown() - 1;
+
+        int skipped = 0;
+        for ( int bx = 0; bx <= lastBlockX; bx++ ) {
+            for ( int by = 0; by <= lastBlockY; by++ ) {
+                boolean edge = bx == 0 || by == 0 || bx == lastBlockX || by == lastBlockY;
+                if ( tracker.isNeighbourhoodChanged( bx, by ) || wrapping && edge ) {
+                    tracker.setNextChanged( bx, by, computeBlock( states, bx, by ) );
+                } else {
+                    tracker.setNextChanged( bx, by, false );
+                    skipped++;
+                }
+            }
+        }
+        skippedBlocks = skipped;
+        totalSkippedBlocks += skipped;
+        generations++;
+        tracker.endGeneration();
+        nextStates = gameModel.swapTileStates( nextStates );
+    }
+
+    /**
+     * Computes the next generation of one block.
+     *
+     * @param states the padded state of the current generation
+     * @param bx     the block's x co-ordinate
+     * @param by     the block's y co-ordinate
+     * @return true if any tile of the block changed
+     */
+    private boolean computeBlock( int[][] states, int bx, int by ) {
+        int blockSize = tracker.getBlockSize();
+        int fromI = bx * blockSize + 1, toI = Math.min( fromI + blockSize - 1, gameModel.getWidth() );
+        int fromJ = by * blockSize + 1, toJ = Math.min( fromJ + blockSize - 1, gameModel.getHeight() );
+        byte[] table = gameModel.getRule().getTable();
+        boolean changed = false;
+
+        for ( int i = fromI; i <= toI; i++ ) {
+            int[] left = states[ i - 1 ];
+            int[] middle = states[ i ];
+            int[] right = states[ i + 1 ];
+            int[] next = nextStates[ i ];
+
+            // The 3x3 neighbourhood of the tile, rolled along the column as in ArrayStepEngine
+            int neighbourhood = ( left[ fromJ - 1 ] << 2 | middle[ fromJ - 1 ] << 1 | right[ fromJ - 1 ] ) << 3
+                    | left[ fromJ ] << 2 | middle[ fromJ ] << 1 | right[ fromJ ];
+
+            for ( int j = fromJ; j <= toJ; j++ ) {
+                neighbourhood = ( neighbourhood << 3 & 0x1FF )
+                        | left[ j + 1 ] << 2 | middle[ j + 1 ] << 1 | right[ j + 1 ];
+                int status = table[ neighbourhood ];
+
+                next[ j ] = status;
+                changed |= status != middle[ j ];
+            }
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,264 @@
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * The class <b>EnsembleRunner</b> runs many independent random boards for Monte Carlo studies, without a
+ * display. Every board is filled at random with one of the densities given, then stepped until a
+ * <b>CycleDetector</b> finds it has become a still life or repeats, or until the generation limit. The
+ * boards are small and independent, so each is stepped on a single thread and the boards are spread
+ * over the threads of a work-stealing pool.
+ * <p>
+ * Usage: java EnsembleRunner [--runs n] [--size n|WxH] [--densities p,q,...] [--generations n]
+ *        [--seed n] [--threads n] [--output file.csv]
+ * The model, rule and boundary are chosen with the system properties read by <b>StepEngines</b>, and the
+ * longest period detected with gol.cycle.period.
+ * <p>
+ * --runs boards are run for each density. The seed of each board is drawn from the seed of the ensemble,
+ * so an ensemble is reproduced by its seed whatever the number of threads, and a single board by running
+ * HeadlessRunner with the same size, density and the seed of the board. One CSV line is written per board,
+ * in the order of the runs, as soon as the board and those before it are done:
+ * - run: the index of the board in the ensemble
+ * - seed: the seed the board was filled with
+ * - density: the probability of each tile being active at first
+ * - initial_population, final_population: the number of active tiles at first and at the end
+ * - lifetime: the generation the cycle started at, or -1 if none was found within the limit
+ * - period: the period of the cycle, 1 for a still life, or 0 if none was found
+ * - generations: the number of generations computed
+ *
+ * @author Igor Grebenkov
+ */
+public class EnsembleRunner {
+
+    private static final String HEADER = "run,seed,density,initial_population,final_population,lifetime,period,generations";
+
+    /**
+     * The <b>main</b> method of the runner.
+     *
+     * @param args the command line options
+     */
+    public static void main( String[] args ) {
+        int runs = 100;
+        int width = 64;
+        int height = 64;
+        double[] densities = { 0.1, 0.2, 0.3, 0.4, 0.5 };
+        long generations = 10000;
+        long seed = System.nanoTime();
+        int threads = Runtime.getRuntime().availableProcessors();
+        String output = null;
+
+        for ( int i = 0; i < args.length; i++ ) {
+            String option = args[ i ];
+            if ( i + 1 >= args.length ) {
+                usage( "Missing value for " + option );
+            }
+            String value = args[ ++i ];
+            switch ( option ) {
+                case "--runs":
+                    runs = Integer.parseInt( value );
+                    break;
+                case "--size":
+                    int separator = value.indexOf( 'x' );
+                    width = Integer.parseInt( separator < 0 ? value : value.substring( 0, separator ) );
+                    height = separator < 0 ? width : Integer.parseInt( value.substring( separator + 1 ) );
+                    break;
+                case "--densities":
+                    String[] values = value.split( "," );
+                    densities = new double[ values.length ];
+                    for ( int d = 0; d < values.length; d++ ) {
+                        densities[ d ] = Double.parseDouble( values[ d ].trim() );
+                    }
+                    break;
+                case "--generations":
+                    generations = Long.parseLong( value );
+                    break;
+                case "--seed":
+                    seed = Long.parseLong( value );
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt( value );
+                    break;
+                case "--output":
+                    output = value;
+                    break;
+                default:
+                    usage( "Unknown option " + option );
+            }
+        }
+        if ( runs < 1 || threads < 1 ) {
+            usage( "The number of runs and threads must be positive" );
+        }
+        if ( runs > Integer.MAX_VALUE / densities.length ) {
+            usage( "Too many runs for " + densities.length + " densities: " + runs );
+        }
+
+        PrintWriter out;
+        try {
+            out = output == null ? new PrintWriter( System.out ) :
+                    new PrintWriter( new OutputStreamWriter( new FileOutputStream( output ), StandardCharsets.UTF_8 ) );
+        } catch ( FileNotFoundException e ) {
+            usage( "Cannot write " + output + ": " + e.getMessage() );
+            return;
+        }
+
+        long start = System.nanoTime();
+        int stable = run( width, height, densities, runs, generations, seed, threads, out );
+        double seconds = ( System.nanoTime() - start ) / 1e9;
+        out.close();
+        if ( out.checkError() ) {
+            System.err.println( "Cannot write " + ( output == null ? "the results" : output ) );
+            System.exit( 1 );
+        }
+        System.err.printf( "%d boards of %dx%d in %.3f s, %d stabilized, seed %d%n",
+                runs * densities.length, width, height, seconds, stable, seed );
+    }
+
+    /**
+     * Runs an ensemble of boards and writes one CSV line per board, after a header.
+     *
+     * @param width       the number of columns of the boards
+     * @param height      the number of rows of the boards
+     * @param densities   the densities the boards are filled with
+     * @param runs        the number of boards per density
+     * @param generations the largest number of generations computed per board
+     * @param seed        the seed of the ensemble
+     * @param threads     the number of threads the boards are run on
+     * @param out         the writer the CSV is written to
+     * @return the number of boards that became a still life or started repeating
+     * @throws ArithmeticException if there are more boards than an int can count
+     */
+    public static int run( final int width, final int height, double[] densities, int runs,
+                           final long generations, long seed, int threads, PrintWriter out ) {
+        ForkJoinPool pool = new ForkJoinPool( threads );
+        SplittableRandom seeds = new SplittableRandom( seed );
+        int boards = Math.multiplyExact( runs, densities.length );
+        List< Future< Result > > results = new ArrayList< Future< Result > >( boards );
+        int stable = 0;
+
+        try {
+            for ( int run = 0; run < boards; run++ ) {
+                final int index = run;
+                final long boardSeed = seeds.nextLong();
+                final double density = densities[ run / runs ];
+                results.add( pool.submit( new Callable< Result >() {
+                    public Result call() {
+                        return runBoard( index, boardSeed, density, width, height, generations );
+                    }
+                } ) );
+            }
+
+            out.println( HEADER );
+            for ( Future< Result > future : results ) {
+                Result result = future.get();
+                out.println( result );
+                out.flush();
+                if ( result.period > 0 ) {
+                    stable++;
+                }
+            }
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException( "Interrupted while running the ensemble" );
+        } catch ( ExecutionException e ) {
+            throw new IllegalStateException( "A board of the ensemble failed", e.getCause() );
+        } finally {
+            pool.shutdownNow();
+        }
+        return stable;
+    }
+
+    /**
+     * Fills a board at random and steps it until it becomes a still life, repeats or reaches the generation limit.
+     *
+     * @param run         the index of the board in the ensemble
+     * @param seed        the seed the board is filled with
+     * @param density     the probability of each tile being active
+     * @param width       the number of columns of the board
+     * @param height      the number of rows of the board
+     * @param generations the largest number of generations computed
+     * @return the result of the board
+     */
+    static Result runBoard( int run, long seed, double density, int width, int height, long generations ) {
+        GameModel gameModel = StepEngines.createModel( width, height );
+        Boards.randomize( gameModel, new Random( seed ), density );
+        StepEngine engine = StepEngines.createEngine( gameModel, 1 );
+        CycleDetector cycleDetector = CycleDetector.fromProperties( CycleDetector.DEFAULT_PERIOD );
+
+        Result result = new Result( run, seed, density );
+        result.initialPopulation = Boards.population( gameModel );
+        boolean stable = cycleDetector != null && cycleDetector.generationComputed( gameModel, 0 );
+        while ( !stable && result.generations < generations ) {
+            engine.step();
+            stable = cycleDetector != null && cycleDetector.generationComputed( gameModel, ++result.generations );
+        }
+        result.finalPopulation = Boards.population( gameModel );
+        if ( stable ) {
+            result.lifetime = cycleDetector.getCycleStart();
+            result.period = cycleDetector.getPeriod();
+        }
+        if ( gameModel instanceof OffHeapGameModel ) {
+            ( ( OffHeapGameModel ) gameModel ).close();
+        }
+        return result;
+    }
+
+    /**
+     * Prints an error and the usage of the runner, then exits.
+     *
+     * @param message the error
+     */
+    private static void usage( String message ) {
+        System.err.println( message );
+        System.err.println( "Usage: java EnsembleRunner [--runs n] [--size n|WxH] [--densities p,q,...] " +
+                "[--generations n] [--seed n] [--threads n] [--output file.csv]" );
+        System.exit( 2 );
+    }
+
+    /**
+     * The nested class <b>Result</b> holds what became of one board of the ensemble.
+     */
+    static class Result {
+        final int run;              // Index of the board in the ensemble
+        final long seed;            // Seed the board was filled with
+        final double density;       // Probability of each tile being active at first
+        long initialPopulation;     // Number of active tiles at first
+        long finalPopulation;       // Number of active tiles at the end
+        long lifetime = -1;         // Generation the cycle started at, -1 if none was found
+        int period;                 // Period of the cycle, 0 if none was found
+        long generations;           // Number of generations computed
+
+        /**
+         * Constructor to initialize the result of a board before it is run.
+         *
+         * @param run     the index of the board in the ensemble
+         * @param seed    the seed the board is filled with
+         * @param density the probability of each tile being active
+         */
+        Result( int run, long seed, double density ) {
+            this.run = run;
+            this.seed = seed;
+            this.density = density;
+        }
+
+        /**
+         * Formats the result as a line of the CSV.
+         *
+         * @return the values of the columns, separated by commas
+         */
+        @Override
+        public String toString() {
+            return run + "," + seed + "," + density + "," + initialPopulation + "," + finalPopulation + ","
+                    + lifetime + "," + period + "," + generations;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.swing.SwingUtilities;
+
+/**
+ * The class <b>FramePublisher</b> hands frames of the board from the simulation thread
+ * to the event dispatch thread. Only the latest frame is kept: if the view has not
+ * shown a frame by the time a newer one is published, the older one is dropped, so the
+ * simulation never waits for rendering.
+ *
+ * @author Igor Grebenkov
+ */
+public class FramePublisher {
+
+    private GameView gameView;                              // View the frames are shown in
+    private AtomicReference< ViewportFrame > pendingFrame;  // Latest frame not yet shown
+    private AtomicLong droppedFrames;                       // Generations that were never shown
+    private Runnable showFrame;                             // Task run on the EDT to show a frame
+
+    /**
+     * Constructor to initialize the publisher for a view.
+     *
+     * @param gameView the view the frames are shown in
+     */
+    public FramePublisher( GameView gameView ) {
+        this.gameView = gameView;
+        pendingFrame = new AtomicReference< ViewportFrame >();
+        droppedFrames = new AtomicLong();
+        showFrame = new Runnable() {
+            public void run() {
+                ViewportFrame frame = pendingFrame.getAndSet( null );
+                if ( frame != null ) {
+                    FramePublisher.this.gameView.update( frame );
+                }
+            }
+        };
+    }
+
+    /**
+     * Publishes a frame, replacing the pending one if the view has not shown it yet.
+     *
+     * @param frame the frame to show
+     */
+    public void publish( ViewportFrame frame ) {
+        if ( pendingFrame.getAndSet( frame ) == null ) {
+            SwingUtilities.invokeLater( showFrame );
+        } else {
+            droppedFrames.incrementAndGet();
+        }
+    }
+
+    /**
+     * Checks whether a frame is waiting to be shown. The simulation thread uses it to avoid
+     * taking frames that would be dropped anyway.
+     *
+     * @return true if the view has not shown the last published frame yet
+     */
+    public boolean isFramePending() {
+        return pendingFrame.get() != null;
+    }
+
+    /**
+     * Records that a generation was computed without publishing its frame.
+     */
+    public void dropFrame() {
+        droppedFrames.incrementAndGet();
+    }
+
+    /**
+     * Getter method for the number of generations that were never shown.
+     *
+     * @return the number of dropped frames
+     */
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+}
@@ -0,0 +1,15 @@
+/**
+ * The interface <b>FrozenBoard</b> is implemented by the boards a model sets aside for a
+ * snapshot instead of copying them. The model writes its next generations, and any tile edited
+ * meanwhile, to other memory, so the frozen board can be read from another thread until it is
+ * released, after which its memory goes back to the model.
+ *
+ * @author Igor Grebenkov
+ */
+public interface FrozenBoard extends PackedBoard {
+
+    /**
+     * Hands the memory of the board back to the model. The board must not be read afterwards.
+     */
+    void release();
+}
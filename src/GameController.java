@@ -1,15 +1,10 @@
-import javafx.scene.control.ComboBox;
-
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 import javax.swing.*;
-import java.util.LinkedList;
-import java.util.Iterator;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import java.util.Random;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.io.*;
 
 /**
@@ -17,40 +12,80 @@ import java.io.*;
  * when a player selects a tile. It also implements the interface ChangeListener, called
  * when the player adjusts the game speed via a JSlider. It computes the next state for each successive
  * generation, updating the game's model and view.
+ * <p>
+ * Generations are computed at the rate chosen by the player by a <b>GenerationScheduler</b>, whose
+ * pacing of late generations is set by the gol.pacing system property (catch-up or skip).
+ * They are computed on the scheduler's thread while the view is updated on the event dispatch
+ * thread, so every access to the model is synchronized on it and the view is only given
+ * immutable frames of the part of the board it shows through a <b>FramePublisher</b>.
+ * <p>
+ * The grid can be resized while the game runs, from the Resize button or by loading a board
+ * of other dimensions: the board is resized in place and a new step engine and view are made for it.
+ * <p>
+ * The simulation stops by itself once a <b>CycleDetector</b> sees the board become a still life
+ * or repeat with a short period. Larger boards than CycleDetector.DEFAULT_MAX_TILES only detect
+ * cycles if gol.cycle.period is set, which is checked again whenever the grid is resized.
  *
  * @author Igor Grebenkov
  */
 public class GameController implements ActionListener, ChangeListener {
-    private static final int DEFAULT_TIMER_DELAY = 300; // Default timer delay
+    private static final String PACING_PROPERTY = "gol.pacing";    // Pacing of late generations
+    private static final double RANDOM_DENSITY = 1.0 / 30;          // Share of the tiles activated by "Random"
 
     private GameView gameView;            // Reference to the game's view
     private GameModel gameModel;          // Reference to the game's model
-    private Timer timer;                  // Timer to control speed of each generation/board update
-    private int moveDelay;                // Timer delay between every generation (ms)
-    public Integer numberOfGenerations;   // Counts the number of generations
+    private StepEngine stepEngine;        // Engine that computes each generation
+    private PatternLibrary patternLibrary;  // Patterns offered as presets
+    private Checkpointer checkpointer;    // Saves the board periodically, null if disabled
+    private CycleDetector cycleDetector;  // Stops the simulation once the board repeats, null if disabled
+    private FramePublisher framePublisher;  // Hands snapshots of the board to the view
+    private GameMetrics metrics;          // Measures the time spent stepping and rendering
+    private GenerationScheduler scheduler;  // Computes generations at the rate chosen by the player
+    public Long numberOfGenerations;      // Counts the number of generations
 
     /**
      * Constructor to initialize the controller. Creates the game's view and model instances.
      *
-     * @param size the size of grid for the game
+     * @param width  the number of columns of the grid for the game
+     * @param height the number of rows of the grid for the game
      */
-    public GameController( int size ) {
-        gameModel = new GameModel( size );
-        gameView = new GameView( gameModel, this );
-        moveDelay = 200;
-        gameView.setJTextFieldString( Integer.toString( 0 ) );
-        numberOfGenerations = 0;
-        gameView.update();
+    public GameController( int width, int height ) {
+        gameModel = StepEngines.createModel( width, height );
+        stepEngine = StepEngines.createEngine( gameModel );
+        patternLibrary = PatternLibrary.createDefault();
+        checkpointer = Checkpointer.fromProperties( gameModel );
+        cycleDetector = createCycleDetector( width, height );
+        gameView = new GameView( gameModel, this, patternLibrary.getNames() );
+        framePublisher = new FramePublisher( gameView );
+        metrics = new GameMetrics( stepEngine, width, height );
+        metrics.setFramePublisher( framePublisher );
+        metrics.setGameModel( gameModel );
+        metrics.register();
+        gameView.showMetrics( metrics );
+        scheduler = new GenerationScheduler( new GenerationScheduler.Generation() {
+            public boolean run() {
+                if ( oneGeneration( false ) ) {
+                    cycleDetected();
+                    return false;
+                }
+                return true;
+            }
+        }, GenerationScheduler.Pacing.parse( System.getProperty( PACING_PROPERTY, "catch-up" ) ),
+                gameView.getGenerationRate() );
+        numberOfGenerations = 0L;
+        publishFrame();
     }
 
     /**
      * Resets the game.
      */
     private void reset() {
-        gameModel.reset();
-        numberOfGenerations = 0;
-        gameView.setJTextFieldString( Integer.toString( numberOfGenerations ) );
-        gameView.update();
+        synchronized ( gameModel ) {
+            gameModel.reset();
+            numberOfGenerations = 0L;
+            boardEdited();
+            publishFrame();
+        }
     }
 
     /**
@@ -59,45 +94,13 @@ public class GameController implements ActionListener, ChangeListener {
      * @param e the ActionEvent
      */
     public void actionPerformed( ActionEvent e ) {
-        // - If a tile on the grid is clicked and a preset is active,
-        // the preset will be drawn around the next tile clicked by the user.
-        // - If no preset is active, clicking a tile toggles it's status
         if ( e.getSource() instanceof GridTile ) {
             GridTile source = ( GridTile ) ( e.getSource() );
-            // If the preset is selected in the ComboBox, draw that preset
-                if ( !gameView.getComboBoxString().equals( "" ) ) {
-                Preset p = new Preset( source.getColumn(), source.getRow(), gameModel, gameView );
-                switch ( gameView.getComboBoxString() ) {
-                    case "Glider":
-                        p.drawGlider();
-                        break;
-                    case "Small Exploder":
-                        p.drawSmallExploder();
-                        break;
-                    case "Exploder":
-                        p.drawExploder();
-                        break;
-                    case "10 Cell Row":
-                        p.drawTenCellRow();
-                        break;
-                    case "Lightweight Spaceship":
-                        p.drawLightweightSpaceship();
-                        break;
-                    case "Tumbler":
-                        p.drawTumbler();
-                        break;
-                    case "Gosper Glider Gun":
-                        p.drawGosperGliderGun();
-                        break;
-                }
-            } else if ( gameModel.getCurrentStatus( source.getColumn(), source.getRow() ) ==
-                    GameModel.INACTIVE ) {
-                gameModel.selectTile( source.getColumn(), source.getRow() );
-                gameView.update();
-            } else {
-                gameModel.unselectTile( source.getColumn(), source.getRow() );
-                gameView.update();
-            }
+            tileSelected( source.getColumn(), source.getRow() );
+        }
+
+        if ( e.getSource() instanceof JCheckBox ) {
+            scheduler.setGenerationRate( gameView.getGenerationRate() );
         }
 
         // Event handling for control buttons
@@ -105,32 +108,81 @@ public class GameController implements ActionListener, ChangeListener {
             JButton source = ( JButton ) ( e.getSource() );
 
             if ( source.getText().equals( "Start" ) ) {
-                runSimulation();
+                scheduler.start();
                 gameView.disableStartButton();
                 gameView.enableStopButton();
             } else if ( source.getText().equals( "Stop" ) ) {
-                timer.cancel();
-                timer.purge();
+                scheduler.stop();
+                synchronized ( gameModel ) {
+                    publishFrame();
+                }
                 gameView.enableStartButton();
                 gameView.disableStopButton();
             } else if ( source.getText().equals( "Next" ) ) {
-                oneGeneration();
+                if ( oneGeneration( true ) ) {
+                    cycleDetected();
+                }
             } else if ( source.getText().equals( "Random" ) ) {
                 randomizeTiles();
             } else if ( source.getText().equals( "Reset" ) ) {
-                if ( numberOfGenerations != 0 ) {
-                    timer.cancel();
-                    timer.purge();
-                }
+                scheduler.stop();
                 gameView.enableStartButton();
                 gameView.disableStopButton();
                 reset();
+            } else if ( source.getText().equals( "Save" ) ) {
+                saveBoard();
+            } else if ( source.getText().equals( "Load" ) ) {
+                loadBoard();
+            } else if ( source.getText().equals( "Resize" ) ) {
+                askForSize();
             } else if ( source.getText().equals( "Quit" ) ) {
+                scheduler.stop();
+                if ( checkpointer != null ) {
+                    checkpointer.shutdown();
+                }
                 System.exit( 0 );
             }
         }
     }
 
+    /**
+     * Callback for when the user selects a tile of the grid.
+     *
+     * @param column the column of the selected tile
+     * @param row    the row of the selected tile
+     */
+    public void tileSelected( int column, int row ) {
+        synchronized ( gameModel ) {
+            // - If a tile on the grid is clicked and a preset is active,
+            // the preset will be drawn around the next tile clicked by the user.
+            // - If no preset is active, clicking a tile moves it to its next state
+            if ( !gameView.getComboBoxString().equals( "" ) ) {
+                try {
+                    patternLibrary.get( gameView.getComboBoxString() ).stamp( gameModel, column, row );
+                } catch ( IOException e ) {
+                    System.err.println( "IOException: " + e.getMessage() );
+                }
+            } else {
+                int status = gameModel.getCurrentStatus( column, row );
+                gameModel.setTileState( column, row, ( status + 1 ) % gameModel.getNumberOfStates() );
+            }
+            boardEdited();
+            publishFrame();
+        }
+    }
+
+    /**
+     * Callback for when the view of the grid pans or zooms. Shows the new part of the board at
+     * once unless the simulation is running, in which case the next generation shows it.
+     */
+    public void viewportChanged() {
+        if ( scheduler == null || !scheduler.isRunning() ) {
+            synchronized ( gameModel ) {
+                publishFrame();
+            }
+        }
+    }
+
     /**
      * Change listener for JSliders
      *
@@ -140,158 +192,223 @@ public class GameController implements ActionListener, ChangeListener {
         JSlider source = ( JSlider ) e.getSource();
 
         if ( !source.getValueIsAdjusting() ) {
-            moveDelay = source.getValue();
+            scheduler.setGenerationRate( gameView.getGenerationRate() );
         }
     }
 
     /**
-     * Begins the simulation
+     * Computes one iteration of the game.
+     *
+     * @param showFrame whether the generation must be shown even if the view has not caught up
+     * @return true if the board was found to repeat at this generation
      */
-    private void runSimulation() {
-        timer = new Timer();
-        timer.schedule( new Task(), moveDelay );
+    private boolean oneGeneration( boolean showFrame ) {
+        synchronized ( gameModel ) {
+            metrics.stepStarted();
+            stepEngine.step();
+            metrics.stepFinished();
+            numberOfGenerations++;
+            if ( checkpointer != null ) {
+                checkpointer.generationComputed( gameModel, numberOfGenerations );
+            }
+            boolean cycle = cycleDetector != null && cycleDetector.generationComputed( gameModel, numberOfGenerations );
+            if ( cycle ) {
+                showFrame = true;
+            }
+
+            // Drop the generation rather than wait if the view has not shown the previous one
+            if ( showFrame || !framePublisher.isFramePending() ) {
+                publishFrame();
+            } else {
+                framePublisher.dropFrame();
+            }
+            return cycle;
+        }
     }
 
     /**
-     * Computes one iteration of the game.
+     * Stops the simulation once the board repeats and tells the player how.
      */
-    private void oneGeneration() {
-        // Get the status of each tile in the next generation of the game
-        int[][] statusCache = cacheNextGenStatuses();
-
-        // Select/unselect tiles according to previously cached positions
-        for ( int i = 0; i < gameModel.getSize(); i++ ) {
-            for ( int j = 0; j < gameModel.getSize(); j++ ) {
-                if ( statusCache[ i ][ j ] == 0 ) {
-                    gameModel.unselectTile( i, j );
-                } else {
-                    gameModel.selectTile( i, j );
+    private void cycleDetected() {
+        final String message;
+        synchronized ( gameModel ) {
+            // The grid may have been resized since, replacing the detector
+            message = cycleDetector != null && cycleDetector.getPeriod() > 0 ?
+                    "The board became a " + cycleDetector.describeCycle() + "." : null;
+        }
+        SwingUtilities.invokeLater( new Runnable() {
+            public void run() {
+                gameView.enableStartButton();
+                gameView.disableStopButton();
+                if ( message != null ) {
+                    JOptionPane.showMessageDialog( gameView, message, "Simulation stopped",
+                            JOptionPane.INFORMATION_MESSAGE );
                 }
             }
-        }
-        numberOfGenerations++;
-        gameView.setJTextFieldString( Integer.toString( numberOfGenerations ) );
-
-        gameView.update();
+        } );
     }
 
     /**
-     * Caches the status of all tiles in the next generation according to the rules of the game
-     *
-     * @return the status of all tiles in the next generation
+     * Forgets the generations that led to the board, since an edit of the board breaks any cycle.
+     * Must be called while holding the model's lock.
      */
-    private int[][] cacheNextGenStatuses() {
-        int statusCache[][] = new int[ gameModel.getSize() ][ gameModel.getSize() ];
-
-        // Determines the status of each tile in the next generation of the game
-        for ( int i = 0; i < gameModel.getSize(); i++ ) {
-            for ( int j = 0; j < gameModel.getSize(); j++ ) {
-                int numValidNeighbours = 0;
-
-                // Get the list of valid neighbouring tiles to the tile at (i,j)
-                LinkedList< Point > neighbours = getNeighbours( i, j );
-
-                Iterator< Point > itr = neighbours.iterator();
-
-                // Counts the number of active neighbors to the tile at (i,j)
-                while ( itr.hasNext() ) {
-                    Point p = itr.next();
-
-                    int x = p.getX();
-                    int y = p.getY();
+    private void boardEdited() {
+        if ( cycleDetector != null ) {
+            cycleDetector.reset();
+        }
+    }
 
-                    if ( gameModel.getCurrentStatus( x, y ) == 1 ) {
-                        numValidNeighbours++;
-                    }
-                }
+    /**
+     * Publishes a frame of the part of the board in view. Must be called while holding the model's lock.
+     */
+    private void publishFrame() {
+        ViewportFrame frame = gameView.createFrame( numberOfGenerations );
+        metrics.framePublished( frame );
+        framePublisher.publish( frame );
+    }
 
-                // Mark tiles for life or death according to the game's rules
-                if ( gameModel.getCurrentStatus( i, j ) == 1 ) {
-                    if ( numValidNeighbours <= 1 ||
-                            numValidNeighbours >= 4 ) {
-                        statusCache[ i ][ j ] = 0;
-                    } else {
-                        statusCache[ i ][ j ] = 1;
-                    }
-                } else {
-                    if ( numValidNeighbours == 3 ) {
-                        statusCache[ i ][ j ] = 1;
-                    } else {
-                        statusCache[ i ][ j ] = 0;
-                    }
-                }
+    /**
+     * Asks the player for the width and height of the grid, as "width x height", and resizes it.
+     */
+    private void askForSize() {
+        String answer = ( String ) JOptionPane.showInputDialog( gameView, "Width x height of the grid:", "Resize",
+                JOptionPane.QUESTION_MESSAGE, null, null, gameModel.getWidth() + "x" + gameModel.getHeight() );
+        if ( answer == null ) {
+            return;
+        }
+        String[] dimensions = answer.trim().toLowerCase().split( "\\s*x\\s*" );
+        try {
+            int width = Integer.parseInt( dimensions[ 0 ] );
+            int height = dimensions.length > 1 ? Integer.parseInt( dimensions[ 1 ] ) : width;
+            synchronized ( gameModel ) {
+                resizeBoard( width, height );
+                publishFrame();
             }
+        } catch ( NumberFormatException e ) {
+            JOptionPane.showMessageDialog( gameView, "Not a size: " + answer, "Resize", JOptionPane.ERROR_MESSAGE );
+        } catch ( IllegalArgumentException e ) {
+            JOptionPane.showMessageDialog( gameView, "Cannot resize the grid: " + e.getMessage(), "Resize",
+                    JOptionPane.ERROR_MESSAGE );
         }
-        return statusCache;
     }
 
     /**
-     * Returns a list of valid neighbors to the point at (x,y).
+     * Resizes the grid, keeping the tiles that still fit, and replaces the step engine and the
+     * view of the grid with ones made for the new dimensions. Generations keep being computed
+     * if the simulation is running. Must be called on the event dispatch thread while holding
+     * the model's lock.
      *
-     * @param x the x co-ordinate of the point
-     * @param y the y co-ordinate of the point
-     * @return the list of neighbouring tiles (represented as points)
+     * @param width  the new number of columns of the grid
+     * @param height the new number of rows of the grid
      */
-    private LinkedList< Point > getNeighbours( int x, int y ) {
-        LinkedList< Point > neighbours = new LinkedList< Point >();
-
-        // Add possible neighbors to list
-        neighbours.add( new Point( x - 1, y + 1 ) );
-        neighbours.add( new Point( x - 1, y ) );
-        neighbours.add( new Point( x - 1, y - 1 ) );
-        neighbours.add( new Point( x, y + 1 ) );
-        neighbours.add( new Point( x, y - 1 ) );
-        neighbours.add( new Point( x + 1, y + 1 ) );
-        neighbours.add( new Point( x + 1, y ) );
-        neighbours.add( new Point( x + 1, y - 1 ) );
-
-        Iterator< Point > i = neighbours.iterator();
+    private void resizeBoard( int width, int height ) {
+        if ( width == gameModel.getWidth() && height == gameModel.getHeight() ) {
+            return;
+        }
+        gameModel.resize( width, height );
+        if ( stepEngine instanceof ParallelStepEngine ) {
+            ( ( ParallelStepEngine ) stepEngine ).shutdown();
+        }
+        stepEngine = StepEngines.createEngine( gameModel );
+        cycleDetector = createCycleDetector( width, height );
+        metrics.boardChanged( stepEngine, width, height );
+        boardEdited();
+        gameView.resizeBoardView( this );
+    }
 
-        // Remove any points that are outside the range of the board from the list of neighbours
-        while ( i.hasNext() ) {
-            Point p = i.next();
+    /**
+     * Creates the cycle detector for a grid of the given dimensions, detecting cycles by default
+     * on grids of up to CycleDetector.DEFAULT_MAX_TILES tiles. A model no longer watched stops
+     * having its hash kept up to date by the step engine.
+     *
+     * @param width  the number of columns of the grid
+     * @param height the number of rows of the grid
+     * @return the cycle detector, or null if cycles are not detected
+     */
+    private CycleDetector createCycleDetector( int width, int height ) {
+        CycleDetector detector = CycleDetector.fromProperties( ( long ) width * height <= CycleDetector.DEFAULT_MAX_TILES ?
+                CycleDetector.DEFAULT_PERIOD : 0 );
+        if ( detector == null ) {
+            gameModel.setBoardHash( null );
+        }
+        return detector;
+    }
 
-            if ( p.getX() < 0 ) {
-                i.remove();
-            } else if ( p.getX() >= gameModel.getSize() ) {
-                i.remove();
-            } else if ( p.getY() < 0 ) {
-                i.remove();
-            } else if ( p.getY() >= gameModel.getSize() ) {
-                i.remove();
+    /**
+     * Asks the player for a file and saves the board and its generation to it.
+     */
+    private void saveBoard() {
+        JFileChooser chooser = createBoardChooser();
+        if ( chooser.showSaveDialog( gameView ) != JFileChooser.APPROVE_OPTION ) {
+            return;
+        }
+        File file = chooser.getSelectedFile();
+        if ( !file.getName().contains( "." ) ) {
+            file = new File( file.getPath() + "." + BoardFile.EXTENSION );
+        }
+        try {
+            synchronized ( gameModel ) {
+                BoardFile.save( gameModel, numberOfGenerations, file, true );
             }
+        } catch ( IOException e ) {
+            JOptionPane.showMessageDialog( gameView, e.getMessage(), "Save", JOptionPane.ERROR_MESSAGE );
         }
-        return neighbours;
     }
 
     /**
-     * Randomly activates some tiles with a 1/31 probability
+     * Asks the player for a file and replaces the board and its generation with the ones saved in it.
+     * The file is verified before the board is resized, so a corrupt file leaves the board as it was.
      */
-    private void randomizeTiles() {
-        Random n = new Random();
-        for ( int i = 0; i < gameModel.getSize(); i++ ) {
-            for ( int j = 0; j < gameModel.getSize(); j++ ) {
-                int newStatus = n.nextInt( 30 );
-
-                if ( newStatus == 0 ) {
-                    gameModel.selectTile( i, j );
-                }
+    private void loadBoard() {
+        JFileChooser chooser = createBoardChooser();
+        if ( chooser.showOpenDialog( gameView ) != JFileChooser.APPROVE_OPTION ) {
+            return;
+        }
+        try {
+            synchronized ( gameModel ) {
+                // The board is only resized once the file is known to be sound, then read only once more
+                BoardFile header = BoardFile.verify( chooser.getSelectedFile() );
+                resizeBoard( header.getWidth(), header.getHeight() );
+                numberOfGenerations = BoardFile.load( chooser.getSelectedFile(), gameModel, header ).getGeneration();
+                boardEdited();
+                publishFrame();
             }
+        } catch ( IOException e ) {
+            JOptionPane.showMessageDialog( gameView, e.getMessage(), "Load", JOptionPane.ERROR_MESSAGE );
+        } catch ( IllegalArgumentException e ) {
+            JOptionPane.showMessageDialog( gameView, "Cannot resize the grid: " + e.getMessage(), "Load",
+                    JOptionPane.ERROR_MESSAGE );
         }
-        gameView.update();
     }
 
     /**
-     * The nested class <b>Task</b> is used to schedule tasks
-     * (in this program, running each generation of the simulation).
+     * Creates a file chooser showing board files.
+     *
+     * @return the file chooser
+     */
+    private static JFileChooser createBoardChooser() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter( new FileNameExtensionFilter( "Game of Life boards", BoardFile.EXTENSION ) );
+        return chooser;
+    }
+
+    /**
+     * Randomly activates some tiles with a 1/30 probability. The number of inactive tiles before
+     * each active one is drawn from the geometric distribution, so only one random number is
+     * drawn per active tile and very large grids are filled quickly.
      */
-    private class Task extends TimerTask {
-        /**
-         * Runs a task -> repeatedly executes one generation of the game
-         */
-        public void run() {
-            oneGeneration();
-            timer.schedule( new Task(), moveDelay );
+    private void randomizeTiles() {
+        Random n = new Random();
+        double logInactive = Math.log( 1 - RANDOM_DENSITY );
+        synchronized ( gameModel ) {
+            int height = gameModel.getHeight();
+            long numberOfTiles = ( long ) gameModel.getWidth() * height;
+            long tile = -1;
+            while ( ( tile += 1 + ( long ) ( Math.log( 1 - n.nextDouble() ) / logInactive ) ) < numberOfTiles ) {
+                gameModel.selectTile( ( int ) ( tile / height ), ( int ) ( tile % height ) );
+            }
+            boardEdited();
+            publishFrame();
         }
     }
 
@@ -0,0 +1,401 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The class <b>GameMetrics</b> measures where the time of the game goes: how long each
+ * generation takes to compute and each frame takes to render, how many generations are
+ * computed per second, how much memory the stepping thread allocates per generation,
+ * the population of the board and in view, the number of frames dropped by the <b>FramePublisher</b>
+ * and, with a <b>DirtyTileStepEngine</b>, the number of blocks it skipped.
+ * <p>
+ * The stepping thread calls stepStarted() and stepFinished() around each step and the
+ * event dispatch thread calls frameRendered() after each frame. A step is usually one generation,
+ * but an engine asked for several generations at once computes them as a single step, timed as
+ * a whole. The last WINDOW step and render times are kept in rings, percentiles being computed
+ * from them when read, so recording a sample is cheap. The population of the whole board is only counted when read, so publishing
+ * a frame of part of a large board stays cheap. The metrics can be read from any thread, through
+ * the getters or through JMX once registered.
+ *
+ * @author Igor Grebenkov
+ */
+public class GameMetrics implements GameMetricsMBean {
+
+    public static final String OBJECT_NAME = "JGOL:type=GameMetrics";  // Name of the registered MBean
+    private static final int WINDOW = 1024;             // Number of samples percentiles are taken over
+    private static final long SECOND = 1000000000L;     // One second (ns)
+
+    private String engine;                  // Simple name of the class of the step engine
+    private volatile DirtyTileStepEngine dirtyEngine;  // Engine whose skipped blocks are reported, null if none
+    private int gridWidth;                  // Number of columns of the grid
+    private int gridHeight;                 // Number of rows of the grid
+    private final long[] stepTimes;         // Time taken by the last steps (ns)
+    private final long[] stepEnds;          // Time the last steps finished at (ns)
+    private final int[] stepGenerations;    // Number of generations computed by the last steps
+    private final long[] renderTimes;       // Time taken to render the last frames (ns)
+    private long steps;                     // Number of steps computed
+    private long generations;               // Number of generations computed
+    private long frames;                    // Number of frames rendered
+    private long stepStart;                 // Time the current step started at (ns)
+    private long allocatedAtStart;          // Bytes allocated by the stepping thread when the step started
+    private long allocatedBytes;            // Bytes allocated by the stepping thread while stepping
+    private long populationInView;          // Population in view in the last frame published
+    private volatile GameModel gameModel;   // Model whose population is counted, null if none
+    private FramePublisher framePublisher;  // Publisher counting the dropped frames, null if none
+    private com.sun.management.ThreadMXBean threads;   // Measures allocations, null if not supported
+
+    /**
+     * Constructor to initialize the metrics of a game.
+     *
+     * @param engine     the step engine
+     * @param gridWidth  the number of columns of the grid
+     * @param gridHeight the number of rows of the grid
+     */
+    public GameMetrics( StepEngine engine, int gridWidth, int gridHeight ) {
+        boardChanged( engine, gridWidth, gridHeight );
+        stepTimes = new long[ WINDOW ];
+        stepEnds = new long[ WINDOW ];
+        stepGenerations = new int[ WINDOW ];
+        renderTimes = new long[ WINDOW ];
+
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if ( threadBean instanceof com.sun.management.ThreadMXBean
+                && ( ( com.sun.management.ThreadMXBean ) threadBean ).isThreadAllocatedMemorySupported() ) {
+            threads = ( com.sun.management.ThreadMXBean ) threadBean;
+            threads.setThreadAllocatedMemoryEnabled( true );
+        }
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server, replacing metrics registered before.
+     *
+     * @return true if the metrics were registered
+     */
+    public boolean register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName( OBJECT_NAME );
+            if ( server.isRegistered( name ) ) {
+                server.unregisterMBean( name );
+            }
+            server.registerMBean( this, name );
+            return true;
+        } catch ( JMException e ) {
+            System.err.println( "JMException: " + e.getMessage() );
+            return false;
+        }
+    }
+
+    /**
+     * Records that the grid was resized and is stepped by a new engine. The step times
+     * measured on the old grid are kept.
+     *
+     * @param engine     the new step engine
+     * @param gridWidth  the new number of columns of the grid
+     * @param gridHeight the new number of rows of the grid
+     */
+    public synchronized void boardChanged( StepEngine engine, int gridWidth, int gridHeight ) {
+        this.engine = engine.getClass().getSimpleName();
+        dirtyEngine = engine instanceof DirtyTileStepEngine ? ( DirtyTileStepEngine ) engine : null;
+        this.gridWidth = gridWidth;
+        this.gridHeight = gridHeight;
+    }
+
+    /**
+     * Sets the publisher whose dropped frames are reported.
+     *
+     * @param framePublisher the publisher of the frames
+     */
+    public void setFramePublisher( FramePublisher framePublisher ) {
+        this.framePublisher = framePublisher;
+    }
+
+    /**
+     * Sets the model whose population is reported.
+     *
+     * @param gameModel the game's model
+     */
+    public void setGameModel( GameModel gameModel ) {
+        this.gameModel = gameModel;
+    }
+
+    /**
+     * Called by the stepping thread before computing a step.
+     */
+    public void stepStarted() {
+        if ( threads != null ) {
+            allocatedAtStart = threads.getThreadAllocatedBytes( Thread.currentThread().getId() );
+        }
+        stepStart = System.nanoTime();
+    }
+
+    /**
+     * Called by the stepping thread after computing a generation.
+     */
+    public void stepFinished() {
+        stepFinished( 1 );
+    }
+
+    /**
+     * Called by the stepping thread after computing several generations in one step. The step
+     * is recorded as a single sample of the step times, the time of each generation in it
+     * being unknown.
+     *
+     * @param count the number of generations computed since stepStarted()
+     */
+    public void stepFinished( int count ) {
+        long end = System.nanoTime();
+        long allocated = threads != null ?
+                threads.getThreadAllocatedBytes( Thread.currentThread().getId() ) - allocatedAtStart : 0;
+
+        synchronized ( this ) {
+            int slot = ( int ) ( steps % WINDOW );
+            stepTimes[ slot ] = end - stepStart;
+            stepEnds[ slot ] = end;
+            stepGenerations[ slot ] = count;
+            steps++;
+            generations += count;
+            allocatedBytes += allocated;
+        }
+    }
+
+    /**
+     * Called by the event dispatch thread after rendering a frame.
+     *
+     * @param nanos the time taken to render the frame (ns)
+     */
+    public synchronized void frameRendered( long nanos ) {
+        renderTimes[ ( int ) ( frames % WINDOW ) ] = nanos;
+        frames++;
+    }
+
+    /**
+     * Called when a frame is published.
+     *
+     * @param frame the frame of the board published
+     */
+    public synchronized void framePublished( ViewportFrame frame ) {
+        populationInView = frame.getPopulation();
+    }
+
+    /**
+     * Getter method for the step engine in use.
+     *
+     * @return the simple name of the class of the step engine
+     */
+    public synchronized String getEngine() {
+        return engine;
+    }
+
+    /**
+     * Getter method for the width of the grid.
+     *
+     * @return the number of columns of the grid
+     */
+    public synchronized int getGridWidth() {
+        return gridWidth;
+    }
+
+    /**
+     * Getter method for the height of the grid.
+     *
+     * @return the number of rows of the grid
+     */
+    public synchronized int getGridHeight() {
+        return gridHeight;
+    }
+
+    /**
+     * Getter method for the number of generations computed since the metrics were reset.
+     *
+     * @return the number of generations
+     */
+    public synchronized long getGenerations() {
+        return generations;
+    }
+
+    /**
+     * Getter method for the rate generations are computed at. When more than WINDOW
+     * steps finished over the last second, the rate is measured over the last WINDOW.
+     *
+     * @return the number of generations computed over the last second
+     */
+    public synchronized double getGenerationsPerSecond() {
+        long now = System.nanoTime();
+        int samples = ( int ) Math.min( steps, WINDOW );
+        long recent = 0;
+        long oldest = now;
+
+        for ( int s = 0; s < samples; s++ ) {
+            int slot = ( int ) ( ( steps - 1 - s ) % WINDOW );
+            if ( now - stepEnds[ slot ] > SECOND ) {
+                return recent;
+            }
+            recent += stepGenerations[ slot ];
+            oldest = stepEnds[ slot ];
+        }
+        if ( samples < WINDOW || now == oldest ) {
+            return recent;
+        }
+        return recent * ( double ) SECOND / ( now - oldest );
+    }
+
+    /**
+     * Getter method for the median time to compute a step.
+     *
+     * @return the median step time (ms)
+     */
+    public double getStepTimeP50Millis() {
+        return stepTimePercentile( 50 );
+    }
+
+    /**
+     * Getter method for the 90th percentile of the time to compute a step.
+     *
+     * @return the 90th percentile step time (ms)
+     */
+    public double getStepTimeP90Millis() {
+        return stepTimePercentile( 90 );
+    }
+
+    /**
+     * Getter method for the 99th percentile of the time to compute a step.
+     *
+     * @return the 99th percentile step time (ms)
+     */
+    public double getStepTimeP99Millis() {
+        return stepTimePercentile( 99 );
+    }
+
+    /**
+     * Getter method for the longest time to compute a step.
+     *
+     * @return the longest step time (ms)
+     */
+    public double getStepTimeMaxMillis() {
+        return stepTimePercentile( 100 );
+    }
+
+    /**
+     * Getter method for the median time to render a frame.
+     *
+     * @return the median render time (ms)
+     */
+    public synchronized double getRenderTimeP50Millis() {
+        return percentile( renderTimes, frames, 50 );
+    }
+
+    /**
+     * Getter method for the 99th percentile of the time to render a frame.
+     *
+     * @return the 99th percentile render time (ms)
+     */
+    public synchronized double getRenderTimeP99Millis() {
+        return percentile( renderTimes, frames, 99 );
+    }
+
+    /**
+     * Getter method for the population of the whole board, counted from the model while
+     * no generation is being computed. The metrics are not locked meanwhile, since the
+     * stepping thread records its samples while holding the model's lock.
+     *
+     * @return the number of active tiles of the board, or -1 if no model was set
+     */
+    public long getPopulation() {
+        GameModel model = gameModel;
+        if ( model == null ) {
+            return -1;
+        }
+        synchronized ( model ) {
+            return Boards.population( model );
+        }
+    }
+
+    /**
+     * Getter method for the population in view in the last frame published. Views showing
+     * part of the board only count the active tiles of that part.
+     *
+     * @return the number of active tiles in view
+     */
+    public synchronized long getPopulationInView() {
+        return populationInView;
+    }
+
+    /**
+     * Getter method for the number of blocks skipped by the dirty engine during the last generation.
+     *
+     * @return the number of skipped blocks, or -1 if the engine does not skip blocks
+     */
+    public int getSkippedBlocks() {
+        DirtyTileStepEngine dirty = dirtyEngine;
+        return dirty != null ? dirty.getSkippedBlocks() : -1;
+    }
+
+    /**
+     * Getter method for the number of blocks the dirty engine divides the grid into.
+     *
+     * @return the number of blocks, or -1 if the engine does not skip blocks
+     */
+    public int getNumberOfBlocks() {
+        DirtyTileStepEngine dirty = dirtyEngine;
+        return dirty != null ? dirty.getNumberOfBlocks() : -1;
+    }
+
+    /**
+     * Getter method for the memory allocated by the stepping thread per generation.
+     * Threads the engine hands work to, such as those of <b>ParallelStepEngine</b>, are not measured.
+     *
+     * @return the mean number of bytes allocated per generation, or -1 if the JVM does not measure it
+     */
+    public synchronized double getAllocatedBytesPerGeneration() {
+        if ( threads == null ) {
+            return -1;
+        }
+        return generations == 0 ? 0 : allocatedBytes / ( double ) generations;
+    }
+
+    /**
+     * Getter method for the number of generations that were computed but never shown.
+     *
+     * @return the number of dropped frames
+     */
+    public long getDroppedFrames() {
+        FramePublisher publisher = framePublisher;
+        return publisher != null ? publisher.getDroppedFrames() : 0;
+    }
+
+    /**
+     * Clears every metric. Dropped frames are counted by the publisher and are not cleared.
+     */
+    public synchronized void reset() {
+        steps = 0;
+        generations = 0;
+        frames = 0;
+        allocatedBytes = 0;
+        populationInView = 0;
+    }
+
+    /**
+     * Returns a percentile of the last step times.
+     */
+    private synchronized double stepTimePercentile( int percent ) {
+        return percentile( stepTimes, steps, percent );
+    }
+
+    /**
+     * Returns a percentile of the samples of a ring, by the nearest-rank method, in milliseconds.
+     */
+    private static double percentile( long[] ring, long count, int percent ) {
+        int samples = ( int ) Math.min( count, ring.length );
+        if ( samples == 0 ) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf( ring, samples );
+        Arrays.sort( sorted );
+        int rank = ( int ) Math.ceil( percent / 100.0 * samples );
+        return sorted[ Math.max( rank, 1 ) - 1 ] / 1e6;
+    }
+}
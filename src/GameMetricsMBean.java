@@ -0,0 +1,134 @@
+/**
+ * The interface <b>GameMetricsMBean</b> is the management interface of <b>GameMetrics</b>,
+ * registered with the platform MBean server as JGOL:type=GameMetrics so the metrics of a
+ * running game can be read with JConsole or any other JMX client. Times are in milliseconds,
+ * percentiles being taken over the last steps or frames, a step being one generation in the game.
+ *
+ * @author Igor Grebenkov
+ */
+public interface GameMetricsMBean {
+
+    /**
+     * Getter method for the step engine in use.
+     *
+     * @return the simple name of the class of the step engine
+     */
+    String getEngine();
+
+    /**
+     * Getter method for the width of the grid.
+     *
+     * @return the number of columns of the grid
+     */
+    int getGridWidth();
+
+    /**
+     * Getter method for the height of the grid.
+     *
+     * @return the number of rows of the grid
+     */
+    int getGridHeight();
+
+    /**
+     * Getter method for the number of generations computed since the metrics were reset.
+     *
+     * @return the number of generations
+     */
+    long getGenerations();
+
+    /**
+     * Getter method for the rate generations are computed at.
+     *
+     * @return the number of generations computed over the last second
+     */
+    double getGenerationsPerSecond();
+
+    /**
+     * Getter method for the median time to compute a step.
+     *
+     * @return the median step time (ms)
+     */
+    double getStepTimeP50Millis();
+
+    /**
+     * Getter method for the 90th percentile of the time to compute a step.
+     *
+     * @return the 90th percentile step time (ms)
+     */
+    double getStepTimeP90Millis();
+
+    /**
+     * Getter method for the 99th percentile of the time to compute a step.
+     *
+     * @return the 99th percentile step time (ms)
+     */
+    double getStepTimeP99Millis();
+
+    /**
+     * Getter method for the longest time to compute a step.
+     *
+     * @return the longest step time (ms)
+     */
+    double getStepTimeMaxMillis();
+
+    /**
+     * Getter method for the median time to render a frame.
+     *
+     * @return the median render time (ms)
+     */
+    double getRenderTimeP50Millis();
+
+    /**
+     * Getter method for the 99th percentile of the time to render a frame.
+     *
+     * @return the 99th percentile render time (ms)
+     */
+    double getRenderTimeP99Millis();
+
+    /**
+     * Getter method for the population of the whole board.
+     *
+     * @return the number of active tiles of the board, or -1 if no model was set
+     */
+    long getPopulation();
+
+    /**
+     * Getter method for the population in view in the last frame published.
+     *
+     * @return the number of active tiles in view
+     */
+    long getPopulationInView();
+
+    /**
+     * Getter method for the number of blocks skipped by the dirty engine during the last generation.
+     *
+     * @return the number of skipped blocks, or -1 if the engine does not skip blocks
+     */
+    int getSkippedBlocks();
+
+    /**
+     * Getter method for the number of blocks the dirty engine divides the grid into.
+     *
+     * @return the number of blocks, or -1 if the engine does not skip blocks
+     */
+    int getNumberOfBlocks();
+
+    /**
+     * Getter method for the memory allocated by the stepping thread per generation.
+     *
+     * @return the mean number of bytes allocated per generation, or -1 if the JVM does not measure it
+     */
+    double getAllocatedBytesPerGeneration();
+
+    /**
+     * Getter method for the number of generations that were computed but never shown.
+     *
+     * @return the number of dropped frames
+     */
+    long getDroppedFrames();
+
+    /**
+     * Clears every metric.
+     */
+    void reset();
+}
@@ -1,28 +1,46 @@
 /**
  * The class <b>GameModel</b> holds the state of the game.
  * It stores the following:
- * - The state of all tiles on the grid
- * - The size of the grid
+ * - The width and height of the grid
  * - The number of generations
+ * - The boundary and rule the grid is stepped with
+ * The state of the tiles is stored by the subclasses: <b>ArrayGameModel</b> one int per tile,
+ * <b>PackedGameModel</b> and <b>OffHeapGameModel</b> one bit per tile and <b>MultiStateGameModel</b>
+ * one byte per tile. Engines that step a particular storage take that subclass.
  *
  * @author Igor Grebenkov
  */
-public class GameModel {
+public abstract class GameModel implements PackedBoard {
 
     public static final int INACTIVE = 0;  // Captures the state of an inactive dot
     public static final int ACTIVE = 1;    // Captures the state of an active dot
-    private int sizeOfGrid;                // The size of the grid
-    private int[][] tileStates;            // The state of each tile
+    private int width;                     // The number of columns of the grid
+    private int height;                    // The number of rows of the grid
     private int numberOfGenerations;       // The number of generations since starting the simulation.3
+    private long modificationCount;        // Incremented every time a tile may have changed
+    private TileChangeTracker changeTracker;  // Notified of changes not made by a step engine, may be null
+    private BoardHash boardHash;              // Hash of the board kept up to date by the step engine, may be null
+    private Boundary boundary = Boundary.DEAD;  // Topology of the edges of the grid
+    private Rule rule = Rule.CONWAY;            // Rule computing each generation
 
     /**
-     * Constructor to initialize the model to a given size of grid.
+     * Constructor to initialize the model to a given size of square grid.
      *
-     * @param size the size of the grid
+     * @param size the number of columns and rows of the grid
      */
-    public GameModel( int size ) {
+    protected GameModel( int size ) {
+        this( size, size );
+    }
+
+    /**
+     * Constructor to initialize the model to a given width and height of grid.
+     *
+     * @param width  the number of columns of the grid
+     * @param height the number of rows of the grid
+     */
+    protected GameModel( int width, int height ) {
         numberOfGenerations = 0;
-        sizeOfGrid = size;
+        setDimensions( width, height );
         reset();
     }
 
@@ -30,41 +48,265 @@ public class GameModel {
      * Resets the model to start/re-start the game. Previous game (if any) is cleared.
      */
     public void reset() {
-        tileStates = new int[ sizeOfGrid ][ sizeOfGrid ];
+        clearTiles();
+        numberOfGenerations = 0;
+    }
+
+    /**
+     * Makes every tile inactive, allocating the storage of the tiles for the current dimensions
+     * or reusing it when they did not change. Called by the constructor before the fields of
+     * the subclass are initialized.
+     */
+    protected abstract void clearTiles();
 
-        for ( int i = 0; i < sizeOfGrid; i++ ) {
-            for ( int j = 0; j < sizeOfGrid; j++ ) {
-                tileStates[ i ][ j ] = INACTIVE;
-            }
+    /**
+     * Changes the width and height of the grid while the game is running. The tiles where the
+     * old and new grids overlap keep their co-ordinates and states, tiles beyond the new edges are
+     * dropped and new tiles are inactive. The number of generations is kept. Step engines hold
+     * buffers of the old dimensions and must be recreated for the resized model.
+     *
+     * @param width  the new number of columns of the grid
+     * @param height the new number of rows of the grid
+     */
+    public void resize( int width, int height ) {
+        checkDimensions( width, height );
+        int rows = Math.min( height, this.height );
+        int wordsPerRow = PackedGameModel.wordsFor( Math.max( width, this.width ) );
+        long[] kept = new long[ Math.multiplyExact( rows, wordsPerRow ) ];
+        for ( int j = 0; j < rows; j++ ) {
+            readRow( j, kept, j * wordsPerRow );
+        }
+
+        setDimensions( width, height );
+        clearTiles();
+        for ( int j = 0; j < rows; j++ ) {
+            writeRow( j, kept, j * wordsPerRow );
         }
-        numberOfGenerations = 0;
     }
 
     /**
-     * Getter method for the size of the grid.
+     * Sets the width and height of the grid without touching the storage of the tiles.
+     * Used by the implementations of resize(), which then reallocate the storage. The change
+     * tracker covers the old dimensions, so it is dropped: engines tracking changes make a new one.
      *
-     * @return the size of the grid
+     * @param width  the number of columns of the grid
+     * @param height the number of rows of the grid
      */
-    public int getSize() {
-        return sizeOfGrid;
+    protected void setDimensions( int width, int height ) {
+        checkDimensions( width, height );
+        this.width = width;
+        this.height = height;
+        changeTracker = null;
     }
 
     /**
-     * Getter method to return the number of generations since starting the simulation.
+     * Checks that a grid of the given width and height holds at least one tile.
      *
-     * @return number of generations since starting the simulation
+     * @param width  the number of columns of the grid
+     * @param height the number of rows of the grid
+     * @throws IllegalArgumentException if either dimension is not positive
      */
-    public int getNumberOfGenerations() {
-        return numberOfGenerations;
+    protected static void checkDimensions( int width, int height ) {
+        if ( width < 1 || height < 1 ) {
+            throw new IllegalArgumentException( "The grid must hold at least one tile: " + width + "x" + height );
+        }
+    }
+
+    /**
+     * Getter method for the number of modifications made to the tiles. Engines that keep
+     * their own copy of the grid compare it between generations to detect outside changes.
+     *
+     * @return the modification count
+     */
+    public long getModificationCount() {
+        return modificationCount;
+    }
+
+    /**
+     * Records that the state of some tiles may have changed.
+     */
+    protected void markModified() {
+        modificationCount++;
+    }
+
+    /**
+     * Records that every tile may have been changed by something other than a step engine.
+     */
+    protected void markAllTilesModified() {
+        modificationCount++;
+        if ( changeTracker != null ) {
+            changeTracker.markAll();
+        }
+    }
+
+    /**
+     * Records that a tile was changed by something other than a step engine.
+     *
+     * @param i the tile's x co-ordinate
+     * @param j the tile's y co-ordinate
+     */
+    protected void markTileModified( int i, int j ) {
+        modificationCount++;
+        if ( changeTracker != null ) {
+            changeTracker.markTile( i, j );
+        }
+    }
+
+    /**
+     * Records that a run of tiles along a row was changed by something other than a step engine.
+     *
+     * @param i      the x co-ordinate of the first tile
+     * @param j      the tiles' y co-ordinate
+     * @param length the number of tiles in the run
+     */
+    protected void markRunModified( int i, int j, int length ) {
+        modificationCount++;
+        if ( changeTracker != null ) {
+            changeTracker.markRun( i, j, length );
+        }
+    }
+
+    /**
+     * Sets the tracker notified when tiles are selected, unselected or reset.
+     *
+     * @param changeTracker the tracker, or null to stop tracking
+     */
+    public void setChangeTracker( TileChangeTracker changeTracker ) {
+        this.changeTracker = changeTracker;
+    }
+
+    /**
+     * Getter method for the tracker notified when tiles are selected, unselected or reset.
+     *
+     * @return the tracker, or null if changes are not tracked
+     */
+    public TileChangeTracker getChangeTracker() {
+        return changeTracker;
+    }
+
+    /**
+     * Sets the hash of the board that step engines able to keep it up to date update as they step.
+     *
+     * @param boardHash the hash, or null to stop hashing
+     */
+    public void setBoardHash( BoardHash boardHash ) {
+        this.boardHash = boardHash;
+    }
+
+    /**
+     * Getter method for the hash of the board updated by the step engines.
+     *
+     * @return the hash, or null if the board is not hashed
+     */
+    public BoardHash getBoardHash() {
+        return boardHash;
+    }
+
+    /**
+     * Creates an engine able to compute successive generations of this model.
+     *
+     * @return a step engine for this model
+     */
+    public abstract StepEngine createStepEngine();
+
+    /**
+     * Getter method for the topology of the edges of the grid.
+     *
+     * @return the boundary
+     */
+    public Boundary getBoundary() {
+        return boundary;
+    }
+
+    /**
+     * Setter method for the topology of the edges of the grid.
+     *
+     * @param boundary the boundary
+     */
+    public void setBoundary( Boundary boundary ) {
+        this.boundary = boundary;
+        markAllTilesModified();
+    }
+
+    /**
+     * Getter method for the rule computing each generation.
+     *
+     * @return the rule
+     */
+    public Rule getRule() {
+        return rule;
+    }
+
+    /**
+     * Setter method for the rule computing each generation.
+     *
+     * @param rule the rule
+     */
+    public void setRule( Rule rule ) {
+        this.rule = rule;
+        markAllTilesModified();
+    }
+
+    /**
+     * Getter method for the number of states a tile can be in.
+     *
+     * @return 2, a tile being either active or inactive
+     */
+    public int getNumberOfStates() {
+        return 2;
     }
 
     /**
-     * Getter method to return the game's model.
+     * Getter method for the status of the tile seen at a position, which may lie one tile
+     * outside the grid, according to the boundary.
      *
-     * @return the game model
+     * @param i the x co-ordinate of the position, from -1 to the width of the grid
+     * @param j the y co-ordinate of the position, from -1 to the height of the grid
+     * @return the status (active or inactive) of the tile seen at (i,j)
      */
-    public int[][] getTileStates() {
-        return tileStates;
+    public int getGhostStatus( int i, int j ) {
+        int column = boundary.ghostColumn( i, j, width, height );
+        if ( column < 0 ) {
+            return INACTIVE;
+        }
+        return getCurrentStatus( column, boundary.ghostRow( i, j, width, height ) );
+    }
+
+    /**
+     * Checks whether every tile seen beyond the edges of the grid is always inactive, which lets
+     * engines gather the ghost tiles once instead of before every generation.
+     *
+     * @return true for the dead boundary
+     */
+    public boolean hasInactiveGhosts() {
+        return boundary == Boundary.DEAD;
+    }
+
+    /**
+     * Getter method for the width of the grid.
+     *
+     * @return the number of columns of the grid
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Getter method for the height of the grid.
+     *
+     * @return the number of rows of the grid
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Getter method to return the number of generations since starting the simulation.
+     *
+     * @return number of generations since starting the simulation
+     */
+    public int getNumberOfGenerations() {
+        return numberOfGenerations;
     }
 
     /**
@@ -74,9 +316,26 @@ public class GameModel {
      * @param j the tile's y co-ordinate
      * @return the status (active or inactive) of the tile at (i,j)
      */
-    public int getCurrentStatus( int i, int j ) {
-        return tileStates[ i ][ j ];
-    }
+    public abstract int getCurrentStatus( int i, int j );
+
+    /**
+     * Copies a row of tiles, packed one bit per tile as in <b>PackedGameModel</b>.
+     *
+     * @param j      the row to copy
+     * @param row    the array the packed row is written into
+     * @param offset the index of the first word written
+     */
+    public abstract void readRow( int j, long[] row, int offset );
+
+    /**
+     * Replaces a row of tiles with a row packed one bit per tile as in <b>PackedGameModel</b>.
+     * Bits beyond the width of the grid are ignored.
+     *
+     * @param j      the row to replace
+     * @param row    the array holding the packed row
+     * @param offset the index of the first word read
+     */
+    public abstract void writeRow( int j, long[] row, int offset );
 
     /**
      * Method that selects a tile and makes it active.
@@ -84,8 +343,30 @@ public class GameModel {
      * @param i the tile's x co-ordinate
      * @param j the tile's y co-ordinate
      */
-    public void selectTile( int i, int j ) {
-        tileStates[ i ][ j ] = ACTIVE;
+    public abstract void selectTile( int i, int j );
+
+    /**
+     * Method that selects a run of tiles along a row and makes them active.
+     *
+     * @param i      the x co-ordinate of the first tile
+     * @param j      the tiles' y co-ordinate
+     * @param length the number of tiles in the run
+     */
+    public abstract void selectRun( int i, int j, int length );
+
+    /**
+     * Method that puts a tile in a state, any state other than INACTIVE making it active.
+     *
+     * @param i     the tile's x co-ordinate
+     * @param j     the tile's y co-ordinate
+     * @param state the new state of the tile
+     */
+    public void setTileState( int i, int j, int state ) {
+        if ( state == INACTIVE ) {
+            unselectTile( i, j );
+        } else {
+            selectTile( i, j );
+        }
     }
 
     /**
@@ -94,7 +375,5 @@ public class GameModel {
      * @param i the tile's x co-ordinate
      * @param j the tile's y co-ordinate
      */
-    public void unselectTile( int i, int j ) {
-        tileStates[ i ][ j ] = INACTIVE;
-    }
+    public abstract void unselectTile( int i, int j );
 }
\ No newline at end of file
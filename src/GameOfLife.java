@@ -11,10 +11,11 @@ public class GameOfLife {
      * The <b>main</b> method of the app.
      * Creates an instance of the game's controller and starts the game.
      *
-     * @param args
+     * @param args the width and height of the grid, 49x49 by default, a single value giving a square grid
      */
     public static void main( String[] args ) {
-        int size = 49;
+        int width = args.length > 0 ? Integer.parseInt( args[ 0 ] ) : 49;
+        int height = args.length > 1 ? Integer.parseInt( args[ 1 ] ) : width;
 
         try {
             UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
@@ -28,6 +29,6 @@ public class GameOfLife {
             System.err.println("UnsupportedLookAndFeelException: " + e.getMessage());
         }
 
-        GameController game = new GameController( size );
+        GameController game = new GameController( width, height );
     }
 }
\ No newline at end of file
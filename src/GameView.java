@@ -1,36 +1,50 @@
 import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
 import java.util.Hashtable;
+import java.util.List;
 import javax.swing.*;
 
 /**
  * The class <b>GameView</b> provides the present view of the game.
- * It extends <b>JFrame</b> and lays out an instance of GridView (the view of the game's grid).
+ * It extends <b>JFrame</b> and lays out an instance of BoardView (the view of the game's grid).
  * It also contains a few instances of JButton for various functions:
  * - Start the simulation
  * - End the simulation
  * - Reset the simulation
+ * - Resize the grid
+ * <p>
+ * F3 shows or hides a <b>MetricsOverlay</b> over the grid, shown from the start if the
+ * gol.metrics.overlay system property is true.
  *
  * @author Igor Grebenkov
  */
 public class GameView extends JFrame {
 
-    private GridView grid;                      // Reference to the grid's view
+    private volatile BoardView grid;            // Reference to the grid's view, replaced when the grid is resized
     private GameModel gameModel;                // Reference to the game's model
     private JTextField numOfGenerationsField;   // TextField used to display the # of generations
     private JButton buttonStart;                // Button used to start the game
     private JButton buttonStop;                 // Button used to stop the game
     private JComboBox< String > presetsBox;     // ComboBox used to hold a list of presets
-    private static final int SPEED_MIN = 25;    // Min generation speed (25ms per generation)
-    private static final int SPEED_MAX = 500;   // Max generation speed (500ms per generation)
-    private static final int SPEED_INIT = 200;  // Initial generation speed (200ms per generation)
+    private JSlider simSpeed;                   // Slider used to set the generations per second
+    private JCheckBox unlimitedBox;             // CheckBox used to compute generations as fast as possible
+    private static final int SPEED_MIN = 1;     // Min generation speed (1 generation per second)
+    private static final int SPEED_MAX = 100;   // Max generation speed (100 generations per second)
+    private static final int SPEED_INIT = 5;    // Initial generation speed (5 generations per second)
+    private static final int MAX_TILES_SIZE = 100;  // Largest grid shown with one button per tile
+    private static final String VIEW_PROPERTY = "gol.view";    // Selects the "tiles" or "canvas" view
+    private static final String OVERLAY_PROPERTY = "gol.metrics.overlay";  // Shows the metrics overlay
+    private GameMetrics metrics;                // Metrics the render time is reported to, null if none
 
     /**
      * Constructor used to initialize the JFrame.
      *
      * @param model          the game's model
      * @param gameController the game's controller
+     * @param presetNames    the names of the patterns offered as presets
      */
-    public GameView( GameModel model, GameController gameController ) {
+    public GameView( GameModel model, GameController gameController, List< String > presetNames ) {
         super( "Conway's Game of Life" );
 
         gameModel = model;
@@ -41,13 +55,15 @@ public class GameView extends JFrame {
         setVisible( true );
 
         // Create layout
-        grid = new GridView( model, gameController );
+        grid = createBoardView( model, gameController );
         add( grid, BorderLayout.CENTER );
 
         // Preset ComboBox
-        String[] presets = { "", "Glider", "Small Exploder", "Exploder",
-                "10 Cell Row", "Lightweight Spaceship", "Tumbler", "Gosper Glider Gun" };
-        presetsBox = new JComboBox< String >( presets );
+        presetsBox = new JComboBox< String >();
+        presetsBox.addItem( "" );
+        for ( String name : presetNames ) {
+            presetsBox.addItem( name );
+        }
         presetsBox.addActionListener( gameController );
 
         // Control buttons
@@ -73,27 +89,38 @@ public class GameView extends JFrame {
         buttonReset.setFocusPainted( false );
         buttonReset.addActionListener( gameController );
 
+        JButton buttonSave = new JButton( "Save" );
+        buttonSave.setFocusPainted( false );
+        buttonSave.addActionListener( gameController );
+
+        JButton buttonLoad = new JButton( "Load" );
+        buttonLoad.setFocusPainted( false );
+        buttonLoad.addActionListener( gameController );
+
+        JButton buttonResize = new JButton( "Resize" );
+        buttonResize.setFocusPainted( false );
+        buttonResize.addActionListener( gameController );
+
         JButton buttonQuit = new JButton( "Quit" );
         buttonQuit.setFocusPainted( false );
         buttonQuit.addActionListener( gameController );
 
-        // Slider to change simulation speed
-        JSlider simSpeed = new JSlider( JSlider.HORIZONTAL, SPEED_MIN, SPEED_MAX, SPEED_INIT );
+        // Slider to change simulation speed, in generations per second
+        simSpeed = new JSlider( JSlider.HORIZONTAL, SPEED_MIN, SPEED_MAX, SPEED_INIT );
         simSpeed.addChangeListener( gameController );
         simSpeed.setPaintTicks( false );
         simSpeed.setOpaque( false );
         simSpeed.setPaintLabels( true );
         simSpeed.putClientProperty( "JSlider.isFilled", Boolean.FALSE );
-        simSpeed.setInverted( true );
 
         // Labels for the sim speed slider
-        JLabel speedLabel = new JLabel( "Speed" );
+        JLabel speedLabel = new JLabel( "Gens/sec" );
         speedLabel.setForeground( Color.WHITE );
 
-        JLabel speedMinLabel = new JLabel( "+" );
+        JLabel speedMinLabel = new JLabel( Integer.toString( SPEED_MIN ) );
         speedMinLabel.setForeground( Color.WHITE );
 
-        JLabel speedMaxLabel = new JLabel( "-" );
+        JLabel speedMaxLabel = new JLabel( Integer.toString( SPEED_MAX ) );
         speedMaxLabel.setForeground( Color.WHITE );
 
         // Add labels to Hashtable and set simSpeed slider label
@@ -103,6 +130,13 @@ public class GameView extends JFrame {
         labelTable.put( new Integer( SPEED_MAX ), speedMaxLabel );
         simSpeed.setLabelTable( labelTable );
 
+        // CheckBox to compute generations as fast as the engine allows
+        unlimitedBox = new JCheckBox( "Unlimited" );
+        unlimitedBox.setForeground( Color.WHITE );
+        unlimitedBox.setOpaque( false );
+        unlimitedBox.setFocusPainted( false );
+        unlimitedBox.addActionListener( gameController );
+
         // Text field to display # of generations
         numOfGenerationsField = new JTextField( 5 );
         numOfGenerationsField.setEditable( false );
@@ -123,8 +157,12 @@ public class GameView extends JFrame {
         control.add( buttonNext );
         control.add( buttonRandom );
         control.add( buttonReset );
+        control.add( buttonSave );
+        control.add( buttonLoad );
+        control.add( buttonResize );
         control.add( buttonQuit );
         control.add( simSpeed );
+        control.add( unlimitedBox );
         control.add( numOfGenerationsLabel );
         control.add( numOfGenerationsField );
 
@@ -135,10 +173,84 @@ public class GameView extends JFrame {
     }
 
     /**
-     * Updates the game view.
+     * Creates the view of the grid. Grids wider or taller than MAX_TILES_SIZE are shown through
+     * the viewport of a canvas unless the gol.view system property says otherwise.
+     *
+     * @param model          the game's model
+     * @param gameController the game's controller
+     * @return the view of the grid
+     */
+    private static BoardView createBoardView( GameModel model, GameController gameController ) {
+        String view = System.getProperty( VIEW_PROPERTY,
+                Math.max( model.getWidth(), model.getHeight() ) > MAX_TILES_SIZE ? "canvas" : "tiles" );
+
+        if ( view.equals( "canvas" ) ) {
+            return new CanvasGridView( model, gameController );
+        }
+        return new GridView( model, gameController );
+    }
+
+    /**
+     * Replaces the view of the grid with one fitting the model's current width and height.
+     * Must be called on the event dispatch thread.
+     *
+     * @param gameController the game's controller
+     */
+    public void resizeBoardView( GameController gameController ) {
+        BoardView resized = createBoardView( gameModel, gameController );
+        remove( grid );
+        grid = resized;
+        add( resized, BorderLayout.CENTER );
+        pack();
+        validate();
+        repaint();
+    }
+
+    /**
+     * Takes a frame of the part of the board shown by the view of the grid. Called by the
+     * thread stepping the model while it holds the model's lock.
+     *
+     * @param generation the current generation
+     * @return the frame to show
+     */
+    public ViewportFrame createFrame( long generation ) {
+        return grid.createFrame( gameModel, generation );
+    }
+
+    /**
+     * Updates the game view to show a frame of the board and its generation.
+     * Must be called on the event dispatch thread.
+     *
+     * @param frame the frame to show
+     */
+    public void update( ViewportFrame frame ) {
+        long start = System.nanoTime();
+        grid.update( frame );
+        setJTextFieldString( Long.toString( frame.getGeneration() ) );
+        if ( metrics != null ) {
+            metrics.frameRendered( System.nanoTime() - start );
+        }
+    }
+
+    /**
+     * Reports the render time of each frame to the metrics and installs their overlay,
+     * toggled with F3.
+     *
+     * @param metrics the metrics of the game
      */
-    public void update() {
-        grid.update();
+    public void showMetrics( GameMetrics metrics ) {
+        this.metrics = metrics;
+        final MetricsOverlay overlay = new MetricsOverlay( metrics );
+        setGlassPane( overlay );
+        overlay.setVisible( Boolean.getBoolean( OVERLAY_PROPERTY ) );
+
+        getRootPane().getInputMap( JComponent.WHEN_IN_FOCUSED_WINDOW )
+                .put( KeyStroke.getKeyStroke( KeyEvent.VK_F3, 0 ), "toggleMetrics" );
+        getRootPane().getActionMap().put( "toggleMetrics", new AbstractAction() {
+            public void actionPerformed( ActionEvent e ) {
+                overlay.setVisible( !overlay.isVisible() );
+            }
+        } );
     }
 
     /**
@@ -150,6 +262,18 @@ public class GameView extends JFrame {
         numOfGenerationsField.setText( text );
     }
 
+    /**
+     * Retrieves the number of generations per second chosen by the player.
+     *
+     * @return the value of the speed slider, or GenerationScheduler.UNLIMITED if unlimited is checked
+     */
+    public double getGenerationRate() {
+        if ( unlimitedBox.isSelected() ) {
+            return GenerationScheduler.UNLIMITED;
+        }
+        return simSpeed.getValue();
+    }
+
     /**
      * Retrieves the currently selected string from the presets ComboBox
      *
@@ -0,0 +1,224 @@
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The class <b>GenerationScheduler</b> computes generations at a fixed rate on a dedicated
+ * thread. Generation k is due at start + k * period, so the time taken by each generation does
+ * not add to the period and the rate does not drift. When generations fall behind their
+ * deadlines, the pacing decides what happens:
+ * - CATCH_UP computes the late generations back to back until the schedule is met again,
+ *   keeping the average rate, but never more than MAX_CATCH_UP of them
+ * - SKIP drops the deadlines that were missed and waits for the next one
+ * At an unlimited rate generations are computed back to back as fast as the engine allows.
+ * <p>
+ * The scheduler can be started and stopped any number of times, from any thread, including
+ * the scheduler's own thread from within a generation.
+ *
+ * @author Igor Grebenkov
+ */
+public class GenerationScheduler {
+
+    public static final double UNLIMITED = Double.POSITIVE_INFINITY;   // Rate of back to back generations
+    private static final int MAX_CATCH_UP = 10;     // Most late generations computed back to back
+
+    /**
+     * The pacing of generations that fall behind their deadlines.
+     */
+    public enum Pacing {
+        CATCH_UP,
+        SKIP;
+
+        /**
+         * Parses the name of a pacing.
+         *
+         * @param name "catch-up" or "skip"
+         * @return the pacing
+         * @throws IllegalArgumentException if the name is not known
+         */
+        public static Pacing parse( String name ) {
+            return valueOf( name.trim().toUpperCase().replace( '-', '_' ) );
+        }
+    }
+
+    /**
+     * The interface <b>Generation</b> is implemented by the task the scheduler runs.
+     */
+    public interface Generation {
+
+        /**
+         * Computes one generation.
+         *
+         * @return false to stop the scheduler
+         */
+        boolean run();
+    }
+
+    private final Generation generation;    // Task computing one generation
+    private final Pacing pacing;            // What happens to late generations
+    private volatile long periodNanos;      // Time between generations, 0 for an unlimited rate
+    private volatile boolean rateChanged;   // Whether the schedule must restart from now
+    private volatile Thread thread;         // Thread computing the generations, null when stopped
+    private volatile long skippedDeadlines; // Number of deadlines dropped by the SKIP pacing
+
+    /**
+     * Constructor to initialize the scheduler.
+     *
+     * @param generation     the task computing one generation
+     * @param pacing         what happens to generations that fall behind their deadlines
+     * @param generationRate the number of generations per second, or UNLIMITED
+     */
+    public GenerationScheduler( Generation generation, Pacing pacing, double generationRate ) {
+        this.generation = generation;
+        this.pacing = pacing;
+        setGenerationRate( generationRate );
+    }
+
+    /**
+     * Sets the number of generations computed per second. The schedule restarts from the
+     * next generation, so generations late at the old rate are not caught up at the new one.
+     *
+     * @param generationRate the number of generations per second, or UNLIMITED
+     */
+    public void setGenerationRate( double generationRate ) {
+        if ( !( generationRate > 0 ) ) {
+            throw new IllegalArgumentException( "The generation rate must be positive: " + generationRate );
+        }
+        periodNanos = generationRate == UNLIMITED ? 0 : Math.max( 1, ( long ) ( TimeUnit.SECONDS.toNanos( 1 ) / generationRate ) );
+        rateChanged = true;
+        LockSupport.unpark( thread );
+    }
+
+    /**
+     * Getter method for the number of generations computed per second.
+     *
+     * @return the generation rate, or UNLIMITED
+     */
+    public double getGenerationRate() {
+        long period = periodNanos;
+        return period == 0 ? UNLIMITED : TimeUnit.SECONDS.toNanos( 1 ) / ( double ) period;
+    }
+
+    /**
+     * Getter method for the pacing of late generations.
+     *
+     * @return the pacing
+     */
+    public Pacing getPacing() {
+        return pacing;
+    }
+
+    /**
+     * Getter method for the number of deadlines dropped because generations were late.
+     *
+     * @return the number of skipped deadlines
+     */
+    public long getSkippedDeadlines() {
+        return skippedDeadlines;
+    }
+
+    /**
+     * Checks whether the scheduler is computing generations.
+     *
+     * @return true between start() and stop()
+     */
+    public boolean isRunning() {
+        return thread != null;
+    }
+
+    /**
+     * Starts computing generations, the first one a period from now. Does nothing if the
+     * scheduler is already running.
+     */
+    public synchronized void start() {
+        if ( thread != null ) {
+            return;
+        }
+        Thread worker = new Thread( new Runnable() {
+            public void run() {
+                runGenerations();
+            }
+        }, "generation-scheduler" );
+        worker.setDaemon( true );
+        thread = worker;
+        worker.start();
+    }
+
+    /**
+     * Stops computing generations. Unless called by the scheduler's own thread, waits for the
+     * generation being computed, if any, to finish. Does nothing if the scheduler is stopped.
+     */
+    public void stop() {
+        Thread worker;
+        synchronized ( this ) {
+            worker = thread;
+            thread = null;
+        }
+        if ( worker == null || worker == Thread.currentThread() ) {
+            return;
+        }
+        LockSupport.unpark( worker );
+        boolean interrupted = false;
+        while ( worker.isAlive() ) {
+            try {
+                worker.join();
+            } catch ( InterruptedException e ) {
+                interrupted = true;
+            }
+        }
+        if ( interrupted ) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Computes generations on the scheduler's thread until the scheduler is stopped.
+     */
+    private void runGenerations() {
+        Thread self = Thread.currentThread();
+        long deadline = 0;
+        rateChanged = true;
+
+        while ( thread == self ) {
+            long period = periodNanos;
+            if ( rateChanged ) {
+                rateChanged = false;
+                deadline = System.nanoTime() + period;
+            }
+
+            // Wait for the deadline of the next generation, waking up early if stopped or re-paced
+            long wait;
+            while ( ( wait = deadline - System.nanoTime() ) > 0 && thread == self && !rateChanged ) {
+                LockSupport.parkNanos( this, wait );
+            }
+            if ( thread != self ) {
+                break;
+            }
+            if ( rateChanged ) {
+                continue;
+            }
+
+            if ( !generation.run() ) {
+                synchronized ( this ) {
+                    if ( thread == self ) {
+                        thread = null;
+                    }
+                }
+                break;
+            }
+
+            deadline += period;
+            long late = System.nanoTime() - deadline;
+            if ( period > 0 && late > 0 ) {
+                long missed = late / period;
+                if ( pacing == Pacing.SKIP ) {
+                    // Keep the phase of the schedule, resuming at the first deadline still ahead
+                    deadline += ( missed + 1 ) * period;
+                    skippedDeadlines += missed + 1;
+                } else if ( missed >= MAX_CATCH_UP ) {
+                    deadline += ( missed - MAX_CATCH_UP + 1 ) * period;
+                    skippedDeadlines += missed - MAX_CATCH_UP + 1;
+                }
+            }
+        }
+    }
+}
@@ -2,27 +2,34 @@ import javax.swing.ImageIcon;
 import javax.swing.JButton;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * <p>
  * <p>
  * A <b>GridTile</b> is a type of <b>JButton</b> that represents one tile in the grid.
- * A black tile is inactive and a green tile is active.
+ * A black tile is inactive and a green tile is active. Tiles of a multi-state rule take
+ * the colour of their state in the rule's palette.
  * <p>
  * Images are stored in subdirectory ''data'':
  * - data/tile-0.jpg -> black (inactive) tile
  * - data/tile-1.jpg -> green (active) tile
+ * Other colours are painted as plain squares.
  *
  * @author Igor Grebenkov
  */
 public class GridTile extends JButton {
 
-    private static final int NUM_COLOURS = 2;    // Number of colours
-    private int type;                            // Tile type -> active or inactive
+    private static final int[] DEFAULT_PALETTE = { 0x000000, 0x84FF00 };  // Colours of the tile images
+    private static final int TILE_SIZE = 15;     // Width of a tile (pixels)
+    private int type;                            // Tile type -> state of the tile
     private int row, column;                     // Stores tile co-ordinates
+    private int[] palette;                       // Colour of each type
 
-    // Array used to cache tile images
-    private static final ImageIcon[] icons = new ImageIcon[ NUM_COLOURS ];
+    // Map used to cache tile images by colour
+    private static final Map< Integer, ImageIcon > icons = new HashMap< Integer, ImageIcon >();
 
     /**
      * Constructor to initialize a tile of a specified type.
@@ -32,13 +39,26 @@ public class GridTile extends JButton {
      * @param type   the type of this GridTile
      */
     public GridTile( int row, int column, int type ) {
+        this( row, column, type, DEFAULT_PALETTE );
+    }
+
+    /**
+     * Constructor to initialize a tile of a specified type coloured by a palette.
+     *
+     * @param row     the row of this GridTile
+     * @param column  the column of this GridTile
+     * @param type    the type of this GridTile
+     * @param palette the colour (RGB) of each type
+     */
+    public GridTile( int row, int column, int type, int[] palette ) {
         this.row = row;
         this.column = column;
         this.type = type;
+        this.palette = palette;
 
         // JButton properties
         setBackground( Color.WHITE );
-        setPreferredSize( new Dimension( 15, 15 ) );
+        setPreferredSize( new Dimension( TILE_SIZE, TILE_SIZE ) );
         setMargin( new Insets( 0, 0, 0, 0 ) );
         setContentAreaFilled( false );
         setFocusPainted( false );
@@ -54,14 +74,27 @@ public class GridTile extends JButton {
      * @return the image to display on the tile
      */
     private ImageIcon getImageIcon() {
-        if ( icons[ type ] == null ) {
-            if ( type == 0 ) {
-                icons[ type ] = new ImageIcon( getClass().getResource( "data/tile-0.jpg" ) );
-            } else {
-                icons[ type ] = new ImageIcon( getClass().getResource( "data/tile-1.jpg" ) );
+        int colour = palette[ type ];
+
+        synchronized ( icons ) {
+            ImageIcon icon = icons.get( colour );
+            if ( icon == null ) {
+                if ( colour == DEFAULT_PALETTE[ 0 ] ) {
+                    icon = new ImageIcon( getClass().getResource( "data/tile-0.jpg" ) );
+                } else if ( colour == DEFAULT_PALETTE[ 1 ] ) {
+                    icon = new ImageIcon( getClass().getResource( "data/tile-1.jpg" ) );
+                } else {
+                    BufferedImage image = new BufferedImage( TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_RGB );
+                    Graphics g = image.getGraphics();
+                    g.setColor( new Color( colour ) );
+                    g.fillRect( 0, 0, TILE_SIZE, TILE_SIZE );
+                    g.dispose();
+                    icon = new ImageIcon( image );
+                }
+                icons.put( colour, icon );
             }
+            return icon;
         }
-        return icons[ type ];
     }
 
     /**
@@ -70,8 +103,10 @@ public class GridTile extends JButton {
      * @param type the type we are changing the tile to
      */
     public void setType( int type ) {
-        this.type = type;
-        setIcon( getImageIcon() );
+        if ( this.type != type ) {
+            this.type = type;
+            setIcon( getImageIcon() );
+        }
     }
 
     /**
@@ -8,7 +8,7 @@ import javax.swing.JPanel;
  *
  * @author Igor Grebenkov
  */
-public class GridView extends JPanel {
+public class GridView extends BoardView {
 
     private GridTile[][] grid;      // 2D array of GridTile instances
     private GameModel gameModel;    // Reference to the game model
@@ -24,21 +24,25 @@ public class GridView extends JPanel {
 
         // JPanel/GridLayout properties
         setBackground( Color.darkGray );
-        GridLayout gridLayout = new GridLayout( gameModel.getSize(), 1 );
+        GridLayout gridLayout = new GridLayout( gameModel.getHeight(), 1 );
         gridLayout.setHgap( 0 );
         gridLayout.setVgap( -5 );
         setLayout( gridLayout );
         setBorder( BorderFactory.createEmptyBorder( 0, 0, 0, 0 ) );
 
+        int[] palette = gameModel instanceof MultiStateGameModel ?
+                ( ( MultiStateGameModel ) gameModel ).getMultiStateRule().getPalette() : null;
+
         // 2D Array of GridTiles that make up the whole grid
-        grid = new GridTile[ gameModel.getSize() ][ gameModel.getSize() ];
+        grid = new GridTile[ gameModel.getWidth() ][ gameModel.getHeight() ];
 
         // Each row of the grid consists of a JPanel containing n GridTiles, n = number of cols.
-        for ( int row = 0; row < gameModel.getSize(); row++ ) {
+        for ( int row = 0; row < gameModel.getHeight(); row++ ) {
             JPanel panel = new JPanel();
             panel.setBackground( Color.darkGray );
-            for ( int column = 0; column < gameModel.getSize(); column++ ) {
-                grid[ column ][ row ] = new GridTile( row, column, gameModel.INACTIVE );
+            for ( int column = 0; column < gameModel.getWidth(); column++ ) {
+                grid[ column ][ row ] = palette == null ? new GridTile( row, column, GameModel.INACTIVE ) :
+                        new GridTile( row, column, GameModel.INACTIVE, palette );
                 grid[ column ][ row ].addActionListener( gameController );
                 panel.add( grid[ column ][ row ] );
             }
@@ -47,12 +51,28 @@ public class GridView extends JPanel {
     }
 
     /**
-     * Updates the grid view.
+     * Takes a frame of the whole board, every tile having its own button.
+     *
+     * @param gameModel  the game's model
+     * @param generation the current generation
+     * @return the frame of the whole board
+     */
+    public ViewportFrame createFrame( GameModel gameModel, long generation ) {
+        return ViewportFrame.of( gameModel, generation );
+    }
+
+    /**
+     * Updates the grid view. Tiles beyond the grid of the view, left in a frame taken before
+     * the board was resized, are ignored.
+     *
+     * @param frame the frame of the board to show
      */
-    public void update() {
-        for ( int i = 0; i < gameModel.getSize(); i++ ) {
-            for ( int j = 0; j < gameModel.getSize(); j++ ) {
-                grid[ i ][ j ].setType( gameModel.getCurrentStatus( i, j ) );
+    public void update( ViewportFrame frame ) {
+        int columns = Math.min( frame.getColumns(), grid.length );
+        int rows = Math.min( frame.getRows(), grid[ 0 ].length );
+        for ( int i = 0; i < columns; i++ ) {
+            for ( int j = 0; j < rows; j++ ) {
+                grid[ i ][ j ].setType( frame.getSample( i, j ) );
             }
         }
         repaint();
@@ -0,0 +1,180 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The class <b>HaloExchange</b> swaps the borders of a <b>ShardGameModel</b> with the workers holding
+ * the neighbouring shards before each generation. Each neighbour is reached through its own socket,
+ * and a neighbour missing at a dead edge of the board sends nothing, its halo staying inactive.
+ * <p>
+ * Only the four edge neighbours are connected. The columns are exchanged first, then the rows
+ * are sent widened by one tile on each side with the columns just received, which carries the
+ * corner tiles on to the diagonal neighbours.
+ * <p>
+ * Each halo is sent by a thread of its own while the calling thread receives, so no worker waits
+ * on a full socket buffer whatever the size of the halos and the order the workers run in.
+ *
+ * @author Igor Grebenkov
+ */
+public class HaloExchange {
+
+    static final int WEST = 0;      // Index of the west neighbour
+    static final int EAST = 1;      // Index of the east neighbour
+    static final int NORTH = 2;     // Index of the north neighbour
+    static final int SOUTH = 3;     // Index of the south neighbour
+
+    private final ShardGameModel gameModel;     // The shard whose borders are exchanged
+    private final DataInputStream[] inputs;     // Streams from the west, east, north and south neighbours
+    private final DataOutputStream[] outputs;   // Streams to the west, east, north and south neighbours
+    private final Socket[] sockets;             // Sockets to the neighbours, null where there is none
+    private final ExecutorService senders;      // Threads sending the halos
+    private final long[] westColumn;            // The first column of the shard, one bit per row
+    private final long[] eastColumn;            // The last column of the shard, one bit per row
+    private final long[] northRow;              // The first row of the shard, widened by the west and east halos
+    private final long[] southRow;              // The last row of the shard, widened by the west and east halos
+    private final long[] row;                   // Buffer a row of the shard is read into
+
+    /**
+     * Constructor to initialize the exchange over the sockets connected to the neighbours.
+     *
+     * @param gameModel the shard
+     * @param sockets   the sockets to the west, east, north and south neighbours, null where there is none
+     * @throws IOException if a socket is closed
+     */
+    public HaloExchange( ShardGameModel gameModel, Socket[] sockets ) throws IOException {
+        this.gameModel = gameModel;
+        this.sockets = sockets.clone();
+        inputs = new DataInputStream[ 4 ];
+        outputs = new DataOutputStream[ 4 ];
+        for ( int d = 0; d < 4; d++ ) {
+            if ( sockets[ d ] != null ) {
+                inputs[ d ] = ShardProtocol.input( sockets[ d ] );
+                outputs[ d ] = ShardProtocol.output( sockets[ d ] );
+            }
+        }
+        senders = Executors.newFixedThreadPool( 2, new ThreadFactory() {
+            public Thread newThread( Runnable task ) {
+                Thread thread = new Thread( task, "halo-sender" );
+                thread.setDaemon( true );
+                return thread;
+            }
+        } );
+
+        int width = gameModel.getWidth();
+        westColumn = new long[ PackedGameModel.wordsFor( gameModel.getHeight() ) ];
+        eastColumn = new long[ westColumn.length ];
+        northRow = new long[ PackedGameModel.wordsFor( width + 2 ) ];
+        southRow = new long[ northRow.length ];
+        row = new long[ gameModel.getWordsPerRow() ];
+    }
+
+    /**
+     * Sends the borders of the shard to its neighbours and receives theirs into the halos of the shard.
+     *
+     * @throws IOException if a neighbour cannot be reached
+     */
+    public void exchange() throws IOException {
+        int width = gameModel.getWidth();
+        int height = gameModel.getHeight();
+
+        // The columns first
+        for ( int j = 0; j < height; j++ ) {
+            ShardProtocol.setBit( westColumn, j, gameModel.getCurrentStatus( 0, j ) );
+            ShardProtocol.setBit( eastColumn, j, gameModel.getCurrentStatus( width - 1, j ) );
+        }
+        exchange( WEST, westColumn, gameModel.getWestHalo(), EAST, eastColumn, gameModel.getEastHalo() );
+
+        // Then the rows, with the tiles just received left and right of them
+        widen( 0, northRow );
+        widen( height - 1, southRow );
+        exchange( NORTH, northRow, gameModel.getNorthHalo(), SOUTH, southRow, gameModel.getSouthHalo() );
+    }
+
+    /**
+     * Sends two borders to opposite neighbours and receives their borders.
+     */
+    private void exchange( int first, long[] firstBorder, long[] firstHalo,
+                           int second, long[] secondBorder, long[] secondHalo ) throws IOException {
+        Future< ? > firstSent = send( first, firstBorder );
+        Future< ? > secondSent = send( second, secondBorder );
+        if ( inputs[ first ] != null ) {
+            ShardProtocol.readWords( inputs[ first ], firstHalo, 0, firstHalo.length );
+        }
+        if ( inputs[ second ] != null ) {
+            ShardProtocol.readWords( inputs[ second ], secondHalo, 0, secondHalo.length );
+        }
+        await( firstSent );
+        await( secondSent );
+    }
+
+    /**
+     * Sends a border to a neighbour on a sender thread.
+     *
+     * @return the pending send, or null if there is no neighbour in that direction
+     */
+    private Future< ? > send( int direction, final long[] border ) {
+        final DataOutputStream out = outputs[ direction ];
+        if ( out == null ) {
+            return null;
+        }
+        return senders.submit( new Callable< Void >() {
+            public Void call() throws IOException {
+                ShardProtocol.writeWords( out, border, 0, border.length );
+                out.flush();
+                return null;
+            }
+        } );
+    }
+
+    /**
+     * Waits for a send to complete.
+     */
+    private static void await( Future< ? > sent ) throws IOException {
+        if ( sent == null ) {
+            return;
+        }
+        try {
+            sent.get();
+        } catch ( ExecutionException e ) {
+            throw e.getCause() instanceof IOException ? ( IOException ) e.getCause() : new IOException( e.getCause() );
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new IOException( "Interrupted while sending a halo" );
+        }
+    }
+
+    /**
+     * Widens a row of the shard by the west and east halos, which become its first and last bits.
+     */
+    private void widen( int j, long[] widened ) {
+        int width = gameModel.getWidth();
+
+        gameModel.readRow( j, row, 0 );
+        ShardProtocol.setBit( widened, 0, ( int ) ( gameModel.getWestHalo()[ j >>> 6 ] >>> j ) & 1 );
+        ShardProtocol.copyBits( row, 0, widened, 1, width );
+        ShardProtocol.setBit( widened, width + 1, ( int ) ( gameModel.getEastHalo()[ j >>> 6 ] >>> j ) & 1 );
+    }
+
+    /**
+     * Stops the sender threads and closes the sockets to the neighbours.
+     */
+    public void close() {
+        senders.shutdown();
+        for ( Socket socket : sockets ) {
+            if ( socket != null ) {
+                try {
+                    socket.close();
+                } catch ( IOException e ) {
+                    // Closing anyway
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,736 @@
+/**
+ * The class <b>HashLifeEngine</b> computes generations with Gosper's HashLife algorithm.
+ * The universe is a quadtree whose nodes are canonicalized in a hash table, so identical
+ * regions are shared, and each node memoizes the state of its centre some generations
+ * ahead. Repeating patterns can then be advanced 2^n generations in a few steps.
+ * <p>
+ * The universe is unbounded and centred on (0,0). When stepped as a <b>StepEngine</b>, the
+ * engine keeps its universe between steps and only reloads the game's model when it was
+ * changed by something else. While the pattern stays clear of the edges of the grid, nothing
+ * it does can reach beyond them, so the engine jumps as many generations as the distance to
+ * the nearest edge allows, in powers of two. Closer to the edges it advances one generation
+ * at a time and drops the tiles born beyond them, so tiles beyond the edges of the grid never
+ * exist, as with the array engines. The result is written back to the model once per step.
+ * The node table is bounded: once it holds more than the maximum number of nodes,
+ * nodes unreachable from the universe are discarded with their memoized results.
+ *
+ * @author Igor Grebenkov
+ */
+public class HashLifeEngine implements StepEngine {
+
+    private static final int DEFAULT_MAX_NODES = 1 << 22;   // Default bound on the node table
+    private static final int MAX_LEVEL = 62;                // Largest level whose width fits in a long
+    private static final int INITIAL_BUCKETS = 1 << 16;     // Initial size of the node table
+
+    private GameModel gameModel;    // Reference to the game's model, null when used on its own
+    private int maxNodes;           // Number of nodes above which garbage is collected
+    private Node[] buckets;         // Hash table of canonical nodes, chained through Node.next
+    private int numberOfNodes;      // Number of nodes in the table
+    private Node[] emptyNodes;      // Canonical empty node of each level
+    private Node off;               // Leaf of an inactive tile
+    private Node on;                // Leaf of an active tile
+    private Node root;              // The universe, covering [-2^(level-1), 2^(level-1)) on both axes
+    private long generation;        // Number of generations advanced
+    private long seenModifications; // Modification count of the model when last synchronized
+    private Rule rule = Rule.CONWAY;    // Rule computing each generation
+
+    /**
+     * Constructor to initialize an empty universe, not attached to a model.
+     */
+    public HashLifeEngine() {
+        this( null, DEFAULT_MAX_NODES );
+    }
+
+    /**
+     * Constructor to initialize the engine for a given model.
+     *
+     * @param gameModel the game's model
+     */
+    public HashLifeEngine( GameModel gameModel ) {
+        this( gameModel, DEFAULT_MAX_NODES );
+    }
+
+    /**
+     * Constructor to initialize the engine with a bound on the node table.
+     *
+     * @param gameModel the game's model, or null to use the engine on its own
+     * @param maxNodes  the number of nodes above which garbage is collected
+     */
+    public HashLifeEngine( GameModel gameModel, int maxNodes ) {
+        this.gameModel = gameModel;
+        this.maxNodes = maxNodes;
+        buckets = new Node[ INITIAL_BUCKETS ];
+        emptyNodes = new Node[ MAX_LEVEL + 1 ];
+        off = new Node( 0 );
+        on = new Node( 1 );
+        emptyNodes[ 0 ] = off;
+        root = empty( 3 );
+
+        if ( gameModel != null ) {
+            load( gameModel );
+            seenModifications = gameModel.getModificationCount();
+        }
+    }
+
+    /**
+     * Advances the game's model by one generation.
+     */
+    public void step() {
+        jump( 1 );
+    }
+
+    /**
+     * Advances the game's model by a number of generations.
+     *
+     * @param generations the number of generations
+     */
+    @Override
+    public void step( int generations ) {
+        jump( generations );
+    }
+
+    /**
+     * Advances the game's model by a number of generations, jumping in powers of two while the
+     * pattern stays clear of the edges of the grid, and writes the result back to the model.
+     *
+     * @param generations the number of generations
+     */
+    public void jump( long generations ) {
+        if ( generations < 0 ) {
+            throw new IllegalArgumentException( "Cannot advance a negative number of generations" );
+        }
+        setRule( gameModel.getRule() );
+        if ( gameModel.getModificationCount() != seenModifications ) {
+            load( gameModel );
+        }
+        int width = gameModel.getWidth();
+        int height = gameModel.getHeight();
+
+        while ( generations > 0 ) {
+            long[] box = getBoundingBox();
+            if ( box == null ) {
+                // Without B0 rules an empty universe stays empty
+                break;
+            }
+            // Tiles spread by at most one tile per generation, so none reaches
+            // beyond the edges in as many generations as there are empty rows and columns
+            long clearance = Math.min( Math.min( box[ 0 ], box[ 1 ] ),
+                    Math.min( width - 1 - box[ 2 ], height - 1 - box[ 3 ] ) );
+            if ( clearance > 0 ) {
+                long jump = Long.highestOneBit( Math.min( clearance, generations ) );
+                advance( jump );
+                generations -= jump;
+            } else {
+                advance( 1 );
+                long half = 1L << ( root.level - 1 );
+                root = clip( root, -half, -half, width, height );
+                generations--;
+            }
+        }
+        store( gameModel );
+        seenModifications = gameModel.getModificationCount();
+    }
+
+    /**
+     * Advances the universe by a number of generations.
+     *
+     * @param generations the number of generations to advance
+     */
+    public void advance( long generations ) {
+        if ( generations < 0 ) {
+            throw new IllegalArgumentException( "Cannot advance a negative number of generations" );
+        }
+
+        // Advance by each power of two making up the number of generations
+        for ( int exponent = 0; generations != 0; exponent++, generations >>>= 1 ) {
+            if ( ( generations & 1 ) == 0 ) {
+                continue;
+            }
+            // The pattern must sit in the inner quarter of a root at least 2^exponent
+            // wide on each side, so that nothing escapes the centre the result covers
+            while ( root.level < exponent + 3 || innerPopulation( root ) != root.population ) {
+                root = expand( root );
+            }
+            if ( numberOfNodes > maxNodes ) {
+                collectGarbage();
+            }
+            root = successor( root, exponent );
+            generation += 1L << exponent;
+        }
+        shrink();
+    }
+
+    /**
+     * Setter method for the rule computing each generation. Changing the rule
+     * discards every memoized result.
+     *
+     * @param rule the rule
+     * @throws IllegalArgumentException if the rule gives birth to tiles without neighbours
+     */
+    public void setRule( Rule rule ) {
+        if ( rule.equals( this.rule ) ) {
+            return;
+        }
+        if ( rule.isBorn( 0 ) ) {
+            throw new IllegalArgumentException( "The hashlife engine does not support B0 rules: " + rule );
+        }
+        this.rule = rule;
+        for ( Node bucket : buckets ) {
+            for ( Node node = bucket; node != null; node = node.next ) {
+                node.result = null;
+                node.step = null;
+                node.stepExponent = -1;
+            }
+        }
+    }
+
+    /**
+     * Getter method for the number of generations advanced.
+     *
+     * @return the number of generations advanced
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Getter method for the number of active tiles in the universe.
+     *
+     * @return the population
+     */
+    public long getPopulation() {
+        return root.population;
+    }
+
+    /**
+     * Getter method for the number of nodes in the node table.
+     *
+     * @return the number of nodes
+     */
+    public int getNumberOfNodes() {
+        return numberOfNodes;
+    }
+
+    /**
+     * Computes the smallest rectangle containing every active tile.
+     *
+     * @return the bounding box as { minX, minY, maxX, maxY } (inclusive), or null if the universe is empty
+     */
+    public long[] getBoundingBox() {
+        if ( root.population == 0 ) {
+            return null;
+        }
+        long[] box = { Long.MAX_VALUE, Long.MAX_VALUE, Long.MIN_VALUE, Long.MIN_VALUE };
+        long half = 1L << ( root.level - 1 );
+        boundingBox( root, -half, -half, box );
+        return box;
+    }
+
+    /**
+     * Getter method to return the status of a tile of the universe.
+     *
+     * @param x the tile's x co-ordinate
+     * @param y the tile's y co-ordinate
+     * @return the status (active or inactive) of the tile at (x,y)
+     */
+    public int getCell( long x, long y ) {
+        Node node = root;
+        long half = 1L << ( node.level - 1 );
+
+        if ( x < -half || y < -half || x >= half || y >= half ) {
+            return GameModel.INACTIVE;
+        }
+        x += half;
+        y += half;
+        while ( node.level > 0 && node.population > 0 ) {
+            half = 1L << ( node.level - 1 );
+            boolean east = x >= half;
+            boolean south = y >= half;
+            node = south ? ( east ? node.se : node.sw ) : ( east ? node.ne : node.nw );
+            x -= east ? half : 0;
+            y -= south ? half : 0;
+        }
+        return ( int ) node.population;
+    }
+
+    /**
+     * Makes a tile of the universe active.
+     *
+     * @param x the tile's x co-ordinate
+     * @param y the tile's y co-ordinate
+     */
+    public void setCell( long x, long y ) {
+        long half = 1L << ( root.level - 1 );
+        while ( x < -half || y < -half || x >= half || y >= half ) {
+            root = expand( root );
+            half = 1L << ( root.level - 1 );
+        }
+        root = setCell( root, x + half, y + half );
+    }
+
+    /**
+     * Replaces the universe with the tiles of a model, the model's (0,0) becoming the universe's.
+     *
+     * @param model the model to load
+     */
+    public void load( GameModel model ) {
+        int level = 3;
+        while ( ( 1L << ( level - 1 ) ) < Math.max( model.getWidth(), model.getHeight() ) ) {
+            level++;
+        }
+        long half = 1L << ( level - 1 );
+        root = build( model, level, -half, -half );
+    }
+
+    /**
+     * Writes the universe to a model. Tiles outside the model's grid are not written.
+     *
+     * @param model the model to write to
+     */
+    public void store( GameModel model ) {
+        model.reset();
+        long half = 1L << ( root.level - 1 );
+        store( model, root, -half, -half );
+    }
+
+    /**
+     * Discards the nodes that are not part of the universe, keeping the memoized
+     * results that point to nodes which are.
+     */
+    public void collectGarbage() {
+        mark( root );
+        for ( Node empty : emptyNodes ) {
+            if ( empty != null ) {
+                mark( empty );
+            }
+        }
+
+        numberOfNodes = 0;
+        Node survivors = null;
+        for ( int b = 0; b < buckets.length; b++ ) {
+            Node node = buckets[ b ];
+            buckets[ b ] = null;
+            while ( node != null ) {
+                Node next = node.next;
+                if ( node.marked ) {
+                    node.next = survivors;
+                    survivors = node;
+                }
+                node = next;
+            }
+        }
+
+        // Forget results pointing to discarded nodes, then unmark and re-insert the survivors
+        for ( Node node = survivors; node != null; node = node.next ) {
+            if ( node.result != null && !node.result.marked ) {
+                node.result = null;
+            }
+            if ( node.step != null && !node.step.marked ) {
+                node.step = null;
+                node.stepExponent = -1;
+            }
+        }
+        Node node = survivors;
+        while ( node != null ) {
+            Node next = node.next;
+            node.marked = false;
+            insert( node );
+            node = next;
+        }
+    }
+
+    /**
+     * Returns the canonical node with the given quadrants.
+     *
+     * @return the node made of the four quadrants
+     */
+    private Node join( Node nw, Node ne, Node sw, Node se ) {
+        int hash = hash( nw, ne, sw, se );
+        for ( Node node = buckets[ hash & ( buckets.length - 1 ) ]; node != null; node = node.next ) {
+            if ( node.hash == hash && node.nw == nw && node.ne == ne && node.sw == sw && node.se == se ) {
+                return node;
+            }
+        }
+        Node node = new Node( nw, ne, sw, se, hash );
+        if ( numberOfNodes >= buckets.length - ( buckets.length >>> 2 ) ) {
+            rehash();
+        }
+        insert( node );
+        return node;
+    }
+
+    /**
+     * Adds a node to the hash table.
+     *
+     * @param node the node to add
+     */
+    private void insert( Node node ) {
+        int index = node.hash & ( buckets.length - 1 );
+        node.next = buckets[ index ];
+        buckets[ index ] = node;
+        numberOfNodes++;
+    }
+
+    /**
+     * Doubles the number of buckets of the hash table.
+     */
+    private void rehash() {
+        Node[] oldBuckets = buckets;
+        buckets = new Node[ oldBuckets.length * 2 ];
+        numberOfNodes = 0;
+        for ( Node bucket : oldBuckets ) {
+            Node node = bucket;
+            while ( node != null ) {
+                Node next = node.next;
+                insert( node );
+                node = next;
+            }
+        }
+    }
+
+    /**
+     * Computes the hash of a node from the hashes of its quadrants.
+     *
+     * @return the hash of the node
+     */
+    private static int hash( Node nw, Node ne, Node sw, Node se ) {
+        long h = nw.hash;
+        h = h * 0x9E3779B97F4A7C15L + ne.hash;
+        h = h * 0x9E3779B97F4A7C15L + sw.hash;
+        h = h * 0x9E3779B97F4A7C15L + se.hash;
+        h ^= h >>> 29;
+        h *= 0xBF58476D1CE4E5B9L;
+        return ( int ) ( h ^ ( h >>> 32 ) );
+    }
+
+    /**
+     * Returns the canonical empty node of a level.
+     *
+     * @param level the level of the node
+     * @return the empty node
+     */
+    private Node empty( int level ) {
+        if ( emptyNodes[ level ] == null ) {
+            Node child = empty( level - 1 );
+            emptyNodes[ level ] = join( child, child, child, child );
+        }
+        return emptyNodes[ level ];
+    }
+
+    /**
+     * Surrounds a node with empty space, keeping it at the centre of a node one level higher.
+     *
+     * @param node the node to expand
+     * @return the expanded node
+     */
+    private Node expand( Node node ) {
+        if ( node.level >= MAX_LEVEL ) {
+            throw new IllegalStateException( "The universe cannot grow beyond level " + MAX_LEVEL );
+        }
+        Node e = empty( node.level - 1 );
+        return join( join( e, e, e, node.nw ), join( e, e, node.ne, e ),
+                join( e, node.sw, e, e ), join( node.se, e, e, e ) );
+    }
+
+    /**
+     * Removes empty space around the universe while the pattern fits in the centre of the root.
+     */
+    private void shrink() {
+        while ( root.level > 3 ) {
+            Node centre = join( root.nw.se, root.ne.sw, root.sw.ne, root.se.nw );
+            if ( centre.population != root.population ) {
+                return;
+            }
+            root = centre;
+        }
+    }
+
+    /**
+     * Counts the active tiles in the centred square a quarter as wide as a node.
+     *
+     * @param node a node of level 3 or more
+     * @return the population of the inner square
+     */
+    private static long innerPopulation( Node node ) {
+        return node.nw.se.se.population + node.ne.sw.sw.population +
+                node.sw.ne.ne.population + node.se.nw.nw.population;
+    }
+
+    /**
+     * Computes the centre of a node 2^exponent generations ahead, memoizing the result.
+     *
+     * @param node     a node of level 2 or more
+     * @param exponent the base 2 logarithm of the number of generations, at most level - 2
+     * @return the centre of the node, one level lower, after 2^exponent generations
+     */
+    private Node successor( Node node, int exponent ) {
+        int level = node.level;
+        exponent = Math.min( exponent, level - 2 );
+        boolean fullSpeed = exponent == level - 2;
+
+        if ( node.population == 0 ) {
+            return empty( level - 1 );
+        }
+        if ( fullSpeed && node.result != null ) {
+            return node.result;
+        }
+        if ( !fullSpeed && node.stepExponent == exponent ) {
+            return node.step;
+        }
+
+        Node result;
+        if ( level == 2 ) {
+            result = successorOfSquare( node );
+        } else {
+            // Nine overlapping sub-squares, each half as wide as the node
+            Node nw = node.nw, ne = node.ne, sw = node.sw, se = node.se;
+            Node c1 = successor( nw, exponent );
+            Node c2 = successor( join( nw.ne, ne.nw, nw.se, ne.sw ), exponent );
+            Node c3 = successor( ne, exponent );
+            Node c4 = successor( join( nw.sw, nw.se, sw.nw, sw.ne ), exponent );
+            Node c5 = successor( join( nw.se, ne.sw, sw.ne, se.nw ), exponent );
+            Node c6 = successor( join( ne.sw, ne.se, se.nw, se.ne ), exponent );
+            Node c7 = successor( sw, exponent );
+            Node c8 = successor( join( sw.ne, se.nw, sw.se, se.sw ), exponent );
+            Node c9 = successor( se, exponent );
+
+            if ( fullSpeed ) {
+                // Advance the four overlapping quarters a second time
+                result = join( successor( join( c1, c2, c4, c5 ), exponent ),
+                        successor( join( c2, c3, c5, c6 ), exponent ),
+                        successor( join( c4, c5, c7, c8 ), exponent ),
+                        successor( join( c5, c6, c8, c9 ), exponent ) );
+            } else {
+                // The sub-squares are already far enough ahead, keep their centres
+                result = join( join( c1.se, c2.sw, c4.ne, c5.nw ),
+                        join( c2.se, c3.sw, c5.ne, c6.nw ),
+                        join( c4.se, c5.sw, c7.ne, c8.nw ),
+                        join( c5.se, c6.sw, c8.ne, c9.nw ) );
+            }
+        }
+
+        if ( fullSpeed ) {
+            node.result = result;
+        } else {
+            node.step = result;
+            node.stepExponent = exponent;
+        }
+        return result;
+    }
+
+    /**
+     * Computes the centre 2x2 tiles of a 4x4 node one generation ahead.
+     *
+     * @param node a node of level 2
+     * @return the next generation of the centre, as a node of level 1
+     */
+    private Node successorOfSquare( Node node ) {
+        // Bit (y * 4 + x) holds the tile at (x,y) of the square
+        int bits = quadrantBits( node.nw ) | ( quadrantBits( node.ne ) << 2 ) |
+                ( quadrantBits( node.sw ) << 8 ) | ( quadrantBits( node.se ) << 10 );
+        return join( nextTile( bits, 1, 1 ), nextTile( bits, 2, 1 ),
+                nextTile( bits, 1, 2 ), nextTile( bits, 2, 2 ) );
+    }
+
+    /**
+     * Packs the tiles of a level 1 node into bits 0, 1, 4 and 5.
+     *
+     * @param node a node of level 1
+     * @return the packed tiles
+     */
+    private static int quadrantBits( Node node ) {
+        return ( int ) ( node.nw.population | ( node.ne.population << 1 ) |
+                ( node.sw.population << 4 ) | ( node.se.population << 5 ) );
+    }
+
+    /**
+     * Applies the rule to one tile of a packed 4x4 square.
+     *
+     * @return the leaf of the tile in the next generation
+     */
+    private Node nextTile( int bits, int x, int y ) {
+        // Gather the 3x3 neighbourhood, three bits per row, to look it up in the rule's table
+        int neighbourhood = 0;
+        for ( int dy = -1; dy <= 1; dy++ ) {
+            neighbourhood = neighbourhood << 3 | ( bits >>> ( ( y + dy ) * 4 + x - 1 ) & 7 );
+        }
+        return rule.getTable()[ neighbourhood ] == GameModel.ACTIVE ? on : off;
+    }
+
+    /**
+     * Makes a tile of a node active.
+     *
+     * @param node the node
+     * @param x    the tile's x co-ordinate relative to the node's top left corner
+     * @param y    the tile's y co-ordinate relative to the node's top left corner
+     * @return the node with the tile active
+     */
+    private Node setCell( Node node, long x, long y ) {
+        if ( node.level == 0 ) {
+            return on;
+        }
+        long half = 1L << ( node.level - 1 );
+        if ( y < half ) {
+            return x < half ? join( setCell( node.nw, x, y ), node.ne, node.sw, node.se ) :
+                    join( node.nw, setCell( node.ne, x - half, y ), node.sw, node.se );
+        }
+        return x < half ? join( node.nw, node.ne, setCell( node.sw, x, y - half ), node.se ) :
+                join( node.nw, node.ne, node.sw, setCell( node.se, x - half, y - half ) );
+    }
+
+    /**
+     * Builds the node covering a square of a model.
+     *
+     * @param model the model to read
+     * @param level the level of the node
+     * @param x     the x co-ordinate of the node's top left corner
+     * @param y     the y co-ordinate of the node's top left corner
+     * @return the node holding the model's tiles in the square
+     */
+    private Node build( GameModel model, int level, long x, long y ) {
+        long width = 1L << level;
+        if ( x + width <= 0 || y + width <= 0 || x >= model.getWidth() || y >= model.getHeight() ) {
+            return empty( level );
+        }
+        if ( level == 0 ) {
+            return model.getCurrentStatus( ( int ) x, ( int ) y ) == GameModel.ACTIVE ? on : off;
+        }
+        long half = width >>> 1;
+        return join( build( model, level - 1, x, y ), build( model, level - 1, x + half, y ),
+                build( model, level - 1, x, y + half ), build( model, level - 1, x + half, y + half ) );
+    }
+
+    /**
+     * Writes the active tiles of a node that fall inside a model's grid.
+     *
+     * @param model the model to write to
+     * @param node  the node
+     * @param x     the x co-ordinate of the node's top left corner
+     * @param y     the y co-ordinate of the node's top left corner
+     */
+    private void store( GameModel model, Node node, long x, long y ) {
+        long width = 1L << node.level;
+        if ( node.population == 0 || x + width <= 0 || y + width <= 0 ||
+                x >= model.getWidth() || y >= model.getHeight() ) {
+            return;
+        }
+        if ( node.level == 0 ) {
+            model.selectTile( ( int ) x, ( int ) y );
+            return;
+        }
+        long half = width >>> 1;
+        store( model, node.nw, x, y );
+        store( model, node.ne, x + half, y );
+        store( model, node.sw, x, y + half );
+        store( model, node.se, x + half, y + half );
+    }
+
+    /**
+     * Drops the active tiles of a node that fall outside a grid.
+     *
+     * @param node   the node
+     * @param x      the x co-ordinate of the node's top left corner
+     * @param y      the y co-ordinate of the node's top left corner
+     * @param width  the number of columns of the grid
+     * @param height the number of rows of the grid
+     * @return the node without the tiles outside the grid
+     */
+    private Node clip( Node node, long x, long y, int width, int height ) {
+        long size = 1L << node.level;
+        if ( node.population == 0 || ( x >= 0 && y >= 0 && x + size <= width && y + size <= height ) ) {
+            return node;
+        }
+        if ( x + size <= 0 || y + size <= 0 || x >= width || y >= height ) {
+            return empty( node.level );
+        }
+        long half = size >>> 1;
+        return join( clip( node.nw, x, y, width, height ), clip( node.ne, x + half, y, width, height ),
+                clip( node.sw, x, y + half, width, height ), clip( node.se, x + half, y + half, width, height ) );
+    }
+
+    /**
+     * Grows a bounding box to contain the active tiles of a node.
+     *
+     * @param node the node
+     * @param x    the x co-ordinate of the node's top left corner
+     * @param y    the y co-ordinate of the node's top left corner
+     * @param box  the bounding box as { minX, minY, maxX, maxY }
+     */
+    private static void boundingBox( Node node, long x, long y, long[] box ) {
+        long last = ( 1L << node.level ) - 1;
+        if ( node.population == 0 ||
+                ( x >= box[ 0 ] && y >= box[ 1 ] && x + last <= box[ 2 ] && y + last <= box[ 3 ] ) ) {
+            return;
+        }
+        if ( node.level == 0 ) {
+            box[ 0 ] = Math.min( box[ 0 ], x );
+            box[ 1 ] = Math.min( box[ 1 ], y );
+            box[ 2 ] = Math.max( box[ 2 ], x );
+            box[ 3 ] = Math.max( box[ 3 ], y );
+            return;
+        }
+        long half = 1L << ( node.level - 1 );
+        boundingBox( node.nw, x, y, box );
+        boundingBox( node.ne, x + half, y, box );
+        boundingBox( node.sw, x, y + half, box );
+        boundingBox( node.se, x + half, y + half, box );
+    }
+
+    /**
+     * Marks a node and its descendants as reachable.
+     *
+     * @param node the node to mark
+     */
+    private static void mark( Node node ) {
+        if ( node.marked || node.level == 0 ) {
+            return;
+        }
+        node.marked = true;
+        mark( node.nw );
+        mark( node.ne );
+        mark( node.sw );
+        mark( node.se );
+    }
+
+    /**
+     * The nested class <b>Node</b> is a square of 2^level x 2^level tiles.
+     * Leaves (level 0) are single tiles whose population is their status.
+     */
+    private static final class Node {
+        final int level;            // Base 2 logarithm of the width of the square
+        final Node nw, ne, sw, se;  // Quadrants of the square
+        final long population;      // Number of active tiles
+        final int hash;             // Hash computed from the quadrants
+
+        Node result;                // Centre after 2^(level-2) generations
+        Node step;                  // Centre after 2^stepExponent generations
+        int stepExponent = -1;      // Exponent of the generations step was computed for
+        Node next;                  // Next node in the same bucket of the table
+        boolean marked;             // Whether the node was reached while collecting garbage
+
+        /**
+         * Constructor to initialize a leaf.
+         *
+         * @param status the status of the tile
+         */
+        Node( int status ) {
+            level = 0;
+            nw = ne = sw = se = null;
+            population = status;
+            hash = status + 1;
+        }
+
+        /**
+         * Constructor to initialize a node from its quadrants.
+         */
+        Node( Node nw, Node ne, Node sw, Node se, int hash ) {
+            level = nw.level + 1;
+            this.nw = nw;
+            this.ne = ne;
+            this.sw = sw;
+            this.se = se;
+            population = nw.population + ne.population + sw.population + se.population;
+            this.hash = hash;
+        }
+    }
+}
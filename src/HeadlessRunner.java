@@ -0,0 +1,275 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * The class <b>HeadlessRunner</b> runs the simulation without a display.
+ * It fills a grid with a pattern of the <b>PatternLibrary</b>, a pattern file, random tiles
+ * or a board saved by <b>BoardFile</b>, computes a number of generations
+ * as fast as the step engine allows and prints the throughput, the step time percentiles, or those
+ * of batches of generations when the engine computes several at once, and the allocations measured by <b>GameMetrics</b>, the blocks skipped by the dirty engine, the final
+ * population and a checksum of the final board. The metrics are also registered with JMX while the runner runs. No AWT or Swing class is used.
+ * <p>
+ * Usage: java HeadlessRunner [--size n|WxH] [--generations n|2^n] [--pattern name|file | --density p | --load board]
+ *        [--seed n] [--save board] [--on-cycle stop|fast-forward] [--help]
+ * The model and engine are chosen with the system properties read by <b>StepEngines</b>, and
+ * checkpoints with those read by <b>Checkpointer</b>. Loading a directory resumes from its latest checkpoint.
+ * With the hashlife engine and nothing watching the generations in between, the whole run is one
+ * jump of the <b>HashLifeEngine</b>, so astronomically long runs such as --generations 2^40 finish quickly.
+ * <p>
+ * With --on-cycle or the gol.cycle.period property, a <b>CycleDetector</b> watches the board. Once it
+ * becomes a still life or repeats, the run either stops or, by default, skips the remaining whole periods,
+ * computing only the generations needed to end on the same board as a full run.
+ *
+ * @author Igor Grebenkov
+ */
+public class HeadlessRunner {
+
+    private static final double DEFAULT_DENSITY = 1.0 / 30;    // Density of the game's "Random" button
+    private static final int BATCH = 64;    // Generations stepped at once when no generation in between is looked at
+    private static final String USAGE = "Usage: java HeadlessRunner [--size n|WxH] [--generations n|2^n] " +
+            "[--pattern name|file.rle|file.cells | --density p | --load file.gol|dir] [--seed n] [--save file.gol] " +
+            "[--on-cycle stop|fast-forward] [--help]";
+
+    /**
+     * The <b>main</b> method of the runner.
+     *
+     * @param args the command line options
+     */
+    public static void main( String[] args ) {
+        int width = 49;
+        int height = 49;
+        long generations = 1000;
+        String pattern = null;
+        String load = null;
+        String save = null;
+        String onCycle = null;
+        double density = DEFAULT_DENSITY;
+        long seed = System.nanoTime();
+
+        for ( int i = 0; i < args.length; i++ ) {
+            String option = args[ i ];
+            if ( option.equals( "--help" ) || option.equals( "-h" ) ) {
+                System.out.println( USAGE );
+                System.exit( 0 );
+            }
+            if ( i + 1 >= args.length ) {
+                usage( "Missing value for " + option );
+            }
+            String value = args[ ++i ];
+            try {
+                switch ( option ) {
+                    case "--size":
+                        int separator = value.indexOf( 'x' );
+                        width = Integer.parseInt( separator < 0 ? value : value.substring( 0, separator ) );
+                        height = separator < 0 ? width : Integer.parseInt( value.substring( separator + 1 ) );
+                        if ( width < 1 || height < 1 ) {
+                            usage( "Grid size out of range: " + value );
+                        }
+                        break;
+                    case "--generations":
+                        generations = parseGenerations( value );
+                        break;
+                    case "--pattern":
+                        pattern = value;
+                        break;
+                    case "--load":
+                        load = value;
+                        break;
+                    case "--save":
+                        save = value;
+                        break;
+                    case "--on-cycle":
+                        if ( !value.equals( "stop" ) && !value.equals( "fast-forward" ) ) {
+                            usage( "Unknown cycle action " + value );
+                        }
+                        onCycle = value;
+                        break;
+                    case "--density":
+                        density = Double.parseDouble( value );
+                        break;
+                    case "--seed":
+                        seed = Long.parseLong( value );
+                        break;
+                    default:
+                        usage( "Unknown option " + option );
+                }
+            } catch ( NumberFormatException e ) {
+                usage( "Malformed value for " + option + ": " + value );
+            }
+        }
+
+        GameModel gameModel;
+        long firstGeneration = 0;
+        if ( load != null ) {
+            if ( new File( load ).isDirectory() ) {
+                File latest = Checkpointer.findLatest( new File( load ) );
+                if ( latest == null ) {
+                    usage( "No checkpoint in " + load );
+                    return;
+                }
+                load = latest.getPath();
+            }
+            try {
+                BoardFile header = BoardFile.readHeader( new File( load ) );
+                gameModel = StepEngines.createModel( header.getWidth(), header.getHeight() );
+                firstGeneration = BoardFile.load( new File( load ), gameModel ).getGeneration();
+            } catch ( IOException e ) {
+                usage( "Cannot load " + load + ": " + e.getMessage() );
+                return;
+            }
+            width = gameModel.getWidth();
+            height = gameModel.getHeight();
+        } else {
+            gameModel = StepEngines.createModel( width, height );
+            if ( pattern != null ) {
+                if ( !Boards.drawPattern( gameModel, pattern ) ) {
+                    usage( "Unknown pattern or grid too small: " + pattern );
+                }
+            } else {
+                Boards.randomize( gameModel, new Random( seed ), density );
+            }
+        }
+        StepEngine engine = StepEngines.createEngine( gameModel );
+        Checkpointer checkpointer = Checkpointer.fromProperties( gameModel );
+        CycleDetector cycleDetector = CycleDetector.fromProperties( onCycle != null ? CycleDetector.DEFAULT_PERIOD : 0 );
+        long skipped = 0;
+        GameMetrics metrics = new GameMetrics( engine, width, height );
+        metrics.register();
+
+        boolean batched = false;            // Whether the time percentiles are those of whole batches
+        long start = System.nanoTime();
+        if ( checkpointer == null && cycleDetector == null && engine instanceof HashLifeEngine ) {
+            // HashLife jumps over the whole run at once, recorded as a single step
+            metrics.stepStarted();
+            ( ( HashLifeEngine ) engine ).jump( generations );
+            metrics.stepFinished();
+        } else if ( checkpointer == null && cycleDetector == null ) {
+            // Nothing looks at the generations in between, so engines may compute several per pass,
+            // the percentiles being those of the time of a whole batch
+            batched = true;
+            for ( long g = 0; g < generations; g += BATCH ) {
+                int batch = ( int ) Math.min( BATCH, generations - g );
+                metrics.stepStarted();
+                engine.step( batch );
+                metrics.stepFinished( batch );
+            }
+        } else {
+            for ( long g = 1; g <= generations; g++ ) {
+                metrics.stepStarted();
+                engine.step();
+                metrics.stepFinished();
+                if ( checkpointer != null ) {
+                    checkpointer.generationComputed( gameModel, firstGeneration + g );
+                }
+                if ( cycleDetector != null && cycleDetector.generationComputed( gameModel, firstGeneration + g ) ) {
+                    long remaining = generations - g;
+                    if ( "stop".equals( onCycle ) ) {
+                        generations = g;
+                        break;
+                    }
+                    // Whole periods bring the board back to itself, only the last partial one is computed
+                    long partial = remaining % cycleDetector.getPeriod();
+                    for ( long p = 0; p < partial; p++ ) {
+                        engine.step();
+                    }
+                    skipped = remaining - partial;
+                    break;
+                }
+            }
+        }
+        double seconds = ( System.nanoTime() - start ) / 1e9;
+
+        if ( engine instanceof ParallelStepEngine ) {
+            ( ( ParallelStepEngine ) engine ).shutdown();
+        }
+        System.out.printf( "engine:        %s%n", engine.getClass().getSimpleName() );
+        Object rule = gameModel instanceof MultiStateGameModel ?
+                ( ( MultiStateGameModel ) gameModel ).getMultiStateRule() : gameModel.getRule();
+        System.out.printf( "grid:          %dx%d, %s, %s%n", width, height, rule,
+                gameModel.getBoundary().name().toLowerCase() );
+        if ( load == null && pattern == null ) {
+            // Passing the seed back with --seed reproduces the random board
+            System.out.printf( "seed:          %d%n", seed );
+        }
+        System.out.printf( "generations:   %d in %.3f s%n", generations, seconds );
+        if ( cycleDetector != null && cycleDetector.getPeriod() > 0 ) {
+            System.out.printf( "cycle:         %s, %d generations skipped%n", cycleDetector.describeCycle(), skipped );
+        }
+        long computed = generations - skipped;
+        System.out.printf( "throughput:    %.1f gens/sec, %.3e cells/sec%n",
+                computed / seconds, computed * ( double ) width * height / seconds );
+        System.out.printf( "%-15sp50 %.3f ms, p90 %.3f ms, p99 %.3f ms, max %.3f ms%s%n",
+                batched ? "batch time:" : "step time:",
+                metrics.getStepTimeP50Millis(), metrics.getStepTimeP90Millis(),
+                metrics.getStepTimeP99Millis(), metrics.getStepTimeMaxMillis(),
+                batched ? ", " + BATCH + " generations per batch" : "" );
+        if ( metrics.getAllocatedBytesPerGeneration() >= 0 ) {
+            System.out.printf( "allocated:     %.0f bytes/gen%n", metrics.getAllocatedBytesPerGeneration() );
+        }
+        if ( engine instanceof DirtyTileStepEngine ) {
+            DirtyTileStepEngine dirty = ( DirtyTileStepEngine ) engine;
+            System.out.printf( "skipped:       %.1f of %d blocks/gen%n", dirty.getMeanSkippedBlocks(),
+                    dirty.getNumberOfBlocks() );
+        }
+        if ( gameModel instanceof OffHeapGameModel ) {
+            System.out.printf( "off-heap:      %.1f MB%n", ( ( OffHeapGameModel ) gameModel ).getStorageBytes() / 1e6 );
+        }
+        System.out.printf( "population:    %d%n", Boards.population( gameModel ) );
+        System.out.printf( "checksum:      %016x%n", BoardFile.checksum( gameModel ) );
+        if ( checkpointer != null ) {
+            checkpointer.shutdown();
+            System.out.printf( "checkpoints:   %d written, %d skipped, %d failed%n",
+                    checkpointer.getCheckpointsWritten(), checkpointer.getCheckpointsSkipped(),
+                    checkpointer.getCheckpointsFailed() );
+            System.out.printf( "stall:         %.3f ms total, %.3f ms max%n",
+                    checkpointer.getTotalStallNanos() / 1e6, checkpointer.getMaxStallNanos() / 1e6 );
+        }
+
+        if ( save != null ) {
+            try {
+                BoardFile.save( gameModel, firstGeneration + generations, new File( save ), true );
+            } catch ( IOException e ) {
+                System.err.println( "IOException: " + e.getMessage() );
+                System.exit( 1 );
+            }
+        }
+        if ( gameModel instanceof OffHeapGameModel ) {
+            ( ( OffHeapGameModel ) gameModel ).close();
+        }
+    }
+
+    /**
+     * Parses a number of generations, either a number or 2^n for a power of two,
+     * the jumps HashLife makes best use of.
+     *
+     * @param value the value of the --generations option
+     * @return the number of generations
+     * @throws NumberFormatException if the value is not a number
+     */
+    private static long parseGenerations( String value ) {
+        if ( !value.startsWith( "2^" ) ) {
+            long generations = Long.parseLong( value );
+            if ( generations < 0 ) {
+                usage( "Number of generations out of range: " + value );
+            }
+            return generations;
+        }
+        int exponent = Integer.parseInt( value.substring( 2 ) );
+        if ( exponent < 0 || exponent > 62 ) {
+            usage( "Number of generations out of range: " + value );
+        }
+        return 1L << exponent;
+    }
+
+    /**
+     * Prints the usage of the runner and exits.
+     *
+     * @param message the reason the arguments were rejected
+     */
+    private static void usage( String message ) {
+        System.err.println( message );
+        System.err.println( USAGE );
+        System.exit( 2 );
+    }
+}
@@ -0,0 +1,130 @@
+import java.util.Arrays;
+
+/**
+ * The class <b>LongHashSet</b> is a set of primitive longs using open addressing.
+ * Elements are kept in insertion order in a dense array, so they can be visited by index,
+ * and the hash table only stores the position of each element, which avoids a reserved
+ * "empty" key value. Nothing is allocated once the set has grown to its working size.
+ *
+ * @author Igor Grebenkov
+ */
+public class LongHashSet {
+
+    private static final int MIN_CAPACITY = 16;     // Smallest number of elements before growing
+
+    private long[] elements;    // Elements in insertion order
+    private int[] slots;        // Hash table of element index + 1, 0 marking a free slot
+    private int size;           // Number of elements
+
+    /**
+     * Constructor to initialize an empty set.
+     */
+    public LongHashSet() {
+        elements = new long[ MIN_CAPACITY ];
+        slots = new int[ MIN_CAPACITY * 2 ];
+    }
+
+    /**
+     * Getter method for the number of elements.
+     *
+     * @return the number of elements
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the element at a position of the insertion order.
+     *
+     * @param index the position, between 0 and size() - 1
+     * @return the element
+     */
+    public long get( int index ) {
+        return elements[ index ];
+    }
+
+    /**
+     * Checks whether the set contains an element.
+     *
+     * @param element the element to look for
+     * @return true if the element is in the set
+     */
+    public boolean contains( long element ) {
+        return indexOf( element ) >= 0;
+    }
+
+    /**
+     * Returns the position of an element in the insertion order.
+     *
+     * @param element the element to look for
+     * @return the position of the element, or -1 if it is not in the set
+     */
+    public int indexOf( long element ) {
+        int mask = slots.length - 1;
+        for ( int slot = hash( element ) & mask; slots[ slot ] != 0; slot = ( slot + 1 ) & mask ) {
+            if ( elements[ slots[ slot ] - 1 ] == element ) {
+                return slots[ slot ] - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adds an element if it is not already in the set.
+     *
+     * @param element the element to add
+     * @return the position of the element in the insertion order
+     */
+    public int add( long element ) {
+        int mask = slots.length - 1;
+        int slot = hash( element ) & mask;
+        for ( ; slots[ slot ] != 0; slot = ( slot + 1 ) & mask ) {
+            if ( elements[ slots[ slot ] - 1 ] == element ) {
+                return slots[ slot ] - 1;
+            }
+        }
+        if ( size == elements.length ) {
+            grow();
+            return add( element );
+        }
+        elements[ size ] = element;
+        slots[ slot ] = ++size;
+        return size - 1;
+    }
+
+    /**
+     * Removes every element, keeping the allocated storage.
+     */
+    public void clear() {
+        Arrays.fill( slots, 0 );
+        size = 0;
+    }
+
+    /**
+     * Doubles the capacity of the set.
+     */
+    private void grow() {
+        elements = Arrays.copyOf( elements, elements.length * 2 );
+        slots = new int[ elements.length * 2 ];
+
+        int mask = slots.length - 1;
+        for ( int i = 0; i < size; i++ ) {
+            int slot = hash( elements[ i ] ) & mask;
+            while ( slots[ slot ] != 0 ) {
+                slot = ( slot + 1 ) & mask;
+            }
+            slots[ slot ] = i + 1;
+        }
+    }
+
+    /**
+     * Mixes the bits of an element into a hash.
+     *
+     * @param element the element
+     * @return the hash of the element
+     */
+    private static int hash( long element ) {
+        long h = element * 0x9E3779B97F4A7C15L;
+        return ( int ) ( h ^ ( h >>> 32 ) );
+    }
+}
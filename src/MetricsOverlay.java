@@ -0,0 +1,119 @@
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.Arrays;
+import javax.swing.JComponent;
+import javax.swing.Timer;
+
+/**
+ * The class <b>MetricsOverlay</b> shows the <b>GameMetrics</b> of the game in a translucent
+ * box painted over the top left corner of the window. It is installed as the glass pane of
+ * <b>GameView</b>, so it never takes part in the layout, and lets mouse clicks through to the
+ * grid below. The metrics are read twice per second while the overlay is visible.
+ *
+ * @author Igor Grebenkov
+ */
+public class MetricsOverlay extends JComponent {
+
+    private static final int REFRESH_DELAY = 500;          // Time between refreshes (ms)
+    private static final int MARGIN = 8;                    // Space around the text (pixels)
+    private static final Color BOX_COLOUR = new Color( 0, 0, 0, 170 );    // Colour behind the text
+    private static final Color TEXT_COLOUR = new Color( 0x84FF00 );        // Colour of the text
+
+    private GameMetrics metrics;    // Metrics shown
+    private String[] lines;         // Text of the last refresh, one metric per line
+    private Timer refresher;        // Timer refreshing the text on the event dispatch thread
+
+    /**
+     * Constructor to initialize the overlay.
+     *
+     * @param metrics the metrics shown
+     */
+    public MetricsOverlay( GameMetrics metrics ) {
+        this.metrics = metrics;
+        lines = new String[ 0 ];
+        setOpaque( false );
+        setFont( new Font( Font.MONOSPACED, Font.PLAIN, 12 ) );
+
+        refresher = new Timer( REFRESH_DELAY, new ActionListener() {
+            public void actionPerformed( ActionEvent e ) {
+                refresh();
+            }
+        } );
+    }
+
+    /**
+     * Shows or hides the overlay, only reading the metrics while it is shown.
+     *
+     * @param visible whether the overlay is shown
+     */
+    @Override
+    public void setVisible( boolean visible ) {
+        super.setVisible( visible );
+        if ( visible ) {
+            refresh();
+            refresher.start();
+        } else {
+            refresher.stop();
+        }
+    }
+
+    /**
+     * Lets mouse events through to the components below the overlay.
+     *
+     * @param x the x co-ordinate of the point
+     * @param y the y co-ordinate of the point
+     * @return false, the overlay never handling the mouse
+     */
+    @Override
+    public boolean contains( int x, int y ) {
+        return false;
+    }
+
+    /**
+     * Reads the metrics and repaints the overlay.
+     */
+    private void refresh() {
+        double allocated = metrics.getAllocatedBytesPerGeneration();
+        int skipped = metrics.getSkippedBlocks();
+        String[] text = new String[]{
+                String.format( "engine      %s, %dx%d", metrics.getEngine(), metrics.getGridWidth(), metrics.getGridHeight() ),
+                String.format( "gens/sec    %.1f", metrics.getGenerationsPerSecond() ),
+                String.format( "step ms     p50 %.3f  p90 %.3f  p99 %.3f  max %.3f",
+                        metrics.getStepTimeP50Millis(), metrics.getStepTimeP90Millis(),
+                        metrics.getStepTimeP99Millis(), metrics.getStepTimeMaxMillis() ),
+                String.format( "render ms   p50 %.3f  p99 %.3f",
+                        metrics.getRenderTimeP50Millis(), metrics.getRenderTimeP99Millis() ),
+                String.format( "in view     %d active", metrics.getPopulationInView() ),
+                allocated < 0 ? "alloc/gen   n/a" : String.format( "alloc/gen   %.0f bytes", allocated ),
+                String.format( "dropped     %d frames", metrics.getDroppedFrames() ),
+                String.format( "skipped     %d of %d blocks", skipped, metrics.getNumberOfBlocks() )
+        };
+        // The last line only applies to engines skipping blocks
+        lines = skipped >= 0 ? text : Arrays.copyOf( text, text.length - 1 );
+        repaint();
+    }
+
+    /**
+     * Paints the metrics in a box over the top left corner.
+     *
+     * @param g the graphics context
+     */
+    @Override
+    protected void paintComponent( Graphics g ) {
+        FontMetrics fontMetrics = g.getFontMetrics( getFont() );
+        int width = 0;
+        for ( String line : lines ) {
+            width = Math.max( width, fontMetrics.stringWidth( line ) );
+        }
+        int lineHeight = fontMetrics.getHeight();
+
+        g.setColor( BOX_COLOUR );
+        g.fillRect( MARGIN, MARGIN, width + 2 * MARGIN, lines.length * lineHeight + 2 * MARGIN );
+        g.setFont( getFont() );
+        g.setColor( TEXT_COLOUR );
+        for ( int l = 0; l < lines.length; l++ ) {
+            g.drawString( lines[ l ], 2 * MARGIN, 2 * MARGIN + l * lineHeight + fontMetrics.getAscent() );
+        }
+    }
+}
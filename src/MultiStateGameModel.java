@@ -0,0 +1,290 @@
+import java.util.Arrays;
+
+/**
+ * The class <b>MultiStateGameModel</b> is a <b>GameModel</b> whose tiles have any of the states
+ * of a <b>MultiStateRule</b>, stored one byte per tile. The grid is stored row after row in a
+ * single array padded with a border of ghost tiles, the tile at (i,j) being held at
+ * index (j + 1) * (width + 2) + i + 1.
+ * <p>
+ * Only tiles in state 1 are active: the packed rows read by snapshots, checksums and board
+ * files hold the active tiles, and selecting a tile puts it in state 1.
+ *
+ * @author Igor Grebenkov
+ */
+public class MultiStateGameModel extends GameModel {
+
+    private MultiStateRule multiStateRule;  // Rule computing each generation
+    private int stride;                     // Number of bytes per padded row
+    private byte[] cells;                   // The state of each tile, padded with a border of ghost tiles
+
+    /**
+     * Constructor to initialize the model to a given size of square grid.
+     *
+     * @param size the number of columns and rows of the grid
+     * @param rule the rule computing each generation
+     */
+    public MultiStateGameModel( int size, MultiStateRule rule ) {
+        this( size, size, rule );
+    }
+
+    /**
+     * Constructor to initialize the model to a given width and height of grid.
+     *
+     * @param width  the number of columns of the grid
+     * @param height the number of rows of the grid
+     * @param rule   the rule computing each generation
+     */
+    public MultiStateGameModel( int width, int height, MultiStateRule rule ) {
+        super( width, height );
+        multiStateRule = rule;
+    }
+
+    /**
+     * Makes every tile inactive, reusing the current storage when possible.
+     */
+    @Override
+    protected void clearTiles() {
+        long numberOfCells = numberOfCells( getWidth(), getHeight() );
+
+        markAllTilesModified();
+        stride = getWidth() + 2;
+        if ( cells != null && cells.length == numberOfCells ) {
+            Arrays.fill( cells, ( byte ) 0 );
+        } else {
+            cells = new byte[ ( int ) numberOfCells ];
+        }
+    }
+
+    /**
+     * Changes the width and height of the grid, keeping the states of the tiles kept.
+     *
+     * @param width  the new number of columns of the grid
+     * @param height the new number of rows of the grid
+     */
+    @Override
+    public void resize( int width, int height ) {
+        checkDimensions( width, height );
+        numberOfCells( width, height );
+        byte[] oldCells = cells;
+        int oldStride = stride;
+        int rows = Math.min( height, getHeight() );
+
+        cells = null;
+        setDimensions( width, height );
+        clearTiles();
+        int copied = Math.min( oldStride, stride ) - 2;
+        for ( int j = 0; j < rows; j++ ) {
+            System.arraycopy( oldCells, ( j + 1 ) * oldStride + 1, cells, ( j + 1 ) * stride + 1, copied );
+        }
+    }
+
+    /**
+     * Computes the number of bytes needed to store a padded grid.
+     *
+     * @param width  the number of columns of the grid
+     * @param height the number of rows of the grid
+     * @return the number of bytes
+     * @throws IllegalArgumentException if the grid does not fit in an array
+     */
+    private static long numberOfCells( int width, int height ) {
+        long numberOfCells = ( long ) ( width + 2 ) * ( height + 2 );
+        if ( numberOfCells > Integer.MAX_VALUE - 8 ) {
+            throw new IllegalArgumentException( "Grid of " + width + "x" + height + " is too large" );
+        }
+        return numberOfCells;
+    }
+
+    /**
+     * Creates an engine able to compute successive generations of this model.
+     *
+     * @return a step engine for this model
+     */
+    @Override
+    public StepEngine createStepEngine() {
+        return new MultiStateStepEngine( this );
+    }
+
+    /**
+     * Getter method for the rule computing each generation.
+     *
+     * @return the multi-state rule
+     */
+    public MultiStateRule getMultiStateRule() {
+        return multiStateRule;
+    }
+
+    /**
+     * Getter method for the number of states of a tile.
+     *
+     * @return the number of states of the rule
+     */
+    @Override
+    public int getNumberOfStates() {
+        return multiStateRule.getNumberOfStates();
+    }
+
+    /**
+     * The multi-state model is stepped by its own rule, use getMultiStateRule() instead.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void setRule( Rule rule ) {
+        throw new UnsupportedOperationException( "A multi-state model uses a MultiStateRule" );
+    }
+
+    /**
+     * Getter method for the padded array of tiles.
+     *
+     * @return the state of each tile, row after row
+     */
+    public byte[] getCells() {
+        return cells;
+    }
+
+    /**
+     * Getter method for the number of bytes per padded row.
+     *
+     * @return the width of the grid plus 2
+     */
+    public int getStride() {
+        return stride;
+    }
+
+    /**
+     * Replaces the state of every tile with a buffer holding the next generation.
+     *
+     * @param nextCells the padded array of the next generation
+     * @return the previous array, to be reused as the next buffer
+     */
+    public byte[] swapCells( byte[] nextCells ) {
+        byte[] previous = cells;
+        cells = nextCells;
+        markModified();
+        return previous;
+    }
+
+    /**
+     * Fills the border of the padded array with the ghost tiles given by the boundary.
+     */
+    public void fillGhostTiles() {
+        int width = getWidth();
+        int height = getHeight();
+        for ( int i = -1; i <= width; i++ ) {
+            cells[ i + 1 ] = ( byte ) getGhostStatus( i, -1 );
+            cells[ ( height + 1 ) * stride + i + 1 ] = ( byte ) getGhostStatus( i, height );
+        }
+        for ( int j = -1; j <= height; j++ ) {
+            cells[ ( j + 1 ) * stride ] = ( byte ) getGhostStatus( -1, j );
+            cells[ ( j + 1 ) * stride + width + 1 ] = ( byte ) getGhostStatus( width, j );
+        }
+    }
+
+    /**
+     * Getter method to return the state of a tile.
+     *
+     * @param i the tile's x co-ordinate
+     * @param j the tile's y co-ordinate
+     * @return the state of the tile at (i,j)
+     */
+    @Override
+    public int getCurrentStatus( int i, int j ) {
+        return cells[ ( j + 1 ) * stride + i + 1 ] & 0xFF;
+    }
+
+    /**
+     * Copies a row of tiles, packed one bit per tile, a bit being set for tiles in state 1.
+     *
+     * @param j      the row to copy
+     * @param row    the array the packed row is written into
+     * @param offset the index of the first word written
+     */
+    @Override
+    public void readRow( int j, long[] row, int offset ) {
+        Arrays.fill( row, offset, offset + PackedGameModel.wordsFor( getWidth() ), 0L );
+        int first = ( j + 1 ) * stride + 1;
+        for ( int i = 0; i < getWidth(); i++ ) {
+            row[ offset + ( i >>> 6 ) ] |= ( long ) ( cells[ first + i ] == ACTIVE ? 1 : 0 ) << i;
+        }
+    }
+
+    /**
+     * Copies the states of a row of tiles.
+     *
+     * @param j      the row to copy
+     * @param row    the array the states are written into
+     * @param offset the index of the first state written
+     */
+    public void readStates( int j, byte[] row, int offset ) {
+        System.arraycopy( cells, ( j + 1 ) * stride + 1, row, offset, getWidth() );
+    }
+
+    /**
+     * Replaces a row of tiles with a packed row, tiles whose bit is set going to state 1
+     * and the others to state 0.
+     *
+     * @param j      the row to replace
+     * @param row    the array holding the packed row
+     * @param offset the index of the first word read
+     */
+    @Override
+    public void writeRow( int j, long[] row, int offset ) {
+        markRunModified( 0, j, getWidth() );
+        int first = ( j + 1 ) * stride + 1;
+        for ( int i = 0; i < getWidth(); i++ ) {
+            cells[ first + i ] = ( byte ) ( row[ offset + ( i >>> 6 ) ] >>> i & 1 );
+        }
+    }
+
+    /**
+     * Method that selects a tile and puts it in state 1.
+     *
+     * @param i the tile's x co-ordinate
+     * @param j the tile's y co-ordinate
+     */
+    @Override
+    public void selectTile( int i, int j ) {
+        setTileState( i, j, ACTIVE );
+    }
+
+    /**
+     * Method that selects a run of tiles along a row and puts them in state 1.
+     *
+     * @param i      the x co-ordinate of the first tile
+     * @param j      the tiles' y co-ordinate
+     * @param length the number of tiles in the run
+     */
+    @Override
+    public void selectRun( int i, int j, int length ) {
+        markRunModified( i, j, length );
+        int first = ( j + 1 ) * stride + i + 1;
+        Arrays.fill( cells, first, first + length, ( byte ) ACTIVE );
+    }
+
+    /**
+     * Method that unSelects a tile and puts it in state 0.
+     *
+     * @param i the tile's x co-ordinate
+     * @param j the tile's y co-ordinate
+     */
+    @Override
+    public void unselectTile( int i, int j ) {
+        setTileState( i, j, INACTIVE );
+    }
+
+    /**
+     * Method that puts a tile in any state of the rule.
+     *
+     * @param i     the tile's x co-ordinate
+     * @param j     the tile's y co-ordinate
+     * @param state the new state of the tile
+     */
+    @Override
+    public void setTileState( int i, int j, int state ) {
+        if ( state < 0 || state >= getNumberOfStates() ) {
+            throw new IllegalArgumentException( "No state " + state + " in " + multiStateRule );
+        }
+        markTileModified( i, j );
+        cells[ ( j + 1 ) * stride + i + 1 ] = ( byte ) state;
+    }
+}
@@ -0,0 +1,181 @@
+/**
+ * The class <b>MultiStateRule</b> describes a cellular automaton whose tiles have more than
+ * two states, stepped by <b>MultiStateStepEngine</b>. State 0 is inactive and state 1 is
+ * active; the next state of a tile only depends on its state and on how many of its eight
+ * neighbours are active. Two families are supported:
+ * - Generations rules, in B/S/C notation such as "B2/S/C3" (Brian's Brain) or the older
+ *   S/B/C notation such as "/2/3": active tiles that do not survive go through states
+ *   2 to C-1 before becoming inactive, and only inactive tiles can be born
+ * - Wireworld: state 1 is an electron head, 2 an electron tail and 3 a conductor, which
+ *   becomes a head when one or two of its neighbours are heads
+ * <p>
+ * A rule is compiled into a table giving the next state of a tile for each state and number
+ * of active tiles in its 3x3 neighbourhood, the tile itself included. Rules are immutable.
+ *
+ * @author Igor Grebenkov
+ */
+public final class MultiStateRule {
+
+    public static final String WIREWORLD_NAME = "Wireworld";   // Name of the Wireworld rule
+    private static final int MAX_STATES = 256;                  // States fit in a byte
+    private static final int GENERATIONS_ACTIVE = 0x84FF00;     // Colour of active Generations tiles
+    private static final int GENERATIONS_DYING = 0x2080FF;      // Colour of the first dying state
+    private static final int[] WIREWORLD_PALETTE = { 0x000000, 0x2060FF, 0xFF4020, 0xFFC000 };
+
+    private final String name;          // The rule in its notation
+    private final int numberOfStates;   // Number of states of a tile
+    private final byte[] table;         // Next state for each state and sum of active tiles
+    private final int[] palette;        // Colour of each state (RGB)
+
+    /**
+     * Constructor to initialize a rule from its table.
+     */
+    private MultiStateRule( String name, int numberOfStates, byte[] table, int[] palette ) {
+        this.name = name;
+        this.numberOfStates = numberOfStates;
+        this.table = table;
+        this.palette = palette;
+    }
+
+    /**
+     * Creates a Generations rule.
+     *
+     * @param births         bit n is set if an inactive tile with n active neighbours is born
+     * @param survivals      bit n is set if an active tile with n active neighbours survives
+     * @param numberOfStates the number of states, from 3 to 256
+     * @return the rule
+     */
+    public static MultiStateRule generations( int births, int survivals, int numberOfStates ) {
+        if ( numberOfStates < 3 || numberOfStates > MAX_STATES ) {
+            throw new IllegalArgumentException( "Generations rules have 3 to 256 states: " + numberOfStates );
+        }
+        Rule lifeLike = new Rule( births, survivals );
+        String notation = lifeLike + "/C" + numberOfStates;
+
+        byte[] table = new byte[ numberOfStates * 10 ];
+        for ( int sum = 0; sum <= 9; sum++ ) {
+            table[ sum ] = ( byte ) ( sum <= 8 && lifeLike.isBorn( sum ) ? 1 : 0 );
+            table[ 10 + sum ] = ( byte ) ( sum >= 1 && lifeLike.survives( sum - 1 ) ? 1 : 2 );
+            for ( int state = 2; state < numberOfStates; state++ ) {
+                table[ state * 10 + sum ] = ( byte ) ( state + 1 < numberOfStates ? state + 1 : 0 );
+            }
+        }
+
+        // Dying states fade out from the first dying colour
+        int[] palette = new int[ numberOfStates ];
+        palette[ 1 ] = GENERATIONS_ACTIVE;
+        for ( int state = 2; state < numberOfStates; state++ ) {
+            palette[ state ] = scale( GENERATIONS_DYING, ( numberOfStates - state ) / ( double ) ( numberOfStates - 2 ) );
+        }
+        return new MultiStateRule( notation, numberOfStates, table, palette );
+    }
+
+    /**
+     * Creates the Wireworld rule.
+     *
+     * @return the rule
+     */
+    public static MultiStateRule wireworld() {
+        byte[] table = new byte[ 40 ];
+        for ( int sum = 0; sum <= 9; sum++ ) {
+            table[ 10 + sum ] = 2;
+            table[ 20 + sum ] = 3;
+            table[ 30 + sum ] = ( byte ) ( sum == 1 || sum == 2 ? 1 : 3 );
+        }
+        return new MultiStateRule( WIREWORLD_NAME, 4, table, WIREWORLD_PALETTE.clone() );
+    }
+
+    /**
+     * Checks whether a rule notation describes a multi-state rule rather than a <b>Rule</b>.
+     *
+     * @param notation the rule
+     * @return true for "Wireworld" and for Generations rules with a number of states
+     */
+    public static boolean isMultiState( String notation ) {
+        return notation.trim().equalsIgnoreCase( WIREWORLD_NAME ) || notation.split( "/", -1 ).length == 3;
+    }
+
+    /**
+     * Parses a multi-state rule: "Wireworld", or a Generations rule in B/S/C notation
+     * such as "B2/S/C3" or in S/B/C notation such as "/2/3".
+     *
+     * @param notation the rule
+     * @return the rule
+     * @throws IllegalArgumentException if the notation is not valid
+     */
+    public static MultiStateRule parse( String notation ) {
+        if ( notation.trim().equalsIgnoreCase( WIREWORLD_NAME ) ) {
+            return wireworld();
+        }
+        String[] parts = notation.trim().toUpperCase().split( "/", -1 );
+        if ( parts.length != 3 ) {
+            throw new IllegalArgumentException( "Not a multi-state rule: " + notation );
+        }
+        String states = parts[ 2 ].startsWith( "C" ) || parts[ 2 ].startsWith( "G" ) ? parts[ 2 ].substring( 1 ) : parts[ 2 ];
+        Rule lifeLike = Rule.parse( parts[ 0 ] + "/" + parts[ 1 ] );
+        try {
+            return generations( lifeLike.getBirths(), lifeLike.getSurvivals(), Integer.parseInt( states ) );
+        } catch ( NumberFormatException e ) {
+            throw new IllegalArgumentException( "Not a multi-state rule: " + notation );
+        }
+    }
+
+    /**
+     * Getter method for the number of states of a tile.
+     *
+     * @return the number of states
+     */
+    public int getNumberOfStates() {
+        return numberOfStates;
+    }
+
+    /**
+     * Getter method for the next state of a tile.
+     *
+     * @param state      the current state of the tile
+     * @param neighbours the number of active neighbours
+     * @return the state of the tile in the next generation
+     */
+    public int nextState( int state, int neighbours ) {
+        return table[ state * 10 + neighbours + ( state == GameModel.ACTIVE ? 1 : 0 ) ] & 0xFF;
+    }
+
+    /**
+     * Getter method for the colours of the states.
+     *
+     * @return the colour (RGB) of each state
+     */
+    public int[] getPalette() {
+        return palette.clone();
+    }
+
+    /**
+     * Getter method for the lookup table, indexed by state * 10 + the number of active tiles
+     * in the 3x3 neighbourhood, the tile itself included. Must not be modified.
+     *
+     * @return the next state for each state and sum
+     */
+    byte[] getTable() {
+        return table;
+    }
+
+    /**
+     * Returns the rule in its notation.
+     *
+     * @return the rule, for example "B2/S/C3" or "Wireworld"
+     */
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    /**
+     * Scales the brightness of a colour.
+     */
+    private static int scale( int colour, double factor ) {
+        int red = ( int ) ( ( colour >>> 16 & 0xFF ) * factor );
+        int green = ( int ) ( ( colour >>> 8 & 0xFF ) * factor );
+        int blue = ( int ) ( ( colour & 0xFF ) * factor );
+        return red << 16 | green << 8 | blue;
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * The class <b>MultiStateStepEngine</b> computes each generation of a
+ * <b>MultiStateGameModel</b> from its padded array of bytes. The next state of each tile is
+ * looked up in the table of the model's <b>MultiStateRule</b>, indexed by the state of the
+ * tile and the number of active tiles in its 3x3 neighbourhood. That number is kept as a
+ * running sum of column counts along the row, so each tile is read three times rather
+ * than nine. As in <b>ArrayStepEngine</b>, the ghost tiles are filled before
+ * each generation and the next generation is written into a second buffer swapped with the
+ * model's.
+ *
+ * @author Igor Grebenkov
+ */
+public class MultiStateStepEngine extends BandedStepEngine {
+
+    private MultiStateGameModel gameModel;  // Reference to the game's model
+    private byte[] cells;                   // Padded state of the current generation
+    private byte[] nextCells;               // Buffer the next generation is written into
+
+    /**
+     * Constructor to initialize the engine for a given model.
+     *
+     * @param gameModel the game's model
+     */
+    public MultiStateStepEngine( MultiStateGameModel gameModel ) {
+        this.gameModel = gameModel;
+    }
+
+    /**
+     * Prepares the buffers used to compute the next generation.
+     *
+     * @return the number of rows that make up the grid
+     */
+    protected int prepare() {
+        cells = gameModel.getCells();
+        gameModel.fillGhostTiles();
+
+        // The model allocates a new array when resized, so only reuse a buffer of the same size
+        if ( nextCells == null || nextCells.length != cells.length ) {
+            nextCells = new byte[ cells.length ];
+        }
+        return gameModel.getHeight();
+    }
+
+    /**
+     * Computes the next generation of a band of rows.
+     *
+     * @param from the first row of the band
+     * @param to   the row after the last row of the band
+     */
+    protected void computeBand( int from, int to ) {
+        int width = gameModel.getWidth();
+        int stride = gameModel.getStride();
+        byte[] table = gameModel.getMultiStateRule().getTable();
+        byte[] cells = this.cells;
+        byte[] nextCells = this.nextCells;
+
+        for ( int j = from; j < to; j++ ) {
+            int middle = ( j + 1 ) * stride;
+            int above = middle - stride;
+            int below = middle + stride;
+
+            // Number of active tiles in the columns i-1, i and i+1 of rows j-1..j+1, the sum
+            // of the three being rolled along the row one column at a time
+            int west = active( cells[ above ] ) + active( cells[ middle ] ) + active( cells[ below ] );
+            int centre = active( cells[ above + 1 ] ) + active( cells[ middle + 1 ] ) + active( cells[ below + 1 ] );
+            int sum = west + centre;
+            for ( int i = 1; i <= width; i++ ) {
+                int east = active( cells[ above + i + 1 ] ) + active( cells[ middle + i + 1 ] )
+                        + active( cells[ below + i + 1 ] );
+                sum += east;
+                nextCells[ middle + i ] = table[ ( cells[ middle + i ] & 0xFF ) * 10 + sum ];
+                sum -= west;
+                west = centre;
+                centre = east;
+            }
+        }
+    }
+
+    /**
+     * Makes the computed generation the current state of the game's model.
+     */
+    protected void commit() {
+        nextCells = gameModel.swapCells( nextCells );
+        cells = null;
+    }
+
+    /**
+     * Returns 1 for a tile in state 1 and 0 for any other state, without branching.
+     */
+    private static int active( byte state ) {
+        return ( ( state & 0xFF ^ GameModel.ACTIVE ) - 1 ) >>> 31;
+    }
+}
@@ -0,0 +1,445 @@
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The class <b>OffHeapGameModel</b> is a <b>GameModel</b> that stores one bit per tile outside
+ * the Java heap. The rows are packed exactly as in <b>PackedGameModel</b>, but into direct
+ * buffers, one for the current generation and one the next generation is written into, so a
+ * board of a billion tiles only takes 250 MB of native memory and leaves the heap, and the
+ * garbage collector, with next to nothing to do. Resetting the board clears the buffers in place.
+ * <p>
+ * The buffers are allocated when the model is created or resized and freed when it is closed or
+ * resized, without waiting for the garbage collector. The model must not be used once closed, nor
+ * closed while an engine is stepping it. Direct memory is limited by -XX:MaxDirectMemorySize,
+ * which defaults to the maximum heap size.
+ * <p>
+ * The current generation can be frozen for a snapshot rather than copied to the heap, exactly as
+ * in <b>PackedGameModel</b>: until the snapshot releases it, the next generation is stepped into
+ * a third buffer and the first edit of a tile copies the buffer before modifying it. Released
+ * buffers are kept for the next snapshot, so a model checkpointed regularly holds three buffers.
+ *
+ * @author Igor Grebenkov
+ */
+public class OffHeapGameModel extends GameModel implements AutoCloseable {
+
+    private static final int CLEAR_WORDS = 4096;    // Number of words cleared at a time
+    private static final long[] ZEROS = new long[ CLEAR_WORDS ];  // Words copied over the buffer to clear it
+
+    private int wordsPerRow;        // Number of longs used to store one row
+    private ByteBuffer memory;      // Native memory of the current generation
+    private ByteBuffer nextMemory;  // Native memory of the next generation
+    private LongBuffer words;       // The state of each tile, row after row
+    private LongBuffer nextWords;   // Buffer the next generation is written into
+    private final AtomicReference< ByteBuffer > frozen = new AtomicReference< ByteBuffer >();  // Memory read by a snapshot
+    private final AtomicReference< ByteBuffer > spare = new AtomicReference< ByteBuffer >();   // Memory released by a snapshot
+
+    /**
+     * Constructor to initialize the model to a given size of square grid.
+     *
+     * @param size the number of columns and rows of the grid
+     */
+    public OffHeapGameModel( int size ) {
+        super( size );
+    }
+
+    /**
+     * Constructor to initialize the model to a given width and height of grid.
+     *
+     * @param width  the number of columns of the grid
+     * @param height the number of rows of the grid
+     */
+    public OffHeapGameModel( int width, int height ) {
+        super( width, height );
+    }
+
+    /**
+     * Makes every tile inactive, clearing the current buffer in place when the grid keeps its size.
+     */
+    @Override
+    protected void clearTiles() {
+        int numberOfWords = numberOfWords( getWidth(), getHeight() );
+
+        markAllTilesModified();
+        wordsPerRow = PackedGameModel.wordsFor( getWidth() );
+        if ( memory != null && frozen.compareAndSet( memory, null ) ) {
+            // The frozen memory is left to the snapshot
+            memory = takeSpare();
+            words = memory.asLongBuffer();
+        }
+        if ( words != null && words.capacity() == numberOfWords ) {
+            LongBuffer clear = words.duplicate();
+            while ( clear.hasRemaining() ) {
+                clear.put( ZEROS, 0, Math.min( CLEAR_WORDS, clear.remaining() ) );
+            }
+        } else {
+            // Not close(), which also frees the spare memory and runs before the fields are initialized
+            free( memory );
+            free( nextMemory );
+            memory = allocate( numberOfWords );
+            nextMemory = allocate( numberOfWords );
+            words = memory.asLongBuffer();
+            nextWords = nextMemory.asLongBuffer();
+        }
+    }
+
+    /**
+     * Changes the width and height of the grid, copying the rows kept into new buffers and freeing the old ones.
+     *
+     * @param width  the new number of columns of the grid
+     * @param height the new number of rows of the grid
+     */
+    @Override
+    public void resize( int width, int height ) {
+        checkDimensions( width, height );
+        numberOfWords( width, height );
+        LongBuffer oldWords = words;
+        ByteBuffer oldMemory = memory;
+        ByteBuffer oldNextMemory = nextMemory;
+        int oldWordsPerRow = wordsPerRow;
+        int rows = Math.min( height, getHeight() );
+
+        // Keep the old buffers away from clearTiles(), which would free them before they are copied
+        words = null;
+        memory = null;
+        nextMemory = null;
+        setDimensions( width, height );
+        clearTiles();
+
+        long[] row = new long[ Math.max( oldWordsPerRow, wordsPerRow ) ];
+        for ( int j = 0; j < rows; j++ ) {
+            for ( int w = 0; w < oldWordsPerRow; w++ ) {
+                row[ w ] = oldWords.get( j * oldWordsPerRow + w );
+            }
+            writeRow( j, row, 0 );
+        }
+        if ( !frozen.compareAndSet( oldMemory, null ) ) {
+            free( oldMemory );
+        }
+        free( oldNextMemory );
+    }
+
+    /**
+     * Frees the native memory of the board. The model must not be used afterwards.
+     */
+    @Override
+    public void close() {
+        if ( memory == null || !frozen.compareAndSet( memory, null ) ) {
+            free( memory );
+        }
+        free( nextMemory );
+        free( spare.getAndSet( null ) );
+        memory = null;
+        nextMemory = null;
+        words = null;
+        nextWords = null;
+    }
+
+    /**
+     * Creates an engine able to compute successive generations of this model.
+     *
+     * @return a step engine for this model
+     */
+    @Override
+    public StepEngine createStepEngine() {
+        return new OffHeapStepEngine( this );
+    }
+
+    /**
+     * Getter method for the number of words used to store one row.
+     *
+     * @return the number of words per row
+     */
+    public int getWordsPerRow() {
+        return wordsPerRow;
+    }
+
+    /**
+     * Getter method for the packed state of the grid. Row j starts at word j * getWordsPerRow().
+     * The buffer is shared: read it with absolute indices or through a duplicate.
+     *
+     * @return the packed state of each tile
+     * @throws IllegalStateException if the model was closed
+     */
+    public LongBuffer getWords() {
+        checkOpen();
+        return words;
+    }
+
+    /**
+     * Getter method for the buffer the next generation is written into. Every word of it is
+     * overwritten before swapWords() is called.
+     *
+     * @return the buffer of the next generation
+     * @throws IllegalStateException if the model was closed
+     */
+    public LongBuffer getNextWords() {
+        checkOpen();
+        return nextWords;
+    }
+
+    /**
+     * Makes the buffer of the next generation the current state of every tile, and the current
+     * buffer the one the following generation is written into.
+     */
+    public void swapWords() {
+        markModified();
+        LongBuffer previousWords = words;
+        ByteBuffer previousMemory = memory;
+        words = nextWords;
+        memory = nextMemory;
+        if ( frozen.compareAndSet( previousMemory, null ) ) {
+            // The frozen memory is left to the snapshot
+            nextMemory = takeSpare();
+            nextWords = nextMemory.asLongBuffer();
+        } else {
+            nextWords = previousWords;
+            nextMemory = previousMemory;
+        }
+    }
+
+    /**
+     * Freezes the current generation for a snapshot, without copying it.
+     *
+     * @return the frozen board, to be released once it has been read
+     * @throws IllegalStateException if the model was closed or a board frozen before was not released
+     */
+    public FrozenBoard freeze() {
+        checkOpen();
+        if ( !frozen.compareAndSet( null, memory ) ) {
+            throw new IllegalStateException( "The board is already frozen" );
+        }
+        final ByteBuffer frozenMemory = memory;
+        final LongBuffer frozenWords = words.duplicate();
+        final int width = getWidth();
+        final int height = getHeight();
+        final int frozenWordsPerRow = wordsPerRow;
+        return new FrozenBoard() {
+            public int getWidth() {
+                return width;
+            }
+
+            public int getHeight() {
+                return height;
+            }
+
+            public void readRow( int j, long[] row, int offset ) {
+                int first = j * frozenWordsPerRow;
+                for ( int w = 0; w < frozenWordsPerRow; w++ ) {
+                    row[ offset + w ] = frozenWords.get( first + w );
+                }
+            }
+
+            public void release() {
+                // The model may have set the memory aside already, in which case it becomes its spare
+                if ( !frozen.compareAndSet( frozenMemory, null ) ) {
+                    free( spare.getAndSet( frozenMemory ) );
+                }
+            }
+        };
+    }
+
+    /**
+     * Getter method for the native memory taken by the board.
+     *
+     * @return the number of bytes of both buffers, 0 once closed
+     */
+    public long getStorageBytes() {
+        return memory == null ? 0 : ( long ) memory.capacity() + nextMemory.capacity();
+    }
+
+    /**
+     * Getter method to return the status of a title
+     *
+     * @param i the tile's x co-ordinate
+     * @param j the tile's y co-ordinate
+     * @return the status (active or inactive) of the tile at (i,j)
+     */
+    @Override
+    public int getCurrentStatus( int i, int j ) {
+        return ( int ) ( words.get( j * wordsPerRow + ( i >>> 6 ) ) >>> i ) & 1;
+    }
+
+    /**
+     * Copies a packed row of tiles.
+     *
+     * @param j      the row to copy
+     * @param row    the array the packed row is written into
+     * @param offset the index of the first word written
+     */
+    @Override
+    public void readRow( int j, long[] row, int offset ) {
+        int first = j * wordsPerRow;
+        for ( int w = 0; w < wordsPerRow; w++ ) {
+            row[ offset + w ] = words.get( first + w );
+        }
+    }
+
+    /**
+     * Replaces a packed row of tiles. Bits beyond the width of the grid are cleared.
+     *
+     * @param j      the row to replace
+     * @param row    the array holding the packed row
+     * @param offset the index of the first word read
+     */
+    @Override
+    public void writeRow( int j, long[] row, int offset ) {
+        thaw();
+        markRunModified( 0, j, getWidth() );
+        int first = j * wordsPerRow;
+        for ( int w = 0; w < wordsPerRow - 1; w++ ) {
+            words.put( first + w, row[ offset + w ] );
+        }
+        words.put( first + wordsPerRow - 1, row[ offset + wordsPerRow - 1 ] & PackedGameModel.lastWordMask( getWidth() ) );
+    }
+
+    /**
+     * Method that selects a tile and makes it active.
+     *
+     * @param i the tile's x co-ordinate
+     * @param j the tile's y co-ordinate
+     */
+    @Override
+    public void selectTile( int i, int j ) {
+        thaw();
+        markTileModified( i, j );
+        int index = j * wordsPerRow + ( i >>> 6 );
+        words.put( index, words.get( index ) | 1L << i );
+    }
+
+    /**
+     * Method that selects a run of tiles along a row, a word at a time.
+     *
+     * @param i      the x co-ordinate of the first tile
+     * @param j      the tiles' y co-ordinate
+     * @param length the number of tiles in the run
+     */
+    @Override
+    public void selectRun( int i, int j, int length ) {
+        thaw();
+        markRunModified( i, j, length );
+        int row = j * wordsPerRow;
+        int last = i + length - 1;
+
+        for ( int w = i >>> 6; w <= last >>> 6; w++ ) {
+            long mask = -1L;
+            if ( w == i >>> 6 ) {
+                mask &= -1L << i;
+            }
+            if ( w == last >>> 6 ) {
+                mask &= -1L >>> ( 63 - ( last & 63 ) );
+            }
+            words.put( row + w, words.get( row + w ) | mask );
+        }
+    }
+
+    /**
+     * Method that unSelects a tile and makes it inactive.
+     *
+     * @param i the tile's x co-ordinate
+     * @param j the tile's y co-ordinate
+     */
+    @Override
+    public void unselectTile( int i, int j ) {
+        thaw();
+        markTileModified( i, j );
+        int index = j * wordsPerRow + ( i >>> 6 );
+        words.put( index, words.get( index ) & ~( 1L << i ) );
+    }
+
+    /**
+     * Copies the current generation to another buffer if it is frozen, so it can be modified.
+     */
+    private void thaw() {
+        if ( memory != null && frozen.compareAndSet( memory, null ) ) {
+            ByteBuffer copy = takeSpare();
+            copy.duplicate().put( memory.duplicate() );
+            memory = copy;
+            words = memory.asLongBuffer();
+        }
+    }
+
+    /**
+     * Takes the memory released by a snapshot, or allocates new memory if it does not fit the grid.
+     *
+     * @return a buffer of the size of the grid, holding any words
+     */
+    private ByteBuffer takeSpare() {
+        ByteBuffer buffer = spare.getAndSet( null );
+        int numberOfWords = numberOfWords( getWidth(), getHeight() );
+        if ( buffer != null && buffer.capacity() == numberOfWords * Long.BYTES ) {
+            return buffer;
+        }
+        free( buffer );
+        return allocate( numberOfWords );
+    }
+
+    /**
+     * Checks that the buffers have not been freed.
+     *
+     * @throws IllegalStateException if the model was closed
+     */
+    private void checkOpen() {
+        if ( words == null ) {
+            throw new IllegalStateException( "The off-heap model was closed" );
+        }
+    }
+
+    /**
+     * Computes the number of words needed to store a grid.
+     *
+     * @param width  the number of columns of the grid
+     * @param height the number of rows of the grid
+     * @return the number of words
+     * @throws IllegalArgumentException if the grid does not fit in a direct buffer
+     */
+    private static int numberOfWords( int width, int height ) {
+        long numberOfWords = ( long ) PackedGameModel.wordsFor( width ) * height;
+        if ( numberOfWords > Integer.MAX_VALUE / Long.BYTES ) {
+            throw new IllegalArgumentException( "Grid of " + width + "x" + height + " is too large for a direct buffer" );
+        }
+        return ( int ) numberOfWords;
+    }
+
+    /**
+     * Allocates a zeroed direct buffer of words in the native byte order.
+     *
+     * @param numberOfWords the number of words
+     * @return the buffer
+     */
+    private static ByteBuffer allocate( int numberOfWords ) {
+        return ByteBuffer.allocateDirect( numberOfWords * Long.BYTES ).order( ByteOrder.nativeOrder() );
+    }
+
+    /**
+     * Frees the native memory of a direct buffer now rather than when it is garbage collected,
+     * with sun.misc.Unsafe.invokeCleaner() on Java 9 or later and the buffer's cleaner on Java 8.
+     * If neither is accessible the memory is left to the garbage collector.
+     *
+     * @param buffer the buffer, which must not be used afterwards, or null
+     */
+    private static void free( ByteBuffer buffer ) {
+        if ( buffer == null ) {
+            return;
+        }
+        try {
+            Class<?> unsafeClass = Class.forName( "sun.misc.Unsafe" );
+            try {
+                Method invokeCleaner = unsafeClass.getMethod( "invokeCleaner", ByteBuffer.class );
+                Field theUnsafe = unsafeClass.getDeclaredField( "theUnsafe" );
+                theUnsafe.setAccessible( true );
+                invokeCleaner.invoke( theUnsafe.get( null ), buffer );
+            } catch ( NoSuchMethodException e ) {
+                Method cleanerMethod = buffer.getClass().getMethod( "cleaner" );
+                cleanerMethod.setAccessible( true );
+                Object cleaner = cleanerMethod.invoke( buffer );
+                cleaner.getClass().getMethod( "clean" ).invoke( cleaner );
+            }
+        } catch ( ReflectiveOperationException | RuntimeException e ) {
+            // The buffer is freed once it becomes unreachable
+        }
+    }
+}
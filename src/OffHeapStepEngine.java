@@ -0,0 +1,162 @@
+import java.nio.Buffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+
+/**
+ * The class <b>OffHeapStepEngine</b> computes each generation of an <b>OffHeapGameModel</b>.
+ * Each band streams its rows out of the model's direct buffer into three small row arrays,
+ * the rows above, at and below the one being computed, runs the same kernel as
+ * <b>PackedStepEngine</b> on them and copies the computed row into the buffer of the next
+ * generation. Only a few rows of the board are ever on the heap, whatever its size.
+ * <p>
+ * The tiles seen beyond the edges of the grid according to its boundary are gathered before
+ * each generation into ghost rows and ghost bits, as <b>PackedStepEngine</b> does.
+ *
+ * @author Igor Grebenkov
+ */
+public class OffHeapStepEngine extends BandedStepEngine {
+
+    private OffHeapGameModel gameModel; // Reference to the game's model
+    private LongBuffer words;           // Packed state of the current generation
+    private LongBuffer nextWords;       // Buffer the next generation is written into
+    private long[] topGhosts;           // Tiles seen above the first row
+    private long[] bottomGhosts;        // Tiles seen below the last row
+    private byte[] westGhosts;          // Tiles seen left of each row, from row -1 to row height
+    private byte[] eastGhosts;          // Tiles seen right of each row, from row -1 to row height
+    private boolean ghostsClear;        // Whether every ghost tile is inactive
+    private BoardHash boardHash;        // Hash of the board updated while stepping, null if not hashed
+
+    /**
+     * Constructor to initialize the engine for a given model.
+     *
+     * @param gameModel the game's model
+     */
+    public OffHeapStepEngine( OffHeapGameModel gameModel ) {
+        this.gameModel = gameModel;
+    }
+
+    /**
+     * Prepares the buffers used to compute the next generation.
+     *
+     * @return the number of rows that make up the grid
+     */
+    protected int prepare() {
+        words = gameModel.getWords();
+        nextWords = gameModel.getNextWords();
+
+        // The ghosts follow the dimensions of a resized grid
+        if ( topGhosts == null || topGhosts.length != gameModel.getWordsPerRow()
+                || westGhosts.length != gameModel.getHeight() + 2 ) {
+            topGhosts = new long[ gameModel.getWordsPerRow() ];
+            bottomGhosts = new long[ gameModel.getWordsPerRow() ];
+            westGhosts = new byte[ gameModel.getHeight() + 2 ];
+            eastGhosts = new byte[ gameModel.getHeight() + 2 ];
+            ghostsClear = true;
+        }
+        if ( !gameModel.hasInactiveGhosts() || !ghostsClear ) {
+            fillGhosts();
+        }
+        BoardHash hash = gameModel.getBoardHash();
+        boardHash = hash != null && hash.isCurrent( gameModel ) ? hash : null;
+        return gameModel.getHeight();
+    }
+
+    /**
+     * Gathers the tiles seen beyond the edges of the grid according to its boundary.
+     */
+    private void fillGhosts() {
+        int width = gameModel.getWidth();
+        int height = gameModel.getHeight();
+
+        Arrays.fill( topGhosts, 0 );
+        Arrays.fill( bottomGhosts, 0 );
+        for ( int i = 0; i < width; i++ ) {
+            topGhosts[ i >>> 6 ] |= ( long ) gameModel.getGhostStatus( i, -1 ) << i;
+            bottomGhosts[ i >>> 6 ] |= ( long ) gameModel.getGhostStatus( i, height ) << i;
+        }
+        for ( int j = -1; j <= height; j++ ) {
+            westGhosts[ j + 1 ] = ( byte ) gameModel.getGhostStatus( -1, j );
+            eastGhosts[ j + 1 ] = ( byte ) gameModel.getGhostStatus( width, j );
+        }
+        ghostsClear = gameModel.hasInactiveGhosts();
+    }
+
+    /**
+     * Computes the next generation of a band of rows.
+     *
+     * @param from the first row of the band
+     * @param to   the row after the last row of the band
+     */
+    protected void computeBand( int from, int to ) {
+        int height = gameModel.getHeight();
+        int wordsPerRow = gameModel.getWordsPerRow();
+        long lastMask = PackedGameModel.lastWordMask( gameModel.getWidth() );
+        Rule rule = gameModel.getRule();
+
+        // Each band reads and writes through its own views, so bands may run on several threads
+        LongBuffer source = words.duplicate();
+        LongBuffer target = nextWords.duplicate();
+        long[] above = new long[ wordsPerRow ];
+        long[] row = new long[ wordsPerRow ];
+        long[] below = new long[ wordsPerRow ];
+        long[] next = new long[ wordsPerRow ];
+        long change = 0;
+
+        readRow( source, from - 1, wordsPerRow, above, from > 0 ? null : topGhosts );
+        readRow( source, from, wordsPerRow, row, null );
+        for ( int j = from; j < to; j++ ) {
+            readRow( source, j + 1, wordsPerRow, below, j + 1 < height ? null : bottomGhosts );
+
+            // Ghost tiles left and right of the rows above, at and below j, one bit per row
+            int west = westGhosts[ j ] | westGhosts[ j + 1 ] << 1 | westGhosts[ j + 2 ] << 2;
+            int east = eastGhosts[ j ] | eastGhosts[ j + 1 ] << 1 | eastGhosts[ j + 2 ] << 2;
+            PackedStepEngine.stepRow( above, 0, row, 0, below, 0, next, 0, wordsPerRow, west, east, lastMask, rule );
+            ( ( Buffer ) target ).position( j * wordsPerRow );
+            target.put( next );
+            if ( boardHash != null ) {
+                change ^= BoardHash.change( row, 0, next, 0, wordsPerRow, j * wordsPerRow );
+            }
+
+            long[] free = above;
+            above = row;
+            row = below;
+            below = free;
+        }
+        if ( boardHash != null ) {
+            boardHash.add( change );
+        }
+    }
+
+    /**
+     * Makes the computed generation the current state of the game's model.
+     */
+    protected void commit() {
+        long modifications = gameModel.getModificationCount();
+        gameModel.swapWords();
+        words = null;
+        nextWords = null;
+        if ( boardHash != null ) {
+            boardHash.commit( gameModel, modifications );
+            boardHash = null;
+        }
+    }
+
+    /**
+     * Copies a row of the current generation, or the ghost row standing for a row beyond the grid.
+     *
+     * @param source      a view of the current generation
+     * @param j           the row, ignored for a ghost row
+     * @param wordsPerRow the number of words in a row
+     * @param row         the array the row is copied into
+     * @param ghosts      the ghost row copied if j is beyond the grid, null if it is not
+     */
+    private static void readRow( LongBuffer source, int j, int wordsPerRow, long[] row, long[] ghosts ) {
+        if ( ghosts != null ) {
+            System.arraycopy( ghosts, 0, row, 0, wordsPerRow );
+        } else {
+            // Called on Buffer, as LongBuffer only overrides position() from Java 9 on
+            ( ( Buffer ) source ).position( j * wordsPerRow );
+            source.get( row );
+        }
+    }
+}
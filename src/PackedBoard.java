@@ -0,0 +1,31 @@
+/**
+ * The interface <b>PackedBoard</b> is implemented by the classes holding a board
+ * that can be read one row at a time, packed one bit per tile as in <b>PackedGameModel</b>.
+ *
+ * @author Igor Grebenkov
+ */
+public interface PackedBoard {
+
+    /**
+     * Getter method for the width of the grid.
+     *
+     * @return the number of columns of the grid
+     */
+    int getWidth();
+
+    /**
+     * Getter method for the height of the grid.
+     *
+     * @return the number of rows of the grid
+     */
+    int getHeight();
+
+    /**
+     * Copies a packed row of tiles.
+     *
+     * @param j      the row to copy
+     * @param row    the array the packed row is written into
+     * @param offset the index of the first word written
+     */
+    void readRow( int j, long[] row, int offset );
+}
@@ -0,0 +1,314 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The class <b>PackedGameModel</b> is a <b>GameModel</b> that stores one bit per tile.
+ * Each row of the grid is packed into consecutive longs, 64 tiles per word,
+ * with the tile at column i of a row held in bit (i % 64) of word (i / 64).
+ * Bits past the last column of a row are always zero.
+ * <p>
+ * The current generation can be frozen for a snapshot rather than copied. Until the snapshot
+ * releases it, the next generation is stepped into another buffer and the first edit of a tile
+ * copies the words to another buffer before modifying them.
+ *
+ * @author Igor Grebenkov
+ */
+public class PackedGameModel extends GameModel {
+
+    private int wordsPerRow;    // Number of longs used to store one row
+    private long[] words;       // The state of each tile, row after row
+    private final AtomicReference< long[] > frozen = new AtomicReference< long[] >();  // Words read by a snapshot
+    private final AtomicReference< long[] > spare = new AtomicReference< long[] >();   // Words released by a snapshot
+
+    /**
+     * Constructor to initialize the model to a given size of square grid.
+     *
+     * @param size the number of columns and rows of the grid
+     */
+    public PackedGameModel( int size ) {
+        super( size );
+    }
+
+    /**
+     * Constructor to initialize the model to a given width and height of grid.
+     *
+     * @param width  the number of columns of the grid
+     * @param height the number of rows of the grid
+     */
+    public PackedGameModel( int width, int height ) {
+        super( width, height );
+    }
+
+    /**
+     * Makes every tile inactive, reusing the current storage when possible.
+     */
+    @Override
+    protected void clearTiles() {
+        long numberOfWords = numberOfWords( getWidth(), getHeight() );
+
+        markAllTilesModified();
+        wordsPerRow = wordsFor( getWidth() );
+        if ( words != null && frozen.compareAndSet( words, null ) ) {
+            // The frozen words are left to the snapshot
+            words = takeSpare();
+        }
+        if ( words != null && words.length == numberOfWords ) {
+            Arrays.fill( words, 0L );
+        } else {
+            words = new long[ ( int ) numberOfWords ];
+        }
+    }
+
+    /**
+     * Changes the width and height of the grid, copying the rows kept straight from the old
+     * words into the new ones.
+     *
+     * @param width  the new number of columns of the grid
+     * @param height the new number of rows of the grid
+     */
+    @Override
+    public void resize( int width, int height ) {
+        checkDimensions( width, height );
+        numberOfWords( width, height );
+        long[] oldWords = words;
+        int oldWordsPerRow = wordsPerRow;
+        int rows = Math.min( height, getHeight() );
+
+        words = null;
+        setDimensions( width, height );
+        clearTiles();
+        int copied = Math.min( oldWordsPerRow, wordsPerRow );
+        long mask = lastWordMask( width );
+        for ( int j = 0; j < rows; j++ ) {
+            System.arraycopy( oldWords, j * oldWordsPerRow, words, j * wordsPerRow, copied );
+            words[ ( j + 1 ) * wordsPerRow - 1 ] &= mask;
+        }
+    }
+
+    /**
+     * Creates an engine able to compute successive generations of this model.
+     *
+     * @return a step engine for this model
+     */
+    @Override
+    public StepEngine createStepEngine() {
+        return new PackedStepEngine( this );
+    }
+
+    /**
+     * Getter method for the number of words used to store one row.
+     *
+     * @return the number of words per row
+     */
+    public int getWordsPerRow() {
+        return wordsPerRow;
+    }
+
+    /**
+     * Getter method for the packed state of the grid. Row j starts at word j * getWordsPerRow().
+     *
+     * @return the packed state of each tile
+     */
+    public long[] getWords() {
+        return words;
+    }
+
+    /**
+     * Replaces the state of every tile with a buffer holding the next generation.
+     *
+     * @param nextWords the packed state of each tile in the next generation
+     * @return the previous buffer, which the caller may reuse, or another one if the previous
+     *         buffer is frozen
+     */
+    public long[] swapWords( long[] nextWords ) {
+        markModified();
+        long[] previousWords = words;
+        words = nextWords;
+        return frozen.compareAndSet( previousWords, null ) ? takeSpare() : previousWords;
+    }
+
+    /**
+     * Freezes the current generation for a snapshot, without copying it.
+     *
+     * @return the frozen board, to be released once it has been read
+     * @throws IllegalStateException if a board frozen before was not released
+     */
+    public FrozenBoard freeze() {
+        if ( !frozen.compareAndSet( null, words ) ) {
+            throw new IllegalStateException( "The board is already frozen" );
+        }
+        final long[] frozenWords = words;
+        final int width = getWidth();
+        final int height = getHeight();
+        final int frozenWordsPerRow = wordsPerRow;
+        return new FrozenBoard() {
+            public int getWidth() {
+                return width;
+            }
+
+            public int getHeight() {
+                return height;
+            }
+
+            public void readRow( int j, long[] row, int offset ) {
+                System.arraycopy( frozenWords, j * frozenWordsPerRow, row, offset, frozenWordsPerRow );
+            }
+
+            public void release() {
+                // The model may have set the words aside already, in which case they become its spare
+                if ( !frozen.compareAndSet( frozenWords, null ) ) {
+                    spare.set( frozenWords );
+                }
+            }
+        };
+    }
+
+    /**
+     * Getter method to return the status of a title
+     *
+     * @param i the tile's x co-ordinate
+     * @param j the tile's y co-ordinate
+     * @return the status (active or inactive) of the tile at (i,j)
+     */
+    @Override
+    public int getCurrentStatus( int i, int j ) {
+        return ( int ) ( words[ j * wordsPerRow + ( i >>> 6 ) ] >>> i ) & 1;
+    }
+
+    /**
+     * Copies a packed row of tiles.
+     *
+     * @param j      the row to copy
+     * @param row    the array the packed row is written into
+     * @param offset the index of the first word written
+     */
+    @Override
+    public void readRow( int j, long[] row, int offset ) {
+        System.arraycopy( words, j * wordsPerRow, row, offset, wordsPerRow );
+    }
+
+    /**
+     * Replaces a packed row of tiles. Bits beyond the width of the grid are cleared.
+     *
+     * @param j      the row to replace
+     * @param row    the array holding the packed row
+     * @param offset the index of the first word read
+     */
+    @Override
+    public void writeRow( int j, long[] row, int offset ) {
+        thaw();
+        markRunModified( 0, j, getWidth() );
+        System.arraycopy( row, offset, words, j * wordsPerRow, wordsPerRow );
+        words[ ( j + 1 ) * wordsPerRow - 1 ] &= lastWordMask( getWidth() );
+    }
+
+    /**
+     * Method that selects a tile and makes it active.
+     *
+     * @param i the tile's x co-ordinate
+     * @param j the tile's y co-ordinate
+     */
+    @Override
+    public void selectTile( int i, int j ) {
+        thaw();
+        markTileModified( i, j );
+        words[ j * wordsPerRow + ( i >>> 6 ) ] |= 1L << i;
+    }
+
+    /**
+     * Method that selects a run of tiles along a row, a word at a time.
+     *
+     * @param i      the x co-ordinate of the first tile
+     * @param j      the tiles' y co-ordinate
+     * @param length the number of tiles in the run
+     */
+    @Override
+    public void selectRun( int i, int j, int length ) {
+        thaw();
+        markRunModified( i, j, length );
+        int row = j * wordsPerRow;
+        int last = i + length - 1;
+
+        for ( int w = i >>> 6; w <= last >>> 6; w++ ) {
+            long mask = -1L;
+            if ( w == i >>> 6 ) {
+                mask &= -1L << i;
+            }
+            if ( w == last >>> 6 ) {
+                mask &= -1L >>> ( 63 - ( last & 63 ) );
+            }
+            words[ row + w ] |= mask;
+        }
+    }
+
+    /**
+     * Method that unSelects a tile and makes it inactive.
+     *
+     * @param i the tile's x co-ordinate
+     * @param j the tile's y co-ordinate
+     */
+    @Override
+    public void unselectTile( int i, int j ) {
+        thaw();
+        markTileModified( i, j );
+        words[ j * wordsPerRow + ( i >>> 6 ) ] &= ~( 1L << i );
+    }
+
+    /**
+     * Copies the words to another buffer if they are frozen, so they can be modified.
+     */
+    private void thaw() {
+        if ( words != null && frozen.compareAndSet( words, null ) ) {
+            long[] copy = takeSpare();
+            System.arraycopy( words, 0, copy, 0, words.length );
+            words = copy;
+        }
+    }
+
+    /**
+     * Takes the words released by a snapshot, or allocates new ones if they do not fit the grid.
+     *
+     * @return a buffer of the size of the grid, holding any words
+     */
+    private long[] takeSpare() {
+        long[] buffer = spare.getAndSet( null );
+        long numberOfWords = numberOfWords( getWidth(), getHeight() );
+        return buffer != null && buffer.length == numberOfWords ? buffer : new long[ ( int ) numberOfWords ];
+    }
+
+    /**
+     * Computes the number of words needed to store a grid.
+     *
+     * @param width  the number of columns of the grid
+     * @param height the number of rows of the grid
+     * @return the number of words
+     * @throws IllegalArgumentException if the grid does not fit in an array
+     */
+    private static long numberOfWords( int width, int height ) {
+        long numberOfWords = ( long ) wordsFor( width ) * height;
+        if ( numberOfWords > Integer.MAX_VALUE - 8 ) {
+            throw new IllegalArgumentException( "Grid of " + width + "x" + height + " is too large to pack" );
+        }
+        return numberOfWords;
+    }
+
+    /**
+     * Computes the number of words needed to store a row of tiles.
+     *
+     * @param size the number of tiles in a row
+     * @return the number of words per row
+     */
+    static int wordsFor( int size ) {
+        return ( size + 63 ) >>> 6;
+    }
+
+    /**
+     * Computes the mask of the bits in the last word of a row that hold tiles.
+     *
+     * @param size the number of tiles in a row
+     * @return the mask of the valid bits of the last word
+     */
+    static long lastWordMask( int size ) {
+        return ( size & 63 ) == 0 ? -1L : ( 1L << size ) - 1;
+    }
+}
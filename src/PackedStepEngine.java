@@ -0,0 +1,332 @@
+import java.util.Arrays;
+
+/**
+ * The class <b>PackedStepEngine</b> computes each generation of a <b>PackedGameModel</b>
+ * 64 tiles at a time. The eight neighbours of every bit of a word are obtained by shifting
+ * the words of the rows above, below and of the row itself, then added together with
+ * bitwise full adders, so no tile is visited individually. Conway's rule, HighLife, Day &amp; Night
+ * and Seeds are applied to the sums directly, each by a few operations of its own; other rules
+ * evaluate the same fixed expression over the bit planes of the sums, whose coefficients each
+ * rule compiles into masks once. The fixed expression evaluates every coefficient, zero or not,
+ * so it is slower than the rules applied directly.
+ * <p>
+ * The tiles seen beyond the edges of the grid according to its boundary are gathered before
+ * each generation into ghost rows above and below the grid and ghost bits left and right of
+ * each row, which the kernel shifts in like any other tile.
+ *
+ * @author Igor Grebenkov
+ */
+public class PackedStepEngine extends BandedStepEngine {
+
+    private static final int GENERIC = 0;       // Kernel of the rules evaluated through their masks
+    private static final int CONWAY = 1;        // Kernel of B3/S23
+    private static final int HIGHLIFE = 2;      // Kernel of B36/S23
+    private static final int DAY_AND_NIGHT = 3; // Kernel of B3678/S34678
+    private static final int SEEDS = 4;         // Kernel of B2/S
+
+    private PackedGameModel gameModel;  // Reference to the game's model
+    private long[] words;               // Packed state of the current generation
+    private long[] nextWords;           // Buffer the next generation is written into
+    private long[] topGhosts;           // Tiles seen above the first row
+    private long[] bottomGhosts;        // Tiles seen below the last row
+    private byte[] westGhosts;          // Tiles seen left of each row, from row -1 to row height
+    private byte[] eastGhosts;          // Tiles seen right of each row, from row -1 to row height
+    private boolean ghostsClear;        // Whether every ghost tile is inactive
+    private BoardHash boardHash;        // Hash of the board updated while stepping, null if not hashed
+
+    /**
+     * Constructor to initialize the engine for a given model.
+     *
+     * @param gameModel the game's model
+     */
+    public PackedStepEngine( PackedGameModel gameModel ) {
+        this.gameModel = gameModel;
+    }
+
+    /**
+     * Prepares the buffers used to compute the next generation.
+     *
+     * @return the number of rows that make up the grid
+     */
+    protected int prepare() {
+        words = gameModel.getWords();
+
+        // A resized grid may keep the number of words with rows of another length
+        if ( nextWords == null || nextWords.length != words.length
+                || topGhosts.length != gameModel.getWordsPerRow() || westGhosts.length != gameModel.getHeight() + 2 ) {
+            nextWords = new long[ words.length ];
+            topGhosts = new long[ gameModel.getWordsPerRow() ];
+            bottomGhosts = new long[ gameModel.getWordsPerRow() ];
+            westGhosts = new byte[ gameModel.getHeight() + 2 ];
+            eastGhosts = new byte[ gameModel.getHeight() + 2 ];
+            ghostsClear = true;
+        }
+        if ( !gameModel.hasInactiveGhosts() || !ghostsClear ) {
+            fillGhosts();
+        }
+        BoardHash hash = gameModel.getBoardHash();
+        boardHash = hash != null && hash.isCurrent( gameModel ) ? hash : null;
+        return gameModel.getHeight();
+    }
+
+    /**
+     * Gathers the tiles seen beyond the edges of the grid according to its boundary.
+     */
+    private void fillGhosts() {
+        int width = gameModel.getWidth();
+        int height = gameModel.getHeight();
+
+        Arrays.fill( topGhosts, 0 );
+        Arrays.fill( bottomGhosts, 0 );
+        for ( int i = 0; i < width; i++ ) {
+            topGhosts[ i >>> 6 ] |= ( long ) gameModel.getGhostStatus( i, -1 ) << i;
+            bottomGhosts[ i >>> 6 ] |= ( long ) gameModel.getGhostStatus( i, height ) << i;
+        }
+        for ( int j = -1; j <= height; j++ ) {
+            westGhosts[ j + 1 ] = ( byte ) gameModel.getGhostStatus( -1, j );
+            eastGhosts[ j + 1 ] = ( byte ) gameModel.getGhostStatus( width, j );
+        }
+        ghostsClear = gameModel.hasInactiveGhosts();
+    }
+
+    /**
+     * Computes the next generation of a band of rows.
+     *
+     * @param from the first row of the band
+     * @param to   the row after the last row of the band
+     */
+    protected void computeBand( int from, int to ) {
+        int height = gameModel.getHeight();
+        int wordsPerRow = gameModel.getWordsPerRow();
+        long lastMask = PackedGameModel.lastWordMask( gameModel.getWidth() );
+        Rule rule = gameModel.getRule();
+        long change = 0;
+
+        for ( int j = from; j < to; j++ ) {
+            int offset = j * wordsPerRow;
+
+            // Ghost tiles left and right of the rows above, at and below j, one bit per row
+            int west = westGhosts[ j ] | westGhosts[ j + 1 ] << 1 | westGhosts[ j + 2 ] << 2;
+            int east = eastGhosts[ j ] | eastGhosts[ j + 1 ] << 1 | eastGhosts[ j + 2 ] << 2;
+
+            if ( j > 0 && j < height - 1 ) {
+                computeRow( words, offset - wordsPerRow, words, offset, words, offset + wordsPerRow,
+                        nextWords, offset, wordsPerRow, west, east, lastMask, rule );
+            } else {
+                long[] above = j > 0 ? words : topGhosts;
+                long[] below = j < height - 1 ? words : bottomGhosts;
+                computeRow( above, j > 0 ? offset - wordsPerRow : 0, words, offset,
+                        below, j < height - 1 ? offset + wordsPerRow : 0,
+                        nextWords, offset, wordsPerRow, west, east, lastMask, rule );
+            }
+
+            // Hashed while both generations of the row are still in the cache
+            if ( boardHash != null ) {
+                change ^= BoardHash.change( words, offset, nextWords, offset, wordsPerRow, offset );
+            }
+        }
+        if ( boardHash != null ) {
+            boardHash.add( change );
+        }
+    }
+
+    /**
+     * Makes the computed generation the current state of the game's model.
+     */
+    protected void commit() {
+        long modifications = gameModel.getModificationCount();
+        nextWords = gameModel.swapWords( nextWords );
+        words = null;
+        if ( boardHash != null ) {
+            boardHash.commit( gameModel, modifications );
+            boardHash = null;
+        }
+    }
+
+    /**
+     * Computes the next generation of one packed row, as <b>stepRow</b> does. Subclasses may
+     * compute some of its words differently, as long as the result is the same.
+     *
+     * @param above       the array holding the row above
+     * @param aboveOffset the index of the first word of the row above
+     * @param row         the array holding the row
+     * @param rowOffset   the index of the first word of the row
+     * @param below       the array holding the row below
+     * @param belowOffset the index of the first word of the row below
+     * @param next        the array the next generation of the row is written into
+     * @param nextOffset  the index of the first word written
+     * @param words       the number of words in a row
+     * @param west        the ghost tiles left of the rows above (bit 0), at (bit 1) and below (bit 2)
+     * @param east        the ghost tiles right of the rows above (bit 0), at (bit 1) and below (bit 2)
+     * @param lastMask    the mask of the bits of the last word that hold tiles
+     * @param rule        the rule of the game
+     */
+    protected void computeRow( long[] above, int aboveOffset, long[] row, int rowOffset,
+                               long[] below, int belowOffset, long[] next, int nextOffset,
+                               int words, int west, int east, long lastMask, Rule rule ) {
+        stepRow( above, aboveOffset, row, rowOffset, below, belowOffset, next, nextOffset,
+                words, west, east, lastMask, rule );
+    }
+
+    /**
+     * Computes the next generation of one packed row. Any run of words of a row can be computed
+     * on its own, taking the highest bits of the words before the run as its western ghost tiles
+     * and the lowest bits of the words after it as its eastern ones, with a mask of -1.
+     *
+     * @param above       the array holding the row above
+     * @param aboveOffset the index of the first word of the row above
+     * @param row         the array holding the row
+     * @param rowOffset   the index of the first word of the row
+     * @param below       the array holding the row below
+     * @param belowOffset the index of the first word of the row below
+     * @param next        the array the next generation of the row is written into
+     * @param nextOffset  the index of the first word written
+     * @param words       the number of words in a row
+     * @param west        the ghost tiles left of the rows above (bit 0), at (bit 1) and below (bit 2)
+     * @param east        the ghost tiles right of the rows above (bit 0), at (bit 1) and below (bit 2)
+     * @param lastMask    the mask of the bits of the last word that hold tiles
+     * @param rule        the rule of the game
+     */
+    static void stepRow( long[] above, int aboveOffset, long[] row, int rowOffset,
+                         long[] below, int belowOffset, long[] next, int nextOffset,
+                         int words, int west, int east, long lastMask, Rule rule ) {
+        int kernel = kernelOf( rule );
+
+        // The rule's expression over the neighbour count planes, see Rule.getPlaneMasks, fetched once per row
+        long[] masks = rule.getPlaneMasks();
+        long c0 = masks[ 0 ], c4 = masks[ 1 ], c2 = masks[ 2 ], c6 = masks[ 3 ];
+        long a0 = masks[ 4 ], a4 = masks[ 5 ], a2 = masks[ 6 ], a6 = masks[ 7 ];
+        long o0 = masks[ 8 ], o4 = masks[ 9 ], o2 = masks[ 10 ], o6 = masks[ 11 ];
+        long x0 = masks[ 12 ], x4 = masks[ 13 ], x2 = masks[ 14 ], x6 = masks[ 15 ];
+        long born8 = masks[ 16 ], changed8 = masks[ 17 ];
+
+        // Words to the left (0), at (1) and to the right (2) of the current word,
+        // the ghost tiles on the left being the top bits of the words left of the first
+        long above0 = ( long ) ( west & 1 ) << 63, above1 = above[ aboveOffset ];
+        long row0 = ( long ) ( west >>> 1 & 1 ) << 63, row1 = row[ rowOffset ];
+        long below0 = ( long ) ( west >>> 2 ) << 63, below1 = below[ belowOffset ];
+
+        for ( int w = 0; w < words; w++ ) {
+            boolean last = w == words - 1;
+            long above2, row2, below2;
+
+            if ( !last ) {
+                above2 = above[ aboveOffset + w + 1 ];
+                row2 = row[ rowOffset + w + 1 ];
+                below2 = below[ belowOffset + w + 1 ];
+            } else if ( lastMask == -1L ) {
+                // The ghost tiles on the right are the first bits of the words right of the last
+                above2 = east & 1;
+                row2 = east >>> 1 & 1;
+                below2 = east >>> 2;
+            } else {
+                // The ghost tiles on the right take the first unused bit of the last word
+                int ghostBit = Long.bitCount( lastMask );
+                above1 |= ( long ) ( east & 1 ) << ghostBit;
+                row1 |= ( long ) ( east >>> 1 & 1 ) << ghostBit;
+                below1 |= ( long ) ( east >>> 2 ) << ghostBit;
+                above2 = 0;
+                row2 = 0;
+                below2 = 0;
+            }
+
+            // Neighbours to the west (x - 1) and east (x + 1) of every bit
+            long aboveWest = ( above1 << 1 ) | ( above0 >>> 63 );
+            long aboveEast = ( above1 >>> 1 ) | ( above2 << 63 );
+            long rowWest = ( row1 << 1 ) | ( row0 >>> 63 );
+            long rowEast = ( row1 >>> 1 ) | ( row2 << 63 );
+            long belowWest = ( below1 << 1 ) | ( below0 >>> 63 );
+            long belowEast = ( below1 >>> 1 ) | ( below2 << 63 );
+
+            // Count the row above and the row below into 2-bit sums (carry, sum)
+            long aboveXor = aboveWest ^ above1;
+            long aboveSum = aboveXor ^ aboveEast;
+            long aboveCarry = ( aboveWest & above1 ) | ( aboveXor & aboveEast );
+            long belowXor = belowWest ^ below1;
+            long belowSum = belowXor ^ belowEast;
+            long belowCarry = ( belowWest & below1 ) | ( belowXor & belowEast );
+            long rowSum = rowWest ^ rowEast;
+            long rowCarry = rowWest & rowEast;
+
+            // Add the ones, then the twos, of the three partial sums
+            long onesXor = aboveSum ^ belowSum;
+            long ones = onesXor ^ rowSum;
+            long onesCarry = ( aboveSum & belowSum ) | ( onesXor & rowSum );
+            long twosLeft = aboveCarry ^ belowCarry;
+            long twosRight = rowCarry ^ onesCarry;
+            long twos = twosLeft ^ twosRight;
+
+            // The four carries into the twos add up to at most 4: one pair of them makes a four, two pairs an eight
+            long bothTwos = aboveCarry & belowCarry;
+            long bothTwosRight = rowCarry & onesCarry;
+            long oneEachTwos = twosLeft & twosRight;
+
+            // The four carries make no four nor eight when none is paired, so fewer than 4 neighbours
+            long fewerThanFour = ~( bothTwos | bothTwosRight | oneEachTwos );
+            long result;
+            switch ( kernel ) {
+                case CONWAY:
+                    // Alive next generation with 3 neighbours, or with 2 neighbours if alive now
+                    result = twos & fewerThanFour & ( ones | row1 );
+                    break;
+                case HIGHLIFE: {
+                    // As Conway's rule below 4 neighbours, and born with 6
+                    long fours = bothTwos ^ bothTwosRight ^ oneEachTwos;
+                    long eights = bothTwos & bothTwosRight;
+                    result = twos & ~eights & ( fours ^ ( ones | row1 ) );
+                    break;
+                }
+                case DAY_AND_NIGHT: {
+                    // Alive with 3, 6, 7 or 8 neighbours, or with 4 if alive now
+                    long fours = bothTwos ^ bothTwosRight ^ oneEachTwos;
+                    long eights = bothTwos & bothTwosRight;
+                    result = eights | ( twos & ( fours | ones ) ) | ( row1 & fours & ~( twos | ones ) );
+                    break;
+                }
+                case SEEDS:
+                    // Born with exactly 2 neighbours, never survives
+                    result = twos & fewerThanFour & ~( ones | row1 );
+                    break;
+                default: {
+                    long fours = bothTwos ^ bothTwosRight ^ oneEachTwos;
+                    long eights = bothTwos & bothTwosRight;
+                    long foursAndTwos = fours & twos;
+                    long constant = c0 ^ ( fours & c4 ) ^ ( twos & c2 ) ^ ( foursAndTwos & c6 );
+                    long withAlive = a0 ^ ( fours & a4 ) ^ ( twos & a2 ) ^ ( foursAndTwos & a6 );
+                    long withOnes = o0 ^ ( fours & o4 ) ^ ( twos & o2 ) ^ ( foursAndTwos & o6 );
+                    long withBoth = x0 ^ ( fours & x4 ) ^ ( twos & x2 ) ^ ( foursAndTwos & x6 );
+                    result = constant ^ ( row1 & withAlive ) ^ ( ones & withOnes ) ^ ( row1 & ones & withBoth );
+                    result ^= eights & ( result ^ born8 ^ ( row1 & changed8 ) );
+                }
+            }
+            next[ nextOffset + w ] = last ? result & lastMask : result;
+
+            above0 = above1;
+            above1 = above2;
+            row0 = row1;
+            row1 = row2;
+            below0 = below1;
+            below1 = below2;
+        }
+    }
+
+    /**
+     * Chooses the kernel applying a rule, the rules with a kernel of their own being told apart
+     * once per row rather than for every word.
+     *
+     * @param rule the rule of the game
+     * @return the kernel
+     */
+    private static int kernelOf( Rule rule ) {
+        if ( rule.isConway() ) {
+            return CONWAY;
+        } else if ( rule.equals( Rule.HIGHLIFE ) ) {
+            return HIGHLIFE;
+        } else if ( rule.equals( Rule.DAY_AND_NIGHT ) ) {
+            return DAY_AND_NIGHT;
+        } else if ( rule.equals( Rule.SEEDS ) ) {
+            return SEEDS;
+        }
+        return GENERIC;
+    }
+}
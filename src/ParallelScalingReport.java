@@ -0,0 +1,91 @@
+import java.util.Random;
+
+/**
+ * The class <b>ParallelScalingReport</b> measures how the number of generations computed
+ * per second scales with the number of stepping threads, and checks that every thread
+ * count produces the same board as the serial engine.
+ * <p>
+ * Usage: java ParallelScalingReport [size] [generations] [maxThreads]
+ * The storage is chosen with the same system properties as the game (see <b>StepEngines</b>).
+ *
+ * @author Igor Grebenkov
+ */
+public class ParallelScalingReport {
+
+    private static final long SEED = 49;            // Seed of the random starting board
+    private static final int WARMUP_GENERATIONS = 20;
+
+    /**
+     * The <b>main</b> method of the report.
+     *
+     * @param args the grid size, the number of generations to time and the maximum number of threads
+     */
+    public static void main( String[] args ) {
+        int size = args.length > 0 ? Integer.parseInt( args[ 0 ] ) : 2048;
+        int generations = args.length > 1 ? Integer.parseInt( args[ 1 ] ) : 200;
+        int maxThreads = args.length > 2 ? Integer.parseInt( args[ 2 ] ) :
+                Runtime.getRuntime().availableProcessors();
+
+        System.out.printf( "Grid %dx%d, %d generations, %d cores available%n",
+                size, size, generations, Runtime.getRuntime().availableProcessors() );
+        System.out.printf( "%8s %14s %9s %s%n", "threads", "gens/sec", "speedup", "result" );
+
+        long serialChecksum = 0;
+        double serialRate = 0;
+        for ( int threads = 1; threads <= maxThreads; threads = nextThreadCount( threads, maxThreads ) ) {
+            GameModel gameModel = StepEngines.createModel( size, size );
+            fill( gameModel, new Random( SEED ) );
+            StepEngine engine = StepEngines.createEngine( gameModel, threads );
+
+            for ( int i = 0; i < WARMUP_GENERATIONS; i++ ) {
+                engine.step();
+            }
+            long start = System.nanoTime();
+            for ( int i = 0; i < generations; i++ ) {
+                engine.step();
+            }
+            double rate = generations / ( ( System.nanoTime() - start ) / 1e9 );
+            long checksum = BoardFile.checksum( gameModel );
+
+            if ( engine instanceof ParallelStepEngine ) {
+                ( ( ParallelStepEngine ) engine ).shutdown();
+            }
+            if ( threads == 1 ) {
+                serialChecksum = checksum;
+                serialRate = rate;
+            }
+            System.out.printf( "%8d %14.1f %8.2fx %s%n", threads, rate, rate / serialRate,
+                    checksum == serialChecksum ? "identical" : "DIFFERS FROM SERIAL" );
+        }
+    }
+
+    /**
+     * Returns the thread count measured after a given one: powers of two, then the maximum.
+     *
+     * @param threads    the thread count just measured
+     * @param maxThreads the largest thread count to measure
+     * @return the next thread count
+     */
+    private static int nextThreadCount( int threads, int maxThreads ) {
+        if ( threads == maxThreads ) {
+            return maxThreads + 1;
+        }
+        return Math.min( threads * 2, maxThreads );
+    }
+
+    /**
+     * Activates a third of the tiles at random.
+     *
+     * @param gameModel the model to fill
+     * @param random    the source of randomness
+     */
+    private static void fill( GameModel gameModel, Random random ) {
+        for ( int i = 0; i < gameModel.getWidth(); i++ ) {
+            for ( int j = 0; j < gameModel.getHeight(); j++ ) {
+                if ( random.nextInt( 3 ) == 0 ) {
+                    gameModel.selectTile( i, j );
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The class <b>ParallelStepEngine</b> computes each generation of a <b>BandedStepEngine</b>
+ * on several threads. The grid is split into bands of rows that are computed by a
+ * ForkJoinPool; the generation is only committed once every band has finished,
+ * so the result is identical to stepping serially.
+ *
+ * @author Igor Grebenkov
+ */
+public class ParallelStepEngine implements StepEngine {
+
+    private static final int BANDS_PER_THREAD = 4;  // Bands created per thread, to even out the load
+    private static final int MIN_BAND_ROWS = 8;     // Smallest band worth handing to another thread
+
+    private BandedStepEngine engine;    // Engine computing the bands
+    private ForkJoinPool pool;          // Pool of threads computing the bands
+    private int numberOfThreads;        // Number of threads in the pool
+
+    /**
+     * Constructor to initialize the engine with a number of threads.
+     *
+     * @param engine          the engine computing the bands
+     * @param numberOfThreads the number of threads used to compute each generation
+     */
+    public ParallelStepEngine( BandedStepEngine engine, int numberOfThreads ) {
+        if ( numberOfThreads < 1 ) {
+            throw new IllegalArgumentException( "Number of threads must be positive: " + numberOfThreads );
+        }
+        this.engine = engine;
+        this.numberOfThreads = numberOfThreads;
+        pool = new ForkJoinPool( numberOfThreads );
+    }
+
+    /**
+     * Getter method for the number of threads used to compute each generation.
+     *
+     * @return the number of threads
+     */
+    public int getNumberOfThreads() {
+        return numberOfThreads;
+    }
+
+    /**
+     * Advances the game's model by one generation. Returns once all bands are computed.
+     */
+    public void step() {
+        step( 1 );
+    }
+
+    /**
+     * Advances the game's model by a number of generations, in as many passes over the grid
+     * as the engine needs. Returns once all bands of the last pass are computed.
+     *
+     * @param generations the number of generations
+     */
+    public void step( int generations ) {
+        while ( generations > 0 ) {
+            generations -= engine.beginPass( generations );
+            int rows = engine.prepare();
+            int bandRows = Math.max( MIN_BAND_ROWS, rows / ( numberOfThreads * BANDS_PER_THREAD ) );
+
+            pool.invoke( new BandTask( 0, rows, bandRows ) );
+            engine.commit();
+        }
+    }
+
+    /**
+     * Stops the threads used by the engine.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * The nested class <b>BandTask</b> computes a range of rows, splitting it in half
+     * until it is no larger than one band.
+     */
+    private class BandTask extends RecursiveAction {
+        private int from;       // First row of the range
+        private int to;         // Row after the last row of the range
+        private int bandRows;   // Number of rows in a band
+
+        /**
+         * Constructor to initialize the range of rows to compute.
+         *
+         * @param from     the first row of the range
+         * @param to       the row after the last row of the range
+         * @param bandRows the number of rows in a band
+         */
+        BandTask( int from, int to, int bandRows ) {
+            this.from = from;
+            this.to = to;
+            this.bandRows = bandRows;
+        }
+
+        /**
+         * Computes the range of rows, or splits it between two tasks.
+         */
+        protected void compute() {
+            if ( to - from <= bandRows ) {
+                engine.computeBand( from, to );
+            } else {
+                int middle = ( from + to ) >>> 1;
+                invokeAll( new BandTask( from, middle, bandRows ), new BandTask( middle, to, bandRows ) );
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The class <b>Pattern</b> describes a pattern stored in an RLE (.rle) or plaintext (.cells) file.
+ * Only the header of the file is read when the pattern is described; its tiles are streamed
+ * straight into a model every time the pattern is stamped, so patterns of any size can be
+ * loaded without holding their tiles in memory.
+ * <p>
+ * The origin is the position of the pattern's top left corner relative to the tile it is
+ * stamped around, as given by the "#R" (or "#P") line of an RLE file.
+ *
+ * @author Igor Grebenkov
+ */
+public class Pattern {
+
+    private String name;        // Name of the pattern
+    private String location;    // Path of the file, or name of the resource
+    private boolean resource;   // Whether the location is a resource of the game
+    private boolean rle;        // Whether the file is in RLE rather than plaintext format
+    private int width;          // Width of the pattern's bounding box
+    private int height;         // Height of the pattern's bounding box
+    private int originX;        // Column of the top left corner relative to the target tile
+    private int originY;        // Row of the top left corner relative to the target tile
+    private String rule;        // Rule the pattern was designed for, null if not given
+
+    /**
+     * Constructor to initialize a pattern's description.
+     */
+    Pattern( String name, String location, boolean resource, boolean rle, int width, int height,
+             int originX, int originY, String rule ) {
+        this.name = name;
+        this.location = location;
+        this.resource = resource;
+        this.rle = rle;
+        this.width = width;
+        this.height = height;
+        this.originX = originX;
+        this.originY = originY;
+        this.rule = rule;
+    }
+
+    /**
+     * Reads the description of a pattern from a .rle or .cells file.
+     *
+     * @param file the file to read
+     * @return the pattern
+     * @throws IOException if the file cannot be read or is not a valid pattern
+     */
+    public static Pattern load( File file ) throws IOException {
+        return describe( file.getPath(), false, file.getName() );
+    }
+
+    /**
+     * Reads the description of a pattern that is a resource of the game.
+     *
+     * @param resource the name of the resource, relative to the game's classes
+     * @return the pattern
+     * @throws IOException if the resource cannot be read or is not a valid pattern
+     */
+    static Pattern loadResource( String resource ) throws IOException {
+        return describe( resource, true, resource.substring( resource.lastIndexOf( '/' ) + 1 ) );
+    }
+
+    /**
+     * Reads the description of a pattern.
+     *
+     * @param location the path of the file or the name of the resource
+     * @param resource whether the location is a resource of the game
+     * @param fileName the name of the file, used to determine its format and default name
+     * @return the pattern
+     * @throws IOException if the pattern cannot be read
+     */
+    private static Pattern describe( String location, boolean resource, String fileName ) throws IOException {
+        boolean rle;
+        if ( fileName.endsWith( ".rle" ) ) {
+            rle = true;
+        } else if ( fileName.endsWith( ".cells" ) ) {
+            rle = false;
+        } else {
+            throw new IOException( "Not a .rle or .cells pattern: " + fileName );
+        }
+        String defaultName = fileName.substring( 0, fileName.lastIndexOf( '.' ) );
+
+        try ( BufferedReader in = open( location, resource ) ) {
+            return PatternReader.readHeader( in, rle, defaultName, location, resource );
+        }
+    }
+
+    /**
+     * Draws the pattern around a tile, if it fits entirely in the grid.
+     *
+     * @param gameModel the model to draw in
+     * @param x         the x co-ordinate of the target tile
+     * @param y         the y co-ordinate of the target tile
+     * @return true if the pattern was drawn
+     * @throws IOException if the pattern cannot be read
+     */
+    public boolean stamp( GameModel gameModel, int x, int y ) throws IOException {
+        int left = x + originX;
+        int top = y + originY;
+
+        if ( left < 0 || top < 0 || left + width > gameModel.getWidth() || top + height > gameModel.getHeight() ) {
+            return false;
+        }
+        try ( BufferedReader in = open( location, resource ) ) {
+            PatternReader.readTiles( in, rle, gameModel, left, top );
+        }
+        return true;
+    }
+
+    /**
+     * Getter method for the name of the pattern.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Getter method for the width of the pattern.
+     *
+     * @return the width of the pattern's bounding box
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Getter method for the height of the pattern.
+     *
+     * @return the height of the pattern's bounding box
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Getter method for the rule the pattern was designed for.
+     *
+     * @return the rule, for example "B3/S23", or null if the file does not say
+     */
+    public String getRule() {
+        return rule;
+    }
+
+    /**
+     * Opens a pattern file or resource.
+     *
+     * @param location the path of the file or the name of the resource
+     * @param resource whether the location is a resource of the game
+     * @return a reader over the pattern
+     * @throws IOException if the pattern cannot be opened
+     */
+    private static BufferedReader open( String location, boolean resource ) throws IOException {
+        InputStream in;
+        if ( resource ) {
+            in = Pattern.class.getResourceAsStream( location );
+            if ( in == null ) {
+                throw new FileNotFoundException( "Missing resource " + location );
+            }
+        } else {
+            in = new FileInputStream( location );
+        }
+        return new BufferedReader( new InputStreamReader( in, StandardCharsets.UTF_8 ) );
+    }
+}
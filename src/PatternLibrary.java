@@ -0,0 +1,139 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The class <b>PatternLibrary</b> indexes patterns by name. It holds the patterns that come
+ * with the game (listed in patterns/index.txt) and any .rle or .cells files found in the
+ * directory given by the gol.patterns system property.
+ * Names are matched ignoring case, spaces and punctuation, so "Gosper Glider Gun"
+ * can also be found as "gosper-glider-gun".
+ *
+ * @author Igor Grebenkov
+ */
+public class PatternLibrary {
+
+    public static final String DIRECTORY_PROPERTY = "gol.patterns";    // Directory of extra patterns
+    private static final String BUILT_IN_INDEX = "patterns/index.txt"; // List of the built-in patterns
+
+    private Map< String, Pattern > patterns;    // Patterns indexed by normalized name, in insertion order
+
+    /**
+     * Constructor to initialize an empty library.
+     */
+    public PatternLibrary() {
+        patterns = new LinkedHashMap< String, Pattern >();
+    }
+
+    /**
+     * Creates a library holding the built-in patterns and the patterns of the directory
+     * given by the gol.patterns system property. Patterns that cannot be read are reported and skipped.
+     *
+     * @return the library
+     */
+    public static PatternLibrary createDefault() {
+        PatternLibrary library = new PatternLibrary();
+        try {
+            library.addBuiltInPatterns();
+        } catch ( IOException e ) {
+            System.err.println( "IOException: " + e.getMessage() );
+        }
+        String directory = System.getProperty( DIRECTORY_PROPERTY );
+        if ( directory != null ) {
+            library.addDirectory( new File( directory ) );
+        }
+        return library;
+    }
+
+    /**
+     * Adds the patterns that come with the game.
+     *
+     * @throws IOException if the list of patterns or one of them cannot be read
+     */
+    public void addBuiltInPatterns() throws IOException {
+        InputStream index = PatternLibrary.class.getResourceAsStream( BUILT_IN_INDEX );
+        if ( index == null ) {
+            throw new FileNotFoundException( "Missing resource " + BUILT_IN_INDEX );
+        }
+        try ( BufferedReader in = new BufferedReader( new InputStreamReader( index, StandardCharsets.UTF_8 ) ) ) {
+            String line;
+            while ( ( line = in.readLine() ) != null ) {
+                line = line.trim();
+                if ( !line.isEmpty() && !line.startsWith( "#" ) ) {
+                    add( Pattern.loadResource( "patterns/" + line ) );
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the .rle and .cells files of a directory, in alphabetical order.
+     * Files that cannot be read are reported and skipped.
+     *
+     * @param directory the directory to scan
+     */
+    public void addDirectory( File directory ) {
+        File[] files = directory.listFiles();
+        if ( files == null ) {
+            System.err.println( "Not a directory: " + directory );
+            return;
+        }
+        Arrays.sort( files );
+        for ( File file : files ) {
+            if ( file.getName().endsWith( ".rle" ) || file.getName().endsWith( ".cells" ) ) {
+                try {
+                    add( Pattern.load( file ) );
+                } catch ( IOException e ) {
+                    System.err.println( "IOException: " + e.getMessage() );
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a pattern, replacing any pattern of the same name.
+     *
+     * @param pattern the pattern to add
+     */
+    public void add( Pattern pattern ) {
+        patterns.put( normalize( pattern.getName() ), pattern );
+    }
+
+    /**
+     * Finds a pattern by name.
+     *
+     * @param name the name of the pattern
+     * @return the pattern, or null if there is none of that name
+     */
+    public Pattern get( String name ) {
+        return patterns.get( normalize( name ) );
+    }
+
+    /**
+     * Getter method for the names of the patterns, in the order they were added.
+     *
+     * @return the names of the patterns
+     */
+    public List< String > getNames() {
+        List< String > names = new ArrayList< String >();
+        for ( Pattern pattern : patterns.values() ) {
+            names.add( pattern.getName() );
+        }
+        return names;
+    }
+
+    /**
+     * Normalizes a name for lookups: lower case, with runs of other characters
+     * than letters and digits replaced by a dash.
+     *
+     * @param name the name
+     * @return the normalized name
+     */
+    private static String normalize( String name ) {
+        return name.toLowerCase().replaceAll( "[^a-z0-9]+", "-" ).replaceAll( "^-|-$", "" );
+    }
+}
@@ -0,0 +1,243 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * The class <b>PatternReader</b> parses RLE and plaintext pattern files.
+ * Headers are parsed into a <b>Pattern</b>, and tiles are streamed one character at a time
+ * straight into a model, runs of active tiles being written with GameModel.selectRun().
+ * Multi-state RLE patterns draw each tile in its state; states the model does not have,
+ * such as every state other than "dead" in a two-state model, are drawn active.
+ *
+ * @author Igor Grebenkov
+ */
+class PatternReader {
+
+    /**
+     * Parses the header of a pattern: its name, size, origin and rule.
+     *
+     * @param in          the reader over the pattern, positioned at its start
+     * @param rle         whether the pattern is in RLE rather than plaintext format
+     * @param defaultName the name used if the file does not name the pattern
+     * @param location    the path of the file or the name of the resource
+     * @param resource    whether the location is a resource of the game
+     * @return the description of the pattern
+     * @throws IOException if the pattern cannot be read or has no valid header
+     */
+    static Pattern readHeader( BufferedReader in, boolean rle, String defaultName,
+                               String location, boolean resource ) throws IOException {
+        String name = defaultName;
+        String rule = null;
+        int width = 0, height = 0;
+        Integer originX = null, originY = null;
+        String line;
+
+        if ( rle ) {
+            // Comment lines come first, then the "x = m, y = n[, rule = r]" line
+            while ( ( line = in.readLine() ) != null ) {
+                line = line.trim();
+                if ( line.startsWith( "#N" ) ) {
+                    name = line.substring( 2 ).trim();
+                } else if ( line.startsWith( "#R" ) || line.startsWith( "#P" ) ) {
+                    String[] values = line.substring( 2 ).trim().split( "\\s+" );
+                    originX = parseInt( values[ 0 ], location );
+                    originY = parseInt( values.length > 1 ? values[ 1 ] : "", location );
+                } else if ( line.startsWith( "x" ) ) {
+                    for ( String field : line.split( "," ) ) {
+                        String[] keyValue = field.split( "=" );
+                        String key = keyValue[ 0 ].trim();
+                        String value = keyValue.length > 1 ? keyValue[ 1 ].trim() : "";
+                        if ( key.equals( "x" ) ) {
+                            width = parseInt( value, location );
+                        } else if ( key.equals( "y" ) ) {
+                            height = parseInt( value, location );
+                        } else if ( key.equals( "rule" ) ) {
+                            rule = value;
+                        }
+                    }
+                    break;
+                } else if ( !line.isEmpty() && !line.startsWith( "#" ) ) {
+                    throw new IOException( "Missing RLE header in " + location );
+                }
+            }
+            if ( line == null ) {
+                throw new IOException( "Missing RLE header in " + location );
+            }
+        } else {
+            // The size of a plaintext pattern is only known once every row has been read
+            int rows = 0;
+            while ( ( line = in.readLine() ) != null ) {
+                if ( line.startsWith( "!" ) ) {
+                    if ( line.startsWith( "!Name:" ) ) {
+                        name = line.substring( 6 ).trim();
+                    }
+                    continue;
+                }
+                rows++;
+                int length = line.trim().isEmpty() ? 0 : line.replaceAll( "\\s+$", "" ).length();
+                if ( length > 0 ) {
+                    width = Math.max( width, length );
+                    height = rows;
+                }
+            }
+        }
+
+        // Patterns without an origin are centred on the target tile
+        return new Pattern( name, location, resource, rle, width, height,
+                originX != null ? originX : -( width / 2 ), originY != null ? originY : -( height / 2 ), rule );
+    }
+
+    /**
+     * Streams the active tiles of a pattern into a model. Tiles outside the grid are skipped.
+     *
+     * @param in        the reader over the pattern, positioned at its start
+     * @param rle       whether the pattern is in RLE rather than plaintext format
+     * @param gameModel the model to draw in
+     * @param left      the column of the pattern's left edge in the model
+     * @param top       the row of the pattern's top edge in the model
+     * @throws IOException if the pattern cannot be read
+     */
+    static void readTiles( BufferedReader in, boolean rle, GameModel gameModel, int left, int top )
+            throws IOException {
+        if ( rle ) {
+            readRleTiles( in, gameModel, left, top );
+        } else {
+            readPlaintextTiles( in, gameModel, left, top );
+        }
+    }
+
+    /**
+     * Streams the tiles of an RLE pattern: runs of "b" (dead) and other letters (alive),
+     * "$" ending rows, "!" ending the pattern, each optionally preceded by a count.
+     * Multi-state patterns use "." for state 0, "A" to "X" for states 1 to 24 and a prefix
+     * from "p" to "y" adding 24 to 240 to the state of the letter that follows.
+     */
+    private static void readRleTiles( BufferedReader in, GameModel gameModel, int left, int top )
+            throws IOException {
+        int x = 0, y = 0, count = 0;
+        int prefix = 0;             // State added by a multi-state prefix
+        boolean lineStart = true;   // Whether the next character starts a line
+        boolean data = false;       // Whether the tiles have started
+        int c;
+
+        while ( ( c = in.read() ) != -1 ) {
+            if ( lineStart && !data && ( c == '#' || c == 'x' ) ) {
+                skipLine( in );
+                continue;
+            }
+            lineStart = c == '\n';
+
+            if ( c >= '0' && c <= '9' ) {
+                count = count * 10 + ( c - '0' );
+                continue;
+            }
+            if ( c >= 'p' && c <= 'y' ) {
+                // Prefix of a multi-state tile, the letter that follows completes it
+                prefix = ( c - 'p' + 1 ) * 24;
+                continue;
+            }
+            int run = count == 0 ? 1 : count;
+
+            if ( c == 'b' || c == '.' ) {
+                x += run;
+            } else if ( c == '$' ) {
+                y += run;
+                x = 0;
+            } else if ( c == '!' ) {
+                return;
+            } else if ( c >= 'A' && c <= 'X' ) {
+                int state = prefix + c - 'A' + 1;
+                drawRun( gameModel, left + x, top + y, run, state < gameModel.getNumberOfStates() ? state : GameModel.ACTIVE );
+                x += run;
+            } else if ( Character.isLetter( c ) ) {
+                selectRun( gameModel, left + x, top + y, run );
+                x += run;
+            } else {
+                // Whitespace between tokens
+                continue;
+            }
+            count = 0;
+            prefix = 0;
+            data = true;
+        }
+    }
+
+    /**
+     * Streams the tiles of a plaintext pattern: one row per line, "O" or "*" for active tiles,
+     * lines starting with "!" being comments.
+     */
+    private static void readPlaintextTiles( BufferedReader in, GameModel gameModel, int left, int top )
+            throws IOException {
+        int x = 0, y = 0;
+        boolean lineStart = true;
+        int c;
+
+        while ( ( c = in.read() ) != -1 ) {
+            if ( lineStart && c == '!' ) {
+                skipLine( in );
+                continue;
+            }
+            lineStart = c == '\n';
+
+            if ( c == '\n' ) {
+                y++;
+                x = 0;
+            } else if ( c == 'O' || c == '*' ) {
+                selectRun( gameModel, left + x, top + y, 1 );
+                x++;
+            } else if ( c != '\r' ) {
+                x++;
+            }
+        }
+    }
+
+    /**
+     * Activates the part of a run of tiles that lies inside the grid.
+     */
+    private static void selectRun( GameModel gameModel, int i, int j, int length ) {
+        int from = Math.max( i, 0 );
+        int to = ( int ) Math.min( ( long ) i + length, gameModel.getWidth() );
+
+        if ( j >= 0 && j < gameModel.getHeight() && from < to ) {
+            gameModel.selectRun( from, j, to - from );
+        }
+    }
+
+    /**
+     * Puts the part of a run of tiles that lies inside the grid in a state.
+     */
+    private static void drawRun( GameModel gameModel, int i, int j, int length, int state ) {
+        if ( state == GameModel.ACTIVE ) {
+            selectRun( gameModel, i, j, length );
+            return;
+        }
+        int from = Math.max( i, 0 );
+        int to = ( int ) Math.min( ( long ) i + length, gameModel.getWidth() );
+
+        if ( j >= 0 && j < gameModel.getHeight() ) {
+            for ( int x = from; x < to; x++ ) {
+                gameModel.setTileState( x, j, state );
+            }
+        }
+    }
+
+    /**
+     * Skips the rest of the current line.
+     */
+    private static void skipLine( BufferedReader in ) throws IOException {
+        int c;
+        do {
+            c = in.read();
+        } while ( c != -1 && c != '\n' );
+    }
+
+    /**
+     * Parses an integer of a pattern header.
+     */
+    private static int parseInt( String value, String location ) throws IOException {
+        try {
+            return Integer.parseInt( value );
+        } catch ( NumberFormatException e ) {
+            throw new IOException( "Invalid number \"" + value + "\" in " + location );
+        }
+    }
+}
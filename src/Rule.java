@@ -0,0 +1,225 @@
+/**
+ * The class <b>Rule</b> describes a Life-like rule in B/S notation: the numbers of active
+ * neighbours for which an inactive tile becomes active (birth) and an active tile stays
+ * active (survival). Conway's game is B3/S23, HighLife B36/S23, Day &amp; Night B3678/S34678
+ * and Seeds B2/S.
+ * <p>
+ * A rule is compiled into a lookup table giving the next status of a tile for each of the
+ * 512 possible states of its 3x3 neighbourhood, and into the masks of a fixed bitwise expression
+ * over the neighbour count planes, evaluated by the kernel of <b>PackedStepEngine</b>. Rules are immutable.
+ *
+ * @author Igor Grebenkov
+ */
+public final class Rule {
+
+    public static final Rule CONWAY = parse( "B3/S23" );               // Conway's Game of Life
+    public static final Rule HIGHLIFE = parse( "B36/S23" );            // HighLife
+    public static final Rule DAY_AND_NIGHT = parse( "B3678/S34678" );  // Day & Night
+    public static final Rule SEEDS = parse( "B2/S" );                  // Seeds
+    public static final int CENTRE_BIT = 4;     // Bit of the tile itself in a neighbourhood
+
+    private final int births;           // Bit n is set if a tile with n neighbours is born
+    private final int survivals;        // Bit n is set if a tile with n neighbours survives
+    private final byte[] table;         // Next status of a tile for each state of its neighbourhood
+    private final long[] planeMasks;    // Coefficients of the next status over the neighbour count planes
+
+    /**
+     * Constructor to initialize a rule from its birth and survival counts.
+     *
+     * @param births    bit n is set if a tile with n neighbours is born
+     * @param survivals bit n is set if a tile with n neighbours survives
+     */
+    public Rule( int births, int survivals ) {
+        if ( ( births | survivals ) >>> 9 != 0 ) {
+            throw new IllegalArgumentException( "A tile has at most 8 neighbours" );
+        }
+        this.births = births;
+        this.survivals = survivals;
+
+        table = new byte[ 512 ];
+        for ( int neighbourhood = 0; neighbourhood < 512; neighbourhood++ ) {
+            boolean alive = ( neighbourhood >>> CENTRE_BIT & 1 ) == 1;
+            int neighbours = Integer.bitCount( neighbourhood & ~( 1 << CENTRE_BIT ) );
+            table[ neighbourhood ] = ( byte ) ( alive ? survivals >>> neighbours & 1 : births >>> neighbours & 1 );
+        }
+
+        // The next status of a tile with n = 4 * fours + 2 * twos + ones neighbours, written as an exclusive
+        // or of products of its status and the planes, so that every rule is the same expression: the
+        // coefficient of a product is the exclusive or of the next status over the subsets of its factors
+        planeMasks = new long[ 18 ];
+        for ( int term = 0; term < 4; term++ ) {
+            for ( int product = 0; product < 4; product++ ) {
+                int coefficient = 0;
+                for ( int t = 0; t < 4; t++ ) {
+                    for ( int p = 0; p < 4; p++ ) {
+                        if ( ( t & ~term ) == 0 && ( p & ~product ) == 0 ) {
+                            int neighbours = 4 * ( p & 1 ) + 2 * ( p >>> 1 ) + ( t >>> 1 );
+                            coefficient ^= ( ( t & 1 ) == 1 ? survivals : births ) >>> neighbours & 1;
+                        }
+                    }
+                }
+                planeMasks[ 4 * term + product ] = -( long ) coefficient;
+            }
+        }
+
+        // With eight neighbours the other planes are clear, so the status is corrected afterwards
+        planeMasks[ 16 ] = -( long ) ( births >>> 8 & 1 );
+        planeMasks[ 17 ] = -( long ) ( ( births ^ survivals ) >>> 8 & 1 );
+    }
+
+    /**
+     * Parses a rule in B/S notation, such as "B3/S23", or in the older S/B notation, such as "23/3".
+     *
+     * @param notation the rule
+     * @return the rule
+     * @throws IllegalArgumentException if the notation is not valid
+     */
+    public static Rule parse( String notation ) {
+        String[] parts = notation.trim().toUpperCase().split( "/", -1 );
+        if ( parts.length != 2 ) {
+            throw new IllegalArgumentException( "Not a B/S rule: " + notation );
+        }
+        String birth, survival;
+        if ( parts[ 0 ].startsWith( "B" ) && parts[ 1 ].startsWith( "S" ) ) {
+            birth = parts[ 0 ].substring( 1 );
+            survival = parts[ 1 ].substring( 1 );
+        } else if ( parts[ 0 ].startsWith( "S" ) && parts[ 1 ].startsWith( "B" ) ) {
+            birth = parts[ 1 ].substring( 1 );
+            survival = parts[ 0 ].substring( 1 );
+        } else {
+            birth = parts[ 1 ];
+            survival = parts[ 0 ];
+        }
+        return new Rule( parseCounts( birth, notation ), parseCounts( survival, notation ) );
+    }
+
+    /**
+     * Getter method for the next status of a tile.
+     *
+     * @param status     the current status of the tile
+     * @param neighbours the number of active neighbours
+     * @return the status (active or inactive) of the tile in the next generation
+     */
+    public int nextStatus( int status, int neighbours ) {
+        return ( status == GameModel.ACTIVE ? survivals : births ) >>> neighbours & 1;
+    }
+
+    /**
+     * Checks whether a tile with a number of neighbours is born.
+     *
+     * @param neighbours the number of active neighbours
+     * @return true if an inactive tile becomes active
+     */
+    public boolean isBorn( int neighbours ) {
+        return ( births >>> neighbours & 1 ) == 1;
+    }
+
+    /**
+     * Checks whether a tile with a number of neighbours survives.
+     *
+     * @param neighbours the number of active neighbours
+     * @return true if an active tile stays active
+     */
+    public boolean survives( int neighbours ) {
+        return ( survivals >>> neighbours & 1 ) == 1;
+    }
+
+    /**
+     * Getter method for the birth counts.
+     *
+     * @return bit n is set if a tile with n neighbours is born
+     */
+    public int getBirths() {
+        return births;
+    }
+
+    /**
+     * Getter method for the survival counts.
+     *
+     * @return bit n is set if a tile with n neighbours survives
+     */
+    public int getSurvivals() {
+        return survivals;
+    }
+
+    /**
+     * Checks whether the rule is Conway's B3/S23.
+     *
+     * @return true for Conway's rule
+     */
+    public boolean isConway() {
+        return births == CONWAY.births && survivals == CONWAY.survivals;
+    }
+
+    /**
+     * Getter method for the lookup table, indexed by the state of a 3x3 neighbourhood
+     * with one bit per tile, the tile itself being CENTRE_BIT. Must not be modified.
+     *
+     * @return the next status of the tile for each state of its neighbourhood
+     */
+    byte[] getTable() {
+        return table;
+    }
+
+    /**
+     * Getter method for the masks used by the bitwise kernel, all ones where a coefficient is set.
+     * The next status of 64 tiles is
+     * <pre>
+     *   result = C ^ ( alive &amp; A ) ^ ( ones &amp; O ) ^ ( alive &amp; ones &amp; X )
+     *   result ^= eights &amp; ( result ^ masks[ 16 ] ^ ( alive &amp; masks[ 17 ] ) )
+     * </pre>
+     * where C, A, O and X are each m0 ^ ( fours &amp; m1 ) ^ ( twos &amp; m2 ) ^ ( fours &amp; twos &amp; m3 ), with the
+     * masks m0 to m3 at indexes 0, 4, 8 and 12 respectively. Must not be modified.
+     *
+     * @return the 18 masks
+     */
+    long[] getPlaneMasks() {
+        return planeMasks;
+    }
+
+    /**
+     * Returns the rule in B/S notation.
+     *
+     * @return the rule, for example "B3/S23"
+     */
+    @Override
+    public String toString() {
+        StringBuilder notation = new StringBuilder( "B" );
+        for ( int n = 0; n <= 8; n++ ) {
+            if ( isBorn( n ) ) {
+                notation.append( n );
+            }
+        }
+        notation.append( "/S" );
+        for ( int n = 0; n <= 8; n++ ) {
+            if ( survives( n ) ) {
+                notation.append( n );
+            }
+        }
+        return notation.toString();
+    }
+
+    @Override
+    public boolean equals( Object other ) {
+        return other instanceof Rule && ( ( Rule ) other ).births == births && ( ( Rule ) other ).survivals == survivals;
+    }
+
+    @Override
+    public int hashCode() {
+        return births << 9 | survivals;
+    }
+
+    /**
+     * Parses a list of neighbour counts, such as "23".
+     */
+    private static int parseCounts( String digits, String notation ) {
+        int counts = 0;
+        for ( char digit : digits.toCharArray() ) {
+            if ( digit < '0' || digit > '8' ) {
+                throw new IllegalArgumentException( "Not a B/S rule: " + notation );
+            }
+            counts |= 1 << ( digit - '0' );
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,399 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The class <b>ShardCoordinator</b> runs a board split into rectangular shards, each stepped by a
+ * <b>ShardWorker</b> process, so that the work and the memory of each generation are spread over
+ * several JVMs, on one machine or several. The shards exchange their borders directly with each
+ * other before each generation; the coordinator only hands out the shards, holds a barrier after
+ * each generation, adds up the population of the board and gathers the shards back at the end.
+ * <p>
+ * The board is filled exactly as <b>HeadlessRunner</b> fills it, and every shard is stepped by the
+ * same kernel, so a run prints the same population and checksum as a HeadlessRunner run with the
+ * same options. Only the dead and torus boundaries are supported, and only two-state rules.
+ * <p>
+ * Usage: java ShardCoordinator [--size n|WxH] [--shards n|CxR] [--generations n]
+ *        [--pattern name|file | --density p | --load board] [--seed n] [--save board]
+ *        [--port p] [--bind address] [--spawn true] [--report n]
+ * --shards n splits the board into n bands of rows, CxR into C columns and R rows of shards. With
+ * --spawn true the workers are started as local processes, otherwise the coordinator waits for
+ * them to connect. The coordinator only listens on the loopback address unless --bind gives
+ * another one, such as 0.0.0.0 for every interface, so that workers on other machines can reach
+ * it. --report n prints the population every n generations.
+ *
+ * @author Igor Grebenkov
+ */
+public class ShardCoordinator {
+
+    private final GameModel gameModel;      // The whole board, read before the run and written after it
+    private final int columns;              // Number of shards across the board
+    private final int rows;                 // Number of shards down the board
+    private final Socket[] sockets;         // Connections to the workers, shard after shard, row after row
+    private final DataInputStream[] inputs;     // Streams from the workers
+    private final DataOutputStream[] outputs;   // Streams to the workers
+    private long generation;                // Number of generations computed by every worker
+
+    /**
+     * The <b>main</b> method of the coordinator.
+     *
+     * @param args the command line options
+     */
+    public static void main( String[] args ) {
+        int width = 49;
+        int height = 49;
+        int columns = 1;
+        int rows = 2;
+        long generations = 1000;
+        String pattern = null;
+        String load = null;
+        String save = null;
+        double density = 1.0 / 30;
+        long seed = System.nanoTime();
+        int port = ShardProtocol.DEFAULT_PORT;
+        String bind = null;
+        boolean spawn = false;
+        long report = 0;
+
+        for ( int i = 0; i < args.length; i++ ) {
+            String option = args[ i ];
+            if ( i + 1 >= args.length ) {
+                usage( "Missing value for " + option );
+            }
+            String value = args[ ++i ];
+            int separator = value.indexOf( 'x' );
+            switch ( option ) {
+                case "--size":
+                    width = Integer.parseInt( separator < 0 ? value : value.substring( 0, separator ) );
+                    height = separator < 0 ? width : Integer.parseInt( value.substring( separator + 1 ) );
+                    break;
+                case "--shards":
+                    columns = separator < 0 ? 1 : Integer.parseInt( value.substring( 0, separator ) );
+                    rows = Integer.parseInt( separator < 0 ? value : value.substring( separator + 1 ) );
+                    break;
+                case "--generations":
+                    generations = Long.parseLong( value );
+                    break;
+                case "--pattern":
+                    pattern = value;
+                    break;
+                case "--load":
+                    load = value;
+                    break;
+                case "--save":
+                    save = value;
+                    break;
+                case "--density":
+                    density = Double.parseDouble( value );
+                    break;
+                case "--seed":
+                    seed = Long.parseLong( value );
+                    break;
+                case "--port":
+                    port = Integer.parseInt( value );
+                    break;
+                case "--bind":
+                    bind = value;
+                    break;
+                case "--spawn":
+                    spawn = Boolean.parseBoolean( value );
+                    break;
+                case "--report":
+                    report = Long.parseLong( value );
+                    break;
+                default:
+                    usage( "Unknown option " + option );
+            }
+        }
+
+        GameModel gameModel;
+        long firstGeneration = 0;
+        if ( load != null ) {
+            try {
+                BoardFile header = BoardFile.readHeader( new File( load ) );
+                gameModel = StepEngines.createModel( header.getWidth(), header.getHeight() );
+                firstGeneration = BoardFile.load( new File( load ), gameModel ).getGeneration();
+            } catch ( IOException e ) {
+                usage( "Cannot load " + load + ": " + e.getMessage() );
+                return;
+            }
+        } else {
+            gameModel = StepEngines.createModel( width, height );
+            if ( pattern != null ) {
+                if ( !Boards.drawPattern( gameModel, pattern ) ) {
+                    usage( "Unknown pattern or grid too small: " + pattern );
+                }
+            } else {
+                Boards.randomize( gameModel, new Random( seed ), density );
+            }
+        }
+        if ( gameModel instanceof MultiStateGameModel ) {
+            usage( "Shards only support two-state rules" );
+        }
+        if ( gameModel.getBoundary() != Boundary.DEAD && gameModel.getBoundary() != Boundary.TORUS ) {
+            usage( "Shards only support the dead and torus boundaries" );
+        }
+        if ( columns < 1 || rows < 1 || columns > gameModel.getWidth() || rows > gameModel.getHeight() ) {
+            usage( "Cannot split a " + gameModel.getWidth() + "x" + gameModel.getHeight() + " grid into "
+                    + columns + "x" + rows + " shards" );
+        }
+
+        InetAddress address = InetAddress.getLoopbackAddress();
+        if ( bind != null ) {
+            try {
+                address = InetAddress.getByName( bind );
+            } catch ( IOException e ) {
+                usage( "Unknown bind address " + bind );
+            }
+        }
+
+        List< Process > processes = new ArrayList< Process >();
+        try ( ServerSocket server = new ServerSocket( port, 0, address ) ) {
+            if ( spawn ) {
+                for ( int w = 0; w < columns * rows; w++ ) {
+                    processes.add( spawnWorker( server.getLocalPort() ) );
+                }
+            }
+            ShardCoordinator coordinator = new ShardCoordinator( gameModel, columns, rows );
+            coordinator.start( server );
+
+            long start = System.nanoTime();
+            for ( long g = 1; g <= generations; g++ ) {
+                long population = coordinator.step();
+                if ( report > 0 && g % report == 0 ) {
+                    System.out.printf( "generation %d: population %d%n", firstGeneration + g, population );
+                }
+            }
+            double seconds = ( System.nanoTime() - start ) / 1e9;
+            coordinator.gather();
+
+            System.out.printf( "shards:        %dx%d, %d workers%n", columns, rows, columns * rows );
+            System.out.printf( "grid:          %dx%d, %s, %s%n", gameModel.getWidth(), gameModel.getHeight(),
+                    gameModel.getRule(), gameModel.getBoundary().name().toLowerCase() );
+            System.out.printf( "generations:   %d in %.3f s%n", generations, seconds );
+            System.out.printf( "throughput:    %.1f gens/sec, %.3e cells/sec%n", generations / seconds,
+                    generations * ( double ) gameModel.getWidth() * gameModel.getHeight() / seconds );
+            System.out.printf( "population:    %d%n", Boards.population( gameModel ) );
+            System.out.printf( "checksum:      %016x%n", BoardFile.checksum( gameModel ) );
+            if ( save != null ) {
+                BoardFile.save( gameModel, firstGeneration + generations, new File( save ), true );
+            }
+            for ( Process process : processes ) {
+                process.waitFor();
+            }
+        } catch ( IOException e ) {
+            System.err.println( "IOException: " + e.getMessage() );
+            for ( Process process : processes ) {
+                process.destroy();
+            }
+            System.exit( 1 );
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Constructor to initialize a coordinator splitting a board into shards.
+     *
+     * @param gameModel the board
+     * @param columns   the number of shards across the board
+     * @param rows      the number of shards down the board
+     */
+    public ShardCoordinator( GameModel gameModel, int columns, int rows ) {
+        this.gameModel = gameModel;
+        this.columns = columns;
+        this.rows = rows;
+        sockets = new Socket[ columns * rows ];
+        inputs = new DataInputStream[ columns * rows ];
+        outputs = new DataOutputStream[ columns * rows ];
+    }
+
+    /**
+     * Waits for a worker per shard to connect, then sends every worker its shard and the
+     * addresses of its east and south neighbours.
+     *
+     * @param server the socket the workers connect to
+     * @throws IOException if a worker fails or does not speak the protocol
+     */
+    public void start( ServerSocket server ) throws IOException {
+        String[] hosts = new String[ sockets.length ];
+        int[] ports = new int[ sockets.length ];
+        for ( int s = 0; s < sockets.length; s++ ) {
+            sockets[ s ] = server.accept();
+            inputs[ s ] = ShardProtocol.input( sockets[ s ] );
+            outputs[ s ] = ShardProtocol.output( sockets[ s ] );
+            if ( inputs[ s ].readInt() != ShardProtocol.MAGIC || inputs[ s ].readInt() != ShardProtocol.VERSION ) {
+                throw new IOException( "Not a worker: " + sockets[ s ].getRemoteSocketAddress() );
+            }
+            hosts[ s ] = sockets[ s ].getInetAddress().getHostAddress();
+            ports[ s ] = inputs[ s ].readInt();
+        }
+
+        boolean torus = gameModel.getBoundary() == Boundary.TORUS;
+        long[] row = new long[ PackedGameModel.wordsFor( gameModel.getWidth() ) ];
+        long[] shardRow = new long[ PackedGameModel.wordsFor( shardWidth( 0 ) + 1 ) ];
+        for ( int sy = 0; sy < rows; sy++ ) {
+            for ( int sx = 0; sx < columns; sx++ ) {
+                DataOutputStream out = outputs[ sy * columns + sx ];
+                int east = sx + 1 < columns ? sy * columns + sx + 1 : torus ? sy * columns : -1;
+                int south = sy + 1 < rows ? ( sy + 1 ) * columns + sx : torus ? sx : -1;
+
+                out.writeInt( shardWidth( sx ) );
+                out.writeInt( shardHeight( sy ) );
+                out.writeUTF( gameModel.getRule().toString() );
+                for ( int neighbour : new int[]{ east, south } ) {
+                    out.writeBoolean( neighbour >= 0 );
+                    if ( neighbour >= 0 ) {
+                        out.writeUTF( hosts[ neighbour ] );
+                        out.writeInt( ports[ neighbour ] );
+                    }
+                }
+                out.writeBoolean( sx > 0 || torus );
+                out.writeBoolean( sy > 0 || torus );
+            }
+
+            // The rows of the band, cut into the shards across it
+            for ( int j = top( sy ); j < top( sy + 1 ); j++ ) {
+                gameModel.readRow( j, row, 0 );
+                for ( int sx = 0; sx < columns; sx++ ) {
+                    int words = PackedGameModel.wordsFor( shardWidth( sx ) );
+                    ShardProtocol.copyBits( row, left( sx ), shardRow, 0, shardWidth( sx ) );
+                    ShardProtocol.writeWords( outputs[ sy * columns + sx ], shardRow, 0, words );
+                }
+            }
+            for ( int sx = 0; sx < columns; sx++ ) {
+                outputs[ sy * columns + sx ].flush();
+            }
+        }
+    }
+
+    /**
+     * Has every worker compute the next generation of its shard, and waits for all of them.
+     *
+     * @return the population of the board
+     * @throws IOException if a worker fails
+     */
+    public long step() throws IOException {
+        for ( DataOutputStream out : outputs ) {
+            out.writeInt( ShardProtocol.CONTINUE );
+            out.flush();
+        }
+        generation++;
+        long population = 0;
+        for ( int s = 0; s < inputs.length; s++ ) {
+            if ( inputs[ s ].readLong() != generation ) {
+                throw new IOException( "Shard " + s + " is out of step at generation " + generation );
+            }
+            population += inputs[ s ].readLong();
+        }
+        return population;
+    }
+
+    /**
+     * Ends the run, copying every shard back into the board.
+     *
+     * @throws IOException if a worker fails
+     */
+    public void gather() throws IOException {
+        for ( DataOutputStream out : outputs ) {
+            out.writeInt( ShardProtocol.GATHER );
+            out.flush();
+        }
+        long[] row = new long[ PackedGameModel.wordsFor( gameModel.getWidth() ) ];
+        for ( int sy = 0; sy < rows; sy++ ) {
+            long[][][] band = new long[ columns ][][];
+            for ( int sx = 0; sx < columns; sx++ ) {
+                band[ sx ] = new long[ shardHeight( sy ) ][ PackedGameModel.wordsFor( shardWidth( sx ) ) ];
+                for ( long[] shardRow : band[ sx ] ) {
+                    ShardProtocol.readWords( inputs[ sy * columns + sx ], shardRow, 0, shardRow.length );
+                }
+            }
+            for ( int j = 0; j < shardHeight( sy ); j++ ) {
+                for ( int sx = 0; sx < columns; sx++ ) {
+                    ShardProtocol.copyBits( band[ sx ][ j ], 0, row, left( sx ), shardWidth( sx ) );
+                }
+                gameModel.writeRow( top( sy ) + j, row, 0 );
+            }
+        }
+        for ( Socket socket : sockets ) {
+            socket.close();
+        }
+    }
+
+    /**
+     * Getter method for the number of generations computed by every worker.
+     *
+     * @return the number of generations
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * The x co-ordinate of the first column of a column of shards, or the width of the board past the last.
+     */
+    private int left( int sx ) {
+        return ( int ) ( ( long ) sx * gameModel.getWidth() / columns );
+    }
+
+    /**
+     * The y co-ordinate of the first row of a row of shards, or the height of the board past the last.
+     */
+    private int top( int sy ) {
+        return ( int ) ( ( long ) sy * gameModel.getHeight() / rows );
+    }
+
+    /**
+     * The number of columns of the shards of a column of shards.
+     */
+    private int shardWidth( int sx ) {
+        return left( sx + 1 ) - left( sx );
+    }
+
+    /**
+     * The number of rows of the shards of a row of shards.
+     */
+    private int shardHeight( int sy ) {
+        return top( sy + 1 ) - top( sy );
+    }
+
+    /**
+     * Starts a worker as a local process running on the same Java and class path.
+     *
+     * @param port the port the coordinator listens on
+     * @return the process
+     * @throws IOException if the process cannot be started
+     */
+    private static Process spawnWorker( int port ) throws IOException {
+        List< String > command = new ArrayList< String >();
+        command.add( System.getProperty( "java.home" ) + File.separator + "bin" + File.separator + "java" );
+        command.add( "-cp" );
+        command.add( System.getProperty( "java.class.path" ) );
+        if ( System.getProperty( StepEngines.THREADS_PROPERTY ) != null ) {
+            command.add( "-D" + StepEngines.THREADS_PROPERTY + "=" + System.getProperty( StepEngines.THREADS_PROPERTY ) );
+        }
+        command.add( "ShardWorker" );
+        command.add( "localhost:" + port );
+        return new ProcessBuilder( command ).inheritIO().start();
+    }
+
+    /**
+     * Prints the usage of the coordinator and exits.
+     *
+     * @param message the reason the arguments were rejected
+     */
+    private static void usage( String message ) {
+        System.err.println( message );
+        System.err.println( "Usage: java ShardCoordinator [--size n|WxH] [--shards n|CxR] [--generations n] " +
+                "[--pattern name|file.rle|file.cells | --density p | --load file.gol] [--seed n] [--save file.gol] " +
+                "[--port p] [--bind address] [--spawn true] [--report n]" );
+        System.exit( 2 );
+    }
+}
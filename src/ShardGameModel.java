@@ -0,0 +1,119 @@
+/**
+ * The class <b>ShardGameModel</b> is a <b>PackedGameModel</b> holding one rectangular shard of a
+ * board stepped by several <b>ShardWorker</b> processes. The tiles seen beyond the edges of the
+ * shard are not given by a boundary but by the halos received from the neighbouring shards
+ * before each generation, so <b>PackedStepEngine</b> steps the shard exactly as it would step
+ * the same tiles of the whole board.
+ * <p>
+ * The west and east halos hold the columns left and right of the shard, one bit per row. The
+ * north and south halos hold the rows above and below it, from column -1 to column width, so
+ * that they also carry the corner tiles.
+ *
+ * @author Igor Grebenkov
+ */
+public class ShardGameModel extends PackedGameModel {
+
+    private final long[] westHalo;     // Tiles seen left of each row of the shard
+    private final long[] eastHalo;     // Tiles seen right of each row of the shard
+    private final long[] northHalo;    // Tiles seen above the shard, bit 0 being column -1
+    private final long[] southHalo;    // Tiles seen below the shard, bit 0 being column -1
+
+    /**
+     * Constructor to initialize a shard of a given width and height, with inactive halos.
+     *
+     * @param width  the number of columns of the shard
+     * @param height the number of rows of the shard
+     */
+    public ShardGameModel( int width, int height ) {
+        super( width, height );
+        westHalo = new long[ wordsFor( height ) ];
+        eastHalo = new long[ wordsFor( height ) ];
+        northHalo = new long[ wordsFor( width + 2 ) ];
+        southHalo = new long[ wordsFor( width + 2 ) ];
+    }
+
+    /**
+     * A shard keeps the dimensions its halos were sized for.
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void resize( int width, int height ) {
+        throw new UnsupportedOperationException( "A shard cannot be resized" );
+    }
+
+    /**
+     * The halos change every generation, so engines gather them every generation.
+     *
+     * @return false
+     */
+    @Override
+    public boolean hasInactiveGhosts() {
+        return false;
+    }
+
+    /**
+     * Getter method for the status of the tile seen at a position one tile outside the shard,
+     * as last received from the neighbouring shards.
+     *
+     * @param i the x co-ordinate of the position, from -1 to the width of the shard
+     * @param j the y co-ordinate of the position, from -1 to the height of the shard
+     * @return the status (active or inactive) of the tile seen at (i,j)
+     */
+    @Override
+    public int getGhostStatus( int i, int j ) {
+        if ( j < 0 ) {
+            return bit( northHalo, i + 1 );
+        } else if ( j >= getHeight() ) {
+            return bit( southHalo, i + 1 );
+        } else if ( i < 0 ) {
+            return bit( westHalo, j );
+        } else if ( i >= getWidth() ) {
+            return bit( eastHalo, j );
+        }
+        return getCurrentStatus( i, j );
+    }
+
+    /**
+     * Getter method for the column left of the shard, filled in place by <b>HaloExchange</b>.
+     *
+     * @return the tiles seen left of each row, one bit per row
+     */
+    public long[] getWestHalo() {
+        return westHalo;
+    }
+
+    /**
+     * Getter method for the column right of the shard, filled in place by <b>HaloExchange</b>.
+     *
+     * @return the tiles seen right of each row, one bit per row
+     */
+    public long[] getEastHalo() {
+        return eastHalo;
+    }
+
+    /**
+     * Getter method for the row above the shard, filled in place by <b>HaloExchange</b>.
+     *
+     * @return the tiles seen above the shard, from column -1 at bit 0 to column width
+     */
+    public long[] getNorthHalo() {
+        return northHalo;
+    }
+
+    /**
+     * Getter method for the row below the shard, filled in place by <b>HaloExchange</b>.
+     *
+     * @return the tiles seen below the shard, from column -1 at bit 0 to column width
+     */
+    public long[] getSouthHalo() {
+        return southHalo;
+    }
+
+    /**
+     * Reads a bit of a packed line of tiles.
+     */
+    private static int bit( long[] words, int k ) {
+        return ( int ) ( words[ k >>> 6 ] >>> k ) & 1;
+    }
+}
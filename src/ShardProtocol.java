@@ -0,0 +1,136 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+
+/**
+ * The class <b>ShardProtocol</b> holds the constants and helpers shared by <b>ShardCoordinator</b>,
+ * <b>ShardWorker</b> and <b>HaloExchange</b>. All messages are sent with DataOutputStream, in
+ * big-endian order:
+ * - worker to coordinator on connecting: MAGIC, VERSION, the port the worker accepts its neighbours on
+ * - coordinator to worker: the assignment of a shard, see ShardWorker, then its packed rows
+ * - worker to coordinator after each generation: the generation and the population of the shard
+ * - coordinator to worker once every shard reported: CONTINUE, or GATHER after the last generation
+ * - worker to coordinator on GATHER: the packed rows of the shard
+ * - worker to neighbour on connecting: FROM_WEST or FROM_NORTH, then one halo per generation and direction
+ *
+ * @author Igor Grebenkov
+ */
+final class ShardProtocol {
+
+    static final int MAGIC = 0x4A474F4C;    // "JGOL", opens every connection to the coordinator
+    static final int VERSION = 1;           // Version of the protocol
+    static final int CONTINUE = 1;          // Compute the next generation
+    static final int GATHER = 2;            // Send the shard back, the run is over
+    static final int FROM_WEST = 1;         // Opens a connection from the west neighbour
+    static final int FROM_NORTH = 2;        // Opens a connection from the north neighbour
+    static final int DEFAULT_PORT = 7700;   // Port the coordinator listens on by default
+
+    private ShardProtocol() {
+    }
+
+    /**
+     * Opens a buffered stream reading from a socket, with Nagle's algorithm disabled so that
+     * small halos are not delayed.
+     *
+     * @param socket the socket
+     * @return the stream
+     * @throws IOException if the socket is closed
+     */
+    static DataInputStream input( Socket socket ) throws IOException {
+        socket.setTcpNoDelay( true );
+        return new DataInputStream( new BufferedInputStream( socket.getInputStream() ) );
+    }
+
+    /**
+     * Opens a buffered stream writing to a socket. Messages must be flushed.
+     *
+     * @param socket the socket
+     * @return the stream
+     * @throws IOException if the socket is closed
+     */
+    static DataOutputStream output( Socket socket ) throws IOException {
+        socket.setTcpNoDelay( true );
+        return new DataOutputStream( new BufferedOutputStream( socket.getOutputStream() ) );
+    }
+
+    /**
+     * Writes a run of words.
+     *
+     * @param out    the stream
+     * @param words  the array holding the words
+     * @param offset the index of the first word
+     * @param length the number of words
+     * @throws IOException if the stream fails
+     */
+    static void writeWords( DataOutputStream out, long[] words, int offset, int length ) throws IOException {
+        for ( int w = offset; w < offset + length; w++ ) {
+            out.writeLong( words[ w ] );
+        }
+    }
+
+    /**
+     * Reads a run of words.
+     *
+     * @param in     the stream
+     * @param words  the array the words are read into
+     * @param offset the index of the first word
+     * @param length the number of words
+     * @throws IOException if the stream fails or ends
+     */
+    static void readWords( DataInputStream in, long[] words, int offset, int length ) throws IOException {
+        for ( int w = offset; w < offset + length; w++ ) {
+            words[ w ] = in.readLong();
+        }
+    }
+
+    /**
+     * Copies a run of bits between packed lines of tiles, leaving the other bits of the target unchanged.
+     *
+     * @param from    the packed line read
+     * @param fromBit the first bit read
+     * @param to      the packed line written
+     * @param toBit   the first bit written
+     * @param length  the number of bits
+     */
+    static void copyBits( long[] from, int fromBit, long[] to, int toBit, int length ) {
+        for ( int done = 0; done < length; done += 64 ) {
+            int n = Math.min( 64, length - done );
+            long mask = n == 64 ? -1L : ( 1L << n ) - 1;
+            long bits = readBits( from, fromBit + done ) & mask;
+
+            int w = ( toBit + done ) >>> 6;
+            int shift = ( toBit + done ) & 63;
+            to[ w ] = to[ w ] & ~( mask << shift ) | bits << shift;
+            if ( shift != 0 && shift + n > 64 ) {
+                to[ w + 1 ] = to[ w + 1 ] & ~( mask >>> ( 64 - shift ) ) | bits >>> ( 64 - shift );
+            }
+        }
+    }
+
+    /**
+     * Reads the 64 bits of a packed line starting at a bit, bits past the end being 0.
+     */
+    private static long readBits( long[] words, int bit ) {
+        int w = bit >>> 6;
+        int shift = bit & 63;
+        long low = w < words.length ? words[ w ] >>> shift : 0;
+        if ( shift == 0 || w + 1 >= words.length ) {
+            return low;
+        }
+        return low | words[ w + 1 ] << ( 64 - shift );
+    }
+
+    /**
+     * Sets or clears a bit of a packed line of tiles.
+     *
+     * @param words the packed line
+     * @param bit   the bit
+     * @param value 1 to set the bit, 0 to clear it
+     */
+    static void setBit( long[] words, int bit, int value ) {
+        words[ bit >>> 6 ] = words[ bit >>> 6 ] & ~( 1L << bit ) | ( long ) value << bit;
+    }
+}
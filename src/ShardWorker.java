@@ -0,0 +1,135 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/**
+ * The class <b>ShardWorker</b> is a process stepping one shard of a board run by a
+ * <b>ShardCoordinator</b>. It connects to the coordinator, receives its shard, connects to the
+ * workers of the neighbouring shards, then computes each generation the coordinator asks for:
+ * it exchanges halos with its neighbours through a <b>HaloExchange</b>, steps the shard with the
+ * packed engine and reports the population of the shard. Once the run is over it sends the
+ * shard back to the coordinator and exits.
+ * <p>
+ * Usage: java ShardWorker [host:port] [bind address], the coordinator listening on localhost:7700
+ * by default. The worker accepts its neighbours on the loopback address only, unless a bind
+ * address is given, such as 0.0.0.0 when the workers run on several machines. The shard is
+ * computed on the number of threads given by the gol.threads property.
+ * <p>
+ * The assignment of a shard is sent as the width and height of the shard, its rule in B/S
+ * notation, then for the east and south neighbours whether they exist and, if so, their host and
+ * port, then whether west and north neighbours will connect, and finally the packed rows of the shard.
+ *
+ * @author Igor Grebenkov
+ */
+public class ShardWorker {
+
+    /**
+     * The <b>main</b> method of the worker.
+     *
+     * @param args the address of the coordinator, host:port, then the address to accept the
+     *             neighbours on
+     */
+    public static void main( String[] args ) {
+        String address = args.length > 0 ? args[ 0 ] : "localhost:" + ShardProtocol.DEFAULT_PORT;
+        int separator = address.lastIndexOf( ':' );
+        try {
+            InetAddress bind = args.length > 1 ? InetAddress.getByName( args[ 1 ] ) : InetAddress.getLoopbackAddress();
+            run( address.substring( 0, separator ), Integer.parseInt( address.substring( separator + 1 ) ), bind );
+        } catch ( IOException e ) {
+            System.err.println( "IOException: " + e.getMessage() );
+            System.exit( 1 );
+        }
+    }
+
+    /**
+     * Runs the worker until the coordinator gathers the shard.
+     *
+     * @param host the host of the coordinator
+     * @param port the port of the coordinator
+     * @param bind the address to accept the neighbours on
+     * @throws IOException if the coordinator or a neighbour cannot be reached
+     */
+    static void run( String host, int port, InetAddress bind ) throws IOException {
+        try ( ServerSocket neighbours = new ServerSocket( 0, 0, bind ); Socket coordinator = new Socket( host, port ) ) {
+            DataInputStream in = ShardProtocol.input( coordinator );
+            DataOutputStream out = ShardProtocol.output( coordinator );
+            out.writeInt( ShardProtocol.MAGIC );
+            out.writeInt( ShardProtocol.VERSION );
+            out.writeInt( neighbours.getLocalPort() );
+            out.flush();
+
+            // The assignment
+            int width = in.readInt();
+            int height = in.readInt();
+            ShardGameModel gameModel = new ShardGameModel( width, height );
+            gameModel.setRule( Rule.parse( in.readUTF() ) );
+            Socket[] sockets = new Socket[ 4 ];
+            if ( in.readBoolean() ) {
+                sockets[ HaloExchange.EAST ] = connect( in.readUTF(), in.readInt(), ShardProtocol.FROM_WEST );
+            }
+            if ( in.readBoolean() ) {
+                sockets[ HaloExchange.SOUTH ] = connect( in.readUTF(), in.readInt(), ShardProtocol.FROM_NORTH );
+            }
+            int accepts = ( in.readBoolean() ? 1 : 0 ) + ( in.readBoolean() ? 1 : 0 );
+            long[] row = new long[ gameModel.getWordsPerRow() ];
+            for ( int j = 0; j < height; j++ ) {
+                ShardProtocol.readWords( in, row, 0, row.length );
+                gameModel.writeRow( j, row, 0 );
+            }
+
+            // The west and north neighbours connect to this worker, saying which one they are
+            for ( int a = 0; a < accepts; a++ ) {
+                Socket socket = neighbours.accept();
+                int from = new DataInputStream( socket.getInputStream() ).readInt();
+                sockets[ from == ShardProtocol.FROM_WEST ? HaloExchange.WEST : HaloExchange.NORTH ] = socket;
+            }
+
+            HaloExchange halos = new HaloExchange( gameModel, sockets );
+            StepEngine engine = gameModel.createStepEngine();
+            int threads = Integer.getInteger( StepEngines.THREADS_PROPERTY, 1 );
+            if ( threads > 1 ) {
+                engine = new ParallelStepEngine( ( BandedStepEngine ) engine, threads );
+            }
+            try {
+                long generation = 0;
+                while ( in.readInt() == ShardProtocol.CONTINUE ) {
+                    halos.exchange();
+                    engine.step();
+                    out.writeLong( ++generation );
+                    out.writeLong( Boards.population( gameModel ) );
+                    out.flush();
+                }
+                for ( int j = 0; j < height; j++ ) {
+                    gameModel.readRow( j, row, 0 );
+                    ShardProtocol.writeWords( out, row, 0, row.length );
+                }
+                out.flush();
+            } finally {
+                halos.close();
+                if ( engine instanceof ParallelStepEngine ) {
+                    ( ( ParallelStepEngine ) engine ).shutdown();
+                }
+            }
+        }
+    }
+
+    /**
+     * Connects to the worker of a neighbouring shard.
+     *
+     * @param host the host of the neighbour
+     * @param port the port the neighbour accepts its neighbours on
+     * @param from FROM_WEST if this worker is west of the neighbour, FROM_NORTH if it is north of it
+     * @return the socket
+     * @throws IOException if the neighbour cannot be reached
+     */
+    private static Socket connect( String host, int port, int from ) throws IOException {
+        Socket socket = new Socket( host, port );
+        DataOutputStream out = new DataOutputStream( socket.getOutputStream() );
+        out.writeInt( from );
+        out.flush();
+        return socket;
+    }
+}
@@ -0,0 +1,254 @@
+import java.util.Arrays;
+
+/**
+ * The class <b>SparseStepEngine</b> computes generations by only visiting active tiles
+ * and their neighbours, so its cost grows with the population rather than the area.
+ * Active tiles are kept in a <b>LongHashSet</b>, with the x co-ordinate in the high
+ * 32 bits of each key and the y co-ordinate in the low 32 bits.
+ * <p>
+ * On its own the engine runs on an unbounded board. Attached to a model, tiles are
+ * never born outside the model's grid, and the engine only reloads the model when it
+ * was changed by something else, writing back just the tiles that changed.
+ *
+ * @author Igor Grebenkov
+ */
+public class SparseStepEngine implements StepEngine {
+
+    private GameModel gameModel;        // Reference to the game's model, null for an unbounded board
+    private LongHashSet liveCells;      // Active tiles of the current generation
+    private LongHashSet nextLiveCells;  // Active tiles of the next generation
+    private LongHashSet candidates;     // Tiles with at least one active neighbour
+    private int[] neighbourCounts;      // Number of active neighbours of each candidate
+    private long seenModifications;     // Modification count of the model when last synchronized
+    private long generation;            // Number of generations advanced
+    private Rule rule = Rule.CONWAY;    // Rule computing each generation
+
+    /**
+     * Constructor to initialize an empty, unbounded board.
+     */
+    public SparseStepEngine() {
+        liveCells = new LongHashSet();
+        nextLiveCells = new LongHashSet();
+        candidates = new LongHashSet();
+        neighbourCounts = new int[ 64 ];
+    }
+
+    /**
+     * Constructor to initialize the engine for a given model.
+     *
+     * @param gameModel the game's model
+     */
+    public SparseStepEngine( GameModel gameModel ) {
+        this();
+        this.gameModel = gameModel;
+        load();
+    }
+
+    /**
+     * Advances the game's model by one generation.
+     */
+    public void step() {
+        setRule( gameModel.getRule() );
+        if ( gameModel.getModificationCount() != seenModifications ) {
+            load();
+        }
+        advance();
+
+        // Only write the tiles whose status changed
+        for ( int i = 0; i < nextLiveCells.size(); i++ ) {
+            long cell = nextLiveCells.get( i );
+            if ( !liveCells.contains( cell ) ) {
+                gameModel.unselectTile( x( cell ), y( cell ) );
+            }
+        }
+        for ( int i = 0; i < liveCells.size(); i++ ) {
+            long cell = liveCells.get( i );
+            if ( !nextLiveCells.contains( cell ) ) {
+                gameModel.selectTile( x( cell ), y( cell ) );
+            }
+        }
+        seenModifications = gameModel.getModificationCount();
+    }
+
+    /**
+     * Advances the board by one generation.
+     */
+    public void advance() {
+        // Count the active neighbours of every tile next to an active tile
+        candidates.clear();
+        for ( int i = 0; i < liveCells.size(); i++ ) {
+            long cell = liveCells.get( i );
+            int x = x( cell );
+            int y = y( cell );
+
+            for ( int dx = -1; dx <= 1; dx++ ) {
+                for ( int dy = -1; dy <= 1; dy++ ) {
+                    if ( dx != 0 || dy != 0 ) {
+                        int numberOfCandidates = candidates.size();
+                        int index = candidates.add( cell( x + dx, y + dy ) );
+
+                        if ( index == numberOfCandidates ) {
+                            if ( index == neighbourCounts.length ) {
+                                neighbourCounts = Arrays.copyOf( neighbourCounts, index * 2 );
+                            }
+                            neighbourCounts[ index ] = 1;
+                        } else {
+                            neighbourCounts[ index ]++;
+                        }
+                    }
+                }
+            }
+        }
+
+        // Keep the tiles born or surviving under the rule, only looking up
+        // whether a tile is active when the rule treats both cases differently
+        nextLiveCells.clear();
+        int width = gameModel == null ? 0 : gameModel.getWidth();
+        int height = gameModel == null ? 0 : gameModel.getHeight();
+        for ( int i = 0; i < candidates.size(); i++ ) {
+            long cell = candidates.get( i );
+            int count = neighbourCounts[ i ];
+            boolean born = rule.isBorn( count );
+
+            if ( born == rule.survives( count ) ? born : born != liveCells.contains( cell ) ) {
+                if ( gameModel == null || ( x( cell ) >= 0 && y( cell ) >= 0 &&
+                        x( cell ) < width && y( cell ) < height ) ) {
+                    nextLiveCells.add( cell );
+                }
+            }
+        }
+
+        // Active tiles without neighbours are not candidates
+        if ( rule.survives( 0 ) ) {
+            for ( int i = 0; i < liveCells.size(); i++ ) {
+                if ( !candidates.contains( liveCells.get( i ) ) ) {
+                    nextLiveCells.add( liveCells.get( i ) );
+                }
+            }
+        }
+
+        // The previous generation is kept in nextLiveCells until the next call
+        LongHashSet previous = liveCells;
+        liveCells = nextLiveCells;
+        nextLiveCells = previous;
+        generation++;
+    }
+
+    /**
+     * Setter method for the rule computing each generation.
+     *
+     * @param rule the rule
+     * @throws IllegalArgumentException if the rule gives birth to tiles without neighbours
+     */
+    public void setRule( Rule rule ) {
+        if ( rule.isBorn( 0 ) ) {
+            throw new IllegalArgumentException( "The sparse engine does not support B0 rules: " + rule );
+        }
+        this.rule = rule;
+    }
+
+    /**
+     * Getter method for the number of generations advanced.
+     *
+     * @return the number of generations advanced
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Getter method for the number of active tiles.
+     *
+     * @return the population
+     */
+    public int getPopulation() {
+        return liveCells.size();
+    }
+
+    /**
+     * Checks whether a tile is active.
+     *
+     * @param x the tile's x co-ordinate
+     * @param y the tile's y co-ordinate
+     * @return true if the tile is active
+     */
+    public boolean isAlive( int x, int y ) {
+        return liveCells.contains( cell( x, y ) );
+    }
+
+    /**
+     * Makes a tile of the board active.
+     *
+     * @param x the tile's x co-ordinate
+     * @param y the tile's y co-ordinate
+     */
+    public void setCell( int x, int y ) {
+        liveCells.add( cell( x, y ) );
+    }
+
+    /**
+     * Computes the smallest rectangle containing every active tile.
+     *
+     * @return the bounding box as { minX, minY, maxX, maxY } (inclusive), or null if the board is empty
+     */
+    public int[] getBoundingBox() {
+        if ( liveCells.size() == 0 ) {
+            return null;
+        }
+        int[] box = { Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE };
+        for ( int i = 0; i < liveCells.size(); i++ ) {
+            long cell = liveCells.get( i );
+            box[ 0 ] = Math.min( box[ 0 ], x( cell ) );
+            box[ 1 ] = Math.min( box[ 1 ], y( cell ) );
+            box[ 2 ] = Math.max( box[ 2 ], x( cell ) );
+            box[ 3 ] = Math.max( box[ 3 ], y( cell ) );
+        }
+        return box;
+    }
+
+    /**
+     * Replaces the board with the active tiles of the game's model.
+     */
+    private void load() {
+        liveCells.clear();
+        for ( int i = 0; i < gameModel.getWidth(); i++ ) {
+            for ( int j = 0; j < gameModel.getHeight(); j++ ) {
+                if ( gameModel.getCurrentStatus( i, j ) == GameModel.ACTIVE ) {
+                    liveCells.add( cell( i, j ) );
+                }
+            }
+        }
+        seenModifications = gameModel.getModificationCount();
+    }
+
+    /**
+     * Packs a tile's co-ordinates into a key.
+     *
+     * @param x the tile's x co-ordinate
+     * @param y the tile's y co-ordinate
+     * @return the key of the tile
+     */
+    private static long cell( int x, int y ) {
+        return ( ( long ) x << 32 ) | ( y & 0xFFFFFFFFL );
+    }
+
+    /**
+     * Unpacks the x co-ordinate of a key.
+     *
+     * @param cell the key of a tile
+     * @return the tile's x co-ordinate
+     */
+    private static int x( long cell ) {
+        return ( int ) ( cell >> 32 );
+    }
+
+    /**
+     * Unpacks the y co-ordinate of a key.
+     *
+     * @param cell the key of a tile
+     * @return the tile's y co-ordinate
+     */
+    private static int y( long cell ) {
+        return ( int ) cell;
+    }
+}
@@ -0,0 +1,26 @@
+/**
+ * The interface <b>StepEngine</b> is implemented by the classes that compute
+ * successive generations of the game. An engine reads the state of the game's
+ * model and replaces it with the state of the next generation.
+ *
+ * @author Igor Grebenkov
+ */
+public interface StepEngine {
+
+    /**
+     * Advances the game's model by one generation.
+     */
+    void step();
+
+    /**
+     * Advances the game's model by a number of generations. Engines able to compute several
+     * generations in one pass over the grid override it; the others step one generation at a time.
+     *
+     * @param generations the number of generations
+     */
+    default void step( int generations ) {
+        for ( int g = 0; g < generations; g++ ) {
+            step();
+        }
+    }
+}
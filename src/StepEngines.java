@@ -0,0 +1,155 @@
+/**
+ * The class <b>StepEngines</b> creates the game's model and step engine
+ * according to the following system properties:
+ * - gol.packed=true stores the grid with one bit per tile
+ * - gol.offheap=true stores the grid with one bit per tile in direct buffers outside the heap
+ * - gol.threads=n computes each generation on n threads
+ * - gol.engine=hashlife computes generations with the HashLife algorithm
+ * - gol.engine=sparse only visits active tiles and their neighbours
+ * - gol.engine=dirty skips the blocks of tiles that did not change
+ * - gol.engine=vector steps the bit-packed grid with the JDK Vector API when it is available
+ * - gol.engine=temporal steps the bit-packed grid several generations per pass over cache-sized blocks,
+ *   gol.temporal.generations=k generations per pass (8 by default), gol.temporal.rows and
+ *   gol.temporal.columns setting the size of the blocks (4096 columns by as many rows as stay in the cache)
+ * - gol.boundary=dead|torus|klein|mirror sets the topology of the edges of the grid
+ * - gol.rule=B3/S23 sets the rule in B/S notation, gol.rule=B2/S/C3 or gol.rule=Wireworld
+ *   stores one byte per tile for a multi-state rule
+ *
+ * @author Igor Grebenkov
+ */
+public class StepEngines {
+
+    public static final String PACKED_PROPERTY = "gol.packed";      // Selects the bit-packed model
+    public static final String OFF_HEAP_PROPERTY = "gol.offheap";   // Selects the off-heap bit-packed model
+    public static final String THREADS_PROPERTY = "gol.threads";    // Number of stepping threads
+    public static final String ENGINE_PROPERTY = "gol.engine";      // Name of the step engine
+    public static final String BOUNDARY_PROPERTY = "gol.boundary";  // Topology of the edges of the grid
+    public static final String RULE_PROPERTY = "gol.rule";          // Rule in B/S or B/S/C notation
+    public static final String TEMPORAL_GENERATIONS_PROPERTY = "gol.temporal.generations"; // Generations per pass
+    public static final String TEMPORAL_ROWS_PROPERTY = "gol.temporal.rows";   // Rows per block of the temporal engine
+    public static final String TEMPORAL_COLUMNS_PROPERTY = "gol.temporal.columns"; // Columns per block
+    private static final String VECTOR_ENGINE = "VectorStepEngine"; // Engine compiled from vector/src
+
+    /**
+     * Creates a model of a given width and height using the configured storage.
+     *
+     * @param width  the number of columns of the grid
+     * @param height the number of rows of the grid
+     * @return the game's model
+     */
+    public static GameModel createModel( int width, int height ) {
+        String rule = System.getProperty( RULE_PROPERTY, Rule.CONWAY.toString() );
+        if ( MultiStateRule.isMultiState( rule ) ) {
+            GameModel gameModel = new MultiStateGameModel( width, height, MultiStateRule.parse( rule ) );
+            gameModel.setBoundary( Boundary.parse( System.getProperty( BOUNDARY_PROPERTY, "dead" ) ) );
+            return gameModel;
+        }
+        // The vector and temporal engines only step the bit-packed model
+        String engine = System.getProperty( ENGINE_PROPERTY, "" );
+        boolean packed = Boolean.getBoolean( PACKED_PROPERTY ) || engine.equals( "vector" ) || engine.equals( "temporal" );
+        GameModel gameModel;
+        if ( Boolean.getBoolean( OFF_HEAP_PROPERTY ) ) {
+            gameModel = new OffHeapGameModel( width, height );
+        } else {
+            gameModel = packed ? new PackedGameModel( width, height ) : new ArrayGameModel( width, height );
+        }
+        gameModel.setBoundary( Boundary.parse( System.getProperty( BOUNDARY_PROPERTY, "dead" ) ) );
+        gameModel.setRule( Rule.parse( rule ) );
+        return gameModel;
+    }
+
+    /**
+     * Creates the configured engine for a model.
+     *
+     * @param gameModel the game's model
+     * @return the step engine
+     */
+    public static StepEngine createEngine( GameModel gameModel ) {
+        return createEngine( gameModel, Integer.getInteger( THREADS_PROPERTY, 1 ) );
+    }
+
+    /**
+     * Creates an engine for a model computing each generation on a number of threads.
+     *
+     * @param gameModel       the game's model
+     * @param numberOfThreads the number of threads, 1 to step on the calling thread
+     * @return the step engine
+     * @throws IllegalArgumentException if the engine does not support the model's boundary or rule
+     */
+    public static StepEngine createEngine( GameModel gameModel, int numberOfThreads ) {
+        String name = System.getProperty( ENGINE_PROPERTY, "" );
+
+        // Only the model's own engine knows about states other than active and inactive
+        if ( gameModel instanceof MultiStateGameModel && !name.isEmpty() ) {
+            throw new IllegalArgumentException( "The " + name + " engine does not support multi-state rules" );
+        }
+
+        // These engines see the grid as a window on an unbounded, mostly empty board
+        if ( name.equals( "hashlife" ) || name.equals( "sparse" ) ) {
+            if ( gameModel.getBoundary() != Boundary.DEAD ) {
+                throw new IllegalArgumentException( "The " + name + " engine only supports the dead boundary" );
+            }
+            if ( gameModel.getRule().isBorn( 0 ) ) {
+                throw new IllegalArgumentException( "The " + name + " engine does not support B0 rules" );
+            }
+        }
+
+        if ( name.equals( "hashlife" ) ) {
+            return new HashLifeEngine( gameModel );
+        } else if ( name.equals( "sparse" ) ) {
+            return new SparseStepEngine( gameModel );
+        } else if ( name.equals( "dirty" ) ) {
+            // The dirty engine steps the int array of the default model in place
+            if ( !( gameModel instanceof ArrayGameModel ) ) {
+                throw new IllegalArgumentException( "The dirty engine only supports the int array model" );
+            }
+            return new DirtyTileStepEngine( ( ArrayGameModel ) gameModel );
+        }
+        StepEngine engine = null;
+
+        if ( name.equals( "temporal" ) ) {
+            if ( !( gameModel instanceof PackedGameModel ) ) {
+                throw new IllegalArgumentException( "The temporal engine only supports the packed model" );
+            }
+            engine = new TemporalBlockingStepEngine( ( PackedGameModel ) gameModel,
+                    Integer.getInteger( TEMPORAL_GENERATIONS_PROPERTY, TemporalBlockingStepEngine.DEFAULT_GENERATIONS ),
+                    Integer.getInteger( TEMPORAL_ROWS_PROPERTY, 0 ), Integer.getInteger( TEMPORAL_COLUMNS_PROPERTY, 0 ) );
+        } else if ( name.equals( "vector" ) ) {
+            if ( !( gameModel instanceof PackedGameModel ) ) {
+                throw new IllegalArgumentException( "The vector engine only supports the packed model" );
+            }
+            engine = createVectorEngine( ( PackedGameModel ) gameModel );
+            if ( engine == null ) {
+                System.err.println( "The Vector API is not available, stepping with the scalar packed engine" );
+            }
+        }
+        if ( engine == null ) {
+            engine = gameModel.createStepEngine();
+        }
+
+        if ( numberOfThreads > 1 && engine instanceof BandedStepEngine ) {
+            return new ParallelStepEngine( ( BandedStepEngine ) engine, numberOfThreads );
+        }
+        return engine;
+    }
+
+    /**
+     * Creates an engine stepping a packed model with the JDK Vector API. The engine is loaded by name,
+     * as it is only compiled on Java 17 or later and only runs with the jdk.incubator.vector module.
+     *
+     * @param gameModel the game's model
+     * @return the vector engine, or null if the Vector API is missing or the processor has no vector lanes
+     */
+    public static BandedStepEngine createVectorEngine( PackedGameModel gameModel ) {
+        try {
+            Class<?> engineClass = Class.forName( VECTOR_ENGINE );
+            if ( !( Boolean ) engineClass.getMethod( "isAccelerated" ).invoke( null ) ) {
+                return null;
+            }
+            return ( BandedStepEngine ) engineClass.getConstructor( PackedGameModel.class ).newInstance( gameModel );
+        } catch ( ReflectiveOperationException | LinkageError e ) {
+            // Not compiled, compiled for a later Java, or run without the jdk.incubator.vector module
+            return null;
+        }
+    }
+}
@@ -0,0 +1,306 @@
+import java.util.Arrays;
+
+/**
+ * The class <b>TemporalBlockingStepEngine</b> computes several generations of a <b>PackedGameModel</b>
+ * in one pass over the grid. Stepping a grid larger than the processor's caches one generation at a
+ * time streams the whole grid through memory every generation; this engine instead copies a block
+ * of tiles small enough to stay in the cache, together with a halo of k rows above and below it and
+ * k columns, rounded up to whole words, left and right of it, and computes k generations of the block
+ * before moving on to the next one. Each generation computed in the block is wrong one more tile
+ * into the halo, the tiles there depending on tiles that were not copied, so after k generations
+ * the tiles of the block are still right and are written to the next generation of the grid. The
+ * grid is thus read and written once every k generations, at the cost of also computing the halos.
+ * <p>
+ * The halo beyond the edges of the grid holds the tiles the boundary shows there, which evolve
+ * like the rest of the grid: further tiles of the grid for a torus, mirrored rows for a Klein bottle,
+ * reflected tiles for a mirror. For the dead boundary nothing is copied beyond the edges, the rows
+ * there staying inactive, so the engine gives the same generations as <b>PackedStepEngine</b>.
+ *
+ * @author Igor Grebenkov
+ */
+public class TemporalBlockingStepEngine extends BandedStepEngine {
+
+    public static final int DEFAULT_GENERATIONS = 8;            // Generations computed per pass by default
+    public static final int DEFAULT_BLOCK_BYTES = 256 * 1024;   // Size of the two buffers of a block by default
+    public static final int DEFAULT_BLOCK_COLUMNS = 4096;       // Columns per block by default
+
+    private PackedGameModel gameModel;  // Reference to the game's model
+    private int generations;            // Largest number of generations computed per pass
+    private int blockRows;              // Number of rows per block, 0 to fit the buffers in DEFAULT_BLOCK_BYTES
+    private int blockWords;             // Number of words of a row per block
+    private int passGenerations = 1;    // Number of generations computed by the pass in progress
+    private long[] words;               // Packed state of the current generation
+    private long[] nextWords;           // Buffer the generation computed by the pass is written into
+    private BoardHash boardHash;        // Hash of the board updated while stepping, null if not hashed
+
+    /**
+     * Constructor to initialize the engine for a given model with the default number of generations
+     * per pass and blocks sized to stay in the cache.
+     *
+     * @param gameModel the game's model
+     */
+    public TemporalBlockingStepEngine( PackedGameModel gameModel ) {
+        this( gameModel, DEFAULT_GENERATIONS, 0, 0 );
+    }
+
+    /**
+     * Constructor to initialize the engine for a given model.
+     *
+     * @param gameModel    the game's model
+     * @param generations  the largest number of generations computed per pass over the grid
+     * @param blockRows    the number of rows per block, 0 to size the blocks to stay in the cache
+     * @param blockColumns the number of columns per block, rounded up to whole words, 0 for DEFAULT_BLOCK_COLUMNS
+     */
+    public TemporalBlockingStepEngine( PackedGameModel gameModel, int generations, int blockRows, int blockColumns ) {
+        if ( generations < 1 ) {
+            throw new IllegalArgumentException( "Generations per pass must be positive: " + generations );
+        }
+        if ( blockRows < 0 || blockColumns < 0 ) {
+            throw new IllegalArgumentException( "Block size cannot be negative: " + blockColumns + "x" + blockRows );
+        }
+        this.gameModel = gameModel;
+        this.generations = generations;
+        this.blockRows = blockRows;
+        blockWords = PackedGameModel.wordsFor( blockColumns > 0 ? blockColumns : DEFAULT_BLOCK_COLUMNS );
+    }
+
+    /**
+     * Getter method for the largest number of generations computed per pass over the grid.
+     *
+     * @return the number of generations
+     */
+    public int getGenerations() {
+        return generations;
+    }
+
+    /**
+     * Computes as many of the requested generations as one pass allows.
+     *
+     * @param generations the number of generations still to compute
+     * @return the number of generations the next pass computes
+     */
+    @Override
+    protected int beginPass( int generations ) {
+        passGenerations = Math.min( this.generations, generations );
+        return passGenerations;
+    }
+
+    /**
+     * Prepares the buffers used to compute the generation.
+     *
+     * @return the number of rows that make up the grid
+     */
+    protected int prepare() {
+        words = gameModel.getWords();
+        if ( nextWords == null || nextWords.length != words.length ) {
+            nextWords = new long[ words.length ];
+        }
+        BoardHash hash = gameModel.getBoardHash();
+        boardHash = hash != null && hash.isCurrent( gameModel ) ? hash : null;
+        return gameModel.getHeight();
+    }
+
+    /**
+     * Computes the generation reached by the pass for a band of rows, one block at a time.
+     *
+     * @param from the first row of the band
+     * @param to   the row after the last row of the band
+     */
+    protected void computeBand( int from, int to ) {
+        int wordsPerRow = gameModel.getWordsPerRow();
+        int depth = passGenerations;
+        int haloWords = PackedGameModel.wordsFor( depth );
+        int columns = Math.min( blockWords, wordsPerRow );
+        int span = columns + 2 * haloWords;
+        int rows = blockRows > 0 ? blockRows : Math.max( 2 * depth, DEFAULT_BLOCK_BYTES / ( 2 * 8 * span ) - 2 * depth );
+        long[] block = new long[ ( Math.min( rows, to - from ) + 2 * depth ) * span ];
+        long[] nextBlock = new long[ block.length ];
+
+        long change = 0;
+
+        for ( int top = from; top < to; top += rows ) {
+            for ( int left = 0; left < wordsPerRow; left += columns ) {
+                change ^= computeBlock( top, Math.min( to, top + rows ), left, Math.min( wordsPerRow, left + columns ),
+                        depth, haloWords, block, nextBlock );
+            }
+        }
+        if ( boardHash != null ) {
+            boardHash.add( change );
+        }
+    }
+
+    /**
+     * Makes the computed generation the current state of the game's model.
+     */
+    protected void commit() {
+        long modifications = gameModel.getModificationCount();
+        nextWords = gameModel.swapWords( nextWords );
+        words = null;
+        if ( boardHash != null ) {
+            boardHash.commit( gameModel, modifications );
+            boardHash = null;
+        }
+    }
+
+    /**
+     * Computes a number of generations of a block of tiles.
+     *
+     * @param top       the first row of the block
+     * @param bottom    the row after the last row of the block
+     * @param left      the first word of the rows of the block
+     * @param right     the word after the last word of the rows of the block
+     * @param depth     the number of generations
+     * @param haloWords the number of words copied left and right of the block
+     * @param block     buffer holding the tiles of the block and its halo
+     * @param nextBlock buffer the next generation of these tiles is written into
+     * @return the change of the hash of the board made by the block, 0 if the board is not hashed
+     */
+    private long computeBlock( int top, int bottom, int left, int right, int depth, int haloWords,
+                               long[] block, long[] nextBlock ) {
+        int height = gameModel.getHeight();
+        int wordsPerRow = gameModel.getWordsPerRow();
+        long lastMask = PackedGameModel.lastWordMask( gameModel.getWidth() );
+        Rule rule = gameModel.getRule();
+        boolean dead = gameModel.getBoundary() == Boundary.DEAD;
+
+        // The words copied, which only go beyond the edges of the grid if the boundary shows tiles there;
+        // the ghost tiles of the copied rows are then inactive, and go wrong from the outside in like the halo
+        int first = dead ? Math.max( 0, left - haloWords ) : left - haloWords;
+        int last = dead ? Math.min( wordsPerRow, right + haloWords ) : right + haloWords;
+        int span = last - first;
+        long mask = dead && last == wordsPerRow ? lastMask : -1L;
+        int n = bottom - top + 2 * depth;
+
+        // Row b of the buffers holds row top - depth + b of the grid, or the row seen there
+        for ( int b = 0; b < n; b++ ) {
+            loadRow( top - depth + b, first, span, block, nextBlock, b * span );
+        }
+
+        long[] current = block;
+        long[] next = nextBlock;
+        for ( int s = 1; s <= depth; s++ ) {
+            for ( int b = s; b < n - s; b++ ) {
+                int j = top - depth + b;
+                if ( dead && ( j < 0 || j >= height ) ) {
+                    continue;
+                }
+                int offset = b * span;
+                PackedStepEngine.stepRow( current, offset - span, current, offset, current, offset + span,
+                        next, offset, span, 0, 0, mask, rule );
+            }
+            long[] swap = current;
+            current = next;
+            next = swap;
+        }
+
+        long change = 0;
+        for ( int j = top; j < bottom; j++ ) {
+            int offset = j * wordsPerRow;
+            System.arraycopy( current, ( j - top + depth ) * span + left - first, nextWords, offset + left, right - left );
+            if ( right == wordsPerRow ) {
+                // Beyond the width the halo held the tiles seen past the right edge
+                nextWords[ offset + wordsPerRow - 1 ] &= lastMask;
+            }
+            if ( boardHash != null ) {
+                change ^= BoardHash.change( words, offset + left, nextWords, offset + left, right - left, offset + left );
+            }
+        }
+        return change;
+    }
+
+    /**
+     * Copies some words of the row seen at a row of the grid, or beyond its edges, into both buffers of a block.
+     *
+     * @param j      the row, which may lie any number of rows outside the grid
+     * @param first  the first word copied, which may lie outside the grid unless the boundary is dead
+     * @param span   the number of words copied
+     * @param block  the buffer of the current generation of the block
+     * @param blank  the buffer of the next generation, only written for rows that are never computed
+     * @param offset the index of the first word written in the buffers
+     */
+    private void loadRow( int j, int first, int span, long[] block, long[] blank, int offset ) {
+        int width = gameModel.getWidth();
+        int height = gameModel.getHeight();
+        int wordsPerRow = gameModel.getWordsPerRow();
+        long[] source = words;
+        int row;
+
+        switch ( gameModel.getBoundary() ) {
+            case TORUS:
+                row = Math.floorMod( j, height );
+                break;
+            case KLEIN_BOTTLE:
+                row = Math.floorMod( j, height );
+                if ( ( Math.floorDiv( j, height ) & 1 ) != 0 ) {
+                    source = Arrays.copyOfRange( words, row * wordsPerRow, ( row + 1 ) * wordsPerRow );
+                    mirror( source, 0, wordsPerRow, width );
+                    row = 0;
+                }
+                break;
+            case MIRROR:
+                row = Math.floorMod( j, 2 * height );
+                if ( row >= height ) {
+                    row = 2 * height - 1 - row;
+                }
+                break;
+            default:
+                if ( j < 0 || j >= height ) {
+                    Arrays.fill( block, offset, offset + span, 0 );
+                    Arrays.fill( blank, offset, offset + span, 0 );
+                    return;
+                }
+                System.arraycopy( words, j * wordsPerRow + first, block, offset, span );
+                return;
+        }
+
+        int rowOffset = row * wordsPerRow;
+        for ( int w = 0; w < span; w++ ) {
+            int word = first + w;
+            if ( word >= 0 && 64 * word + 63 < width ) {
+                block[ offset + w ] = source[ rowOffset + word ];
+            } else {
+                // Partly or wholly beyond the edges, gathered a tile at a time
+                long bits = 0;
+                for ( int k = 0; k < 64; k++ ) {
+                    bits |= ( long ) bit( source, rowOffset, column( 64 * word + k, width ) ) << k;
+                }
+                block[ offset + w ] = bits;
+            }
+        }
+    }
+
+    /**
+     * Finds the column of the tile seen at a column, which may lie any number of columns outside the grid.
+     */
+    private int column( int i, int width ) {
+        if ( gameModel.getBoundary() == Boundary.MIRROR ) {
+            int reflected = Math.floorMod( i, 2 * width );
+            return reflected < width ? reflected : 2 * width - 1 - reflected;
+        }
+        return Math.floorMod( i, width );
+    }
+
+    /**
+     * Reverses the order of the tiles of a packed row in place.
+     */
+    private static void mirror( long[] block, int offset, int wordsPerRow, int width ) {
+        long[] reversed = new long[ wordsPerRow + 1 ];
+        for ( int w = 0; w < wordsPerRow; w++ ) {
+            reversed[ w ] = Long.reverse( block[ offset + wordsPerRow - 1 - w ] );
+        }
+
+        // Tile i of the reversed words is tile 64 * wordsPerRow - 1 - i, so drop the unused bits
+        int unused = 64 * wordsPerRow - width;
+        for ( int w = 0; w < wordsPerRow; w++ ) {
+            block[ offset + w ] = unused == 0 ? reversed[ w ]
+                    : reversed[ w ] >>> unused | reversed[ w + 1 ] << ( 64 - unused );
+        }
+    }
+
+    /**
+     * Reads a tile of a packed row.
+     */
+    private static int bit( long[] block, int offset, int i ) {
+        return ( int ) ( block[ offset + ( i >>> 6 ) ] >>> i ) & 1;
+    }
+}
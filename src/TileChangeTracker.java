@@ -0,0 +1,136 @@
+import java.util.Arrays;
+
+/**
+ * The class <b>TileChangeTracker</b> divides the grid into square blocks of tiles and
+ * records which blocks changed during the last generation, either because a step engine
+ * computed a different state for one of their tiles or because a tile was edited.
+ * A block whose neighbourhood (itself and the eight blocks around it) did not change
+ * cannot change in the next generation either.
+ *
+ * @author Igor Grebenkov
+ */
+public class TileChangeTracker {
+
+    public static final int DEFAULT_BLOCK_SHIFT = 4;    // Blocks of 16x16 tiles
+
+    private int blockShift;         // Base 2 logarithm of the width of a block
+    private int blocksAcross;       // Number of blocks along the width of the grid
+    private int blocksDown;         // Number of blocks along the height of the grid
+    private boolean[] changed;      // Blocks changed during the last generation or edited since
+    private boolean[] nextChanged;  // Blocks changed during the generation being computed
+
+    /**
+     * Constructor to initialize a tracker for a grid. Every block starts out changed.
+     *
+     * @param width      the number of columns of the grid
+     * @param height     the number of rows of the grid
+     * @param blockShift the base 2 logarithm of the width of a block
+     */
+    public TileChangeTracker( int width, int height, int blockShift ) {
+        this.blockShift = blockShift;
+        blocksAcross = ( width + ( 1 << blockShift ) - 1 ) >> blockShift;
+        blocksDown = ( height + ( 1 << blockShift ) - 1 ) >> blockShift;
+        changed = new boolean[ blocksAcross * blocksDown ];
+        nextChanged = new boolean[ blocksAcross * blocksDown ];
+        markAll();
+    }
+
+    /**
+     * Getter method for the width of a block.
+     *
+     * @return the number of tiles along each side of a block
+     */
+    public int getBlockSize() {
+        return 1 << blockShift;
+    }
+
+    /**
+     * Getter method for the number of blocks along the width of the grid.
+     *
+     * @return the number of columns of blocks
+     */
+    public int getBlocksAcross() {
+        return blocksAcross;
+    }
+
+    /**
+     * Getter method for the number of blocks along the height of the grid.
+     *
+     * @return the number of rows of blocks
+     */
+    public int getBlocksDown() {
+        return blocksDown;
+    }
+
+    /**
+     * Records that a tile changed.
+     *
+     * @param i the tile's x co-ordinate
+     * @param j the tile's y co-ordinate
+     */
+    public void markTile( int i, int j ) {
+        changed[ ( i >> blockShift ) * blocksDown + ( j >> blockShift ) ] = true;
+    }
+
+    /**
+     * Records that a run of tiles along a row may have changed.
+     *
+     * @param i      the x co-ordinate of the first tile
+     * @param j      the tiles' y co-ordinate
+     * @param length the number of tiles in the run
+     */
+    public void markRun( int i, int j, int length ) {
+        int by = j >> blockShift;
+        for ( int bx = i >> blockShift; bx <= ( i + length - 1 ) >> blockShift; bx++ ) {
+            changed[ bx * blocksDown + by ] = true;
+        }
+    }
+
+    /**
+     * Records that every tile may have changed.
+     */
+    public void markAll() {
+        Arrays.fill( changed, true );
+    }
+
+    /**
+     * Checks whether a block or any block around it changed during the last generation.
+     *
+     * @param bx the block's x co-ordinate
+     * @param by the block's y co-ordinate
+     * @return true if the block must be computed again
+     */
+    public boolean isNeighbourhoodChanged( int bx, int by ) {
+        int fromX = Math.max( bx - 1, 0 ), toX = Math.min( bx + 1, blocksAcross - 1 );
+        int fromY = Math.max( by - 1, 0 ), toY = Math.min( by + 1, blocksDown - 1 );
+
+        for ( int x = fromX; x <= toX; x++ ) {
+            for ( int y = fromY; y <= toY; y++ ) {
+                if ( changed[ x * blocksDown + y ] ) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Records whether a block changed during the generation being computed.
+     *
+     * @param bx      the block's x co-ordinate
+     * @param by      the block's y co-ordinate
+     * @param changed whether any tile of the block changed
+     */
+    public void setNextChanged( int bx, int by, boolean changed ) {
+        nextChanged[ bx * blocksDown + by ] = changed;
+    }
+
+    /**
+     * Makes the changes recorded with setNextChanged() those of the last generation.
+     */
+    public void endGeneration() {
+        boolean[] previous = changed;
+        changed = nextChanged;
+        nextChanged = previous;
+    }
+}
@@ -0,0 +1,264 @@
+import java.util.Arrays;
+
+/**
+ * The class <b>ViewportFrame</b> is an immutable copy of the part of the board shown by a view
+ * at a given generation. The viewport is a rectangle of samples, each covering a square of
+ * scale x scale tiles starting at the viewport's top left tile:
+ * - at scale 1 each sample holds the state of its tile
+ * - at larger scales each sample is pooled from its square and holds the density of its
+ *   active tiles, from 0 for none to 255 for all, rounded up so that a square holding a
+ *   single active tile is never shown empty
+ * Building a frame only reads the tiles in view, so its cost depends on the size of the
+ * view and not on the size of the board, except when zoomed out over the whole board.
+ * Frames can be handed to other threads freely.
+ *
+ * @author Igor Grebenkov
+ */
+public final class ViewportFrame {
+
+    public static final int FULL_DENSITY = 255;     // Density of a square whose tiles are all active
+
+    private final long generation;      // The generation the frame was taken at
+    private final int left;             // The x co-ordinate of the tile at the top left of the viewport
+    private final int top;              // The y co-ordinate of the tile at the top left of the viewport
+    private final int scale;            // Number of tiles along each side of a sample
+    private final int columns;          // Number of samples along the width of the viewport
+    private final int rows;             // Number of samples along the height of the viewport
+    private final byte[] samples;       // The state or density of each sample, row after row
+    private final long population;      // Number of active tiles in the viewport
+
+    /**
+     * Constructor to initialize a frame.
+     */
+    private ViewportFrame( long generation, int left, int top, int scale, int columns, int rows,
+                           byte[] samples, long population ) {
+        this.generation = generation;
+        this.left = left;
+        this.top = top;
+        this.scale = scale;
+        this.columns = columns;
+        this.rows = rows;
+        this.samples = samples;
+        this.population = population;
+    }
+
+    /**
+     * Takes a frame of the whole board at scale 1. The caller must make sure the model is not
+     * modified meanwhile.
+     *
+     * @param gameModel  the game's model
+     * @param generation the current generation
+     * @return the frame
+     */
+    public static ViewportFrame of( GameModel gameModel, long generation ) {
+        return of( gameModel, generation, 0, 0, gameModel.getWidth(), gameModel.getHeight(), 1 );
+    }
+
+    /**
+     * Takes a frame of part of the board. The viewport is clipped to the grid, so it may hold
+     * fewer samples than asked for. The caller must make sure the model is not modified meanwhile.
+     *
+     * @param gameModel  the game's model
+     * @param generation the current generation
+     * @param left       the x co-ordinate of the tile at the top left of the viewport
+     * @param top        the y co-ordinate of the tile at the top left of the viewport
+     * @param columns    the largest number of samples along the width of the viewport
+     * @param rows       the largest number of samples along the height of the viewport
+     * @param scale      the number of tiles along each side of a sample
+     * @return the frame
+     */
+    public static ViewportFrame of( GameModel gameModel, long generation, int left, int top,
+                                    int columns, int rows, int scale ) {
+        if ( scale < 1 ) {
+            throw new IllegalArgumentException( "The scale must be positive: " + scale );
+        }
+        int width = gameModel.getWidth();
+        int height = gameModel.getHeight();
+        left = Math.min( Math.max( left, 0 ), width - 1 );
+        top = Math.min( Math.max( top, 0 ), height - 1 );
+        columns = ( int ) Math.min( columns, ( width - left + ( long ) scale - 1 ) / scale );
+        rows = ( int ) Math.min( rows, ( height - top + ( long ) scale - 1 ) / scale );
+        columns = Math.max( columns, 0 );
+        rows = Math.max( rows, 0 );
+        byte[] samples = new byte[ columns * rows ];
+
+        if ( scale == 1 ) {
+            long population = 0;
+            for ( int r = 0; r < rows; r++ ) {
+                for ( int c = 0; c < columns; c++ ) {
+                    int state = gameModel.getCurrentStatus( left + c, top + r );
+                    samples[ r * columns + c ] = ( byte ) state;
+                    if ( state == GameModel.ACTIVE ) {
+                        population++;
+                    }
+                }
+            }
+            return new ViewportFrame( generation, left, top, 1, columns, rows, samples, population );
+        }
+        return new ViewportFrame( generation, left, top, scale, columns, rows, samples,
+                pool( gameModel, left, top, columns, rows, scale, samples ) );
+    }
+
+    /**
+     * Pools the squares of tiles of a viewport into densities, reading the packed rows in view.
+     * Rows of a <b>PackedGameModel</b> are read in place rather than copied.
+     *
+     * @return the number of active tiles in the viewport
+     */
+    private static long pool( GameModel gameModel, int left, int top, int columns, int rows, int scale,
+                              byte[] samples ) {
+        int width = gameModel.getWidth();
+        int height = gameModel.getHeight();
+        int right = ( int ) Math.min( width, left + ( long ) columns * scale );
+        long[] counts = new long[ columns ];
+        long[] row = null;
+        long[] words;
+        int wordsPerRow = PackedGameModel.wordsFor( width );
+        long population = 0;
+
+        if ( gameModel instanceof PackedGameModel ) {
+            words = ( ( PackedGameModel ) gameModel ).getWords();
+        } else {
+            row = new long[ wordsPerRow ];
+            words = row;
+        }
+
+        for ( int r = 0; r < rows; r++ ) {
+            int fromY = top + r * scale;
+            int toY = ( int ) Math.min( height, fromY + ( long ) scale );
+            Arrays.fill( counts, 0 );
+
+            for ( int y = fromY; y < toY; y++ ) {
+                int offset = 0;
+                if ( row != null ) {
+                    gameModel.readRow( y, row, 0 );
+                } else {
+                    offset = y * wordsPerRow;
+                }
+                for ( int c = 0; c < columns; c++ ) {
+                    int fromX = left + c * scale;
+                    counts[ c ] += countBits( words, offset, fromX, Math.min( right, fromX + scale ) );
+                }
+            }
+
+            for ( int c = 0; c < columns; c++ ) {
+                int fromX = left + c * scale;
+                long area = ( long ) ( Math.min( right, fromX + scale ) - fromX ) * ( toY - fromY );
+                samples[ r * columns + c ] = ( byte ) ( ( counts[ c ] * FULL_DENSITY + area - 1 ) / area );
+                population += counts[ c ];
+            }
+        }
+        return population;
+    }
+
+    /**
+     * Counts the bits set in a range of columns of a packed row.
+     *
+     * @param words  the array holding the row
+     * @param offset the index of the first word of the row
+     * @param from   the first column counted
+     * @param to     the column after the last column counted
+     * @return the number of active tiles in the range
+     */
+    private static int countBits( long[] words, int offset, int from, int to ) {
+        if ( from >= to ) {
+            return 0;
+        }
+        int first = from >>> 6;
+        int last = ( to - 1 ) >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> ( 63 - ( ( to - 1 ) & 63 ) );
+
+        if ( first == last ) {
+            return Long.bitCount( words[ offset + first ] & firstMask & lastMask );
+        }
+        int count = Long.bitCount( words[ offset + first ] & firstMask );
+        for ( int w = first + 1; w < last; w++ ) {
+            count += Long.bitCount( words[ offset + w ] );
+        }
+        return count + Long.bitCount( words[ offset + last ] & lastMask );
+    }
+
+    /**
+     * Getter method for the generation the frame was taken at.
+     *
+     * @return the generation
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Getter method for the tile at the left edge of the viewport.
+     *
+     * @return the x co-ordinate of the tile at the top left of the viewport
+     */
+    public int getLeft() {
+        return left;
+    }
+
+    /**
+     * Getter method for the tile at the top edge of the viewport.
+     *
+     * @return the y co-ordinate of the tile at the top left of the viewport
+     */
+    public int getTop() {
+        return top;
+    }
+
+    /**
+     * Getter method for the number of tiles along each side of a sample.
+     *
+     * @return the scale, 1 if each sample is a tile
+     */
+    public int getScale() {
+        return scale;
+    }
+
+    /**
+     * Checks whether the samples are densities pooled from squares of tiles.
+     *
+     * @return true if the scale is larger than 1
+     */
+    public boolean isPooled() {
+        return scale > 1;
+    }
+
+    /**
+     * Getter method for the number of samples along the width of the viewport.
+     *
+     * @return the number of columns of samples
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Getter method for the number of samples along the height of the viewport.
+     *
+     * @return the number of rows of samples
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Getter method for a sample of the viewport.
+     *
+     * @param column the column of the sample
+     * @param row    the row of the sample
+     * @return the state of the tile at scale 1, or the density of the active tiles of the square
+     */
+    public int getSample( int column, int row ) {
+        return samples[ row * columns + column ] & 0xFF;
+    }
+
+    /**
+     * Getter method for the number of active tiles in the viewport.
+     *
+     * @return the population in view
+     */
+    public long getPopulation() {
+        return population;
+    }
+}
@@ -0,0 +1,171 @@
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The class <b>VectorStepEngine</b> computes each generation of a <b>PackedGameModel</b> with the
+ * JDK Vector API, stepping as many words of a row at once as the processor has 64-bit lanes:
+ * 4 with AVX2, 8 with AVX-512. Each lane runs the same bitwise full adders as
+ * <b>PackedStepEngine</b> on its own word, the words west and east of it being loaded one
+ * lane over, so a vector of words covers 256 or 512 tiles.
+ * <p>
+ * The first and the last word of each row, which take in the ghost tiles, and the words left
+ * over after the last whole vector are computed by the scalar kernel of <b>PackedStepEngine</b>,
+ * so both engines always compute the same generations.
+ * <p>
+ * This class is compiled from its own source directory for Java 17 with the incubating
+ * <b>jdk.incubator.vector</b> module, and is only loaded by <b>StepEngines</b> when the module
+ * is present (java --add-modules jdk.incubator.vector).
+ *
+ * @author Igor Grebenkov
+ */
+public class VectorStepEngine extends PackedStepEngine {
+
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;  // Widest vector of longs
+
+    /**
+     * Constructor to initialize the engine for a given model.
+     *
+     * @param gameModel the game's model
+     */
+    public VectorStepEngine( PackedGameModel gameModel ) {
+        super( gameModel );
+    }
+
+    /**
+     * Checks whether the processor has more than one lane of 64 bits, without which the Vector API
+     * would only emulate vectors one word at a time.
+     *
+     * @return true if vectors hold at least two words
+     */
+    public static boolean isAccelerated() {
+        return SPECIES.length() >= 2;
+    }
+
+    /**
+     * Computes the next generation of one packed row, the words between the first and the last a vector at a time.
+     *
+     * @param above       the array holding the row above
+     * @param aboveOffset the index of the first word of the row above
+     * @param row         the array holding the row
+     * @param rowOffset   the index of the first word of the row
+     * @param below       the array holding the row below
+     * @param belowOffset the index of the first word of the row below
+     * @param next        the array the next generation of the row is written into
+     * @param nextOffset  the index of the first word written
+     * @param words       the number of words in a row
+     * @param west        the ghost tiles left of the rows above (bit 0), at (bit 1) and below (bit 2)
+     * @param east        the ghost tiles right of the rows above (bit 0), at (bit 1) and below (bit 2)
+     * @param lastMask    the mask of the bits of the last word that hold tiles
+     * @param rule        the rule of the game
+     */
+    @Override
+    protected void computeRow( long[] above, int aboveOffset, long[] row, int rowOffset,
+                               long[] below, int belowOffset, long[] next, int nextOffset,
+                               int words, int west, int east, long lastMask, Rule rule ) {
+        int lanes = SPECIES.length();
+        if ( words < lanes + 2 ) {
+            stepRow( above, aboveOffset, row, rowOffset, below, belowOffset, next, nextOffset,
+                    words, west, east, lastMask, rule );
+            return;
+        }
+        // The words from 1 up to end, a whole number of vectors, are computed a vector at a time
+        int end = 1 + ( words - 2 ) / lanes * lanes;
+
+        // The first word sees the lowest bits of the second words to its east
+        int firstEast = ( int ) ( above[ aboveOffset + 1 ] & 1 | ( row[ rowOffset + 1 ] & 1 ) << 1
+                | ( below[ belowOffset + 1 ] & 1 ) << 2 );
+        stepRow( above, aboveOffset, row, rowOffset, below, belowOffset, next, nextOffset,
+                1, west, firstEast, -1L, rule );
+
+        boolean conway = rule.isConway();
+        long[] masks = rule.getPlaneMasks();
+        for ( int w = 1; w < end; w += lanes ) {
+            LongVector above1 = LongVector.fromArray( SPECIES, above, aboveOffset + w );
+            LongVector row1 = LongVector.fromArray( SPECIES, row, rowOffset + w );
+            LongVector below1 = LongVector.fromArray( SPECIES, below, belowOffset + w );
+
+            // Neighbours to the west (x - 1) and east (x + 1) of every bit, from the words one lane over
+            LongVector aboveWest = west( above1, LongVector.fromArray( SPECIES, above, aboveOffset + w - 1 ) );
+            LongVector aboveEast = east( above1, LongVector.fromArray( SPECIES, above, aboveOffset + w + 1 ) );
+            LongVector rowWest = west( row1, LongVector.fromArray( SPECIES, row, rowOffset + w - 1 ) );
+            LongVector rowEast = east( row1, LongVector.fromArray( SPECIES, row, rowOffset + w + 1 ) );
+            LongVector belowWest = west( below1, LongVector.fromArray( SPECIES, below, belowOffset + w - 1 ) );
+            LongVector belowEast = east( below1, LongVector.fromArray( SPECIES, below, belowOffset + w + 1 ) );
+
+            // Count the row above and the row below into 2-bit sums (carry, sum)
+            LongVector aboveXor = aboveWest.lanewise( VectorOperators.XOR, above1 );
+            LongVector aboveSum = aboveXor.lanewise( VectorOperators.XOR, aboveEast );
+            LongVector aboveCarry = aboveWest.and( above1 ).or( aboveXor.and( aboveEast ) );
+            LongVector belowXor = belowWest.lanewise( VectorOperators.XOR, below1 );
+            LongVector belowSum = belowXor.lanewise( VectorOperators.XOR, belowEast );
+            LongVector belowCarry = belowWest.and( below1 ).or( belowXor.and( belowEast ) );
+            LongVector rowSum = rowWest.lanewise( VectorOperators.XOR, rowEast );
+            LongVector rowCarry = rowWest.and( rowEast );
+
+            // Add the ones, then the twos, of the three partial sums
+            LongVector onesXor = aboveSum.lanewise( VectorOperators.XOR, belowSum );
+            LongVector ones = onesXor.lanewise( VectorOperators.XOR, rowSum );
+            LongVector onesCarry = aboveSum.and( belowSum ).or( onesXor.and( rowSum ) );
+            LongVector twosLeft = aboveCarry.lanewise( VectorOperators.XOR, belowCarry );
+            LongVector twosRight = rowCarry.lanewise( VectorOperators.XOR, onesCarry );
+            LongVector twos = twosLeft.lanewise( VectorOperators.XOR, twosRight );
+            LongVector bothTwos = aboveCarry.and( belowCarry );
+            LongVector bothTwosRight = rowCarry.and( onesCarry );
+            LongVector oneEachTwos = twosLeft.and( twosRight );
+
+            LongVector result;
+            if ( conway ) {
+                // Alive next generation with 3 neighbours, or with 2 neighbours if alive now
+                LongVector foursOrMore = bothTwos.or( bothTwosRight ).or( oneEachTwos );
+                result = twos.lanewise( VectorOperators.AND_NOT, foursOrMore ).and( ones.or( row1 ) );
+            } else {
+                // The rule's expression over the bit planes, as PackedStepEngine evaluates it
+                LongVector fours = bothTwos.lanewise( VectorOperators.XOR, bothTwosRight )
+                        .lanewise( VectorOperators.XOR, oneEachTwos );
+                LongVector eights = bothTwos.and( bothTwosRight );
+                LongVector foursAndTwos = fours.and( twos );
+                LongVector[] terms = new LongVector[ 4 ];
+                for ( int t = 0; t < 4; t++ ) {
+                    terms[ t ] = fours.and( masks[ 4 * t + 1 ] ).lanewise( VectorOperators.XOR, masks[ 4 * t ] )
+                            .lanewise( VectorOperators.XOR, twos.and( masks[ 4 * t + 2 ] ) )
+                            .lanewise( VectorOperators.XOR, foursAndTwos.and( masks[ 4 * t + 3 ] ) );
+                }
+                result = terms[ 0 ].lanewise( VectorOperators.XOR, row1.and( terms[ 1 ] ) )
+                        .lanewise( VectorOperators.XOR, ones.and( terms[ 2 ] ) )
+                        .lanewise( VectorOperators.XOR, row1.and( ones ).and( terms[ 3 ] ) );
+                result = result.lanewise( VectorOperators.XOR, eights.and( result.lanewise( VectorOperators.XOR, masks[ 16 ] )
+                        .lanewise( VectorOperators.XOR, row1.and( masks[ 17 ] ) ) ) );
+            }
+            result.intoArray( next, nextOffset + w );
+        }
+
+        // The remaining words see the highest bits of the words before them to their west
+        int restWest = ( int ) ( above[ aboveOffset + end - 1 ] >>> 63 | ( row[ rowOffset + end - 1 ] >>> 63 ) << 1
+                | ( below[ belowOffset + end - 1 ] >>> 63 ) << 2 );
+        stepRow( above, aboveOffset + end, row, rowOffset + end, below, belowOffset + end,
+                next, nextOffset + end, words - end, restWest, east, lastMask, rule );
+    }
+
+    /**
+     * Shifts the western neighbour of every bit of a vector of words into place.
+     *
+     * @param words     the words
+     * @param westWords the words one lane to the west, whose highest bits neighbour the lowest bits of the words
+     * @return the western neighbours of the bits of the words
+     */
+    private static LongVector west( LongVector words, LongVector westWords ) {
+        return words.lanewise( VectorOperators.LSHL, 1 ).or( westWords.lanewise( VectorOperators.LSHR, 63 ) );
+    }
+
+    /**
+     * Shifts the eastern neighbour of every bit of a vector of words into place.
+     *
+     * @param words     the words
+     * @param eastWords the words one lane to the east, whose lowest bits neighbour the highest bits of the words
+     * @return the eastern neighbours of the bits of the words
+     */
+    private static LongVector east( LongVector words, LongVector eastWords ) {
+        return words.lanewise( VectorOperators.LSHR, 1 ).or( eastWords.lanewise( VectorOperators.LSHL, 63 ) );
+    }
+}